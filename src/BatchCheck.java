@@ -0,0 +1,349 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A spellcheck of whole pages of text against a single index file, run from the command
+ * line without a window, so that an entire book can be checked from a script. Each name
+ * in the pages is reported on a line of its own, along with where it was read from,
+ * whether it was found, and the same result the spellcheck function would show for it.
+ *
+ * <p>Pages are read one line at a time, and each line is looked up as a list of names
+ * as soon as it is read, with its results written out before the next line is read. No
+ * more than a line of input and its results are held at once, since lines are looked up
+ * without keeping their results for repeated queries, so pages of any length are
+ * checked in the same memory. Since names never span lines, the names found are the
+ * same as if each page were checked as a whole. Lines are always looked up as lists of
+ * names, never searched as partial names, so an asterisk is read as any other character
+ * that cannot appear in a name.
+ *
+ * <p>Results are written in one of two formats: tab-separated values, with a header
+ * row, or JSON lines, with one object per name. The check never uses any part of the
+ * graphical interface.
+ */
+class BatchCheck implements MugsEventStamps {
+
+  /**
+   * The option that selects a batch check when given as the first argument to the
+   * program.
+   */
+  static final String CHECK_OPTION = "--check";
+
+  /**
+   * The option that selects the format of the results, followed by the format's name.
+   */
+  private static final String FORMAT_OPTION = "--format";
+
+  /**
+   * The name of standard input, when given in place of a file.
+   */
+  private static final String STANDARD_INPUT = "-";
+
+  /**
+   * The name of the format of tab-separated values.
+   */
+  private static final String TSV = "tsv";
+
+  /**
+   * The name of the format of JSON lines.
+   */
+  private static final String JSON_LINES = "jsonl";
+
+  /**
+   * The status returned when every name was found.
+   */
+  static final int ALL_FOUND = 0;
+
+  /**
+   * The status returned when at least one name was not found.
+   */
+  static final int MISSPELLINGS_FOUND = 1;
+
+  /**
+   * The status returned when the check could not be carried out, because its arguments
+   * were wrong or a file could not be read.
+   */
+  static final int FAILED = 2;
+
+  /**
+   * The start of the result for every name not found in the index.
+   */
+  private static final String NOT_FOUND = "SPELLED WRONG/NOT FOUND";
+
+  /**
+   * The charset of the pages checked, which is the same as that of index files.
+   */
+  private static final Charset PAGE_CHARSET = Charset.defaultCharset();
+
+  /**
+   * The usage message shown when the arguments are wrong.
+   */
+  private static final String USAGE =
+      "Usage: MugsReader " + CHECK_OPTION + " INDEX [FILE ...] [" + FORMAT_OPTION + " "
+      + TSV + "|" + JSON_LINES + "]\n"
+      + "Checks the spelling of every name in each FILE, or in standard input if no FILE\n"
+      + "is given or FILE is " + STANDARD_INPUT + ", against the index file INDEX.\n"
+      + "Exits with " + ALL_FOUND + " if every name was found, " + MISSPELLINGS_FOUND
+      + " if any was not, and " + FAILED + " on error.";
+
+  /**
+   * The index against which names are checked.
+   */
+  private final IndexInterpreter index;
+
+  /**
+   * The search carried out for every line: everyone is searched, and all of their data
+   * are reported.
+   */
+  private final SearchFilter filter = SearchFilter.everyone(
+      SearchFilter.REPORT_INDEX | SearchFilter.REPORT_GRADE | SearchFilter.REPORT_HOMEFORM);
+
+  /**
+   * The destination of the results.
+   */
+  private final Writer out;
+
+  /**
+   * Whether results are written as JSON lines rather than tab-separated values.
+   */
+  private final boolean jsonLines;
+
+  /**
+   * The number of names checked so far, and the number of them not found.
+   */
+  private long checked;
+  private long notFound;
+
+  /**
+   * Initialize a new <code>BatchCheck</code> that checks names against the specified
+   * index and writes the results in the specified format.
+   *
+   * @param index
+   *        The index against which names are checked
+   * @param out
+   *        The destination of the results
+   * @param jsonLines
+   *        Whether results are written as JSON lines rather than tab-separated values
+   */
+  BatchCheck(IndexInterpreter index, Writer out, boolean jsonLines) {
+    this.index = index;
+    this.out = out;
+    this.jsonLines = jsonLines;
+  }
+
+  /**
+   * Run a batch check as specified by the program's arguments, the first of which is
+   * <code>CHECK_OPTION</code>. The arguments that follow are the name of an index file,
+   * then the names of any number of files to check, and optionally
+   * <code>FORMAT_OPTION</code> and the name of a format. Results are written to
+   * <code>out</code>, and any errors to <code>errors</code>.
+   *
+   * @param args
+   *        The arguments given to the program
+   * @param in
+   *        The standard input, checked if no file is named
+   * @param out
+   *        The destination of the results
+   * @param errors
+   *        The destination of errors
+   * @return <code>ALL_FOUND</code>, <code>MISSPELLINGS_FOUND</code>, or
+   *         <code>FAILED</code>
+   */
+  static int run(String[] args, InputStream in, OutputStream out, PrintStream errors) {
+    String indexName = null;
+    List<String> files = new ArrayList<>();
+    boolean jsonLines = false;
+    for (int i = 1; i < args.length; i++) {
+      if (args[i].equals(FORMAT_OPTION)) {
+        if (++i == args.length || !(args[i].equals(TSV) || args[i].equals(JSON_LINES))) {
+          errors.println(USAGE);
+          return FAILED;
+        }
+        jsonLines = args[i].equals(JSON_LINES);
+      } else if (indexName == null) {
+        indexName = args[i];
+      } else {
+        files.add(args[i]);
+      }
+    }
+    if (indexName == null) {
+      errors.println(USAGE);
+      return FAILED;
+    }
+    if (files.isEmpty()) {
+      files.add(STANDARD_INPUT);
+    }
+
+    IndexInterpreter index;
+    try {
+      File indexFile = new File(indexName);
+      index = new IndexInterpreter(FileOperator.mapIndex(indexFile), indexFile.getName());
+    } catch (IOException err) {
+      errors.println("Could not read index file " + indexName + ": " + err);
+      return FAILED;
+    }
+
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, PAGE_CHARSET));
+    BatchCheck check = new BatchCheck(index, writer, jsonLines);
+    try {
+      check.writeHeader();
+      for (String file : files) {
+        if (file.equals(STANDARD_INPUT)) {
+          check.check(file, in);
+        } else {
+          try (InputStream page = new FileInputStream(file)) {
+            check.check(file, page);
+          }
+        }
+      }
+      writer.flush();
+    } catch (IOException | UncheckedIOException err) {
+      try {
+        writer.flush();
+      } catch (IOException ignored) {
+        // The error already being reported is the one that matters.
+      }
+      errors.println("Could not complete the check: " + err);
+      return FAILED;
+    }
+
+    errors.println(check.checked + " names checked, " + check.notFound + " not found");
+    return check.notFound == 0 ? ALL_FOUND : MISSPELLINGS_FOUND;
+  }
+
+  /**
+   * Write the header of the results, if the format has one.
+   *
+   * @throws IOException
+   *         If the results cannot be written
+   */
+  void writeHeader() throws IOException {
+    if (!jsonLines) {
+      out.write("file\tline\tname\tstatus\tresult\n");
+    }
+  }
+
+  /**
+   * Check every name in the specified page, writing the result for each one as soon
+   * as its line has been looked up.
+   *
+   * @param file
+   *        The name of the page, as reported with its results
+   * @param page
+   *        The text of the page
+   * @throws IOException
+   *         If the page cannot be read or the results cannot be written
+   */
+  void check(String file, InputStream page) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(page, PAGE_CHARSET));
+    long[] lineNumber = new long[1];
+    IndexInterpreter.ResultSink sink = (name, result) -> {
+      // A line without any names is reported as a single empty name, which is left out.
+      if (!name.isEmpty()) {
+        write(file, lineNumber[0], name, result);
+      }
+    };
+
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lineNumber[0]++;
+      // A blank line would be searched as every name in the index.
+      if (line.trim().isEmpty()) {
+        continue;
+      }
+      index.executeUncached(new RequestEvent(lookupStamp, filter, line), sink);
+    }
+  }
+
+  /**
+   * Write the result for a single name.
+   *
+   * @param file
+   *        The name of the page the name was read from
+   * @param line
+   *        The number of the line the name was read from, starting at 1
+   * @param name
+   *        The name checked
+   * @param result
+   *        The result of the spellcheck on the name
+   */
+  private void write(String file, long line, String name, String result) {
+    boolean found = !result.startsWith(NOT_FOUND);
+    checked++;
+    if (!found) {
+      notFound++;
+    }
+    try {
+      if (jsonLines) {
+        out.write("{\"file\":");
+        writeJsonString(file);
+        out.write(",\"line\":" + line + ",\"name\":");
+        writeJsonString(name);
+        out.write(",\"found\":" + found + ",\"result\":");
+        writeJsonString(result);
+        out.write("}\n");
+      } else {
+        out.write(tsvField(file));
+        out.write('\t');
+        out.write(Long.toString(line));
+        out.write('\t');
+        out.write(tsvField(name));
+        out.write(found ? "\tFOUND\t" : "\tNOT FOUND\t");
+        out.write(tsvField(result));
+        out.write('\n');
+      }
+    } catch (IOException err) {
+      // Results are written from within a search, which does not throw checked exceptions.
+      throw new UncheckedIOException(err);
+    }
+  }
+
+  /**
+   * Returns the specified text with any tabs or line breaks replaced by spaces, so that
+   * it fits in a single field of tab-separated values.
+   *
+   * @param text
+   *        The text of a field
+   * @return The text, as written in the field
+   */
+  private static String tsvField(String text) {
+    return text.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+  }
+
+  /**
+   * Write the specified text as a JSON string, in quotes and with any special
+   * characters escaped.
+   *
+   * @param text
+   *        The text to write
+   * @throws IOException
+   *         If the text cannot be written
+   */
+  private void writeJsonString(String text) throws IOException {
+    out.write('"');
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '"' || c == '\\') {
+        out.write('\\');
+        out.write(c);
+      } else if (c < ' ') {
+        out.write(String.format("\\u%04x", (int)c));
+      } else {
+        out.write(c);
+      }
+    }
+    out.write('"');
+  }
+}
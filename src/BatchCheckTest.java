@@ -0,0 +1,69 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+public class BatchCheckTest {
+  private static final String INDEX =
+      "H161\t01\t0001.jpg\t09\tAbdalla-Wyse\tAyasha\t09A\n"
+      + "H161\t01\t0002.jpg\t10\tAcharya\tSatvick\t10A\n"
+      + "H161\t01\t0003.jpg\tStaff\tZia\tTahmid\t###\n";
+
+  private static int check(String input, String output, String... options)
+      throws IOException {
+    File index = File.createTempFile("index", ".txt");
+    try {
+      Files.write(index.toPath(), INDEX.getBytes(Charset.defaultCharset()));
+      String[] args = new String[options.length + 2];
+      args[0] = BatchCheck.CHECK_OPTION;
+      args[1] = index.getPath();
+      System.arraycopy(options, 0, args, 2, options.length);
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      int status = BatchCheck.run(args, new ByteArrayInputStream(input.getBytes()), out,
+                                  new PrintStream(new ByteArrayOutputStream()));
+      assertEquals(output, out.toString());
+      return status;
+    } finally {
+      index.delete();
+    }
+  }
+
+  @Test
+  public void testTabSeparated() throws IOException {
+    // Blank lines are skipped, and asterisks do not start a partial search.
+    String output = "file\tline\tname\tstatus\tresult\n"
+        + "-\t1\tAyasha Abdalla-Wyse\tFOUND\tFound at index 1, in grade 09, in homeform 09A\n"
+        + "-\t3\tSatvick Acharya\tFOUND\tFound at index 2, in grade 10, in homeform 10A\n"
+        + "-\t3\tTahmid Zia\tFOUND\tFound at index 3, in grade Staff, in homeform ###\n";
+    assertEquals(BatchCheck.ALL_FOUND,
+                 check("Ayasha Abdalla-Wyse\n\nSatvick Acharya, Tahmid Zia\n*Zia\n", output));
+  }
+
+  @Test
+  public void testJsonLines() throws IOException {
+    String output = "{\"file\":\"-\",\"line\":1,\"name\":\"Tahmid Zia\",\"found\":true,"
+        + "\"result\":\"Found at index 3, in grade Staff, in homeform ###\"}\n"
+        + "{\"file\":\"-\",\"line\":2,\"name\":\"Tahmid Ziaa\",\"found\":false,"
+        + "\"result\":\"SPELLED WRONG/NOT FOUND   11   (did you mean Tahmid Zia?)\"}\n";
+    assertEquals(BatchCheck.MISSPELLINGS_FOUND,
+                 check("Tahmid Zia\nTahmid Ziaa\n", output, "--format", "jsonl"));
+  }
+
+  @Test
+  public void testUsage() throws IOException {
+    assertEquals(BatchCheck.FAILED, check("", "", "--format", "xml"));
+    assertEquals(BatchCheck.FAILED,
+                 BatchCheck.run(new String[] {BatchCheck.CHECK_OPTION},
+                                new ByteArrayInputStream(new byte[0]),
+                                new ByteArrayOutputStream(),
+                                new PrintStream(new ByteArrayOutputStream())));
+  }
+}
@@ -66,7 +66,7 @@ public class ControlPane extends Observable implements ActionListener, FocusList
    * <p>To look up information using the single lookup pane, it must have been selected
    * (clicked on) more recently than the multiple lookup name.
    */
-  private IndexLookupPane singleLookup;
+  private SingleLookupPane singleLookup;
 
   /**
    * The panel responsible for collecting and displaying the results of multiple name
@@ -136,6 +136,12 @@ public class ControlPane extends Observable implements ActionListener, FocusList
    */
   private IndexLookupPane selected;
 
+  /**
+   * The lookup pane on which the results of the current lookup request are being
+   * displayed as they arrive.
+   */
+  private IndexLookupPane streamTarget;
+
   /**
    * Initialize a new <code>ControlPane</code> by setting up all components inside.
    * The panel will not draw itself or provide a space in which to draw itself. Its main
@@ -196,6 +202,9 @@ public class ControlPane extends Observable implements ActionListener, FocusList
     // Focus listeners are used to determine which lookup pane was last selected.
     singleLookup.addFocusListener(this);
     massLookup.addFocusListener(this);
+
+    // Names typed in the single lookup pane are completed as they are typed.
+    singleLookup.addCompletionListener(this);
     
     getParams = new SearchParametersFrame();
   }
@@ -221,6 +230,83 @@ public class ControlPane extends Observable implements ActionListener, FocusList
   public void displayLines(String[][] results) {
     selected.display(results);
   }
+
+  /**
+   * Prepare to display the results of a lookup request as they arrive, in the output
+   * text field of the lookup pane from which the input was drawn. Results are then
+   * passed in batches to <code>appendLines</code>, followed by a call to
+   * <code>finishLines</code>.
+   */
+  public void startLines() {
+    streamTarget = selected;
+    streamTarget.startDisplay();
+  }
+
+  /**
+   * Display the next batch of results of the lookup request begun by
+   * <code>startLines</code>.
+   * 
+   * @param rows
+   *        The next results, each a name queried followed by its output
+   */
+  public void appendLines(List<String[]> rows) {
+    streamTarget.appendDisplay(rows);
+  }
+
+  /**
+   * Show how much of the lookup request begun by <code>startLines</code> has been
+   * carried out.
+   * 
+   * @param percent
+   *        The percentage of the request carried out so far
+   */
+  public void showProgress(int percent) {
+    streamTarget.showProgress(percent);
+  }
+
+  /**
+   * Complete the display of the results of the lookup request begun by
+   * <code>startLines</code>, once every result has been displayed.
+   */
+  public void finishLines() {
+    streamTarget.finishDisplay();
+  }
+  
+  /**
+   * Offer the names that complete the text typed in the single lookup pane, if it still
+   * holds the text they complete.
+   * 
+   * @param prefix
+   *        The text the names complete
+   * @param completions
+   *        The names offered, and the grade and homeform of each person, as returned by
+   *        <code>IndexInterpreter.complete</code>
+   */
+  public void showCompletions(String prefix, String[][] completions) {
+    singleLookup.showCompletions(prefix, completions);
+  }
+
+  /**
+   * Returns the filter describing the search currently set up: what to report, and
+   * which grades and homeforms to include, as specified for
+   * <code>IndexInterpreter.execute(RequestEvent)</code>. Index numbers are reported
+   * only when neither grade nor homeform is.
+   * 
+   * @return The search filter
+   */
+  private SearchFilter getSearchFilter() {
+    int reports = 0;
+    if (reportGrade.isSelected()) {
+      reports |= SearchFilter.REPORT_GRADE;
+    }
+    if (reportHomeform.isSelected()) {
+      reports |= SearchFilter.REPORT_HOMEFORM;
+    }
+    if (reports == 0) {
+      reports = SearchFilter.REPORT_INDEX;
+    }
+    return getParams.getSearchFilter(reports);
+  }
   
   private void clearTextPanes() {
     singleLookup.display(null);
@@ -229,6 +315,14 @@ public class ControlPane extends Observable implements ActionListener, FocusList
 
   @Override
   public void actionPerformed(ActionEvent event) {
+    if (event.getSource() == singleLookup) {
+      // Request the names that complete the text typed in the single lookup pane.
+      RequestEvent query = new RequestEvent(completionStamp, getSearchFilter(),
+                                            event.getActionCommand());
+      setChanged();
+      notifyObservers(query);
+      return;
+    }
     JButton buttonPressed = (JButton)event.getSource();
       
     if (buttonPressed == clear) {
@@ -242,13 +336,11 @@ public class ControlPane extends Observable implements ActionListener, FocusList
 //      System.out.println("Searching " + selectedText);
 
       if (selectedText != null) {
-        boolean[] params = getParams.getSearchParameters(3);
-          
-        params[1] = reportGrade.isSelected();
-        params[2] = reportHomeform.isSelected();
-        params[0] = !(reportGrade.isSelected() || reportHomeform.isSelected());
-          
-        RequestEvent query = new RequestEvent(lookupStamp, params, selectedText);
+        // Only the single lookup pane searches for partial names, so that an asterisk
+        // in a pasted list is read as any other character that is not part of a name.
+        byte stamp = selected == singleLookup && singleLookup.isPartialName()
+                     ? partialLookupStamp : lookupStamp;
+        RequestEvent query = new RequestEvent(stamp, getSearchFilter(), selectedText);
       
         /* Send a request to the system to access the requested information.
            Once the request is processed, the results will be sent back from outside. */
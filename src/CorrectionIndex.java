@@ -0,0 +1,468 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A precomputed index of the names in a large index that are spelled like a misspelled
+ * name, answering a request for suggestions with a few hash probes rather than a search
+ * of a <code>NameSuggester</code>.
+ *
+ * <p>The index follows the symmetric-delete method. Every first and last name in the
+ * index is stored under each of the variants made by deleting up to
+ * <code>MAX_DISTANCE</code> of its characters. Any two names within that distance of
+ * each other share a variant, since each insertion, deletion, substitution, or swap
+ * can be undone by deleting one character from either name. A misspelled name is
+ * looked up by its own variants, and the first and last names found are checked by
+ * their actual distance. Variants are stored by their 64-bit hash alone, so a variant
+ * of one name may now and then be mistaken for a variant of another; such names are
+ * removed when they are checked.
+ *
+ * <p>A misspelled name is split at each of its spaces into a first and last name, and
+ * every person whose first and last names are each close to those of the misspelled
+ * name is measured by the distance between the full names, as by
+ * <code>NameSuggester</code>. The same names are suggested as by a
+ * <code>NameSuggester</code>, except those reached only by editing the space between a
+ * person's first and last name. A name without any space, in which that space may have
+ * been deleted, is not covered by the index at all.
+ *
+ * <p>Variants take far more memory than the names they are made from. The index is
+ * built under a memory budget: if the variants would need more memory than the budget
+ * allows, none are stored, and the index only reports what it would have needed. A
+ * <code>CorrectionIndex</code> is not modified after it is built, and may be searched
+ * by several threads at once.
+ */
+class CorrectionIndex {
+
+  /**
+   * The greatest distance of a suggestion that can be found in the index.
+   */
+  static final int MAX_DISTANCE = 2;
+
+  /**
+   * The value held by an empty slot of the variant table. No slot holding a variant is
+   * equal to it, since name ids are never -1.
+   */
+  private static final long EMPTY = -1L;
+
+  /**
+   * The mask selecting the name id from a slot of the variant table.
+   */
+  private static final long ID_MASK = 0xffffffffL;
+
+  /**
+   * A name found near a query, along with its distance from the query.
+   */
+  private static final class Match {
+    private final String name;
+    private final int distance;
+
+    private Match(String name, int distance) {
+      this.name = name;
+      this.distance = distance;
+    }
+  }
+
+  /**
+   * The full names of every person, by ordinal.
+   */
+  private final String[] names;
+
+  /**
+   * Every distinct first or last name, in lower case, by id.
+   */
+  private final char[][] parts;
+
+  /**
+   * The id of each person's first name, by ordinal.
+   */
+  private final int[] firstIds;
+
+  /**
+   * The ordinals of every person, grouped by the id of their last name. The people with
+   * last name <code>i</code> are held from <code>lastStarts[i]</code> up to
+   * <code>lastStarts[i + 1]</code>.
+   */
+  private final int[] byLast;
+
+  /**
+   * The position in <code>byLast</code> of the first person with each last name.
+   */
+  private final int[] lastStarts;
+
+  /**
+   * The variant table, holding the hash of each variant in its upper 32 bits and the id
+   * of the name it was made from in its lower 32 bits. Slots are chosen by the lower
+   * bits of the hash, and collisions are resolved by linear probing. <code>null</code>
+   * if the variants did not fit in the memory budget.
+   */
+  private final long[] table;
+
+  /**
+   * The number of distinct variants stored for every name together.
+   */
+  private final long variantCount;
+
+  /**
+   * The number of bytes needed by the index with its variants, whether or not they
+   * were stored.
+   */
+  private final long bytes;
+
+  /**
+   * The memory budget the index was built under, in bytes.
+   */
+  private final long budget;
+
+  /**
+   * The time taken to build the index, in nanoseconds.
+   */
+  private final long buildNanos;
+
+  /**
+   * Initializes a new <code>CorrectionIndex</code> of the specified people, storing
+   * their variants only if they fit in the memory budget.
+   *
+   * @param firstNames
+   *        The first name of every person, by ordinal
+   * @param lastNames
+   *        The last name of every person, by ordinal
+   * @param names
+   *        The full name of every person, by ordinal
+   * @param budget
+   *        The greatest number of bytes the index may use
+   */
+  CorrectionIndex(String[] firstNames, String[] lastNames, String[] names, long budget) {
+    long start = System.nanoTime();
+    this.names = names;
+    this.budget = budget;
+
+    Map<String, Integer> ids = new HashMap<>();
+    List<char[]> partList = new ArrayList<>();
+    firstIds = new int[names.length];
+    int[] lastIds = new int[names.length];
+    for (int i = 0; i < names.length; i++) {
+      firstIds[i] = partId(firstNames[i], ids, partList);
+      lastIds[i] = partId(lastNames[i], ids, partList);
+    }
+    parts = partList.toArray(new char[0][]);
+
+    // Group people by last name, counting the people with each name first.
+    lastStarts = new int[parts.length + 1];
+    for (int id : lastIds) {
+      lastStarts[id + 1]++;
+    }
+    for (int i = 0; i < parts.length; i++) {
+      lastStarts[i + 1] += lastStarts[i];
+    }
+    byLast = new int[names.length];
+    int[] next = Arrays.copyOf(lastStarts, parts.length);
+    for (int i = 0; i < names.length; i++) {
+      byLast[next[lastIds[i]]++] = i;
+    }
+
+    // Size the table by the number of variants each name would have if all of its
+    // characters were different, so that nothing is made or allocated for the
+    // variants if they will not fit. Names with repeated characters have a few less.
+    int longest = 0;
+    long maxVariants = 0;
+    long partBytes = 0;
+    for (char[] part : parts) {
+      longest = Math.max(longest, part.length);
+      maxVariants += variantRoom(part.length);
+      partBytes += 16 + 2L * part.length;
+    }
+    // Keep the table at most two thirds full, so that probes stay short.
+    long capacity = Long.highestOneBit(Math.max(maxVariants * 3 / 2 - 1, 1)) << 1;
+    bytes = capacity * 8 + partBytes + 4L * (firstIds.length + byLast.length + lastStarts.length);
+
+    long count = 0;
+    if (bytes <= budget && capacity <= Integer.MAX_VALUE >> 1) {
+      long[] variantTable = new long[(int)capacity];
+      Arrays.fill(variantTable, EMPTY);
+      int mask = variantTable.length - 1;
+      long[] hashes = new long[(int)variantRoom(longest)];
+      for (int id = 0; id < parts.length; id++) {
+        int found = variants(parts[id], MAX_DISTANCE, hashes);
+        for (int i = 0; i < found; i++) {
+          int slot = (int)hashes[i] & mask;
+          while (variantTable[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+          }
+          variantTable[slot] = (hashes[i] & ~ID_MASK) | id;
+        }
+        count += found;
+      }
+      table = variantTable;
+    } else {
+      table = null;
+    }
+    variantCount = count;
+    buildNanos = System.nanoTime() - start;
+  }
+
+  /**
+   * Returns the id of a first or last name, in lower case, adding it to the names
+   * known if it is new.
+   *
+   * @param part
+   *        A first or last name
+   * @param ids
+   *        The id of each name known
+   * @param partList
+   *        Each name known, by id
+   * @return The name's id
+   */
+  private static int partId(String part, Map<String, Integer> ids, List<char[]> partList) {
+    String key = part.toLowerCase(Locale.ROOT);
+    Integer id = ids.get(key);
+    if (id == null) {
+      id = partList.size();
+      ids.put(key, id);
+      partList.add(key.toCharArray());
+    }
+    return id;
+  }
+
+  /**
+   * Returns <code>true</code> if the variants of every name were stored, so that the
+   * index can be searched.
+   *
+   * @return <code>true</code> if the index was built within its budget
+   */
+  boolean isBuilt() {
+    return table != null;
+  }
+
+  /**
+   * Returns the number of bytes needed by the index, whether or not it was built.
+   *
+   * @return The size of the index in bytes
+   */
+  long bytes() {
+    return bytes;
+  }
+
+  /**
+   * Returns the number of distinct variants of every name stored, which is 0 if the
+   * index was not built.
+   *
+   * @return The number of variants
+   */
+  long variantCount() {
+    return variantCount;
+  }
+
+  /**
+   * Returns the time taken to build the index.
+   *
+   * @return The time taken to build the index, in nanoseconds
+   */
+  long buildNanos() {
+    return buildNanos;
+  }
+
+  /**
+   * Returns a description of the size of the index and the time taken to build it, on
+   * a single line.
+   *
+   * @return A report on the index
+   */
+  String report() {
+    if (!isBuilt()) {
+      return String.format("%d people, %d first and last names: not built, %.1f MB needed"
+                           + " exceeds the %.1f MB budget", names.length, parts.length,
+                           bytes / (1024.0 * 1024.0), budget / (1024.0 * 1024.0));
+    }
+    return String.format("%d people, %d first and last names, %d variants: %.1f MB of a"
+                         + " %.1f MB budget, built in %.1f ms", names.length, parts.length,
+                         variantCount, bytes / (1024.0 * 1024.0), budget / (1024.0 * 1024.0),
+                         buildNanos / 1e6);
+  }
+
+  /**
+   * Returns <code>true</code> if suggestions for the specified name can be found in the
+   * index: if the index was built, the name has a space at which it can be split into
+   * a first and last name, and suggestions are wanted no further than
+   * <code>MAX_DISTANCE</code> from it.
+   *
+   * @param name
+   *        The name to find suggestions for
+   * @param maxDistance
+   *        The greatest distance of a name suggested
+   * @return <code>true</code> if <code>suggest</code> may be called for the name
+   */
+  boolean covers(String name, int maxDistance) {
+    return isBuilt() && maxDistance <= MAX_DISTANCE && name.indexOf(' ') >= 0;
+  }
+
+  /**
+   * Returns the names closest to the specified name, no further from it than
+   * <code>maxDistance</code>, closest first. Names at the same distance are listed in
+   * alphabetical order. The index must be built, and <code>maxDistance</code> must be
+   * no greater than <code>MAX_DISTANCE</code>.
+   *
+   * @param name
+   *        The name to find suggestions for
+   * @param maxDistance
+   *        The greatest distance of a name suggested
+   * @param limit
+   *        The greatest number of names suggested
+   * @return Up to <code>limit</code> names within <code>maxDistance</code> of the name
+   */
+  List<String> suggest(String name, int maxDistance, int limit) {
+    if (maxDistance > MAX_DISTANCE) {
+      throw new IllegalArgumentException("Suggestions are indexed up to distance "
+                                         + MAX_DISTANCE + ", not " + maxDistance);
+    }
+    List<String> suggestions = new ArrayList<>();
+    if (limit <= 0 || maxDistance < 0) {
+      return suggestions;
+    }
+    String key = name.toLowerCase(Locale.ROOT);
+    char[] keyChars = key.toCharArray();
+    NameSuggester.Scratch scratch = new NameSuggester.Scratch();
+    long[] hashes = new long[(int)variantRoom(key.length())];
+    Set<Integer> measured = new HashSet<>();
+    List<Match> matches = new ArrayList<>();
+
+    for (int space = key.indexOf(' '); space >= 0; space = key.indexOf(' ', space + 1)) {
+      char[] first = key.substring(0, space).toCharArray();
+      char[] last = key.substring(space + 1).toCharArray();
+      Set<Integer> firstIdsNear = nearParts(first, maxDistance, hashes, scratch);
+      if (firstIdsNear.isEmpty()) {
+        continue;
+      }
+      for (int lastId : nearParts(last, maxDistance, hashes, scratch)) {
+        for (int i = lastStarts[lastId]; i < lastStarts[lastId + 1]; i++) {
+          int person = byLast[i];
+          if (firstIdsNear.contains(firstIds[person]) && measured.add(person)) {
+            char[] candidate = names[person].toLowerCase(Locale.ROOT).toCharArray();
+            int distance = NameSuggester.distance(keyChars, candidate, scratch);
+            if (distance <= maxDistance) {
+              matches.add(new Match(names[person], distance));
+            }
+          }
+        }
+      }
+    }
+
+    matches.sort((a, b) -> a.distance != b.distance ? a.distance - b.distance
+                                                    : a.name.compareTo(b.name));
+    for (int i = 0; i < matches.size() && i < limit; i++) {
+      suggestions.add(matches.get(i).name);
+    }
+    return suggestions;
+  }
+
+  /**
+   * Returns the ids of the first and last names within a distance of a part of a
+   * misspelled name.
+   *
+   * @param part
+   *        The part of the misspelled name, in lower case
+   * @param maxDistance
+   *        The greatest distance of a name returned
+   * @param hashes
+   *        Room for the hashes of the part's variants
+   * @param scratch
+   *        Working space for measuring distances
+   * @return The ids of the names within <code>maxDistance</code> of the part
+   */
+  private Set<Integer> nearParts(char[] part, int maxDistance, long[] hashes,
+                                 NameSuggester.Scratch scratch) {
+    Set<Integer> checked = new HashSet<>();
+    Set<Integer> near = new HashSet<>();
+    int mask = table.length - 1;
+    int found = variants(part, maxDistance, hashes);
+    for (int i = 0; i < found; i++) {
+      long tag = hashes[i] & ~ID_MASK;
+      int slot = (int)hashes[i] & mask;
+      for (long entry = table[slot]; entry != EMPTY; entry = table[slot]) {
+        if ((entry & ~ID_MASK) == tag) {
+          int id = (int)(entry & ID_MASK);
+          // Names differing in length by more than maxDistance are never close enough.
+          if (checked.add(id) && Math.abs(parts[id].length - part.length) <= maxDistance
+              && NameSuggester.distance(part, parts[id], scratch) <= maxDistance) {
+            near.add(id);
+          }
+        }
+        slot = (slot + 1) & mask;
+      }
+    }
+    return near;
+  }
+
+  /**
+   * Returns the number of variants made by deleting up to <code>MAX_DISTANCE</code>
+   * characters from a name of the specified length, counting a variant made in two
+   * ways twice.
+   *
+   * @param length
+   *        The length of a name
+   * @return The greatest number of distinct variants of the name
+   */
+  private static long variantRoom(int length) {
+    return 1 + length + (long)length * (length - 1) / 2;
+  }
+
+  /**
+   * Find the hash of every distinct variant of a name made by deleting up to
+   * <code>deletes</code> of its characters, including the name itself. Only 0 to 2
+   * deletes are supported.
+   *
+   * @param part
+   *        The name
+   * @param deletes
+   *        The greatest number of characters deleted
+   * @param hashes
+   *        The array in which to place the hashes, which must have room for every
+   *        variant
+   * @return The number of distinct hashes placed at the start of the array
+   */
+  private static int variants(char[] part, int deletes, long[] hashes) {
+    int count = 0;
+    hashes[count++] = hashSkipping(part, -1, -1);
+    for (int i = 0; deletes >= 1 && i < part.length; i++) {
+      hashes[count++] = hashSkipping(part, i, -1);
+      for (int j = i + 1; deletes >= 2 && j < part.length; j++) {
+        hashes[count++] = hashSkipping(part, i, j);
+      }
+    }
+
+    // Deleting either of two equal neighbours makes the same variant.
+    Arrays.sort(hashes, 0, count);
+    int distinct = 0;
+    for (int i = 0; i < count; i++) {
+      if (distinct == 0 || hashes[i] != hashes[distinct - 1]) {
+        hashes[distinct++] = hashes[i];
+      }
+    }
+    return distinct;
+  }
+
+  /**
+   * Returns the 64-bit hash of a name with up to two of its characters deleted.
+   *
+   * @param part
+   *        The name
+   * @param skipA
+   *        The position of a character deleted, or -1
+   * @param skipB
+   *        The position of another character deleted, or -1
+   * @return The hash of the variant
+   */
+  private static long hashSkipping(char[] part, int skipA, int skipB) {
+    long hash = PeopleColumns.HASH_BASIS;
+    for (int i = 0; i < part.length; i++) {
+      if (i != skipA && i != skipB) {
+        hash = (hash ^ part[i]) * PeopleColumns.HASH_PRIME;
+      }
+    }
+    return PeopleColumns.mix(hash);
+  }
+}
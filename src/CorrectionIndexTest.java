@@ -0,0 +1,99 @@
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CorrectionIndexTest {
+  private static final String[] FIRST_NAMES = {
+    "Ayasha", "Amal", "L.", "Satvick", "Amanda", "Tahmid", "Bob", "Rob", "Bob", "BOB", "Malika"
+  };
+  private static final String[] LAST_NAMES = {
+    "Abdalla-Wyse", "Abdurhman", "Acharya", "Acharya", "Acquah", "Zia", "Smith", "Smith",
+    "Smyth", "SMITH", "Said Khasan"
+  };
+
+  private static String[] fullNames(String[] firstNames, String[] lastNames) {
+    String[] names = new String[firstNames.length];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = firstNames[i] + " " + lastNames[i];
+    }
+    return names;
+  }
+
+  private static CorrectionIndex index(String[] firstNames, String[] lastNames) {
+    return new CorrectionIndex(firstNames, lastNames, fullNames(firstNames, lastNames),
+                               Long.MAX_VALUE);
+  }
+
+  @Test
+  public void testSuggestionsInOrder() {
+    CorrectionIndex index = index(FIRST_NAMES, LAST_NAMES);
+    assertTrue(index.isBuilt());
+    assertEquals(Arrays.asList("BOB SMITH", "Bob Smith", "Bob Smyth"),
+                 index.suggest("bob smith", 1, 3));
+    assertEquals(Arrays.asList("Amal Abdurhman"), index.suggest("Amal Abdruhman", 2, 5));
+    assertEquals(Arrays.asList("BOB SMITH"), index.suggest("Bob Smiht", 1, 1));
+    assertEquals(Arrays.asList("Malika Said Khasan"), index.suggest("Malika Siad Khasan", 2, 5));
+    assertTrue(index.suggest("Nobody Here", 2, 5).isEmpty());
+    assertTrue(index(new String[0], new String[0]).suggest("Bob Smith", 2, 5).isEmpty());
+  }
+
+  @Test
+  public void testNamesWithoutSpacesNotCovered() {
+    CorrectionIndex index = index(FIRST_NAMES, LAST_NAMES);
+    assertTrue(index.covers("Bob Smiht", 2));
+    assertFalse(index.covers("BobSmith", 2));
+    assertFalse(index.covers("Bob Smiht", CorrectionIndex.MAX_DISTANCE + 1));
+  }
+
+  @Test
+  public void testBudget() {
+    String[] names = fullNames(FIRST_NAMES, LAST_NAMES);
+    CorrectionIndex index = new CorrectionIndex(FIRST_NAMES, LAST_NAMES, names, 1024);
+    assertFalse(index.isBuilt());
+    assertFalse(index.covers("Bob Smiht", 2));
+    assertEquals(0, index.variantCount());
+    assertTrue(index.bytes() > 1024);
+
+    CorrectionIndex fitted = new CorrectionIndex(FIRST_NAMES, LAST_NAMES, names, index.bytes());
+    assertTrue(fitted.isBuilt());
+    assertEquals(index.bytes(), fitted.bytes());
+    assertTrue(fitted.variantCount() > 0);
+  }
+
+  @Test
+  public void testSuggestionsMatchSplitScan() {
+    Random random = new Random(29);
+    String[] firstNames = new String[400];
+    String[] lastNames = new String[400];
+    for (int i = 0; i < firstNames.length; i++) {
+      firstNames[i] = RandomNames.string(random, 5);
+      lastNames[i] = RandomNames.string(random, 5);
+    }
+    String[] names = fullNames(firstNames, lastNames);
+    CorrectionIndex index = index(firstNames, lastNames);
+    for (int n = 0; n < 300; n++) {
+      String query = RandomNames.string(random, 6) + " " + RandomNames.string(random, 6);
+      int maxDistance = random.nextInt(CorrectionIndex.MAX_DISTANCE + 1);
+
+      // Every name close to the query with its first and last names each close to the
+      // parts of the query on either side of one of its spaces.
+      String key = query.toLowerCase();
+      List<String> expected = RandomNames.scan(names, i -> {
+        boolean split = false;
+        for (int space = key.indexOf(' '); space >= 0; space = key.indexOf(' ', space + 1)) {
+          split |= NameSuggester.distance(key.substring(0, space), firstNames[i].toLowerCase())
+                   <= maxDistance
+                   && NameSuggester.distance(key.substring(space + 1), lastNames[i].toLowerCase())
+                      <= maxDistance;
+        }
+        return split && NameSuggester.distance(key, names[i].toLowerCase()) <= maxDistance;
+      });
+      assertEquals(query, expected,
+                   RandomNames.sorted(index.suggest(query, maxDistance, names.length)));
+    }
+  }
+}
@@ -1,26 +1,33 @@
-import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
 
 /**
- * A hub for file operations, including direct file reading, serializing, and
- * deserializing. File names are stored inside instances of this class and can
- * only be modified by changing the values of private attributes. However,
- * different files will be used  class are running concurrently.
+ * A hub for file operations, including direct file reading, and saving and
+ * recovering indices between sessions. File names are stored inside instances of
+ * this class and can only be modified by changing the values of private attributes.
+ * However, different files will be used  class are running concurrently.
  * 
  * <p>Functions:
  * <br>Read the contents of a file directly. The file to be read can be specified
  * by the file's name and file extension, although it must be located in the
  * running directory.
- * <br>Serialize an object into a predetermined text file location.
- * <br>Deserialize and retrieve an object that has previously been saved to a
- * predetermined text file.
+ * <br>Map the contents of an index file into memory, so that it can be parsed without
+ * first being copied into a <code>String</code>.
+ * <br>Save a list of indices to a predetermined file location, as a snapshot written
+ * by <code>IndexSnapshot</code>.
+ * <br>Recover a list of indices that has previously been saved to a predetermined
+ * file, migrating indices serialized by earlier versions of the program if necessary.
+ * <br>Watch the folder containing index files for changes.
  */
 public class FileOperator {
 
@@ -30,11 +37,18 @@ public class FileOperator {
   private String folderPath = System.getProperty("user.dir");
 
   /**
-   * The standard name of the output file for serialized objects. This file name
-   * will have a number inserted in the middle to distinguish object files for
-   * multiple concurrently running instances of <code>FileOperator</code>.
+   * The standard name of the saved index file, which holds a snapshot of the indices
+   * saved by a previous session. This file name will have a number inserted in the
+   * middle to distinguish saved index files for multiple concurrently running instances
+   * of <code>FileOperator</code>.
    */
-  private String savedIndexFileName = "savedIndex.txt";
+  private String savedIndexFileName = "savedIndex.dat";
+
+  /**
+   * The standard name of the saved objects file, in which earlier versions of the program
+   * saved indices by serializing them. Numbered in the same way as the saved index file.
+   */
+  private static final String legacyIndexFileName = "savedIndex.txt";
 
   /**
    * A set of numbers corresponding to unopened input files. Numbers are stored in
@@ -44,36 +58,20 @@ public class FileOperator {
   private static ConcurrentSkipListSet<Integer> availableInputFiles = null;
 
   /**
-   * The file for storing and retrieving serialized objects.
+   * The file for storing and retrieving saved indices.
    */
   private File savedIndexFile;
 
   /**
-   * <code>true</code> if the input stream reading serialized objects has not
-   * reached the end of the stream.
-   */
-  private boolean containsBytes;
-
-  /**
-   * An input stream that reads bytes from the saved objects file.
-   */
-  private FileInputStream fileReader;
-
-  /**
-   * An input stream that reads and reconstructs objects from the saved objects file.
+   * The saved objects file written by earlier versions of the program, from which saved
+   * indices are migrated if no saved index file exists yet.
    */
-  private ObjectInputStream indexReader;
-
-  /**
-   * An output stream that serializes and saves objects to the saved objects file.
-   */
-  private ObjectOutputStream indexWriter;
+  private File legacyIndexFile;
 
   /**
    * Initialize a new <code>FileOperator</code>. The file used for input and output
-   * of serialized objects will be determined based on which serialized object files
-   * are currently in use. If a serialized objects file does not exist yet, a new one
-   * will be created, otherwise the existing one will be used.
+   * of saved indices will be determined based on which saved index files are currently
+   * in use. The file is not created until indices are first saved to it.
    */
   public FileOperator() {
     folderPath = folderPath.substring(0, folderPath.lastIndexOf('\\'));
@@ -95,124 +93,78 @@ public class FileOperator {
     }
     String[] fileNameComponents = savedIndexFileName.split("\\.");
     savedIndexFileName = fileNameComponents[0] + fileSourceNumber + "." + fileNameComponents[1];
+    String[] legacyNameComponents = legacyIndexFileName.split("\\.");
+    legacyIndexFile = new File(folderPath, legacyNameComponents[0] + fileSourceNumber + "."
+                                           + legacyNameComponents[1]);
     fileSourceNumber++;
-    setupIo();
-  }
-
-  /**
-   * Initialize input and output streams for access to the serialized objects file, and
-   * perform other checks to ensure input and output can run smoothly.
-   */
-  private void setupIo() {
     savedIndexFile = new File(folderPath, savedIndexFileName);
-    try {
-      if (!savedIndexFile.exists()) {
-        // The file has not been used before and must be set up.
-        savedIndexFile.createNewFile();
-        // Write an output stream header to prevent EOFExceptions while reading.
-        indexWriter = new ObjectOutputStream(new FileOutputStream(savedIndexFile));
-        indexWriter.close();
-      }
-      fileReader = new FileInputStream(savedIndexFile);
-      indexReader = new ObjectInputStream(fileReader);
-      containsBytes = fileReader.available() > 0;
-    } catch (IOException err) {
-      err.printStackTrace();
-      containsBytes = false;
-    }
-  }
-
-  /**
-   * Close all input and output streams that are connected to the serialized objects
-   * file, to allow the file to be freely moved, manipulated, or deleted, or to prepare
-   * for program termination.
-   */
-  private void takeDownIo() {
-    try {
-      for (Closeable ioObject : new Closeable[]{fileReader, indexReader, indexWriter}) {
-        if (ioObject != null) {
-          ioObject.close();
-        }
-      }
-    } catch (IOException err) {
-      fileReader = null;
-      indexReader = null;
-      indexWriter = null;
-    } finally {
-      containsBytes = false;
-    }
   }
 
   /**
-   * Returns <code>true</code> if objects can still be retrieved from the serialized
-   * objects file. If <code>false</code>, either the input stream for the file reached
-   * the end of the file, or the file was not successfully opened.
+   * Recover the list of indices saved by a previous session from the saved index file,
+   * along with their ordering information. If no saved index file exists, but a saved
+   * objects file written by an earlier version of the program does, the indices in that
+   * file are recovered instead, and are migrated to a new saved index file, after which
+   * the saved objects file is deleted.
    * 
-   * @return <code>true</code> if more serialized objects can be retrieved
-   */
-  public boolean hasNextObject() {
-    return containsBytes;
-  }
-
-  /**
-   * Retrieve, deserialize, and return the next object accessed by the input stream
-   * for the serialized objects file. Assumes the serialized objects file contains
-   * more objects, which can be checked using the method <code>hasNextObject</code>.
-   * If that method is not called beforehand, an <code>IOException</code> may be thrown.
-   * 
-   * @return The next available serialized object
+   * @return The saved list of indices, which is empty if no indices have been saved
    * @throws IOException
-   *         If the serialized object file could not be accessed or no more objects
-   *         were left in the file
-   */
-  public Object retrieveNextObject() throws IOException {
-    try {
-      Object index = indexReader.readObject();
-      containsBytes = fileReader.available() > 0;
-      return index;
-    } catch (ClassNotFoundException err) {
-      return null;
+   *         If a saved index file exists but could not be read, or is corrupt
+   */
+  public IndexPriorityList recoverSavedIndices() throws IOException {
+    if (savedIndexFile.exists()) {
+      return IndexSnapshot.read(savedIndexFile);
+    } else if (legacyIndexFile.exists() && legacyIndexFile.length() > 0) {
+      IndexPriorityList savedIndices = new IndexPriorityList();
+      try (ObjectInputStream legacyReader =
+               new ObjectInputStream(new FileInputStream(legacyIndexFile))) {
+        savedIndices.reload(legacyReader.readObject());
+      } catch (ClassNotFoundException err) {
+        throw new IOException("Saved objects file " + legacyIndexFile.getName()
+                              + " could not be migrated", err);
+      }
+      saveIndices(savedIndices);
+      legacyIndexFile.delete();
+      return savedIndices;
+    } else {
+      return new IndexPriorityList();
     }
   }
 
   /**
-   * Serialize and save a single object to the serialized objects file. The object will
-   * be appended to the end of the file; be aware that it may already be saved there.
-   * Serialized objects cannot be singly removed after being added to the file; the only
-   * way to remove an object from the file is to use the <code>wipeFile</code> method to
-   * clear the file entirely.
+   * Save every index in the specified list, along with the list's ordering information,
+   * to the saved index file, replacing any indices saved there before. Indices whose
+   * data has not yet been read from the old saved index file are copied from it without
+   * being parsed. The new saved index file is written in full before it replaces the old
+   * one, so that the old file is left intact if saving fails.
    * 
-   * @param obj
-   *        The object to serialize
+   * @param savedIndices
+   *        The list of indices to save
    * @throws IOException
-   *         If the serialized object file could not be accessed
-   */
-  public void saveObject(Object obj) throws IOException {
-    wipeFile();
-    indexWriter = new ObjectOutputStream(new FileOutputStream(savedIndexFile));
-    indexWriter.writeObject(obj);
+   *         If the saved index file could not be written
+   */
+  public void saveIndices(IndexPriorityList savedIndices) throws IOException {
+    File tempFile = new File(folderPath, savedIndexFileName + ".tmp");
+    IndexSnapshot.write(savedIndices, tempFile);
+    Files.move(tempFile.toPath(), savedIndexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    // Indices that were never retrieved still have their data in the saved index file,
+    // but not necessarily where it was before.
+    IndexSnapshot.relocate(savedIndexFile, savedIndices);
   }
 
   /**
-   * Clear the serialized objects file. Does not save the file's contents in any way.
-   * Be aware that any objects deleted from the file cannot be retrieved except by
-   * initializing new instances with the same arguments.
+   * Create a watcher over the folder in which index files are located, which can report
+   * when an index file is changed while it is in use.
    * 
+   * @param listener
+   *        The listener to which the name of each changed file is passed, on the
+   *        watching thread
+   * @return A watcher over the index file folder, which has not yet been started
    * @throws IOException
-   *         If the serialized objects file could not be accessed
-   */
-  private void wipeFile() throws IOException {
-    takeDownIo();
-    savedIndexFile.delete();
-    savedIndexFile.createNewFile();
-  }
-
-  /**
-   * Perform decoupling operations with input and output files, such as closing input and
-   * output streams, to prepare for program termination.
+   *         If the folder could not be watched
    */
-  public void shutdown() {
-    takeDownIo();
+  public IndexWatcher watchIndices(Consumer<String> listener) throws IOException {
+    return new IndexWatcher(new File(folderPath), listener);
   }
 
   /**
@@ -224,24 +176,59 @@ public class FileOperator {
    * likely to be in the src folder, one level up from the folder containing the .java files.
    * If no src folder exists, place input text files in the same folder as the .java files.
    * 
+   * <p>Index files that are to be parsed should be opened with <code>mapIndex</code>
+   * instead, which avoids building the file's contents into a <code>String</code>.
+   * 
    * @param indexPath
    *        The name of the file to read
    * @return The contents of the specified file
    */
   public String readIndex(String indexPath) throws IOException {
-    RandomAccessFile index;
-
     File indexFile = new File(folderPath, indexPath);
-    index = new RandomAccessFile(indexFile, "r");
-    byte[] bytes = new byte[4096];
-    String fileContents = "";
+    // Decode the whole file at once, rather than piece by piece, so that reading
+    // takes time proportional to the size of the file.
+    return new String(Files.readAllBytes(indexFile.toPath()));
+  }
 
-    for (int i = index.read(bytes); i > 0; i = index.read(bytes)) {
-      String newData = new String(bytes);
-      fileContents += newData.substring(0, i);
-    }
+  /**
+   * Map the contents of the specified index file into memory, and return a read-only
+   * view of the file's bytes. The view can be handed directly to
+   * <code>PeopleDataList</code> for parsing, without the file's contents ever being
+   * built into a single <code>String</code>. The text file will not be modified during
+   * the process.
+   * 
+   * <p>The index file must be in the running directory to be accessed, just as for
+   * <code>readIndex</code>.
+   * 
+   * @param indexPath
+   *        The name of the file to map
+   * @return A read-only view of the contents of the specified file
+   * @throws IOException
+   *         If the file could not be opened or mapped
+   */
+  public ByteBuffer mapIndex(String indexPath) throws IOException {
+    return mapIndex(new File(folderPath, indexPath));
+  }
 
-    index.close();
-    return fileContents;
+  /**
+   * Map the contents of the specified index file into memory, and return a read-only
+   * view of the file's bytes. Unlike the instance method of the same name, the file
+   * can be located anywhere, and no saved index file is opened in the process.
+   * 
+   * <p>The mapping remains valid after this method returns, and is released once the
+   * returned buffer is no longer referenced. Callers should not hold on to the buffer
+   * after its contents have been parsed, since some systems do not allow a mapped file
+   * to be replaced.
+   * 
+   * @param indexFile
+   *        The file to map
+   * @return A read-only view of the contents of the specified file
+   * @throws IOException
+   *         If the file could not be opened or mapped
+   */
+  public static ByteBuffer mapIndex(File indexFile) throws IOException {
+    try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+      return channel.map(MapMode.READ_ONLY, 0, channel.size()).asReadOnlyBuffer();
+    }
   }
 }
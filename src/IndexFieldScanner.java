@@ -0,0 +1,377 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A single-pass reader over the lines of an index file, which picks out only those
+ * tab-separated fields of each line that are kept about a person. Lines are read from
+ * a view of the file's bytes, such as a mapped index file, and each line is walked
+ * exactly once to find its fields.
+ *
+ * <p>Fields are separated by runs of one or more tabs, so empty fields between
+ * consecutive tabs are not counted. A line beginning with a tab has an empty first
+ * field. The fields read are, counting from 0, the roll (1), the photo file (2), the
+ * grade (3), the last name (4), the first name (5), and the homeform (6); any further
+ * fields are skipped without being examined.
+ *
+ * <p>Values that repeat across many lines, namely grades, homeforms, and rolls, are
+ * returned as a single canonical <code>String</code> per distinct value. For example,
+ * every "Staff" grade read by one scanner is the same <code>String</code> instance.
+ * No <code>String</code> is built for such a value after its first occurrence.
+ */
+class IndexFieldScanner {
+
+  /**
+   * The number of fields that must be present at the start of every line.
+   */
+  private static final int FIELDS_USED = 7;
+
+  /**
+   * The position of the roll among a line's fields.
+   */
+  private static final int ROLL = 1;
+
+  /**
+   * The position of the photo file name among a line's fields.
+   */
+  private static final int PHOTO_FILE = 2;
+
+  /**
+   * The position of the grade among a line's fields.
+   */
+  private static final int GRADE = 3;
+
+  /**
+   * The position of the last name among a line's fields.
+   */
+  private static final int LAST = 4;
+
+  /**
+   * The position of the first name among a line's fields.
+   */
+  private static final int FIRST = 5;
+
+  /**
+   * The position of the homeform among a line's fields.
+   */
+  private static final int HOMEFORM = 6;
+
+  /**
+   * The bytes being scanned. Absolute positions are used, so the buffer's position
+   * is only changed while copying out a line.
+   */
+  private final ByteBuffer input;
+
+  /**
+   * The position one past the last byte to be scanned.
+   */
+  private final int end;
+
+  /**
+   * The character set used to decode field values.
+   */
+  private final Charset charset;
+
+  /**
+   * The position of the start of the next line to be read.
+   */
+  private int nextLineStart;
+
+  /**
+   * The number of lines passed so far, including blank lines and any lines before the
+   * scanned section. Equal to the line number of the current line, counting the first
+   * line of the file as line 1.
+   */
+  private int lineNumber;
+
+  /**
+   * A copy of the bytes of the current line. Reused from line to line, and only
+   * reallocated when a line is longer than any before it.
+   */
+  private byte[] line = new byte[256];
+
+  /**
+   * The offset in <code>line</code> at which each used field of the current line starts.
+   */
+  private final int[] fieldStarts = new int[FIELDS_USED];
+
+  /**
+   * The offset in <code>line</code> one past the end of each used field of the current line.
+   */
+  private final int[] fieldEnds = new int[FIELDS_USED];
+
+  /**
+   * The canonical value for each distinct repeated value read so far, stored in an
+   * open-addressing table indexed by the hash of the value's bytes.
+   */
+  private String[] pooledValues = new String[64];
+
+  /**
+   * The bytes of each canonical value in <code>pooledValues</code>, at the same index.
+   */
+  private byte[][] pooledBytes = new byte[64][];
+
+  /**
+   * The number of canonical values stored.
+   */
+  private int pooledCount = 0;
+
+  /**
+   * Initialize a new <code>IndexFieldScanner</code> over the bytes between the position
+   * and limit of the specified buffer. The buffer's position and limit are not changed.
+   *
+   * @param input
+   *        The bytes of an index file, or a newline-aligned section of one
+   * @param charset
+   *        The character set used to decode field values
+   */
+  IndexFieldScanner(ByteBuffer input, Charset charset) {
+    this(input, charset, 0);
+  }
+
+  /**
+   * Initialize a new <code>IndexFieldScanner</code> over the bytes between the position
+   * and limit of the specified buffer, which start a number of lines into an index file.
+   * The buffer's position and limit are not changed.
+   *
+   * @param input
+   *        A newline-aligned section of an index file
+   * @param charset
+   *        The character set used to decode field values
+   * @param linesBefore
+   *        The number of lines in the index file before the section, used so that line
+   *        numbers count from the start of the file
+   */
+  IndexFieldScanner(ByteBuffer input, Charset charset, int linesBefore) {
+    this.input = input.duplicate();
+    this.charset = charset;
+    end = input.limit();
+    nextLineStart = input.position();
+    lineNumber = linesBefore;
+  }
+
+  /**
+   * Advance to the next non-blank line, and locate its fields. Blank lines are skipped
+   * over, but are still counted in line numbers.
+   *
+   * @return <code>true</code> if another line was found, or <code>false</code> if the
+   *         end of the input has been reached
+   * @throws IllegalArgumentException
+   *         If the line has fewer than 7 fields
+   */
+  boolean nextLine() {
+    while (nextLineStart < end) {
+      int lineStart = nextLineStart;
+      int lineEnd = lineStart;
+      while (lineEnd < end && input.get(lineEnd) != '\n') {
+        lineEnd++;
+      }
+      nextLineStart = lineEnd + 1;
+      lineNumber++;
+
+      int length = lineEnd - lineStart;
+      if (length > 0) {
+        if (length > line.length) {
+          line = new byte[Math.max(length, line.length * 2)];
+        }
+        input.position(lineStart);
+        input.get(line, 0, length);
+        locateFields(length);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Find the bounds of the used fields in the current line, walking the line once and
+   * stopping after the last used field.
+   *
+   * @param length
+   *        The number of bytes in the current line
+   * @throws IllegalArgumentException
+   *         If the line has fewer than 7 fields
+   */
+  private void locateFields(int length) {
+    int field = 0;
+    int pos = 0;
+    fieldStarts[0] = 0;
+    while (true) {
+      if (pos == length || line[pos] == '\t') {
+        fieldEnds[field++] = pos;
+        if (field == FIELDS_USED) {
+          return;
+        }
+        // Skip the whole run of tabs, since consecutive tabs form one separator.
+        while (pos < length && line[pos] == '\t') {
+          pos++;
+        }
+        if (pos == length) {
+          throw new IllegalArgumentException("Line " + lineNumber + " of the index file has "
+                                             + field + " fields, but must have at least "
+                                             + FIELDS_USED);
+        }
+        fieldStarts[field] = pos;
+      } else {
+        pos++;
+      }
+    }
+  }
+
+  /**
+   * Returns the line number of the current line, counting the first line of the
+   * index file as line 1.
+   *
+   * @return The current line number
+   */
+  int lineNumber() {
+    return lineNumber;
+  }
+
+  /**
+   * Returns the roll field of the current line.
+   *
+   * @return The current line's roll, as a canonical value
+   */
+  String roll() {
+    return pooled(ROLL);
+  }
+
+  /**
+   * Returns the photo file name field of the current line.
+   *
+   * @return The current line's photo file name
+   */
+  String photoFile() {
+    return decode(PHOTO_FILE);
+  }
+
+  /**
+   * Returns the grade field of the current line.
+   *
+   * @return The current line's grade, as a canonical value
+   */
+  String grade() {
+    return pooled(GRADE);
+  }
+
+  /**
+   * Returns the last name field of the current line.
+   *
+   * @return The current line's last name
+   */
+  String lastName() {
+    return decode(LAST);
+  }
+
+  /**
+   * Returns the first name field of the current line.
+   *
+   * @return The current line's first name
+   */
+  String firstName() {
+    return decode(FIRST);
+  }
+
+  /**
+   * Returns the homeform field of the current line.
+   *
+   * @return The current line's homeform, as a canonical value
+   */
+  String homeform() {
+    return pooled(HOMEFORM);
+  }
+
+  /**
+   * Decode the specified field of the current line into a new <code>String</code>.
+   *
+   * @param field
+   *        The position of the field in the line
+   * @return The field's value
+   */
+  private String decode(int field) {
+    return new String(line, fieldStarts[field], fieldEnds[field] - fieldStarts[field], charset);
+  }
+
+  /**
+   * Returns the canonical <code>String</code> for the value of the specified field of
+   * the current line, creating and storing one if the value has not been read before.
+   *
+   * @param field
+   *        The position of the field in the line
+   * @return The field's canonical value
+   */
+  private String pooled(int field) {
+    int start = fieldStarts[field];
+    int length = fieldEnds[field] - start;
+
+    int hash = 1;
+    for (int i = start; i < start + length; i++) {
+      hash = 31 * hash + line[i];
+    }
+
+    int mask = pooledValues.length - 1;
+    int slot = hash & mask;
+    while (pooledValues[slot] != null) {
+      byte[] candidate = pooledBytes[slot];
+      if (candidate.length == length && rangeEquals(candidate, start)) {
+        return pooledValues[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    // The value has not been seen before: it becomes the canonical value.
+    String value = decode(field);
+    pooledValues[slot] = value;
+    pooledBytes[slot] = Arrays.copyOfRange(line, start, start + length);
+    if (++pooledCount * 2 > pooledValues.length) {
+      growPool();
+    }
+    return value;
+  }
+
+  /**
+   * Returns <code>true</code> if the specified bytes are equal to the same number of
+   * bytes of the current line, starting at the specified offset.
+   *
+   * @param candidate
+   *        The bytes to compare
+   * @param start
+   *        The offset in the current line at which to start comparing
+   * @return <code>true</code> if the bytes are equal
+   */
+  private boolean rangeEquals(byte[] candidate, int start) {
+    for (int i = 0; i < candidate.length; i++) {
+      if (candidate[i] != line[start + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Double the capacity of the table of canonical values, rehashing every stored value.
+   */
+  private void growPool() {
+    String[] oldValues = pooledValues;
+    byte[][] oldBytes = pooledBytes;
+    pooledValues = new String[oldValues.length * 2];
+    pooledBytes = new byte[oldBytes.length * 2][];
+    int mask = pooledValues.length - 1;
+
+    for (int i = 0; i < oldValues.length; i++) {
+      if (oldValues[i] != null) {
+        int hash = 1;
+        for (byte b : oldBytes[i]) {
+          hash = 31 * hash + b;
+        }
+        int slot = hash & mask;
+        while (pooledValues[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        pooledValues[slot] = oldValues[i];
+        pooledBytes[slot] = oldBytes[i];
+      }
+    }
+  }
+}
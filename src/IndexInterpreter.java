@@ -1,11 +1,17 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
 
 /**
  * A structure that holds and performs operations on data from an input text file
@@ -35,6 +41,164 @@ public class IndexInterpreter implements Serializable, MugsEventStamps {
    */
   private static final long serialVersionUID = -6273809401971336010L;
 
+  /**
+   * Characters, beyond letters, periods, dashes, and spaces, that are recognized in the
+   * names of a query.
+   */
+  /* Modify this string if necessary to allow for names to be recognized that contain
+     characters not specified, such as apostrophes or accented letters. (Add them
+     between the quotes, ask a teacher for more details if that fails.) */
+  private static final String EXTRA_NAME_CHARS = "";
+
+  /**
+   * The greatest number of names from the index suggested in place of a name that is
+   * not found, and the greatest number of changes (characters inserted, deleted,
+   * replaced, or swapped with a neighbour) between the name and a name suggested.
+   */
+  /* Modify these numbers to be given more or fewer suggestions for misspelled names,
+     or suggestions that are spelled less or more like them. Set SUGGESTION_LIMIT to 0
+     to be given no suggestions. */
+  private static final int SUGGESTION_LIMIT = 3;
+  private static final int SUGGESTION_DISTANCE = 2;
+
+  /**
+   * The number of characters for which space is made in the output for a name that is
+   * not found, enough for the message and a few suggestions of ordinary length.
+   */
+  private static final int NOT_FOUND_CAPACITY = 128;
+
+  /**
+   * The greatest number of people reported for a search on a partial name, best match
+   * first.
+   */
+  /* Modify this number to be shown more or fewer of the names that contain a partial
+     name, such as Smi*. */
+  private static final int PARTIAL_LIMIT = 100;
+
+  /**
+   * The greatest number of names offered to complete a partly typed name.
+   */
+  /* Modify this number to be offered more or fewer names while typing a name. */
+  private static final int COMPLETION_LIMIT = 8;
+
+  /**
+   * The tokenizer used by each thread to find the names in a query, kept so that its
+   * buffer is reused from one query to the next.
+   */
+  private static final ThreadLocal<NameTokenizer> TOKENIZER =
+      ThreadLocal.withInitial(() -> new NameTokenizer(EXTRA_NAME_CHARS));
+
+  /**
+   * The number of names in the first batch read from a query. The results for each batch
+   * of names are delivered before the next batch is read, so the first results of a long
+   * list are not held up by reading the rest of it. Each batch after the first is twice
+   * the size of the one before, up to <code>MAX_NAME_BATCH</code>.
+   */
+  private static final int NAME_BATCH = 256;
+
+  /**
+   * The largest number of names read from a query at a time.
+   */
+  private static final int MAX_NAME_BATCH = 16384;
+
+  /**
+   * The smallest batch of names that is looked up in parallel. Smaller batches are
+   * looked up more quickly on a single thread.
+   */
+  private static final int PARALLEL_THRESHOLD = 2048;
+
+  /**
+   * The largest number of names looked up by a single task, when names are looked up in
+   * parallel.
+   */
+  private static final int LOOKUP_GRAIN = 512;
+
+  /**
+   * A receiver of the results of a query, one row at a time, as they are produced by
+   * <code>execute(RequestEvent, ResultSink)</code>.
+   */
+  public interface ResultSink {
+
+    /**
+     * Receive the result of the query on a single name.
+     * 
+     * @param name
+     *        The name queried
+     * @param result
+     *        The output of the query on the name
+     */
+    void accept(String name, String result);
+
+    /**
+     * Receive the progress of the query, after each batch of names has been looked up.
+     * Progress is measured in characters of input read or, when the whole index is
+     * searched, in people checked. Does nothing unless overridden.
+     * 
+     * @param done
+     *        The amount of the query carried out so far
+     * @param total
+     *        The amount of the query in all
+     */
+    default void progress(int done, int total) {
+    }
+  }
+
+  /**
+   * A task that performs some work for each of a range of names in a batch, splitting
+   * the range in half until each task is responsible for no more than
+   * <code>LOOKUP_GRAIN</code> names.
+   */
+  private static class LookupAction extends RecursiveAction {
+
+    /**
+     * The identifier used to serialize instances of class <code>LookupAction</code>.
+     */
+    private static final long serialVersionUID = 5230870512843405327L;
+
+    /**
+     * The position of the first name this task is responsible for.
+     */
+    private final int from;
+
+    /**
+     * One past the position of the last name this task is responsible for.
+     */
+    private final int to;
+
+    /**
+     * The work to perform for each name, given the name's position.
+     */
+    private final IntConsumer work;
+
+    /**
+     * Initializes a new <code>LookupAction</code> for the specified range of names.
+     * 
+     * @param from
+     *        The position of the first name in the range
+     * @param to
+     *        One past the position of the last name in the range
+     * @param work
+     *        The work to perform for each name
+     */
+    private LookupAction(int from, int to, IntConsumer work) {
+      this.from = from;
+      this.to = to;
+      this.work = work;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= LOOKUP_GRAIN) {
+        for (int i = from; i < to; i++) {
+          work.accept(i);
+        }
+      } else {
+        int middle = (from + to) >>> 1;
+        invokeAll(new LookupAction(from, middle, work), new LookupAction(middle, to, work));
+      }
+    }
+  }
+
   /**
    * An access point to student/staff data, read from this <code>IndexInterpreter</code>'s
    * input text file. See <code>PeopleDataList</code> documentation.
@@ -53,6 +217,22 @@ public class IndexInterpreter implements Serializable, MugsEventStamps {
    * divisions are grade 9, 10, 11, 12, and all other improperly formatted homeforms.
    */
   private List<String>[] homeformList;
+
+  /**
+   * The section of a saved index snapshot from which this <code>IndexInterpreter</code>'s
+   * data is yet to be read, or <code>null</code> if the data has been read or was never
+   * saved. While this is set, <code>index</code> holds no people and
+   * <code>homeformList</code> holds empty lists, as for a new
+   * <code>IndexInterpreter</code>, until <code>ensureLoaded</code> reads the saved data.
+   */
+  private transient IndexSnapshot.Section savedSection = null;
+
+  /**
+   * The results of recent queries on the data currently held, or <code>null</code> if
+   * none have been made since this <code>IndexInterpreter</code> was deserialized.
+   * Cleared whenever the data held changes. Guarded by this object's lock.
+   */
+  private transient ResultCache resultCache = null;
   
   /**
    * Initializes a new <code>IndexInterpreter</code>, which starts out without any
@@ -85,6 +265,42 @@ public class IndexInterpreter implements Serializable, MugsEventStamps {
     repopulate(rawIndexData, source);
   }
 
+  /**
+   * Initializes a new <code>IndexInterpreter</code>, which starts out holding data from
+   * a view of the bytes of the input file specified by <code>source</code>. The view is
+   * parsed directly, and is usually a mapped file returned by
+   * <code>FileOperator.mapIndex</code>.
+   * 
+   * <p>The file is expected to have the same structure as for
+   * <code>IndexInterpreter(String, String)</code>.
+   * 
+   * @param rawIndexData
+   *        A view of the contents of the input file this <code>IndexInterpreter</code>
+   *        stores
+   * @param source
+   *        The name of the source input file
+   */
+  public IndexInterpreter(ByteBuffer rawIndexData, String source) {
+    this();
+    repopulate(rawIndexData, source);
+  }
+
+  /**
+   * Initializes a new <code>IndexInterpreter</code> for an index saved in a snapshot,
+   * whose data is not read until <code>ensureLoaded</code> is called. Until then, it
+   * holds no people and empty lists of homeforms.
+   * 
+   * @param source
+   *        The name of the source input file of the index
+   * @param savedSection
+   *        The section of the snapshot holding the index's data
+   */
+  IndexInterpreter(String source, IndexSnapshot.Section savedSection) {
+    this();
+    setSource(source);
+    this.savedSection = savedSection;
+  }
+
   /**
    * Load a new index file into this <code>IndexInterpreter</code>.
    * <br>Operates almost identically to a call to <code>IndexInterpreter</code>(String, String)
@@ -97,8 +313,247 @@ public class IndexInterpreter implements Serializable, MugsEventStamps {
    */
   public void repopulate(String rawIndexData, String source) {
     setSource(source);
-    index = new PeopleDataList();
-    homeformList = index.loadFileData(rawIndexData);
+    PeopleDataList newIndex = new PeopleDataList();
+    List<String>[] newHomeforms = newIndex.loadFileData(rawIndexData);
+    replaceContents(newIndex, newHomeforms);
+  }
+
+  /**
+   * Load a new index file into this <code>IndexInterpreter</code> from a view of the
+   * file's bytes. Operates identically to <code>repopulate(String, String)</code>,
+   * except the file's contents are parsed without first being built into a
+   * <code>String</code>, and large files are parsed in parallel.
+   * 
+   * @param rawIndexData
+   *        A view of the contents of the new input file this <code>IndexInterpreter</code>
+   *        stores
+   * @param source
+   *        The name of the new source input file
+   */
+  public void repopulate(ByteBuffer rawIndexData, String source) {
+    setSource(source);
+    PeopleDataList newIndex = new PeopleDataList();
+    List<String>[] newHomeforms = newIndex.loadFileDataParallel(rawIndexData);
+    replaceContents(newIndex, newHomeforms);
+  }
+
+  /**
+   * Bring this <code>IndexInterpreter</code> up to date with a changed copy of its index
+   * file, given as a view of the file's bytes. The newly read people replace the current
+   * ones only if any were added, removed, changed, or moved, and the homeform lists are
+   * only replaced if the set of homeforms has changed.
+   * 
+   * <p>The changed file is parsed and compared without holding any lock, and the new data
+   * is then swapped in all at once, so lookups that are already running are not blocked
+   * and finish with the data they started with. An index recovered from a saved index
+   * snapshot has its saved data read first, as by <code>ensureLoaded</code>, so that the
+   * changes are found against the data it was saved with.
+   * 
+   * @param rawIndexData
+   *        A view of the contents of the changed index file
+   * @return The differences between the old and new contents of the index, or
+   *         <code>null</code> if this <code>IndexInterpreter</code> was repopulated while
+   *         the changed file was being read, in which case nothing is replaced
+   * @throws UncheckedIOException
+   *         If the index's saved data could not be read
+   */
+  public PeopleDataList.Changes refresh(ByteBuffer rawIndexData) {
+    try {
+      ensureLoaded();
+    } catch (IOException err) {
+      throw new UncheckedIOException(err);
+    }
+    PeopleDataList current;
+    List<String>[] currentHomeforms;
+    synchronized (this) {
+      current = index;
+      currentHomeforms = homeformList;
+    }
+
+    PeopleDataList updated = new PeopleDataList();
+    List<String>[] updatedHomeforms = updated.loadFileDataParallel(rawIndexData);
+    PeopleDataList.Changes changes = current.diff(updated);
+    if (changes.isEmpty()) {
+      return changes;
+    }
+
+    if (Arrays.equals(currentHomeforms, updatedHomeforms)) {
+      // Keep the same lists, so that anything built from them is still current.
+      updatedHomeforms = currentHomeforms;
+    }
+    synchronized (this) {
+      if (index != current) {
+        return null;
+      }
+      index = updated;
+      homeformList = updatedHomeforms;
+      clearResults();
+    }
+    return changes;
+  }
+
+  /**
+   * Replace all of the data held by this <code>IndexInterpreter</code> at once.
+   * 
+   * @param newIndex
+   *        The new people in the index
+   * @param newHomeforms
+   *        The new lists of homeforms in the index
+   */
+  private synchronized void replaceContents(PeopleDataList newIndex,
+                                            List<String>[] newHomeforms) {
+    index = newIndex;
+    homeformList = newHomeforms;
+    savedSection = null;
+    clearResults();
+  }
+
+  /**
+   * Returns the cache holding the results of recent queries, creating it if necessary.
+   * Must be called while holding this object's lock.
+   * 
+   * @return The result cache
+   */
+  private ResultCache results() {
+    if (resultCache == null) {
+      resultCache = new ResultCache();
+    }
+    return resultCache;
+  }
+
+  /**
+   * Discard the results of every recent query, which no longer reflect the data held.
+   * Must be called while holding this object's lock.
+   */
+  private void clearResults() {
+    if (resultCache != null) {
+      resultCache.clear();
+    }
+  }
+
+  /**
+   * Discard the results of every recent query, so that the next query is answered from
+   * the index. The hit and miss counts are kept.
+   */
+  synchronized void clearResultCache() {
+    clearResults();
+  }
+
+  /**
+   * Returns the number of queries that have been answered from the results of an
+   * identical recent query, with the same input and parameters, without looking up
+   * any names.
+   * 
+   * @return The number of queries answered from the result cache
+   */
+  public synchronized long getCacheHits() {
+    return results().hits();
+  }
+
+  /**
+   * Returns the number of queries that have been answered by looking up their names,
+   * because no identical query had been made since the index last changed, or its
+   * results had been discarded to make room for others.
+   * 
+   * @return The number of queries not answered from the result cache
+   */
+  public synchronized long getCacheMisses() {
+    return results().misses();
+  }
+
+  /**
+   * Write the data stored in this <code>IndexInterpreter</code>, apart from its source
+   * file name, to a snapshot in the format read by <code>readSnapshot</code>. The people
+   * in the index are written as by <code>PeopleDataList.writeSnapshot</code>, followed
+   * by each list of homeforms.
+   * 
+   * @param out
+   *        The stream to write the snapshot to
+   * @throws IOException
+   *         If the snapshot could not be written
+   */
+  void writeSnapshot(DataOutputStream out) throws IOException {
+    index.writeSnapshot(out);
+    out.writeByte(homeformList.length);
+    for (List<String> homeforms : homeformList) {
+      out.writeInt(homeforms.size());
+      for (String homeform : homeforms) {
+        out.writeUTF(homeform);
+      }
+    }
+  }
+
+  /**
+   * Read the data of this <code>IndexInterpreter</code> from a snapshot written by
+   * <code>writeSnapshot</code>, replacing any data it held before.
+   * 
+   * @param in
+   *        The stream to read the snapshot from
+   * @throws IOException
+   *         If the snapshot could not be read or is malformed
+   */
+  @SuppressWarnings("unchecked")
+  void readSnapshot(DataInputStream in) throws IOException {
+    PeopleDataList savedIndex = PeopleDataList.readSnapshot(in);
+    List<String>[] savedHomeforms = (List<String>[])new List<?>[in.readByte()];
+    for (int i = 0; i < savedHomeforms.length; i++) {
+      List<String> homeforms = new ArrayList<>();
+      for (int remaining = in.readInt(); remaining > 0; remaining--) {
+        homeforms.add(in.readUTF());
+      }
+      savedHomeforms[i] = homeforms;
+    }
+    replaceContents(savedIndex, savedHomeforms);
+  }
+
+  /**
+   * Returns <code>true</code> if this <code>IndexInterpreter</code>'s data has been
+   * read, or <code>false</code> if it is still waiting in a saved index snapshot.
+   * 
+   * @return <code>true</code> if the index's data is loaded
+   */
+  synchronized boolean isLoaded() {
+    return savedSection == null;
+  }
+
+  /**
+   * Read this <code>IndexInterpreter</code>'s data from the saved index snapshot it was
+   * recovered from, if it has not been read already. No other methods that access the
+   * index's data may be called until this has been done.
+   * 
+   * @throws IOException
+   *         If the saved index could not be read, or is corrupt
+   */
+  synchronized void ensureLoaded() throws IOException {
+    if (savedSection != null) {
+      readSnapshot(savedSection.open());
+      savedSection = null;
+    }
+  }
+
+  /**
+   * Returns the section of a saved index snapshot from which this
+   * <code>IndexInterpreter</code>'s data is yet to be read, or <code>null</code> if
+   * the data is loaded.
+   * 
+   * @return The section holding the index's data
+   */
+  synchronized IndexSnapshot.Section getSavedSection() {
+    return savedSection;
+  }
+
+  /**
+   * Set the section of a saved index snapshot from which this
+   * <code>IndexInterpreter</code>'s data is to be read, when the snapshot it was
+   * recovered from has been rewritten. Has no effect if the data is already loaded.
+   * 
+   * @param section
+   *        The new location of the index's data
+   */
+  synchronized void setSavedSection(IndexSnapshot.Section section) {
+    if (savedSection != null) {
+      savedSection = section;
+    }
   }
 
   /**
@@ -130,7 +585,7 @@ public class IndexInterpreter implements Serializable, MugsEventStamps {
    * 
    * @return A structured set of homeforms to which students in this index belong.
    */
-  public List<String>[] getHomeforms() {
+  public synchronized List<String>[] getHomeforms() {
     return homeformList;
   }
   
@@ -138,20 +593,16 @@ public class IndexInterpreter implements Serializable, MugsEventStamps {
    * Process a request to access particular pieces of data about a list of people.
    * <br>The list of names to query, as well as search parameters, are stored in a
    * <code>RequestEvent</code>. The value of the request type is expected to be
-   * set to <code>lookupStamp</code> under interface <code>MugsLookupStamps</code>,
-   * but the value of the stamp is not used and so can be set to 0 for the purposes
-   * of this method.
-   * 
-   * <p>The parameters specification inside the <code>RequestEvent</code> must
-   * contain boolean flags for the following options:
-   * <br>Three flags at the beginning of the array, representing [0] whether to report
-   * index number in the output of the query, [1] whether to report grade, and [2] whether
-   * to report homeform.
-   * <br>The remaining flags specify which homeforms are excluded from the output.
-   * A value at index i > 2 in the array specifies whether the (i - 3)'th homeform
-   * is included in output. The ordering of the homeforms in this model is equivalent
-   * to the ordering in the set returned from this class's <code>getHomeforms()</code>
-   * method, and so the query parameters should be contructed based on that standard.
+   * set to <code>lookupStamp</code> under interface <code>MugsEventStamps</code>, or to
+   * <code>partialLookupStamp</code> for a search on a partial name. Any other value of
+   * the stamp is treated as <code>lookupStamp</code>, and so can be set to 0 for the
+   * purposes of this method.
+   * 
+   * <p>The <code>SearchFilter</code> inside the <code>RequestEvent</code> specifies
+   * whether to report index number, grade, and homeform in the output of the query, and
+   * which grades and homeforms are included in output. Homeforms are selected by their
+   * positions in the lists returned from this class's <code>getHomeforms()</code>
+   * method, and so the filter should be constructed based on that standard.
    * 
    * <p>The method returns an two-dimensional array containing at its first index all
    * names from the input that were not excluded by the parameter settings, and at its
@@ -167,71 +618,295 @@ public class IndexInterpreter implements Serializable, MugsEventStamps {
    * the parameters, which can, for instance, output all students in a certain grade or
    * all students in a certain set of homeforms.
    * 
+   * <p>If the request's type is <code>partialLookupStamp</code>, the list of names is
+   * instead searched as a single partial name, such as <code>Smi*</code> or
+   * <code>*ith</code>, and every person whose name contains each of its parts, separated
+   * by spaces or asterisks, is reported, best match first, up to
+   * <code>PARTIAL_LIMIT</code> people who meet the parameters. See
+   * <code>PeopleDataList.searchPartial</code>. If no one's name contains the parts, the
+   * partial name is reported as not found. Otherwise an asterisk is read as any other
+   * character that is not part of a name.
+   * 
    * @param query
    *        A request for a piece of information about a list of people
    * @return A set of the names that were queried, and the results from those queries
    */
   public String[][] execute(RequestEvent query) {
-    String[] queryNames = filter(query.getData());
-    boolean[] reportValues = Arrays.copyOf(query.getParams(), 3);
-    
-    // Sets to contain all grades and homeforms that will be allowed into output:
-    // this corresponds to those whose flags in the parameters array are set to true.
-    Set<String> selectedGrades = new TreeSet<>();
-    Set<String> selectedHomeforms = new TreeSet<>();
-
-    // Fill in all allowed grades from indices 3-7 in the parameters array.
-    int posCounter = 3;
-    for (String grade : new String[] {"09", "10", "11", "12", "Staff"}) {
-      if (query.getParams()[posCounter++]) {
-        selectedGrades.add(grade);
-      }
+    // Output lists for inputs and outputs are parallel: for any element at the ith
+    // index of names, the ith index of results contains output from the query on
+    // the element.
+    List<String> names = new ArrayList<String>();
+    List<String> results = new ArrayList<String>();
+    execute(query, (name, result) -> {
+      names.add(name);
+      results.add(result);
+    });
+
+    // Convert list types into String arrays now that no more mutations are necessary.
+    return new String[][] {names.toArray(new String[0]), results.toArray(new String[0])};
+  }
+
+  /**
+   * Process a request to access particular pieces of data about a list of people,
+   * delivering each row of the results to the specified sink as soon as it is produced,
+   * in the same order as they would be returned by <code>execute(RequestEvent)</code>.
+   * Large batches of names are looked up in parallel on the common
+   * <code>ForkJoinPool</code>. See <code>execute(RequestEvent, ResultSink,
+   * ForkJoinPool)</code>.
+   * 
+   * @param query
+   *        A request for a piece of information about a list of people, as specified
+   *        for <code>execute(RequestEvent)</code>
+   * @param sink
+   *        The receiver of each name that was queried and the result for that name
+   */
+  public void execute(RequestEvent query, ResultSink sink) {
+    execute(query, sink, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Process a request to access particular pieces of data about a list of people,
+   * delivering each row of the results to the specified sink as soon as it is produced,
+   * in the same order as they would be returned by <code>execute(RequestEvent)</code>.
+   * The sink is always called on the calling thread, and the query can be abandoned part
+   * way through by throwing an unchecked exception from the sink.
+   * 
+   * <p>The results of recent queries are kept until the index changes, and a query
+   * identical to one of them, with the same input and parameters, is answered from its
+   * results without looking up any names. The results of a query that is abandoned are
+   * not kept.
+   * 
+   * <p>Otherwise, names are read and looked up in batches, which grow in size from one
+   * batch to the next. Batches large enough to benefit are looked up in parallel on the
+   * specified pool, and their results are then delivered in order; smaller batches, and
+   * every batch when the pool has only a single thread, are looked up on the calling
+   * thread.
+   * 
+   * @param query
+   *        A request for a piece of information about a list of people, as specified
+   *        for <code>execute(RequestEvent)</code>
+   * @param sink
+   *        The receiver of each name that was queried and the result for that name
+   * @param pool
+   *        The pool on which to look up large batches of names
+   */
+  public void execute(RequestEvent query, ResultSink sink, ForkJoinPool pool) {
+    // Work from the data held when the query started, in case it is refreshed meanwhile.
+    ResultCache.Key key = new ResultCache.Key(query.getType() == partialLookupStamp,
+                                              query.getData(), query.getFilter());
+    PeopleDataList index;
+    List<String>[] homeformList;
+    ResultCache.Entry cached;
+    synchronized (this) {
+      index = this.index;
+      homeformList = this.homeformList;
+      cached = results().get(key);
     }
-    
-    // Add grade 9 (as opposed to grade 09) to the allowed grades if the grade 09
-    // parameter flag is true, to account for badly formatted index files.
-    if (query.getParams()[3]) {
-      selectedGrades.add("9");
+
+    if (cached != null) {
+      for (int i = 0; i < cached.names.length; i++) {
+        sink.accept(cached.names[i], cached.results[i]);
+      }
+      return;
     }
-    
-    // Fill in all allowed, properly-formatted homeforms from indices 8 onward.
-    // The last flag is not checked because that corresponds to badly formatted
-    // homeforms, of which there are more than one.
-    
-    // A properly formatted homeform starts with two numbers, and ends in a letter,
-    // for example 09A, 12S, or 09/10G. Poorly formatted homeforms may be room numbers
-    // such as 211 or 302, or the unknown homeform string ###.
-    for (int i = 0; i < homeformList.length - 1; i++) {
-      for (String homeform : homeformList[i]) {
-        if (query.getParams()[posCounter++]) {
-          selectedHomeforms.add(homeform);
+
+    // Keep a copy of the results as they are delivered, until they grow too large to
+    // be worth keeping.
+    List<String> names = new ArrayList<>();
+    List<String> results = new ArrayList<>();
+    long[] chars = new long[1];
+    execute(index, homeformList, query, new ResultSink() {
+      @Override
+      public void accept(String name, String result) {
+        if (chars[0] <= ResultCache.CHAR_BUDGET) {
+          names.add(name);
+          results.add(result);
+          chars[0] += name.length() + result.length();
         }
+        sink.accept(name, result);
       }
-    }
-    
-    // Fill in all poorly-formatted homeforms into allowed homeforms if the
-    // last flag in the parameters arrays is set to true.
-    if (query.getParams()[posCounter]) {
-      for (String mistakeHomeform : homeformList[homeformList.length - 1]) {
-        selectedHomeforms.add(mistakeHomeform);
+
+      @Override
+      public void progress(int done, int total) {
+        sink.progress(done, total);
+      }
+    }, pool);
+
+    if (chars[0] <= ResultCache.CHAR_BUDGET) {
+      ResultCache.Entry entry = new ResultCache.Entry(key, names.toArray(new String[0]),
+                                                      results.toArray(new String[0]),
+                                                      chars[0]);
+      synchronized (this) {
+        // Results of data that has since been replaced are not kept.
+        if (this.index == index) {
+          results().put(key, entry);
+        }
       }
     }
-    
+  }
+
+  /**
+   * Process a request to access particular pieces of data about a list of people,
+   * delivering each row of the results to the specified sink as soon as it is produced,
+   * as by <code>execute(RequestEvent, ResultSink)</code>, but without looking for the
+   * query among the results of recent queries or keeping its results. Meant for queries
+   * that will not be repeated, such as the lines of a batch check, whose results would
+   * only be copied and then push out the results of queries made through the window.
+   * 
+   * @param query
+   *        A request for a piece of information about a list of people, as specified
+   *        for <code>execute(RequestEvent)</code>
+   * @param sink
+   *        The receiver of each name that was queried and the result for that name
+   */
+  void executeUncached(RequestEvent query, ResultSink sink) {
+    PeopleDataList index;
+    List<String>[] homeformList;
+    synchronized (this) {
+      index = this.index;
+      homeformList = this.homeformList;
+    }
+    execute(index, homeformList, query, sink, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns the names that complete a partly typed name, along with the grade and
+   * homeform of each person, as they are typed. The request's data holds the name as
+   * typed so far, and its filter selects grades and homeforms as specified for
+   * <code>execute(RequestEvent)</code>; people outside the selection are not offered.
+   * 
+   * <p>People whose full names start with the text typed are offered first, in
+   * alphabetical order, followed by people with a later word of their names starting
+   * with it, up to <code>COMPLETION_LIMIT</code> people. See
+   * <code>PeopleDataList.complete</code>.
+   * 
+   * @param query
+   *        A request for the names completing a partly typed name
+   * @return A two-dimensional array containing at its first index the names offered,
+   *         and at its second index the grade and homeform of each
+   */
+  public String[][] complete(RequestEvent query) {
+    PeopleDataList index;
+    List<String>[] homeformList;
+    synchronized (this) {
+      index = this.index;
+      homeformList = this.homeformList;
+    }
+    IntPredicate selected = query.getFilter().selector(index, homeformList);
+
+    // Ask for more people until enough of them are selected, or there are no more.
+    int[] people;
+    List<String> names = new ArrayList<>();
+    List<String> details = new ArrayList<>();
+    int wanted = COMPLETION_LIMIT;
+    do {
+      people = index.complete(query.getData(), wanted);
+      names.clear();
+      details.clear();
+      for (int i = 0; i < people.length && names.size() < COMPLETION_LIMIT; i++) {
+        if (selected.test(people[i])) {
+          names.add(index.nameOf(people[i]));
+          details.add("grade " + index.gradeOf(people[i]) + ", homeform "
+                      + index.homeformOf(people[i]));
+        }
+      }
+      wanted *= 4;
+    } while (names.size() < COMPLETION_LIMIT && people.length == wanted / 4);
+    return new String[][] {names.toArray(new String[0]), details.toArray(new String[0])};
+  }
+
+  /**
+   * Process a request to access particular pieces of data about a list of people in
+   * the specified data, delivering each row of the results to the specified sink as soon
+   * as it is produced. See <code>execute(RequestEvent, ResultSink, ForkJoinPool)</code>.
+   * 
+   * @param index
+   *        The people among whom names are looked up
+   * @param homeformList
+   *        The lists of homeforms in the index, in the order of the query's homeform flags
+   * @param query
+   *        A request for a piece of information about a list of people
+   * @param sink
+   *        The receiver of each name that was queried and the result for that name
+   * @param pool
+   *        The pool on which to look up large batches of names
+   */
+  private void execute(PeopleDataList index, List<String>[] homeformList, RequestEvent query,
+                       ResultSink sink, ForkJoinPool pool) {
+    // The output for each person is assembled from fragments prepared once per query.
+    OutputFragments output = new OutputFragments(index, query.getFilter());
+
+    // The filter is compiled into a predicate once per index, not once per query.
+    IntPredicate selected = query.getFilter().selector(index, homeformList);
+
     // If the input string is empty, then use the index as a source of names
     // instead of the input. That is, inputting an empty string will cause a search
     // on all names in the index, respecting exclusions from the parameter settings.
-    String[] nameInput = query.getData().equals("") ? index.getOrderedContents()
-    		                                        : queryNames;
-    
-    // Get a list of output from the input and return.
-    return lookup(nameInput, reportValues, selectedGrades, selectedHomeforms);
+    // The index is walked in its precomputed display order, so no names are looked up.
+    if (query.getData().equals("")) {
+      int size = index.size();
+      int batch = NAME_BATCH;
+      for (int from = 0; from < size; from += batch, batch = nextBatch(batch)) {
+        int first = from;
+        deliver(Math.min(batch, size - from),
+                i -> describe(index, index.personAt(first + i), output, selected),
+                i -> index.nameOf(index.personAt(first + i)), pool, sink);
+        sink.progress(Math.min(from + batch, size), size);
+      }
+      return;
+    }
+
+    // A partial name is searched for through an index of every name's trigrams rather
+    // than by looking up any full names.
+    if (query.getType() == partialLookupStamp) {
+      int[] matches = index.searchPartial(query.getData());
+      int delivered = 0;
+      for (int i = 0; i < matches.length && delivered < PARTIAL_LIMIT; i++) {
+        String result = describe(index, matches[i], output, selected);
+        if (result != null) {
+          sink.accept(index.nameOf(matches[i]), result);
+          delivered++;
+        }
+      }
+      if (matches.length == 0) {
+        sink.accept(query.getData().trim(), "SPELLED WRONG/NOT FOUND");
+      }
+      return;
+    }
+
+    // Deliver the output for the input, a batch of names at a time.
+    NameTokenizer tokenizer = TOKENIZER.get();
+    tokenizer.reset(query.getData());
+    int batch = NAME_BATCH;
+    String[] nameInput = filter(tokenizer, batch);
+    if (nameInput.length == 0) {
+      // A list without names is searched as a single empty name.
+      nameInput = new String[] {""};
+    }
+    do {
+      lookup(index, nameInput, output, selected, pool, sink);
+      sink.progress(tokenizer.position(), query.getData().length());
+      batch = nextBatch(batch);
+      nameInput = filter(tokenizer, batch);
+    } while (nameInput.length > 0);
   }
 
   /**
-   * Process a list of names of any format, and store the separated names in an array.
-   * Commas or newlines can be used as separators between names.
+   * Returns the number of names to read in the batch after a batch of the specified size.
    * 
-   * <p>Names are matched with a regular expression, and as such are expected to match
+   * @param batch
+   *        The size of a batch of names
+   * @return The size of the next batch
+   */
+  private static int nextBatch(int batch) {
+    return Math.min(batch * 2, MAX_NAME_BATCH);
+  }
+
+  /**
+   * Process the next part of a list of names of any format, and store the separated
+   * names in an array. Commas or newlines can be used as separators between names.
+   * 
+   * <p>Names are found by a <code>NameTokenizer</code>, and as such are expected to match
    * a certain format. Any series of characters consisting of a set of letters, periods,
    * dashes, and spaces preceded by a space or newline and followed by a comma or newline
    * are interpreted as names.
@@ -241,150 +916,167 @@ public class IndexInterpreter implements Serializable, MugsEventStamps {
    * <p>Individual names, mugs lists, sports lists, clubs lists, and manually input lists
    * can all be recognized and parsed properly.
    * 
-   * @param input
-   *        A list of names with details as specified above
-   * @return An array of all the names contained in the list
-   */
-  private static String[] filter(String input) {
-    /* Modify this expression if necessary to allow for names to be recognized that
-       contain characters not specified. (Add them between the square brackets
-       in the middle, ask a teacher for more details if that fails.) */
-    String nameFilterRegex = "(?<=([ \\n]|\\A))([A-Za-z -]|\\.)+(?=([,\\n]|\\z))";
-    String separator = "" + (char)1;
-    String processed = "";
-    
-    // Please do not change anything in this block.
-    try {
-      Matcher nameMatcher = Pattern.compile(nameFilterRegex).matcher(input);
-      while (!nameMatcher.hitEnd()) {
-        nameMatcher.find();
-        processed += nameMatcher.group() + separator;
-      }
-      return processed.split(separator);
-    } catch (IllegalStateException err) {
-      return processed.split(separator);
+   * @param tokenizer
+   *        A tokenizer reading a list of names with details as specified above
+   * @param batch
+   *        The largest number of names to return
+   * @return An array of up to <code>batch</code> of the next names contained in the
+   *         list, which is empty once the whole list has been read
+   */
+  private static String[] filter(NameTokenizer tokenizer, int batch) {
+    int count = tokenizer.advance(batch);
+    String[] names = new String[count];
+    for (int i = 0; i < count; i++) {
+      names[i] = tokenizer.name(i);
     }
+    return names;
   }
 
-  /**
-   * Prepare a string to be used as output for a search that has produced the index, grade,
-   * and homeform specified by parameters. Output is prepared based on the three flags
-   * passed in through the method's parameters.
-   * 
-   * <p>The message produced is made by assuming the name was found with the specified
-   * index, grade, and homeform. It will not produce an error message if the name was
-   * not found. This error message must be produced externally.
-   * 
-   * @param foundIndex
-   *        The index number at which the person was found
-   * @param grade
-   *        The grade to which the person belongs
-   * @param homeform
-   *        The person's homeform room designation
-   * @param reportWhat
-   *        Several boolean flags indicating which pieces of information are being
-   *        requested in the output
-   * @return A string with all requested data, formatted for output
-   */
-  private String prepareOutputString(int foundIndex, String grade, String homeform,
-		                             boolean[] reportWhat) {
-    String output = "Found";
-    // Track whether any data have been added to the string, indicating whether
-    // a comma is needed before the next data point.
-    boolean elementWritten = false;
-
-    if (reportWhat[0]) {
-      // Index number information is requested as output: this is always listed first.
-      output += " at index " + foundIndex;
-      elementWritten = true;
-    }
-    
-    if (reportWhat[1]) {
-      // Grade information is requested in output: this takes second priority.
-      output += elementWritten ? ", " : " ";
-      output += "in grade " + grade;
-      elementWritten = true;
-    }
-    
-    if (reportWhat[2]) {
-      // Homeform information is requested in output: this is always listed last.
-      output += elementWritten ? ", " : " ";
-      output += "in homeform " + homeform;
-    }
-    
-    return output;
-  }
-  
   /**
    * Look up each of an array of names in the index stored in this
-   * <code>IndexInterpreter</code>, and return information about the people
-   * in the list as specified by <code>reportWhat</code>.
+   * <code>IndexInterpreter</code>, and deliver information about the people
+   * in the list as assembled by <code>output</code>, in order. Names are looked up
+   * in parallel on <code>pool</code> if there are at least
+   * <code>PARALLEL_THRESHOLD</code> of them, and the pool has more than one thread.
    * 
    * <p>If the name is found, its requested information will be returned.
    * Otherwise a message will be returned indicating that the name was spelled
    * incorrectly or otherwise not present in the index file.
    * 
-   * The last two parameters, <code>allowedGrades</code> and
-   * <code>allowedHomeforms</code>, allow control over what output is kept. If a
-   * person being queried is in a grade not in <code>allowedGrades</code> or a
-   * homeform not in <code>allowedHomeforms</code>, then that person's query
-   * results wil not be reported in output.
+   * The parameter <code>selected</code> allows control over what output is kept. If a
+   * person being queried is not selected by it, being in a grade or homeform that the
+   * query's filter leaves out, then that person's query results will not be reported
+   * in output. See <code>SearchFilter.selector</code>.
    * 
+   * @param index
+   *        The people among whom the names are looked up
    * @param nameData
    *        The list of processed names being queried
-   * @param reportWhat
-   *        Boolean flags indicating which data from each query to report in output.
-   *        The first element is for index number, the second is for grade, and the
-   *        third is for homeform. Each of the above datapoints will be included
-   *        in output iff its corresponding flag is set to <code>true</code>.
-   * @param allowedGrades
-   *        The set of grades, in string form, to which output is restricted.
-   * @param allowedHomeforms
-   *        The set of homeforms, as strings, to which output is restricted.
-   * 
-   * @return In the first subarray, the names from the input that were not removed
-   *         according to grade and homeform restrictions; in the second subarray,
-   *         the output for each query in the first. The output and the query input
-   *         are at the same indices in their respective arrays.
-   */
-  private String[][] lookup(String[] nameData, boolean[] reportWhat,
-		                    Set<String> allowedGrades, Set<String> allowedHomeforms) {
-    // Output lists for inputs and outputs are parallel:
-    // names contains all input names of students that were in allowed grades and
-    // homeforms. For any element at the ith index of names, the ith index of results
-    // contains output from the query on the element.
-    List<String> names   = new ArrayList<String>();
-    List<String> results = new ArrayList<String>();
+   * @param output
+   *        The output for each person found, holding which data from each query to
+   *        report in output: index number, grade, and homeform, in that order.
+   * @param selected
+   *        The people to whom output is restricted
+   * @param pool
+   *        The pool on which to look up a large list of names
+   * @param sink
+   *        The receiver of each name from the input that is not removed according to
+   *        grade and homeform restrictions, along with the output for that name
+   */
+  private void lookup(PeopleDataList index, String[] nameData, OutputFragments output,
+		              IntPredicate selected, ForkJoinPool pool, ResultSink sink) {
+    deliver(nameData.length, i -> lookup(index, nameData[i], output, selected),
+            i -> nameData[i], pool, sink);
+  }
 
-    for (int i = 0; i < nameData.length; i++) {
-      // Search the index for the next name. Finding its index number will help identify
-      // whether the name was actually in the index, or if it was not found.
-      String name = nameData[i];
-      int foundIndex = index.searchName(name);
-      
-      if (foundIndex == 0) {
-        // The name was not found: report an error message as output for this query.
-        // Unfound names are reported regardless of grade/homeform specifications.
-        names.add(name);
-        results.add("SPELLED WRONG/NOT FOUND"  + "   " + name.length());
-      } else {
-        // The name was found in the index. Both grade and homeform are required to
-        // tell if it meets the output specifications.
-    	String grade = index.searchGrade(name);
-        String homeform = index.searchHomeform(name);
-        
-        if (allowedGrades.contains(grade) && allowedHomeforms.contains(homeform)) {
-          // The name meets output specifications. Add it to output.
-          names.add(name);
-          // Prepare the query results for presentation and readability.
-          results.add(prepareOutputString(foundIndex, grade, homeform, reportWhat));
+  /**
+   * Find the output for each of a batch of names, and deliver each name whose output is
+   * not <code>null</code> to the sink along with its output, in order. The output is
+   * found in parallel on <code>pool</code> if there are at least
+   * <code>PARALLEL_THRESHOLD</code> names, and the pool has more than one thread.
+   * 
+   * @param count
+   *        The number of names in the batch
+   * @param resultAt
+   *        The output for the name at each position in the batch, or <code>null</code>
+   *        if the name is not to be delivered. May be called concurrently for separate
+   *        positions.
+   * @param nameAt
+   *        The name at each position in the batch
+   * @param pool
+   *        The pool on which to find the output for a large batch
+   * @param sink
+   *        The receiver of each name delivered, along with its output
+   */
+  private static void deliver(int count, IntFunction<String> resultAt, IntFunction<String> nameAt,
+                              ForkJoinPool pool, ResultSink sink) {
+    if (count < PARALLEL_THRESHOLD || pool.getParallelism() < 2) {
+      for (int i = 0; i < count; i++) {
+        String result = resultAt.apply(i);
+        if (result != null) {
+          sink.accept(nameAt.apply(i), result);
         }
       }
+      return;
     }
+
+    // Find every result in parallel, each in the position of its name, then deliver
+    // them in the order of the names.
+    String[] results = new String[count];
+    pool.invoke(new LookupAction(0, count, i -> results[i] = resultAt.apply(i)));
+    for (int i = 0; i < count; i++) {
+      if (results[i] != null) {
+        sink.accept(nameAt.apply(i), results[i]);
+      }
+    }
+  }
+
+  /**
+   * Look up a single name in the index stored in this <code>IndexInterpreter</code>,
+   * and return information about the person as assembled by <code>output</code>.
+   * May be called concurrently for separate names. See <code>lookup(PeopleDataList,
+   * String[], OutputFragments, IntPredicate, ForkJoinPool, ResultSink)</code>.
+   * 
+   * @param index
+   *        The people among whom the name is looked up
+   * @param name
+   *        The processed name being queried
+   * @param output
+   *        The output for each person found
+   * @param selected
+   *        The people to whom output is restricted
+   * @return The output for the name, or <code>null</code> if the name is removed
+   *         according to grade and homeform restrictions
+   */
+  private String lookup(PeopleDataList index, String name, OutputFragments output,
+                        IntPredicate selected) {
+    // Search the index for the name, once. The handle found gives all of the
+    // person's data, or identifies that the name was not found.
+    int person = index.lookup(name);
     
-    // Convert list types into String arrays now that no more mutations are necessary.
-    return new String[][] {names.toArray(new String[0]),
-    	                   results.toArray(new String[0])};
+    if (person == -1) {
+      // The name was not found: report an error message as output for this query,
+      // along with the names that were most likely meant. Unfound names are reported
+      // regardless of grade/homeform specifications.
+      StringBuilder message = new StringBuilder(NOT_FOUND_CAPACITY)
+          .append("SPELLED WRONG/NOT FOUND   ").append(name.length());
+      List<String> suggestions = index.suggestNames(name, SUGGESTION_DISTANCE,
+                                                    SUGGESTION_LIMIT);
+      for (int i = 0; i < suggestions.size(); i++) {
+        message.append(i == 0 ? "   (did you mean " : " or ").append(suggestions.get(i));
+      }
+      if (!suggestions.isEmpty()) {
+        message.append("?)");
+      }
+      return message.toString();
+    }
+    return describe(index, person, output, selected);
+  }
+
+  /**
+   * Return information about a person in the index stored in this
+   * <code>IndexInterpreter</code>, as assembled by <code>output</code>. May be
+   * called concurrently for separate people.
+   * 
+   * @param index
+   *        The people to which the person belongs
+   * @param person
+   *        A handle to the person, as returned by <code>PeopleDataList.lookup</code>
+   * @param output
+   *        The output for each person found
+   * @param selected
+   *        The people to whom output is restricted
+   * @return The output for the person, or <code>null</code> if the person is removed
+   *         according to grade and homeform restrictions
+   */
+  private String describe(PeopleDataList index, int person, OutputFragments output,
+                          IntPredicate selected) {
+    if (selected.test(person)) {
+      // Both the person's grade and homeform meet the output specifications. Prepare
+      // the query results for presentation and readability.
+      return output.describe(person);
+    }
+    return null;
   }
   
   @Override
@@ -1,6 +1,7 @@
 import java.awt.Font;
 import java.awt.GridLayout;
 import java.awt.event.FocusListener;
+import java.util.List;
 
 import javax.swing.BoundedRangeModel;
 import javax.swing.JPanel;
@@ -8,6 +9,10 @@ import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Caret;
+import javax.swing.text.DefaultCaret;
+import javax.swing.text.Document;
 import javax.swing.text.JTextComponent;
 
 /**
@@ -75,6 +80,29 @@ public abstract class IndexLookupPane extends JPanel implements DocumentListener
    */
   private boolean activeSuppress = false;
 
+  /**
+   * <code>true</code> while the results of a query are being displayed as they arrive,
+   * from a call to <code>startDisplay</code> until the call to <code>finishDisplay</code>
+   * or until the input text field is modified by the user.
+   */
+  private boolean streaming = false;
+
+  /**
+   * The number of results displayed so far by the query being streamed.
+   */
+  private int streamedCount;
+
+  /**
+   * The percentage of the query being streamed that has been carried out so far.
+   */
+  private int streamedPercent;
+
+  /**
+   * The headers currently at the top of the input and output text fields while a query
+   * is being streamed.
+   */
+  private String[] streamedHeader;
+
   /**
    * Initialize a new <code>IndexLookupPane</code> and set up all components inside.
    * Both input and output text fields begin with no content.
@@ -114,6 +142,26 @@ public abstract class IndexLookupPane extends JPanel implements DocumentListener
    */
   protected abstract JTextComponent getTextComponent();
 
+  /**
+   * Returns the editable text field that contains user input text.
+   * 
+   * @return The input text field
+   */
+  protected JTextComponent getInputField() {
+    return inputField;
+  }
+
+  /**
+   * Respond to the user modifying the input text field. Not called when the text is
+   * replaced by the results of a query. By default nothing is done; subclasses may
+   * override this method to respond to text as it is typed.
+   * 
+   * @param text
+   *        The new contents of the input text field
+   */
+  protected void inputEdited(String text) {
+  }
+
   /**
    * 
    * 
@@ -174,6 +222,9 @@ public abstract class IndexLookupPane extends JPanel implements DocumentListener
          Scroll bars are desynchronized on these events to prevent cut off text. */
       queryString = inputField.getText();
       unmatchScrollBars();
+      // Results still arriving no longer belong to the text being edited.
+      stopStreaming();
+      inputEdited(queryString);
     }
   }
   
@@ -183,6 +234,8 @@ public abstract class IndexLookupPane extends JPanel implements DocumentListener
       // Same response as for insertions. See method body above.
       queryString = inputField.getText();
       unmatchScrollBars();
+      stopStreaming();
+      inputEdited(queryString);
     }
   }
 
@@ -229,8 +282,179 @@ public abstract class IndexLookupPane extends JPanel implements DocumentListener
     }
     
     // Put the input and output of the recent query on the text panes.
+    stopStreaming();
     displayQueryResults(formattedInput, output);
   }
+
+  /**
+   * Clear the input and output text fields to begin displaying the results of a query
+   * as they arrive, in batches passed to <code>appendDisplay</code>. The results are laid
+   * out in the same way as by <code>display</code>, with the scroll bars synchronized,
+   * but the first of them can be shown long before the last is ready. Any header is
+   * updated as results arrive, and completed by <code>finishDisplay</code>.
+   */
+  public void startDisplay() {
+    streaming = true;
+    streamedCount = 0;
+    streamedPercent = 0;
+    streamedHeader = getHeader(0, false, 0);
+    displayQueryResults(streamedHeader[0], streamedHeader[1]);
+
+    // Keep the view where it is while results are added below it, rather than
+    // following the end of the text.
+    setCaretUpdates(DefaultCaret.NEVER_UPDATE);
+  }
+
+  /**
+   * Add a batch of results to those displayed since the last call to
+   * <code>startDisplay</code>. Each element of <code>rows</code> holds a piece of input
+   * at index 0 and its output at index 1. If the input text field has been modified by
+   * the user since results started to arrive, the batch is not displayed.
+   * 
+   * @param rows
+   *        The next results of the query being displayed, in order
+   */
+  public void appendDisplay(List<String[]> rows) {
+    if (!streaming || rows.isEmpty()) {
+      return;
+    }
+    // Size each batch of text to hold every row and newline at once.
+    int inLength = rows.size();
+    int outLength = rows.size();
+    for (String[] row : rows) {
+      inLength += row[0].length();
+      outLength += row[1].length();
+    }
+    StringBuilder in = new StringBuilder(inLength);
+    StringBuilder out = new StringBuilder(outLength);
+    for (String[] row : rows) {
+      if (streamedCount > 0) {
+        in.append('\n');
+        out.append('\n');
+      }
+      in.append(row[0]);
+      out.append(row[1]);
+      streamedCount++;
+    }
+
+    activeSuppress = true;
+    appendText(inputField, in.toString());
+    appendText(outputField, out.toString());
+    updateHeader(getHeader(streamedCount, false, streamedPercent));
+    activeSuppress = false;
+  }
+
+  /**
+   * Show how much of the query whose results are being displayed since the last call
+   * to <code>startDisplay</code> has been carried out, in any header. If the input text
+   * field has been modified by the user since results started to arrive, nothing is done.
+   * 
+   * @param percent
+   *        The percentage of the query carried out so far
+   */
+  public void showProgress(int percent) {
+    if (!streaming || percent == streamedPercent) {
+      return;
+    }
+    streamedPercent = percent;
+    activeSuppress = true;
+    updateHeader(getHeader(streamedCount, false, streamedPercent));
+    activeSuppress = false;
+  }
+
+  /**
+   * Complete the display of results begun by <code>startDisplay</code>, once every
+   * result of the query has been passed to <code>appendDisplay</code>. If the input text
+   * field has been modified by the user since results started to arrive, nothing is done.
+   */
+  public void finishDisplay() {
+    if (!streaming) {
+      return;
+    }
+    activeSuppress = true;
+    updateHeader(getHeader(streamedCount, true, 100));
+    activeSuppress = false;
+    stopStreaming();
+  }
+
+  /**
+   * Stop displaying the results of a query as they arrive, so that no more are shown.
+   */
+  private void stopStreaming() {
+    if (streaming) {
+      streaming = false;
+      setCaretUpdates(DefaultCaret.UPDATE_WHEN_ON_EDT);
+    }
+  }
+
+  /**
+   * Set when the carets of the input and output text fields move in response to changes
+   * in their text, where the carets allow it.
+   * 
+   * @param policy
+   *        A caret update policy, as defined by <code>DefaultCaret</code>
+   */
+  private void setCaretUpdates(int policy) {
+    for (JTextComponent field : new JTextComponent[] {inputField, outputField}) {
+      Caret caret = field.getCaret();
+      if (caret instanceof DefaultCaret) {
+        ((DefaultCaret)caret).setUpdatePolicy(policy);
+      }
+    }
+  }
+
+  /**
+   * Replace the headers at the top of the input and output text fields while a query
+   * is being streamed, if they have changed.
+   * 
+   * @param header
+   *        The new headers for the input and output text fields
+   */
+  private void updateHeader(String[] header) {
+    replaceStart(inputField, streamedHeader[0], header[0]);
+    replaceStart(outputField, streamedHeader[1], header[1]);
+    streamedHeader = header;
+  }
+
+  /**
+   * Add text to the end of a text field.
+   * 
+   * @param field
+   *        The text field
+   * @param text
+   *        The text to add
+   */
+  private static void appendText(JTextComponent field, String text) {
+    Document doc = field.getDocument();
+    try {
+      doc.insertString(doc.getLength(), text, null);
+    } catch (BadLocationException err) {
+      throw new IllegalStateException(err);
+    }
+  }
+
+  /**
+   * Replace the text at the start of a text field.
+   * 
+   * @param field
+   *        The text field
+   * @param old
+   *        The text currently at the start of the field
+   * @param text
+   *        The text to put in its place
+   */
+  private static void replaceStart(JTextComponent field, String old, String text) {
+    if (old.equals(text)) {
+      return;
+    }
+    Document doc = field.getDocument();
+    try {
+      doc.remove(0, old.length());
+      doc.insertString(0, text, null);
+    } catch (BadLocationException err) {
+      throw new IllegalStateException(err);
+    }
+  }
   
   /**
    * Display the string parameters on the input and output text spaces,
@@ -277,11 +501,55 @@ public abstract class IndexLookupPane extends JPanel implements DocumentListener
    * @return The same output prepared for direct display on the text panels
    */
   protected String[] getDisplayText(String[][] results) {
-    String[] out = new String[2];
+    String[] out = getHeader(results[1].length, true, 100);
     // Convert multiple array elements into a single, newline-separated string.
-    out[0] = String.join("\n", results[0]);
-    out[1] = String.join("\n", results[1]);
+    out[0] = joinLines(out[0], results[0]);
+    out[1] = joinLines(out[1], results[1]);
     
     return out;
   }
+
+  /**
+   * Returns a header followed by lines of text separated by newlines, written once into
+   * a builder sized to hold all of them.
+   * 
+   * @param header
+   *        The text before the first line
+   * @param lines
+   *        The lines of text
+   * @return The header and the lines
+   */
+  private static String joinLines(String header, String[] lines) {
+    int length = header.length() + Math.max(lines.length - 1, 0);
+    for (String line : lines) {
+      length += line.length();
+    }
+    StringBuilder text = new StringBuilder(length).append(header);
+    for (int i = 0; i < lines.length; i++) {
+      if (i > 0) {
+        text.append('\n');
+      }
+      text.append(lines[i]);
+    }
+    return text.toString();
+  }
+
+  /**
+   * Returns the text to display at the top of the input and output text fields, above
+   * the results of a query. By default there is no header; subclasses may override this
+   * method to describe the results. The input and output headers must contain the same
+   * number of newlines, so that the results stay lined up.
+   * 
+   * @param count
+   *        The number of results displayed
+   * @param complete
+   *        <code>true</code> if every result of the query is displayed, or
+   *        <code>false</code> if results are still arriving
+   * @param percent
+   *        The percentage of the query carried out so far
+   * @return The headers for the input and output text fields
+   */
+  protected String[] getHeader(int count, boolean complete, int percent) {
+    return new String[] {"", ""};
+  }
 }
\ No newline at end of file
@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -20,6 +22,10 @@ import java.util.ListIterator;
  * is set to manual priority can be adjusted using the <code>toManual</code> parameter
  * in any method that offers that parameter, and the index currently set to manual
  * priority can be checked using the method <code>isManual</code>.
+ * 
+ * <p>Indices recovered from a saved index snapshot are not read in full until they
+ * are first retrieved with one of the <code>get</code> methods. Iterating over the list
+ * or checking its ordering does not cause any index's data to be read.
  */
 public class IndexPriorityList implements Iterable<IndexInterpreter> {
 
@@ -102,11 +108,31 @@ public class IndexPriorityList implements Iterable<IndexInterpreter> {
    * Returns the index to which the specified source file name is mapped, or
    * <code>null</code> if the list does not contain an index from that source file.
    * 
+   * <p>If the index was recovered from a saved index snapshot and has not been
+   * retrieved since, its data is read from the snapshot before it is returned.
+   * 
    * @param indexHeader
    *        The name of the source file from which the desired index was drawn
    * @return The index built from the given source file
+   * @throws UncheckedIOException
+   *         If the index's saved data could not be read
    */
   public IndexInterpreter get(String indexHeader) {
+    return loaded(translator.get(indexHeader));
+  }
+
+  /**
+   * Returns the index to which the specified source file name is mapped, or
+   * <code>null</code> if the list does not contain an index from that source file,
+   * without reading its data from a saved index snapshot. The index's data must be read
+   * with <code>IndexInterpreter.ensureLoaded</code> before it is used, which may be
+   * done on another thread.
+   * 
+   * @param indexHeader
+   *        The name of the source file from which the desired index was drawn
+   * @return The index built from the given source file
+   */
+  IndexInterpreter getSaved(String indexHeader) {
     return translator.get(indexHeader);
   }
 
@@ -117,12 +143,38 @@ public class IndexPriorityList implements Iterable<IndexInterpreter> {
    * 
    * <p>If an index is set to manual priority, it will be at index 0.
    * 
+   * <p>If the index was recovered from a saved index snapshot and has not been
+   * retrieved since, its data is read from the snapshot before it is returned.
+   * 
    * @param pos
    *        The position of the element to return
    * @return The element at the specified position
+   * @throws UncheckedIOException
+   *         If the index's saved data could not be read
    */
   public IndexInterpreter get(int pos) {
-    return orderer.get(pos);
+    return loaded(orderer.get(pos));
+  }
+
+  /**
+   * Ensure the data of the specified index has been read from the saved index snapshot
+   * it was recovered from, if any, and return the index.
+   * 
+   * @param savedIndex
+   *        The index whose data is needed, or <code>null</code>
+   * @return The same index
+   * @throws UncheckedIOException
+   *         If the index's saved data could not be read
+   */
+  private IndexInterpreter loaded(IndexInterpreter savedIndex) {
+    if (savedIndex != null) {
+      try {
+        savedIndex.ensureLoaded();
+      } catch (IOException err) {
+        throw new UncheckedIOException(err);
+      }
+    }
+    return savedIndex;
   }
 
   /**
@@ -254,6 +306,58 @@ public class IndexPriorityList implements Iterable<IndexInterpreter> {
     }
   }
 
+  /**
+   * Insert the specified index into the list with the specified request frequency,
+   * without the frequency being increased and without the list being considered changed.
+   * Meant for restoring a list from a saved record of its indices, in which case the
+   * indices must be loaded from the back of the list to the front for their order to
+   * be restored.
+   * 
+   * @param savedIndex
+   *        The index being restored
+   * @param requestCount
+   *        The number of times the index has been requested
+   * @param toManual
+   *        Whether or not the index is set to manual priority
+   * @throws IllegalArgumentException
+   *         If the list already contains the index
+   */
+  public void load(IndexInterpreter savedIndex, int requestCount, boolean toManual) {
+    orderer.load(savedIndex, requestCount, toManual);
+    translator.put(savedIndex.getSource(), savedIndex);
+  }
+
+  /**
+   * Returns the number of times the index specified by the given source file name has
+   * been requested, or 0 if the list does not contain the index.
+   * 
+   * @param indexHeader
+   *        The name of the source file for the index whose request count is returned
+   * @return The number of times the index has been requested
+   */
+  public int requestCount(String indexHeader) {
+    IndexInterpreter thisIndex = translator.get(indexHeader);
+    return thisIndex == null ? 0 : orderer.countOf(thisIndex);
+  }
+
+  /**
+   * Returns <code>true</code> if the list contains no indices.
+   * 
+   * @return <code>true</code> if the list is empty
+   */
+  public boolean isEmpty() {
+    return orderer.isEmpty();
+  }
+
+  /**
+   * Record that the data of an index in the list has changed, such as when its index
+   * file has been corrected, so that the saved index file must be updated even if the
+   * ordering of indices has not changed.
+   */
+  public void markChanged() {
+    changed = true;
+  }
+
   /**
    * Returns <code>true</code> if any significant changes have occurred that could
    * affect ordering of indices, including order changes and changes in request
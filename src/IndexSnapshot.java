@@ -0,0 +1,464 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Reads and writes snapshots of saved indices: a compact binary record of every index in
+ * an <code>IndexPriorityList</code>, along with the list's ordering information. Snapshots
+ * replace Java serialization of the list, and are written and read much faster because
+ * each index is stored as a string table and columns of integers rather than as a graph
+ * of objects.
+ *
+ * <p>A snapshot file is laid out as follows, with all numbers big-endian:
+ * <br>A header, consisting of the magic number <code>MAGIC</code>, the format version
+ * as a short, and the number of indices saved.
+ * <br>A directory holding one entry per index, in the order of the list: the index's
+ * source file name, its request count, whether it is set to manual priority, and the
+ * offset, length, and CRC-32 checksum of its section.
+ * <br>A CRC-32 checksum of the header and directory.
+ * <br>One section per index, holding the index's data as written by
+ * <code>IndexInterpreter.writeSnapshot</code>. Section offsets are counted from the end
+ * of the directory checksum.
+ *
+ * <p>The directory doubles as a manifest of the saved indices: a snapshot is recovered by
+ * reading its directory alone, and each index's section is read when the index is first
+ * retrieved from the recovered list.
+ *
+ * <p>Any snapshot whose magic number, version, or checksums do not match is rejected
+ * with an <code>IOException</code>, rather than being partially read.
+ */
+public class IndexSnapshot {
+
+  /**
+   * The number at the start of every snapshot file, "MUGS" in ASCII.
+   */
+  static final int MAGIC = 0x4D554753;
+
+  /**
+   * The version of the snapshot format written by this class. Snapshots of any other
+   * version are rejected.
+   */
+  static final short VERSION = 1;
+
+  /**
+   * The size of the buffer through which each section is written.
+   */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * A directory entry of a snapshot, describing one saved index.
+   */
+  static class Entry {
+
+    /**
+     * The name of the source file of the index.
+     */
+    final String source;
+
+    /**
+     * The number of times the index has been requested.
+     */
+    final int requestCount;
+
+    /**
+     * Whether the index is set to manual priority.
+     */
+    final boolean manual;
+
+    /**
+     * The offset of the index's section, counted from the start of the sections.
+     */
+    final long offset;
+
+    /**
+     * The length in bytes of the index's section.
+     */
+    final int length;
+
+    /**
+     * The CRC-32 checksum of the index's section.
+     */
+    final int checksum;
+
+    /**
+     * Initializes a new <code>Entry</code> with the specified values.
+     *
+     * @param source
+     *        The name of the source file of the index
+     * @param requestCount
+     *        The number of times the index has been requested
+     * @param manual
+     *        Whether the index is set to manual priority
+     * @param offset
+     *        The offset of the index's section
+     * @param length
+     *        The length of the index's section
+     * @param checksum
+     *        The checksum of the index's section
+     */
+    Entry(String source, int requestCount, boolean manual, long offset, int length,
+          int checksum) {
+      this.source = source;
+      this.requestCount = requestCount;
+      this.manual = manual;
+      this.offset = offset;
+      this.length = length;
+      this.checksum = checksum;
+    }
+  }
+
+  /**
+   * The location of one saved index's section in a snapshot file, from which the index's
+   * data can be read when it is first needed.
+   */
+  static class Section {
+
+    /**
+     * The snapshot file holding the section.
+     */
+    private final File snapshotFile;
+
+    /**
+     * The position in the file at which sections start.
+     */
+    private final long sectionsStart;
+
+    /**
+     * The directory entry describing the section.
+     */
+    private final Entry entry;
+
+    /**
+     * Initializes a new <code>Section</code> describing the section of the specified
+     * directory entry.
+     *
+     * @param snapshotFile
+     *        The snapshot file holding the section
+     * @param sectionsStart
+     *        The position in the file at which sections start
+     * @param entry
+     *        The directory entry describing the section
+     */
+    Section(File snapshotFile, long sectionsStart, Entry entry) {
+      this.snapshotFile = snapshotFile;
+      this.sectionsStart = sectionsStart;
+      this.entry = entry;
+    }
+
+    /**
+     * Returns the directory entry describing the section.
+     *
+     * @return The section's directory entry
+     */
+    Entry getEntry() {
+      return entry;
+    }
+
+    /**
+     * Read and verify the bytes of the section.
+     *
+     * @return The bytes of the section
+     * @throws IOException
+     *         If the section could not be read, or is corrupt
+     */
+    byte[] readBytes() throws IOException {
+      try (FileChannel channel = FileChannel.open(snapshotFile.toPath(),
+                                                  StandardOpenOption.READ)) {
+        byte[] section = readFully(channel, sectionsStart + entry.offset, entry.length);
+        CRC32 checksum = new CRC32();
+        checksum.update(section);
+        if ((int)checksum.getValue() != entry.checksum) {
+          throw new IOException("Saved index " + entry.source + " is corrupt");
+        }
+        return section;
+      }
+    }
+
+    /**
+     * Read and verify the section, and return a stream over its contents.
+     *
+     * @return A stream from which the section's index can be read
+     * @throws IOException
+     *         If the section could not be read, or is corrupt
+     */
+    DataInputStream open() throws IOException {
+      return new DataInputStream(new ByteArrayInputStream(readBytes()));
+    }
+
+    /**
+     * Copy the section as it is to the current position of a channel, advancing the
+     * channel's position past it, without holding the section in memory. The section
+     * is not verified: its checksum is copied with it, and checked when it is read.
+     *
+     * @param target
+     *        The channel to copy the section to
+     * @throws IOException
+     *         If the section could not be copied, or the snapshot ends before it does
+     */
+    void copyTo(FileChannel target) throws IOException {
+      try (FileChannel channel = FileChannel.open(snapshotFile.toPath(),
+                                                  StandardOpenOption.READ)) {
+        long position = sectionsStart + entry.offset;
+        long end = position + entry.length;
+        while (position < end) {
+          long copied = channel.transferTo(position, end - position, target);
+          if (copied <= 0) {
+            throw new IOException("Saved index snapshot is truncated");
+          }
+          position += copied;
+        }
+      }
+    }
+  }
+
+  /**
+   * This class only provides static methods, and is not to be instantiated.
+   */
+  private IndexSnapshot() {
+  }
+
+  /**
+   * Write a snapshot of every index in the specified list, along with the list's
+   * ordering information, to the specified file, replacing its contents.
+   *
+   * <p>Sections are streamed to the file as they are written, and sections of indices
+   * not yet read from an older snapshot are copied from it directly, so no more than one
+   * buffer of a section is held in memory at a time. Every field of the directory but
+   * the source file names has a fixed size, so the directory's length is known before
+   * any section is written: space is left for it at the start of the file, and it is
+   * written there once the offsets, lengths, and checksums of the sections are known.
+   *
+   * @param indices
+   *        The list of indices to save
+   * @param snapshotFile
+   *        The file to write the snapshot to
+   * @throws IOException
+   *         If the snapshot could not be written
+   */
+  public static void write(IndexPriorityList indices, File snapshotFile) throws IOException {
+    List<Entry> placeholders = new ArrayList<>();
+    for (IndexInterpreter index : indices) {
+      placeholders.add(new Entry(index.getSource(), 0, false, 0, 0, 0));
+    }
+    int sectionsStart = directory(placeholders).length;
+
+    List<Entry> entries = new ArrayList<>();
+    try (FileChannel channel = FileChannel.open(snapshotFile.toPath(),
+                                                StandardOpenOption.CREATE,
+                                                StandardOpenOption.WRITE,
+                                                StandardOpenOption.TRUNCATE_EXISTING)) {
+      channel.position(sectionsStart);
+      for (IndexInterpreter index : indices) {
+        long start = channel.position() - sectionsStart;
+        String source = index.getSource();
+        if (!index.isLoaded()) {
+          // The index has not been used since it was recovered, so its section is copied
+          // from the snapshot it was recovered from rather than being loaded to be written.
+          Section saved = index.getSavedSection();
+          saved.copyTo(channel);
+          entries.add(new Entry(source, indices.requestCount(source), indices.isManual(source),
+                                start, saved.entry.length, saved.entry.checksum));
+          continue;
+        }
+
+        CheckedOutputStream checked = new CheckedOutputStream(Channels.newOutputStream(channel),
+                                                              new CRC32());
+        DataOutputStream sectionOut = new DataOutputStream(new BufferedOutputStream(checked,
+                                                                                    BUFFER_SIZE));
+        index.writeSnapshot(sectionOut);
+        sectionOut.flush();
+
+        long length = channel.position() - sectionsStart - start;
+        if (length > Integer.MAX_VALUE) {
+          throw new IOException("Saved index " + source + " is too large to save");
+        }
+        entries.add(new Entry(source, indices.requestCount(source), indices.isManual(source),
+                              start, (int)length, (int)checked.getChecksum().getValue()));
+      }
+
+      ByteBuffer directory = ByteBuffer.wrap(directory(entries));
+      while (directory.hasRemaining()) {
+        channel.write(directory, directory.position());
+      }
+    }
+  }
+
+  /**
+   * Returns the header and directory of a snapshot holding the specified entries,
+   * followed by their checksum.
+   *
+   * @param entries
+   *        The directory's entries, in order
+   * @return The bytes at the start of the snapshot, up to the start of its sections
+   * @throws IOException
+   *         If a source file name is too long to be written
+   */
+  private static byte[] directory(List<Entry> entries) throws IOException {
+    ByteArrayOutputStream header = new ByteArrayOutputStream();
+    DataOutputStream headerOut = new DataOutputStream(header);
+    headerOut.writeInt(MAGIC);
+    headerOut.writeShort(VERSION);
+    headerOut.writeInt(entries.size());
+    for (Entry entry : entries) {
+      headerOut.writeUTF(entry.source);
+      headerOut.writeInt(entry.requestCount);
+      headerOut.writeBoolean(entry.manual);
+      headerOut.writeLong(entry.offset);
+      headerOut.writeInt(entry.length);
+      headerOut.writeInt(entry.checksum);
+    }
+    headerOut.flush();
+    CRC32 headerChecksum = new CRC32();
+    headerChecksum.update(header.toByteArray());
+    headerOut.writeInt((int)headerChecksum.getValue());
+    headerOut.flush();
+    return header.toByteArray();
+  }
+
+  /**
+   * Read the directory of a snapshot file, returning a list holding every saved index in
+   * its saved order, with the saved request counts and manual priority setting.
+   *
+   * <p>Only the directory is read: each index's data is left in the file until the index
+   * is first retrieved from the list, so the time and memory taken by this method do not
+   * grow with the number of people in the saved indices. The snapshot file must not be
+   * changed while the list is in use, except through <code>FileOperator.saveIndices</code>.
+   *
+   * @param snapshotFile
+   *        The snapshot file to read
+   * @return The saved list of indices
+   * @throws IOException
+   *         If the file could not be read, or is not a valid snapshot
+   */
+  public static IndexPriorityList read(File snapshotFile) throws IOException {
+    List<Entry> entries = new ArrayList<>();
+    long sectionsStart;
+    try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+      sectionsStart = readDirectory(channel, entries);
+    }
+
+    // Indices with equal counts are placed in front of one another as they are loaded,
+    // so they are loaded from the back of the list to restore the saved order.
+    IndexPriorityList indices = new IndexPriorityList();
+    for (int i = entries.size() - 1; i >= 0; i--) {
+      Entry entry = entries.get(i);
+      IndexInterpreter saved = new IndexInterpreter(entry.source,
+                                                    new Section(snapshotFile, sectionsStart,
+                                                                entry));
+      indices.load(saved, entry.requestCount, entry.manual);
+    }
+    return indices;
+  }
+
+  /**
+   * Point each index in the specified list that has not yet been loaded at its section
+   * in the specified snapshot file. Must be called after the list is saved over the
+   * snapshot from which it was read, since sections may have moved within the file.
+   *
+   * @param snapshotFile
+   *        The snapshot file to which the list was saved
+   * @param indices
+   *        The saved list of indices
+   * @throws IOException
+   *         If the file could not be read, or is not a valid snapshot
+   */
+  static void relocate(File snapshotFile, IndexPriorityList indices) throws IOException {
+    List<Entry> entries = new ArrayList<>();
+    long sectionsStart;
+    try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+      sectionsStart = readDirectory(channel, entries);
+    }
+    int pos = 0;
+    for (IndexInterpreter index : indices) {
+      if (!index.isLoaded()) {
+        index.setSavedSection(new Section(snapshotFile, sectionsStart, entries.get(pos)));
+      }
+      pos++;
+    }
+  }
+
+  /**
+   * Read and verify the header and directory of a snapshot file.
+   *
+   * @param channel
+   *        An open channel to the snapshot file
+   * @param entries
+   *        The list to which the directory's entries are added, in order
+   * @return The position in the file at which sections start
+   * @throws IOException
+   *         If the file could not be read, or is not a valid snapshot
+   */
+  static long readDirectory(FileChannel channel, List<Entry> entries) throws IOException {
+    // The directory is small, but its exact size is unknown until it is read: read a
+    // generous amount, and read more if an entry runs past the end.
+    int guess = 4096;
+    while (true) {
+      byte[] start = readFully(channel, 0, (int)Math.min(guess, channel.size()));
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(start));
+      try {
+        if (in.readInt() != MAGIC) {
+          throw new IOException("Not a saved index snapshot");
+        }
+        short version = in.readShort();
+        if (version != VERSION) {
+          throw new IOException("Unsupported saved index snapshot version " + version);
+        }
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+          entries.add(new Entry(in.readUTF(), in.readInt(), in.readBoolean(), in.readLong(),
+                                in.readInt(), in.readInt()));
+        }
+        int directoryLength = start.length - in.available();
+        CRC32 checksum = new CRC32();
+        checksum.update(start, 0, directoryLength);
+        if (in.readInt() != (int)checksum.getValue()) {
+          throw new IOException("Saved index snapshot directory is corrupt");
+        }
+        return directoryLength + 4;
+      } catch (EOFException err) {
+        if (start.length == channel.size()) {
+          throw new IOException("Saved index snapshot is truncated", err);
+        }
+        entries.clear();
+        guess *= 4;
+      }
+    }
+  }
+
+  /**
+   * Read the specified number of bytes from a channel, starting at the specified position.
+   *
+   * @param channel
+   *        The channel to read from
+   * @param position
+   *        The position at which to start reading
+   * @param length
+   *        The number of bytes to read
+   * @return The bytes read
+   * @throws IOException
+   *         If the bytes could not be read, or the channel ends before all are read
+   */
+  private static byte[] readFully(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Saved index snapshot is truncated");
+      }
+    }
+    return buffer.array();
+  }
+}
@@ -0,0 +1,123 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class IndexSnapshotTest {
+  private static final String INDEX_A =
+      "H161\t01\t0001.jpg\t09\tAbdalla-Wyse\tAyasha\t09A\n"
+      + "H161\t01\t0002.jpg\t10\tAcharya\tSatvick\t10A\n"
+      + "H161\t01\t0003.jpg\tStaff\tZia\tTahmid\t###\n";
+  private static final String INDEX_B =
+      "H181\t01\t0001.jpg\t12\tAcquah\tAmanda\t12C\n"
+      + "H181\t01\t0002.jpg\t11\tBaker\tJonah\t11B\n";
+
+  private static final RequestEvent EVERYONE = new RequestEvent(
+      MugsEventStamps.lookupStamp,
+      SearchFilter.everyone(SearchFilter.REPORT_INDEX | SearchFilter.REPORT_GRADE
+                            | SearchFilter.REPORT_HOMEFORM),
+      "");
+
+  private static IndexPriorityList savedIndices() {
+    IndexPriorityList indices = new IndexPriorityList();
+    IndexInterpreter a = new IndexInterpreter(INDEX_A, "A.TXT");
+    indices.add(a, false);
+    indices.add(a, false);
+    indices.add(a, false);
+    indices.add(new IndexInterpreter(INDEX_B, "B.TXT"), true);
+    return indices;
+  }
+
+  private static File write(IndexPriorityList indices) throws IOException {
+    File snapshot = File.createTempFile("snapshot", ".dat");
+    snapshot.deleteOnExit();
+    IndexSnapshot.write(indices, snapshot);
+    return snapshot;
+  }
+
+  private static void flipByte(File snapshot, long position) throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(snapshot, "rw")) {
+      file.seek(position);
+      int value = file.read();
+      file.seek(position);
+      file.write(value ^ 0xff);
+    }
+  }
+
+  private static List<String> sources(IndexPriorityList indices) {
+    List<String> sources = new ArrayList<>();
+    for (IndexInterpreter index : indices) {
+      sources.add(index.getSource());
+    }
+    return sources;
+  }
+
+  private static void assertSameIndices(IndexPriorityList expected, IndexPriorityList actual) {
+    assertEquals(sources(expected), sources(actual));
+    for (String source : sources(expected)) {
+      assertEquals(expected.requestCount(source), actual.requestCount(source));
+      assertEquals(expected.isManual(source), actual.isManual(source));
+      IndexInterpreter expectedIndex = expected.get(source);
+      IndexInterpreter actualIndex = actual.get(source);
+      assertArrayEquals(expectedIndex.getHomeforms(), actualIndex.getHomeforms());
+      String[][] expectedRows = expectedIndex.execute(EVERYONE);
+      String[][] actualRows = actualIndex.execute(EVERYONE);
+      assertArrayEquals(expectedRows[0], actualRows[0]);
+      assertArrayEquals(expectedRows[1], actualRows[1]);
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    IndexPriorityList saved = savedIndices();
+    IndexPriorityList read = IndexSnapshot.read(write(saved));
+    assertEquals(3, read.requestCount("A.TXT"));
+    assertTrue(read.isManual("B.TXT"));
+    assertSameIndices(saved, read);
+  }
+
+  @Test
+  public void testRoundTripWithoutLoading() throws IOException {
+    // Indices not yet read from a snapshot are saved by copying their sections.
+    IndexPriorityList saved = savedIndices();
+    IndexPriorityList read = IndexSnapshot.read(write(saved));
+    IndexPriorityList readAgain = IndexSnapshot.read(write(read));
+    assertSameIndices(saved, readAgain);
+  }
+
+  @Test
+  public void testCorruptSection() throws IOException {
+    File snapshot = write(savedIndices());
+    // The last byte of the file belongs to the section of the last index in the list.
+    flipByte(snapshot, snapshot.length() - 1);
+    IndexPriorityList read = IndexSnapshot.read(snapshot);
+    assertNotNull(read.get("B.TXT"));
+    try {
+      read.get("A.TXT");
+      fail("A corrupt section was read");
+    } catch (UncheckedIOException err) {
+      assertTrue(err.getCause().getMessage().contains("corrupt"));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testCorruptDirectory() throws IOException {
+    File snapshot = write(savedIndices());
+    // Inside the first directory entry, after the magic number, version, and count.
+    flipByte(snapshot, 12);
+    IndexSnapshot.read(snapshot);
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnknownVersion() throws IOException {
+    File snapshot = write(savedIndices());
+    flipByte(snapshot, 5);
+    IndexSnapshot.read(snapshot);
+  }
+}
@@ -0,0 +1,126 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A watcher over the folder containing index files, which reports when any file in the
+ * folder is created or modified. Watching is done on a background thread, started with
+ * the <code>start</code> method, and continues until <code>close</code> is called.
+ *
+ * <p>The name of each changed file is passed to a listener given when the watcher is
+ * created, on the watching thread. A file being written usually produces several modification
+ * events in quick succession, so changes are only reported once no further change has
+ * been seen in the folder for <code>QUIET_PERIOD</code> milliseconds, and each file is
+ * reported once for all of its changes in that time. Whether a changed file is an index
+ * file, and what is to be done about the change, is left to the listener.
+ */
+public class IndexWatcher implements Runnable, Closeable {
+
+  /**
+   * The time in milliseconds for which the folder must be left unchanged before
+   * changes are reported.
+   */
+  private static final long QUIET_PERIOD = 300;
+
+  /**
+   * The folder being watched.
+   */
+  private final Path folder;
+
+  /**
+   * The service that receives change events from the file system.
+   */
+  private final WatchService watchService;
+
+  /**
+   * The listener to which the name of each changed file is passed.
+   */
+  private final Consumer<String> listener;
+
+  /**
+   * Initialize a new <code>IndexWatcher</code> over the specified folder. No changes are
+   * reported until <code>start</code> is called.
+   *
+   * @param folder
+   *        The folder containing the index files to watch
+   * @param listener
+   *        The listener to which the name of each changed file is passed
+   * @throws IOException
+   *         If the folder could not be watched
+   */
+  public IndexWatcher(File folder, Consumer<String> listener) throws IOException {
+    this.folder = folder.toPath();
+    this.listener = listener;
+    watchService = FileSystems.getDefault().newWatchService();
+    this.folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                         StandardWatchEventKinds.ENTRY_MODIFY);
+  }
+
+  /**
+   * Start watching the folder on a new background thread. The thread does not prevent
+   * the program from exiting.
+   */
+  public void start() {
+    Thread watchThread = new Thread(this, "Index watcher");
+    watchThread.setDaemon(true);
+    watchThread.start();
+  }
+
+  /**
+   * Wait for and report changes to files in the folder, until this
+   * <code>IndexWatcher</code> is closed or the folder can no longer be watched.
+   */
+  @Override
+  public void run() {
+    try {
+      while (true) {
+        Set<String> changedFiles = new LinkedHashSet<>();
+        WatchKey key = watchService.take();
+        // Collect events until the folder has been quiet for a while.
+        while (key != null) {
+          for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() != StandardWatchEventKinds.OVERFLOW) {
+              Path changed = (Path)event.context();
+              if (folder.resolve(changed).toFile().isFile()) {
+                changedFiles.add(changed.toString());
+              }
+            }
+          }
+          if (!key.reset()) {
+            // The folder is no longer accessible.
+            return;
+          }
+          key = watchService.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS);
+        }
+
+        for (String fileName : changedFiles) {
+          listener.accept(fileName);
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException err) {
+      // Watching has been stopped.
+    }
+  }
+
+  /**
+   * Stop watching the folder. No further changes will be reported.
+   *
+   * @throws IOException
+   *         If the watch service could not be closed
+   */
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+}
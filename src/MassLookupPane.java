@@ -25,7 +25,9 @@ import javax.swing.JTextArea;
  * 
  * <p>For searches on many names, <code>MassLookupPane</code> will count output and
  * notify the user how many lines of output there are. This helps the user to identify
- * the size of the output when it is not the same size as the input.
+ * the size of the output when it is not the same size as the input. While the results
+ * of a long list are still arriving, the count shows how many have arrived so far, and
+ * how much of the list has been checked.
  */
 public class MassLookupPane extends IndexLookupPane {
 
@@ -43,22 +45,20 @@ public class MassLookupPane extends IndexLookupPane {
   }
   
   @Override
-  protected String[] getDisplayText(String[][] results) {
-    // This subclass displays text in the same was as the superclass, except
-    // with a two-line header to show how many results were received.
-    String[] out = super.getDisplayText(results);
-    // Input side two empty lines for its side of the header.
-    out[0] = "\n\n" + out[0];
-    String header = "Showing " + results[1].length + " result";
+  protected String[] getHeader(int count, boolean complete, int percent) {
+    // This subclass displays text with a two-line header to show how many results
+    // were received. Input side two empty lines for its side of the header.
+    String header = "Showing " + count + " result";
     
-    if (results[1].length != 1) {
+    if (count != 1) {
       // Pluralize 'results' for any number except for 1 result.
       header += "s";
     }
+    if (!complete) {
+      header += " so far (" + percent + "% checked)";
+    }
     
     // Output side receives the output line count for its side of the header.
-    out[1] = header + ":\n\n" + out[1];
-    
-    return out;
+    return new String[] {"\n\n", header + ":\n\n"};
   }
 }
@@ -9,6 +9,19 @@ public interface MugsEventStamps {
    */
   final byte lookupStamp = 10;
 
+  /**
+   * A stamp signifying a search for every person whose name contains the parts of a
+   * partial name, as typed into the single lookup pane. Search parameters must be set
+   * separately, as for a lookup operation.
+   */
+  final byte partialLookupStamp = 15;
+
+  /**
+   * A stamp signifying a request for the names that complete a partly typed name.
+   * Search parameters must be set separately, as for a lookup operation.
+   */
+  final byte completionStamp = 20;
+
   /**
    * A stamp signifying that an index file should be set to manual priority.
    */
@@ -1,8 +1,20 @@
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 
 /**
  * A graphical interface-based program built around reading and interpreting mugs index
@@ -14,7 +26,14 @@ import java.util.Observer;
  * 
  * <p>Each reader operates on a single index at a time, although it may have multiple
  * index files accessible at a time. The index file being used can be changed during
- * program runtime. All index files must be in the src folder to be used.
+ * program runtime. All index files must be in the src folder to be used. While a reader
+ * is open, the folder is watched, and any changes saved to an index file in use are
+ * applied to its index without interrupting searches.
+ * 
+ * <p>Searches and changes of index are carried out one at a time on a single worker
+ * thread, so that the window never waits on them. Results are shown as they are found,
+ * along with how much of the search has been carried out, and a new search cancels the
+ * one still running, if any.
  * 
  * <p>The main function of the program, the spellcheck function, compares input against
  * names from the input file in use. Misspelled names are detected when a name in a user
@@ -49,7 +68,7 @@ public class MugsReader extends WindowAdapter implements Observer, MugsEventStam
   /**
    * The currently loaded mugs index file.
    */
-  private IndexInterpreter index;
+  private volatile IndexInterpreter index;
 
   /**
    * A center for file operations, including reading index files, and saving/retrieving
@@ -63,12 +82,281 @@ public class MugsReader extends WindowAdapter implements Observer, MugsEventStam
    */
   private IndexPriorityList savedIndices;
 
+  /**
+   * A watcher over the index file folder, which reports changes to index files so that
+   * they can be applied to indices in use. <code>null</code> if the folder is not watched.
+   */
+  private IndexWatcher indexWatcher;
+
   /**
    * The graphical display (view) for the system. All input and output are
    * done through this frame.
    */
   private MugsReaderFrame hopeYouEnjoy;
 
+  /**
+   * The thread on which searches and changes of index are carried out, in the order in
+   * which they are requested. A search requested while the index is being changed is
+   * carried out on the new index once it is ready.
+   */
+  private final ExecutorService worker = Executors.newSingleThreadExecutor(task -> {
+    Thread thread = new Thread(task, "Mugs Reader worker");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * The change of index currently being carried out, or the last one carried out.
+   * <code>null</code> if the index has not been changed.
+   */
+  private LoadWorker loading;
+
+  /**
+   * The lookup request currently being carried out, or the last one carried out.
+   * <code>null</code> if no lookup request has been made.
+   */
+  private SearchWorker search;
+
+  /**
+   * The request for the names completing a partly typed name currently being carried
+   * out, or the last one carried out. <code>null</code> if none has been made.
+   */
+  private CompletionWorker completion;
+
+  /**
+   * A lookup request carried out in the background, whose results are displayed in
+   * batches as they are produced, so that the first results of a long list of names
+   * appear without waiting for the rest. The share of the request carried out so far is
+   * shown along with them. A request stops early when it is cancelled.
+   */
+  private static class SearchWorker extends SwingWorker<Void, String[]> {
+
+    /**
+     * The source of the index in which names are looked up, read once the request
+     * starts, so that it follows any change of index requested before it.
+     */
+    private final Supplier<IndexInterpreter> index;
+
+    /**
+     * The lookup request being carried out.
+     */
+    private final RequestEvent query;
+
+    /**
+     * The pane on which the results are displayed.
+     */
+    private final ControlPane display;
+
+    /**
+     * Initialize a new <code>SearchWorker</code> that carries out the specified request
+     * on the specified index, and displays the results on the specified pane.
+     * 
+     * @param index
+     *        The source of the index in which names are looked up
+     * @param query
+     *        The lookup request
+     * @param display
+     *        The pane on which the results are displayed
+     */
+    SearchWorker(Supplier<IndexInterpreter> index, RequestEvent query,
+                 ControlPane display) {
+      this.index = index;
+      this.query = query;
+      this.display = display;
+      addPropertyChangeListener(evt -> {
+        // Progress is reported on the event dispatch thread.
+        if ("progress".equals(evt.getPropertyName()) && !isCancelled()) {
+          display.showProgress((Integer)evt.getNewValue());
+        }
+      });
+    }
+
+    @Override
+    protected Void doInBackground() {
+      index.get().execute(query, new IndexInterpreter.ResultSink() {
+        @Override
+        public void accept(String name, String result) {
+          checkCancelled();
+          publish(new String[] {name, result});
+        }
+
+        @Override
+        public void progress(int done, int total) {
+          checkCancelled();
+          setProgress(total == 0 ? 100 : (int)(100L * done / total));
+        }
+      });
+      return null;
+    }
+
+    /**
+     * Abandon the rest of the request if it has been cancelled.
+     * 
+     * @throws CancellationException
+     *         If the request has been cancelled
+     */
+    private void checkCancelled() {
+      if (isCancelled()) {
+        throw new CancellationException();
+      }
+    }
+
+    @Override
+    protected void process(List<String[]> rows) {
+      // Results from a cancelled request must not be mixed into those of the
+      // request that replaced it.
+      if (!isCancelled()) {
+        display.appendLines(rows);
+      }
+    }
+
+    @Override
+    protected void done() {
+      if (isCancelled()) {
+        return;
+      }
+      try {
+        get();
+        display.finishLines();
+      } catch (InterruptedException | ExecutionException err) {
+        err.printStackTrace();
+      }
+    }
+  }
+
+  /**
+   * A change to another index carried out in the background, so that the window does
+   * not wait while a large index file is read. The index becomes the one searched as
+   * soon as it has been read, and is then recorded in the list of saved indices.
+   */
+  private class LoadWorker extends SwingWorker<IndexInterpreter, Void> {
+
+    /**
+     * The name of the index file to change to.
+     */
+    private final String fileName;
+
+    /**
+     * The saved index built from the file, whose data may not have been read yet, or
+     * <code>null</code> if the file has not been opened before.
+     */
+    private final IndexInterpreter saved;
+
+    /**
+     * Whether the index is set to manual priority in the list of saved indices.
+     */
+    private final boolean manual;
+
+    /**
+     * Initialize a new <code>LoadWorker</code> that changes to the index built from the
+     * specified file.
+     * 
+     * @param fileName
+     *        The name of the index file to change to
+     * @param saved
+     *        The saved index built from the file, or <code>null</code> if there is none
+     * @param manual
+     *        Whether the index is set to manual priority
+     */
+    LoadWorker(String fileName, IndexInterpreter saved, boolean manual) {
+      this.fileName = fileName;
+      this.saved = saved;
+      this.manual = manual;
+    }
+
+    @Override
+    protected IndexInterpreter doInBackground() throws IOException {
+      IndexInterpreter loaded;
+      if (saved != null) {
+        saved.ensureLoaded();
+        loaded = saved;
+      } else {
+        loaded = new IndexInterpreter(fileIo.mapIndex(fileName), fileName);
+      }
+      if (!isCancelled()) {
+        // Searches requested after this change are carried out on the new index.
+        index = loaded;
+      }
+      return loaded;
+    }
+
+    @Override
+    protected void done() {
+      if (isCancelled()) {
+        return;
+      }
+      IndexInterpreter loaded;
+      try {
+        loaded = get();
+      } catch (InterruptedException err) {
+        err.printStackTrace();
+        return;
+      } catch (ExecutionException err) {
+        hopeYouEnjoy.displayErrorMessage(err.getCause().getMessage());
+        return;
+      }
+      hopeYouEnjoy.setHomeformList(loaded.getHomeforms());
+      savedIndices.add(loaded, manual);
+    }
+  }
+
+  /**
+   * A request for the names that complete a partly typed name, carried out in the
+   * background so that typing is never held up, however large the index. The names are
+   * offered once found, unless the request has been replaced by a later one.
+   */
+  private static class CompletionWorker extends SwingWorker<String[][], Void> {
+
+    /**
+     * The index in which names are completed.
+     */
+    private final IndexInterpreter index;
+
+    /**
+     * The request for the names completing the text typed.
+     */
+    private final RequestEvent query;
+
+    /**
+     * The pane on which the names are offered.
+     */
+    private final ControlPane display;
+
+    /**
+     * Initialize a new <code>CompletionWorker</code> that finds the names completing
+     * the text in the specified request, and offers them on the specified pane.
+     * 
+     * @param index
+     *        The index in which names are completed
+     * @param query
+     *        The request for the names completing the text typed
+     * @param display
+     *        The pane on which the names are offered
+     */
+    CompletionWorker(IndexInterpreter index, RequestEvent query, ControlPane display) {
+      this.index = index;
+      this.query = query;
+      this.display = display;
+    }
+
+    @Override
+    protected String[][] doInBackground() {
+      return index.complete(query);
+    }
+
+    @Override
+    protected void done() {
+      if (isCancelled()) {
+        return;
+      }
+      try {
+        display.showCompletions(query.getData(), get());
+      } catch (InterruptedException | ExecutionException err) {
+        err.printStackTrace();
+      }
+    }
+  }
+
   /**
    * Run the mugs reader program, opening a reader for each requested index file in
    * <code>args</code>. Each element of <code>args</code> should be the name of
@@ -78,20 +366,28 @@ public class MugsReader extends WindowAdapter implements Observer, MugsEventStam
    * be saved if the program is run later with only one of two readers. Likewise, the
    * third reader will not remember the same indices that have been used by the first.
    * 
+   * <p>If the first element of <code>args</code> is <code>--check</code>, no reader is
+   * opened. Instead, the pages named by the rest of <code>args</code> are spellchecked
+   * against an index file from the command line, and the program exits with a status
+   * reporting whether any names were not found. See <code>BatchCheck</code>.
+   * 
    * <p>Enjoy!
    * 
    * @param args
-   *        The names of the index files to open.
+   *        The names of the index files to open, or the arguments of a check.
    *        Concurrent opening of multiple indices is not yet implemented. Currently only
    *        the first specified index file in the array will be opened
    */
   @SuppressWarnings("unused")
   public static void main(String[] args) {
-    if (args.length == 0) {
+    if (args.length > 0 && args[0].equals(BatchCheck.CHECK_OPTION)) {
+      // Check pages from the command line, without opening a window. Nothing below
+      // may touch the graphical interface, which is not available to scripts.
+      System.setProperty("java.awt.headless", "true");
+      System.exit(BatchCheck.run(args, System.in, System.out, System.err));
+    } else if (args.length == 0) {
       MugsReader me = new MugsReader(); 
     } else {
-      // TODO add implementation for run with args.
-
       // For now only the first index in <args> is used.
       String fileSourceName = args[0];
       MugsReader first = new MugsReader(fileSourceName);
@@ -108,7 +404,14 @@ public class MugsReader extends WindowAdapter implements Observer, MugsEventStam
    */
   public MugsReader() {
     if (recoverSavedIndices()) {
-      index = savedIndices.get(0);
+      try {
+        index = savedIndices.get(0);
+      } catch (UncheckedIOException err) {
+        // The saved data is unreadable; begin as though no index had been saved.
+        err.printStackTrace();
+      }
+    }
+    if (index != null) {
       String indexName = index.getSource();
       hopeYouEnjoy = new MugsReaderFrame(indexName, savedIndices.isManual(indexName));
     } else {
@@ -122,6 +425,7 @@ public class MugsReader extends WindowAdapter implements Observer, MugsEventStam
     hopeYouEnjoy.setLocation(100, 100);
     hopeYouEnjoy.pack();
     hopeYouEnjoy.setVisible(true);
+    startWatching();
   }
 
   /**
@@ -136,7 +440,20 @@ public class MugsReader extends WindowAdapter implements Observer, MugsEventStam
    */
   public MugsReader(String initialFileName) {
     if (recoverSavedIndices()) {
-      index = savedIndices.get(initialFileName);
+      try {
+        index = savedIndices.get(initialFileName);
+      } catch (UncheckedIOException err) {
+        // The saved data is unreadable; read the index file again in its place.
+        err.printStackTrace();
+        index = savedIndices.getSaved(initialFileName);
+        try {
+          index.repopulate(fileIo.mapIndex(initialFileName), initialFileName);
+          savedIndices.markChanged();
+        } catch (IOException readErr) {
+          readErr.printStackTrace();
+          index = new IndexInterpreter();
+        }
+      }
     } else {
       getNewIndex(initialFileName);
       savedIndices.add(index, false);
@@ -149,6 +466,102 @@ public class MugsReader extends WindowAdapter implements Observer, MugsEventStam
     hopeYouEnjoy.setLocation(200, 200);
     hopeYouEnjoy.pack();
     hopeYouEnjoy.setVisible(true);
+    startWatching();
+  }
+
+  /**
+   * Begin watching the index file folder, so that changes to an index file in use are
+   * applied to its index as soon as the file is saved. If the folder cannot be watched,
+   * the reader continues without watching it.
+   */
+  private void startWatching() {
+    try {
+      indexWatcher = fileIo.watchIndices(this::refreshIndex);
+      indexWatcher.start();
+    } catch (IOException err) {
+      err.printStackTrace();
+      indexWatcher = null;
+    }
+  }
+
+  /**
+   * Apply the changes in the specified file to the index built from it, if that index is
+   * open or saved. Called on the watching thread, which does the work of reading the
+   * index's saved data if it has not been read yet, and of reading and comparing the
+   * file, so that the interface is not held up; the interface is then updated on the
+   * event dispatch thread.
+   * 
+   * @param fileName
+   *        The name of the changed file
+   */
+  private void refreshIndex(String fileName) {
+    // Only find the index on the event dispatch thread: its saved data is read here.
+    IndexInterpreter target = callOnEventThread(() -> {
+      if (savedIndices.contains(fileName)) {
+        return savedIndices.getSaved(fileName);
+      } else {
+        return fileName.equals(index.getSource()) ? index : null;
+      }
+    });
+    if (target == null) {
+      // The file is not an index in use.
+      return;
+    }
+    try {
+      target.ensureLoaded();
+    } catch (IOException err) {
+      err.printStackTrace();
+      return;
+    }
+
+    List<String>[] oldHomeforms = target.getHomeforms();
+    PeopleDataList.Changes changes;
+    try {
+      changes = target.refresh(fileIo.mapIndex(fileName));
+    } catch (IOException | IllegalArgumentException err) {
+      // The file may still be in the middle of being written: it will be reported again
+      // once it has been written in full.
+      System.err.println("Unable to reload " + fileName + ": " + err.getMessage());
+      return;
+    }
+    if (changes == null || changes.isEmpty()) {
+      return;
+    }
+
+    SwingUtilities.invokeLater(() -> {
+      if (savedIndices.contains(fileName)) {
+        savedIndices.markChanged();
+      }
+      if (target == index && target.getHomeforms() != oldHomeforms) {
+        hopeYouEnjoy.setHomeformList(target.getHomeforms());
+      }
+    });
+  }
+
+  /**
+   * Run the specified task on the event dispatch thread, wait for it to finish, and
+   * return its result. Used by the watching thread to read state that is otherwise only
+   * used on the event dispatch thread.
+   * 
+   * @param task
+   *        The task to run
+   * @return The result of the task, or <code>null</code> if the watching thread was
+   *         interrupted
+   */
+  private static <T> T callOnEventThread(Callable<T> task) {
+    FutureTask<T> future = new FutureTask<>(task);
+    SwingUtilities.invokeLater(future);
+    try {
+      return future.get();
+    } catch (InterruptedException err) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException err) {
+      if (err.getCause() instanceof RuntimeException) {
+        throw (RuntimeException)err.getCause();
+      }
+      throw new IllegalStateException(err.getCause());
+    }
   }
 
   /**
@@ -156,25 +569,20 @@ public class MugsReader extends WindowAdapter implements Observer, MugsEventStam
    * this <code>MugsReader</code>, and return whether or not the operation was successful.
    * Recovered indices are stored in a list and can be accessed one at a time. The list of
    * indices represents those that can be opened immediately without reading and parsing
-   * a text file - not a set of indices currently in use.
+   * a text file - not a set of indices currently in use. Only the list's ordering is read
+   * here; each index's data is read from the saved index file when it is first opened.
    * 
    * @return <code>true</code> if the saved index list is nonempty after this operation
    */
   private boolean recoverSavedIndices() {
     fileIo = new FileOperator();
-    savedIndices = new IndexPriorityList();
-    if (fileIo.hasNextObject()) {
-      try {
-        savedIndices.reload(fileIo.retrieveNextObject());
-        return true;
-      } catch (IOException err) {
-        savedIndices = new IndexPriorityList();
-        return false;
-      }
-    } else {
+    try {
+      savedIndices = fileIo.recoverSavedIndices();
+    } catch (IOException err) {
+      err.printStackTrace();
       savedIndices = new IndexPriorityList();
-      return false;
     }
+    return !savedIndices.isEmpty();
   }
 
   /**
@@ -189,7 +597,7 @@ public class MugsReader extends WindowAdapter implements Observer, MugsEventStam
    */
   private boolean isSearchOperation(RequestEvent query) {
     int stamp = query.getType();
-    return stamp == lookupStamp;
+    return stamp == lookupStamp || stamp == partialLookupStamp;
   }
   
   /**
@@ -202,7 +610,7 @@ public class MugsReader extends WindowAdapter implements Observer, MugsEventStam
    */
   private void getNewIndex(String fileName) {
     try {
-      index = new IndexInterpreter(fileIo.readIndex(fileName), fileName);
+      index = new IndexInterpreter(fileIo.mapIndex(fileName), fileName);
       hopeYouEnjoy.setHomeformList(index.getHomeforms());
     } catch (IOException err) {
       hopeYouEnjoy.displayErrorMessage(err.getMessage());
@@ -212,9 +620,22 @@ public class MugsReader extends WindowAdapter implements Observer, MugsEventStam
   @Override
   public void update(Observable source, Object request) {
     RequestEvent query = (RequestEvent)request;
-    if (isSearchOperation(query)) {
-      String[][] answer = index.execute(query);
-      ((ControlPane)source).displayLines(answer);
+    if (query.getType() == completionStamp) {
+      if (completion != null) {
+        // Names completing earlier text are no longer needed.
+        completion.cancel(false);
+      }
+      completion = new CompletionWorker(index, query, (ControlPane)source);
+      completion.execute();
+    } else if (isSearchOperation(query)) {
+      if (search != null) {
+        // A new request replaces any that is still being carried out.
+        search.cancel(false);
+      }
+      ControlPane display = (ControlPane)source;
+      display.startLines();
+      search = new SearchWorker(() -> index, query, display);
+      worker.execute(search);
     } else if (query.getData().equals(index.getSource())) {
       // The user wants to reconfigure the ordering of the current index in the saved list.
       if (savedIndices.isManual(index.getSource()) == (query.getType() == setManualPriority)) {
@@ -225,31 +646,38 @@ public class MugsReader extends WindowAdapter implements Observer, MugsEventStam
         savedIndices.changeOrdering(query.getData(), query.getType() == setManualPriority);
       }
     } else {
-      // The user wants to change to a new mugs index.
-      if (savedIndices.contains(query.getData())) {
-        index = savedIndices.get(query.getData());
-        hopeYouEnjoy.setHomeformList(index.getHomeforms());
-      } else {
-        String name = query.getData();
-        getNewIndex(name);
+      // The user wants to change to a new mugs index. The index is read in the
+      // background, replacing any change of index that has not yet started.
+      if (loading != null) {
+        loading.cancel(false);
       }
-      savedIndices.add(index, query.getType() == setManualPriority);
+      String name = query.getData();
+      loading = new LoadWorker(name, savedIndices.getSaved(name),
+                               query.getType() == setManualPriority);
+      worker.execute(loading);
     }
   }
   
   @Override
   public void windowClosing(WindowEvent evt) {
     // Occurs when the main frame is closed and the program is shutting down.
+    worker.shutdownNow();
     if (savedIndices.hasChanged()) {
-      // The indices must be reserialized because of changes in their priority ordering.
+      // The indices must be saved again because of changes in their priority ordering.
       try {
-        fileIo.saveObject(savedIndices.retrieveData());
+        fileIo.saveIndices(savedIndices);
       } catch (IOException err) {
         err.printStackTrace();
         System.err.println("Unable to preserve saved index data, "
                            + "next session will begin with no saved indices");
       }
     }
-    fileIo.shutdown();
+    if (indexWatcher != null) {
+      try {
+        indexWatcher.close();
+      } catch (IOException err) {
+        err.printStackTrace();
+      }
+    }
   }
 }
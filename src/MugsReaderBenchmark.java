@@ -0,0 +1,1492 @@
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A small command-line benchmark harness for the mugs reader's data structures. Each
+ * benchmark is run by name, and reports the average time of several timed runs after
+ * a number of untimed warmup runs, along with the memory allocated per run by the
+ * benchmarking thread where the virtual machine can report it. Benchmarks are run on the bundled index files as
+ * well as on larger synthetic index files, which are generated from the rows of a
+ * bundled index file with their names altered to keep every person distinct.
+ *
+ * <p>Usage: <code>java MugsReaderBenchmark &lt;benchmark&gt; [rows ...]</code>, run from
+ * the folder containing the bundled index files. The optional row counts specify the
+ * sizes of the synthetic index files to use.
+ *
+ * <p>Available benchmarks:
+ * <br>load: Compare the original string-building, regex-splitting index loader with
+ * the mapped, single-pass loader.
+ * <br>parallel: Load each index file in parallel on pools of increasing size, up to
+ * the number of available processors, compared with a serial load.
+ * <br>snapshot: Compare saving and recovering a list holding each index with Java
+ * serialization, as was originally done, and with a snapshot.
+ * <br>startup: Recover saved lists holding increasing numbers of indices, and open the
+ * first index, as at startup, compared with reading every index in the list.
+ * <br>memory: Compare the memory retained per person by a loaded index held in
+ * columns with the same index held as one object per person, as it originally was, and
+ * the time taken to look up every name in each.
+ * <br>roster: Search the whole roster of each index, as is done for an empty query,
+ * with every grade and homeform selected and with half the homeforms selected, and
+ * compare setting up a search filter for each search with keeping it between searches.
+ * <br>names: Compare looking up names in a loaded index with looking them up in a
+ * <code>HashMap</code> of the same names, as people were originally held, on a
+ * spellcheck workload of mostly correct names and one of mostly misspelled names.
+ * <br>tokenize: Compare the original, regex-concatenating query filter and a single pass
+ * of the precompiled name expression with the finite-state name tokenizer, on a pasted
+ * list of every name in each index.
+ * <br>stream: Compare the time taken for the first screen of results of a pasted list
+ * of every name in each index to be delivered by a streaming query with the time taken
+ * for the whole query.
+ * <br>lookup: Look up a pasted list of every name in each index on pools of increasing
+ * size, up to the number of available processors, compared with a serial lookup.
+ * <br>cache: Compare repeating a query on a pasted list of every name in each index,
+ * answered from the result cache, with the same query answered from the index.
+ * <br>suggest: Find spelling suggestions for misspelled names with the BK-tree, compared
+ * with measuring the distance to every name in each index.
+ * <br>corrections: Find spelling suggestions for misspelled names in a precomputed
+ * symmetric-delete index, compared with the BK-tree, and report the index's size.
+ * <br>partial: Search for partial names in the trigram index, compared with checking
+ * every name in each index, and report the index's size.
+ * <br>complete: Complete partly typed names through the prefix index, compared with
+ * checking every name in each index, and report the time taken per completion against
+ * the time of a frame at 60 frames per second.
+ * <br>render: Compare preparing the output for every person in each index from
+ * fragments prepared once per grade and homeform, with building it by concatenation, as
+ * was originally done, and report the memory allocated per person.
+ */
+public class MugsReaderBenchmark {
+
+  /**
+   * The bundled index file from which synthetic index files are generated.
+   */
+  private static final String TEMPLATE_INDEX = "INDEX2018.TXT";
+
+  /**
+   * The number of untimed runs made before a benchmark is timed.
+   */
+  private static final int WARMUP_RUNS = 3;
+
+  /**
+   * The number of timed runs averaged to produce a benchmark's result.
+   */
+  private static final int TIMED_RUNS = 5;
+
+  /**
+   * The largest index file, in bytes, on which the original loader is benchmarked.
+   * The original loader takes time quadratic in the size of the file, and becomes
+   * impractically slow on larger files.
+   */
+  private static final long LEGACY_SIZE_LIMIT = 8 * 1024 * 1024;
+
+  /**
+   * The largest number of names on which the original query filter is benchmarked. The
+   * original filter takes time quadratic in the number of names.
+   */
+  private static final int LEGACY_NAME_LIMIT = 20000;
+
+  /**
+   * The number of results that fill the first screen of a lookup pane.
+   */
+  private static final int FIRST_SCREEN_ROWS = 40;
+
+  /**
+   * The largest number of misspelled names for which suggestions are found by each run
+   * of the suggestion benchmark.
+   */
+  private static final int SUGGEST_MISSES = 1000;
+
+  /**
+   * The number of distances measured by each run of the linear scan in the suggestion
+   * benchmark. Fewer misspelled names are used for larger indexes, so that the linear
+   * scan finishes in a few seconds.
+   */
+  private static final int SUGGEST_DISTANCES = 2000000;
+
+  /**
+   * The number of misspelled names for which suggestions are found by each run of the
+   * correction index benchmark, as many as might be found on a long pasted page.
+   */
+  private static final int CORRECTION_MISSES = 200;
+
+  /**
+   * The number of partial names searched for by each run of the partial name benchmark.
+   */
+  private static final int PARTIAL_QUERIES = 200;
+
+  /**
+   * The number of partly typed names completed by each run of the completion benchmark.
+   */
+  private static final int COMPLETION_QUERIES = 1000;
+
+  /**
+   * The number of search filters set up by each run of the filter setup benchmark.
+   */
+  private static final int FILTER_SETUPS = 1000;
+
+  /**
+   * The time taken to draw a frame at 60 frames per second, in nanoseconds.
+   */
+  private static final double FRAME_NANOS = 1e9 / 60;
+
+  /**
+   * The expression that was originally used to find names in a query.
+   */
+  private static final Pattern NAME_PATTERN =
+      Pattern.compile("(?<=([ \\n]|\\A))([A-Za-z -]|\\.)+(?=([,\\n]|\\z))");
+
+  /**
+   * The result of the task measured by <code>printRetained</code>, held here so that it
+   * cannot be collected before it is measured.
+   */
+  private static volatile Object retainedResult;
+
+  /**
+   * A person held as a single object, with the same fields as were stored for each
+   * person before people were stored in columns.
+   */
+  private static class ObjectPerson {
+    private final int indexNum;
+    private final String grade;
+    private final String last;
+    private final String first;
+    private final String homeform;
+    private final String photoFile;
+    private final String roll;
+
+    private ObjectPerson(int indexNum, String grade, String last, String first,
+                         String homeform, String photoFile, String roll) {
+      this.indexNum = indexNum;
+      this.grade = grade;
+      this.last = last;
+      this.first = first;
+      this.homeform = homeform;
+      this.photoFile = photoFile;
+      this.roll = roll;
+    }
+  }
+
+  /**
+   * Thrown from a result sink to stop a streaming query once enough results have been
+   * delivered.
+   */
+  private static class EnoughResults extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private EnoughResults() {
+      super(null, null, false, false);
+    }
+  }
+
+  /**
+   * A unit of work to be timed.
+   */
+  private interface Task {
+    void run() throws Exception;
+  }
+
+  /**
+   * A unit of work whose result is to be measured.
+   */
+  private interface Producer {
+    Object run() throws Exception;
+  }
+
+  /**
+   * Run the benchmark named by the first argument, on the bundled index files and on
+   * synthetic index files with the row counts given by any further arguments.
+   *
+   * @param args
+   *        The name of the benchmark, followed by optional synthetic row counts
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length == 0) {
+      System.err.println("Usage: java MugsReaderBenchmark <benchmark> [rows ...]");
+      System.exit(2);
+    }
+
+    int[] rowCounts = new int[args.length - 1];
+    for (int i = 1; i < args.length; i++) {
+      rowCounts[i - 1] = Integer.parseInt(args[i]);
+    }
+    if (rowCounts.length == 0) {
+      rowCounts = new int[] {10000, 100000};
+    }
+
+    switch (args[0]) {
+      case "load":
+        for (File indexFile : indexFiles(rowCounts)) {
+          benchmarkLoad(indexFile);
+        }
+        break;
+      case "parallel":
+        for (File indexFile : indexFiles(rowCounts)) {
+          benchmarkParallelLoad(indexFile);
+        }
+        break;
+      case "snapshot":
+        for (File indexFile : indexFiles(rowCounts)) {
+          benchmarkSnapshot(indexFile);
+        }
+        break;
+      case "startup":
+        for (File indexFile : indexFiles(rowCounts)) {
+          benchmarkStartup(indexFile);
+        }
+        break;
+      case "roster":
+        for (File indexFile : indexFiles(rowCounts)) {
+          benchmarkRoster(indexFile);
+        }
+        break;
+      case "names":
+        for (File indexFile : indexFiles(rowCounts)) {
+          benchmarkNames(indexFile);
+        }
+        break;
+      case "tokenize":
+        for (File indexFile : indexFiles(rowCounts)) {
+          benchmarkTokenize(indexFile);
+        }
+        break;
+      case "stream":
+        for (File indexFile : indexFiles(rowCounts)) {
+          benchmarkStream(indexFile);
+        }
+        break;
+      case "lookup":
+        for (File indexFile : indexFiles(rowCounts)) {
+          benchmarkLookup(indexFile);
+        }
+        break;
+      case "cache":
+        for (File indexFile : indexFiles(rowCounts)) {
+          benchmarkCache(indexFile);
+        }
+        break;
+      case "suggest":
+        for (File indexFile : indexFiles(rowCounts)) {
+          benchmarkSuggest(indexFile);
+        }
+        break;
+      case "corrections":
+        for (File indexFile : indexFiles(rowCounts)) {
+          benchmarkCorrections(indexFile);
+        }
+        break;
+      case "partial":
+        for (File indexFile : indexFiles(rowCounts)) {
+          benchmarkPartial(indexFile);
+        }
+        break;
+      case "complete":
+        for (File indexFile : indexFiles(rowCounts)) {
+          benchmarkComplete(indexFile);
+        }
+        break;
+      case "render":
+        for (File indexFile : indexFiles(rowCounts)) {
+          benchmarkRender(indexFile);
+        }
+        break;
+      case "memory":
+        for (File indexFile : indexFiles(rowCounts)) {
+          benchmarkMemory(indexFile);
+        }
+        break;
+      default:
+        System.err.println("Unknown benchmark: " + args[0]);
+        System.exit(2);
+    }
+  }
+
+  /**
+   * Returns the bundled template index file, followed by synthetic index files with
+   * the specified numbers of rows. Synthetic files are deleted when the program exits.
+   *
+   * @param rowCounts
+   *        The number of rows in each synthetic index file
+   * @return The index files to benchmark on
+   */
+  private static File[] indexFiles(int[] rowCounts) throws IOException {
+    File[] files = new File[rowCounts.length + 1];
+    files[0] = new File(TEMPLATE_INDEX);
+    for (int i = 0; i < rowCounts.length; i++) {
+      files[i + 1] = File.createTempFile("synthetic" + rowCounts[i] + "_", ".TXT");
+      files[i + 1].deleteOnExit();
+      writeSyntheticIndex(files[i + 1], rowCounts[i]);
+    }
+    return files;
+  }
+
+  /**
+   * Write a synthetic index file with the specified number of rows. Rows are copied
+   * from the template index file in order, repeating as many times as necessary, and
+   * every repetition after the first has a letter code appended to each last name so
+   * that no two rows share the same name.
+   *
+   * @param dest
+   *        The file to write
+   * @param rows
+   *        The number of rows to write
+   */
+  static void writeSyntheticIndex(File dest, int rows) throws IOException {
+    List<String> template = Files.readAllLines(new File(TEMPLATE_INDEX).toPath());
+    try (BufferedWriter out = new BufferedWriter(new FileWriter(dest))) {
+      for (int i = 0; i < rows; i++) {
+        String[] fields = template.get(i % template.size()).split("\t", -1);
+        int repetition = i / template.size();
+        if (repetition > 0) {
+          fields[4] = fields[4] + "-" + letterCode(repetition);
+        }
+        out.write(String.join("\t", fields));
+        out.write('\n');
+      }
+    }
+  }
+
+  /**
+   * Returns a string of lowercase letters uniquely identifying a positive number,
+   * for use in synthetic names, which may not contain digits.
+   *
+   * @param num
+   *        The number to encode
+   * @return The letter code for the number
+   */
+  private static String letterCode(int num) {
+    StringBuilder code = new StringBuilder();
+    for (; num > 0; num /= 26) {
+      code.append((char)('a' + num % 26));
+    }
+    return code.toString();
+  }
+
+  /**
+   * Returns the number of bytes allocated so far by the current thread, or -1 if the
+   * virtual machine does not report allocations.
+   *
+   * @return The bytes allocated by the current thread
+   */
+  private static long allocatedBytes() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(
+          Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  /**
+   * Time the specified task, and print its average time in milliseconds and the
+   * average memory it allocated on the current thread.
+   *
+   * @param label
+   *        A description of the task
+   * @param task
+   *        The work to time
+   * @return The average time of the task, in nanoseconds
+   */
+  private static double time(String label, Task task) throws Exception {
+    for (int i = 0; i < WARMUP_RUNS; i++) {
+      task.run();
+    }
+    long allocatedBefore = allocatedBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < TIMED_RUNS; i++) {
+      task.run();
+    }
+    double average = (System.nanoTime() - start) / (double)TIMED_RUNS;
+    long allocated = (allocatedBytes() - allocatedBefore) / TIMED_RUNS;
+
+    if (allocatedBefore < 0) {
+      System.out.printf("  %-36s %10.2f ms%n", label, average / 1e6);
+    } else {
+      System.out.printf("  %-36s %10.2f ms %10.2f MB allocated%n", label, average / 1e6,
+                        allocated / (1024.0 * 1024.0));
+    }
+    return average;
+  }
+
+  /**
+   * Compare the original index loader, which builds the file's contents into a single
+   * <code>String</code> in 4 KB pieces and splits every line with a regular expression,
+   * with the mapped loader, which parses a mapped view of the file in a single pass.
+   *
+   * @param indexFile
+   *        The index file to load
+   */
+  private static void benchmarkLoad(File indexFile) throws Exception {
+    System.out.println(indexFile.getName() + " (" + indexFile.length() + " bytes):");
+    double mapped = time("mapped loader", () -> {
+      new PeopleDataList().loadFileData(FileOperator.mapIndex(indexFile));
+    });
+
+    if (indexFile.length() <= LEGACY_SIZE_LIMIT) {
+      double legacy = time("original loader", () -> {
+        legacyParse(legacyReadIndex(indexFile));
+      });
+      System.out.printf("  %-36s %10.1fx%n", "speedup", legacy / mapped);
+    } else {
+      System.out.println("  original loader skipped: file too large");
+    }
+  }
+
+  /**
+   * Compare a serial load of an index file with parallel loads on pools of 1, 2, 4,
+   * and so on up to the number of available processors.
+   *
+   * @param indexFile
+   *        The index file to load
+   */
+  private static void benchmarkParallelLoad(File indexFile) throws Exception {
+    System.out.println(indexFile.getName() + " (" + indexFile.length() + " bytes):");
+    double serial = time("serial loader", () -> {
+      new PeopleDataList().loadFileData(FileOperator.mapIndex(indexFile));
+    });
+
+    int processors = Runtime.getRuntime().availableProcessors();
+    for (int threads = 1; threads <= processors; threads = threads < processors
+                                                           ? Math.min(threads * 2, processors)
+                                                           : threads + 1) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      double parallel = time("parallel loader, " + threads + " threads", () -> {
+        new PeopleDataList().loadFileDataParallel(FileOperator.mapIndex(indexFile), pool);
+      });
+      System.out.printf("  %-36s %10.1fx%n", "speedup", serial / parallel);
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Compare saving and recovering a list holding a single index with Java serialization,
+   * as <code>FileOperator</code> originally did, and with a snapshot written by
+   * <code>IndexSnapshot</code>, and print the size of each saved form.
+   *
+   * @param indexFile
+   *        The index file to load into the saved list
+   */
+  private static void benchmarkSnapshot(File indexFile) throws Exception {
+    System.out.println(indexFile.getName() + " (" + indexFile.length() + " bytes):");
+    IndexPriorityList indices = new IndexPriorityList();
+    indices.add(new IndexInterpreter(FileOperator.mapIndex(indexFile), indexFile.getName()),
+                false);
+
+    ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+    double serialWrite = time("serialization, save", () -> {
+      serialized.reset();
+      try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+        out.writeObject(indices.retrieveData());
+      }
+    });
+    double serialRead = time("serialization, recover", () -> {
+      try (ObjectInputStream in = new ObjectInputStream(
+               new ByteArrayInputStream(serialized.toByteArray()))) {
+        new IndexPriorityList().reload(in.readObject());
+      }
+    });
+
+    File snapshotFile = File.createTempFile("snapshot", ".dat");
+    snapshotFile.deleteOnExit();
+    double snapshotWrite = time("snapshot, save", () -> {
+      IndexSnapshot.write(indices, snapshotFile);
+    });
+    double snapshotRead = time("snapshot, recover", () -> {
+      IndexSnapshot.read(snapshotFile);
+    });
+
+    System.out.printf("  %-36s %10.1fx%n", "save speedup", serialWrite / snapshotWrite);
+    System.out.printf("  %-36s %10.1fx%n", "recover speedup", serialRead / snapshotRead);
+    System.out.printf("  %-36s %10d bytes%n", "serialized size", serialized.size());
+    System.out.printf("  %-36s %10d bytes%n", "snapshot size", snapshotFile.length());
+  }
+
+  /**
+   * Recover saved lists of 1, 4, and 16 copies of an index and open the first index
+   * in each, as is done at startup, and print the time taken and the memory retained by
+   * the recovered list. For comparison, the same is done while also reading every other
+   * index in the list, as was done before indices were read on demand.
+   *
+   * @param indexFile
+   *        The index file copied into each saved list
+   */
+  private static void benchmarkStartup(File indexFile) throws Exception {
+    System.out.println(indexFile.getName() + " (" + indexFile.length() + " bytes):");
+    IndexPriorityList single = new IndexPriorityList();
+    single.add(new IndexInterpreter(FileOperator.mapIndex(indexFile), indexFile.getName()),
+               false);
+    File singleFile = File.createTempFile("single", ".dat");
+    singleFile.deleteOnExit();
+    IndexSnapshot.write(single, singleFile);
+    IndexSnapshot.Section section = IndexSnapshot.read(singleFile).iterator().next()
+                                                 .getSavedSection();
+
+    for (int copies = 1; copies <= 16; copies *= 4) {
+      // Each copy is left unread, so that the saved list is written by copying sections
+      // without every copy being held in memory.
+      IndexPriorityList saved = new IndexPriorityList();
+      for (int i = 0; i < copies; i++) {
+        saved.add(new IndexInterpreter("COPY" + i + ".TXT", section), false);
+      }
+      File savedFile = File.createTempFile("saved" + copies + "_", ".dat");
+      savedFile.deleteOnExit();
+      IndexSnapshot.write(saved, savedFile);
+
+      String label = copies + " saved ind" + (copies == 1 ? "ex" : "ices");
+      time(label + ", on demand", () -> {
+        IndexSnapshot.read(savedFile).get(0);
+      });
+      printRetained(label + ", on demand", () -> {
+        IndexPriorityList recovered = IndexSnapshot.read(savedFile);
+        recovered.get(0);
+        return recovered;
+      });
+      time(label + ", all read", () -> {
+        readAll(IndexSnapshot.read(savedFile));
+      });
+      printRetained(label + ", all read", () -> readAll(IndexSnapshot.read(savedFile)));
+    }
+  }
+
+  /**
+   * Search the whole roster of an index, as is done when the query is empty, once with
+   * every grade and homeform selected and once with only every other homeform selected.
+   * Index numbers are reported for each person found. The result cache is cleared
+   * before each run, so that every run walks the roster.
+   *
+   * @param indexFile
+   *        The index file to search
+   */
+  private static void benchmarkRoster(File indexFile) throws Exception {
+    System.out.println(indexFile.getName() + " (" + indexFile.length() + " bytes):");
+    IndexInterpreter index = new IndexInterpreter(FileOperator.mapIndex(indexFile),
+                                                  indexFile.getName());
+    List<String>[] homeformList = index.getHomeforms();
+    int homeformCount = 0;
+    for (int i = 0; i < homeformList.length - 1; i++) {
+      homeformCount += homeformList[i].size();
+    }
+    // Every grade and homeform, and every grade with every other properly formatted
+    // homeform.
+    SearchFilter everyone = SearchFilter.everyone(SearchFilter.REPORT_INDEX);
+    BitSet alternate = new BitSet();
+    for (int i = 1; i < homeformCount; i += 2) {
+      alternate.set(i);
+    }
+    SearchFilter half = new SearchFilter(SearchFilter.REPORT_INDEX, SearchFilter.ALL_GRADES,
+                                         alternate, true);
+
+    time("whole roster, all selected", () -> {
+      index.clearResultCache();
+      retainedResult = index.execute(new RequestEvent((byte)0, everyone, ""));
+    });
+    time("whole roster, half the homeforms", () -> {
+      index.clearResultCache();
+      retainedResult = index.execute(new RequestEvent((byte)0, half, ""));
+    });
+
+    // Setting up the filter of a search, for a filter made for each search as the flags
+    // of a search once were, and for a filter kept from one search to the next.
+    PeopleDataList people = new PeopleDataList();
+    people.loadFileData(FileOperator.mapIndex(indexFile));
+    double fresh = time("filter setup, " + FILTER_SETUPS + " new filters", () -> {
+      for (int i = 0; i < FILTER_SETUPS; i++) {
+        SearchFilter filter = new SearchFilter(SearchFilter.REPORT_INDEX,
+                                               SearchFilter.ALL_GRADES, alternate, true);
+        retainedResult = filter.selector(people, homeformList);
+      }
+    });
+    double kept = time("filter setup, " + FILTER_SETUPS + " kept filter", () -> {
+      for (int i = 0; i < FILTER_SETUPS; i++) {
+        retainedResult = half.selector(people, homeformList);
+      }
+    });
+    System.out.printf("  %-36s %10.2f us, %.3f us%n", "setup per search (" + homeformCount
+                      + " homeforms)", fresh / FILTER_SETUPS / 1e3, kept / FILTER_SETUPS / 1e3);
+  }
+
+  /**
+   * Compare the original query filter, which recompiled its expression on every query
+   * and concatenated every name found onto a single <code>String</code>, and a single
+   * pass of the precompiled expression, with a <code>NameTokenizer</code>, on a
+   * newline-separated list of every name in an index, as when a grads section is
+   * pasted. Throughput is reported in millions of characters per second.
+   *
+   * @param indexFile
+   *        The index file whose names are listed
+   */
+  private static void benchmarkTokenize(File indexFile) throws Exception {
+    PeopleDataList people = new PeopleDataList();
+    people.loadFileData(FileOperator.mapIndex(indexFile));
+    String[] names = people.getOrderedContents();
+    String list = String.join("\n", names);
+    System.out.println(indexFile.getName() + " (" + names.length + " names):");
+
+    NameTokenizer tokenizer = new NameTokenizer();
+    double scanned = time("finite-state tokenizer", () -> {
+      retainedResult = tokenizer.tokenize(list);
+    });
+    Matcher nameMatcher = NAME_PATTERN.matcher(list);
+    double matched = time("precompiled expression", () -> {
+      int count = 0;
+      for (nameMatcher.reset(); nameMatcher.find(); count++) {
+        nameMatcher.end();
+      }
+      retainedResult = count;
+    });
+    System.out.printf("  %-36s %10.1f Mchar/s%n", "finite-state throughput",
+                      list.length() / (scanned / 1e3));
+    System.out.printf("  %-36s %10.1f Mchar/s%n", "expression throughput",
+                      list.length() / (matched / 1e3));
+    System.out.printf("  %-36s %10.1fx%n", "speedup over expression", matched / scanned);
+
+    if (names.length <= LEGACY_NAME_LIMIT) {
+      double legacy = time("original filter", () -> {
+        retainedResult = legacyFilter(list);
+      });
+      System.out.printf("  %-36s %10.1fx%n", "speedup over original", legacy / scanned);
+    } else {
+      System.out.println("  original filter skipped: too many names");
+    }
+  }
+
+  /**
+   * Compare the time taken for a streaming query to deliver a screen of results with
+   * the time taken to produce every result of the same query, on a newline-separated
+   * list of every name in an index with each person's grade reported.
+   *
+   * @param indexFile
+   *        The index file to search
+   */
+  private static void benchmarkStream(File indexFile) throws Exception {
+    IndexInterpreter index = new IndexInterpreter(FileOperator.mapIndex(indexFile),
+                                                  indexFile.getName());
+    PeopleDataList people = new PeopleDataList();
+    people.loadFileData(FileOperator.mapIndex(indexFile));
+    String[] names = people.getOrderedContents();
+    String list = String.join("\n", names);
+    SearchFilter params = SearchFilter.everyone(SearchFilter.REPORT_GRADE);
+    RequestEvent query = new RequestEvent((byte)0, params, list);
+    System.out.println(indexFile.getName() + " (" + names.length + " names):");
+
+    double first = time("first screen of results", () -> {
+      int[] count = new int[1];
+      try {
+        index.execute(query, (name, result) -> {
+          if (++count[0] == FIRST_SCREEN_ROWS) {
+            throw new EnoughResults();
+          }
+        });
+      } catch (EnoughResults done) {
+        // The first screen has been delivered.
+      }
+      retainedResult = count;
+    });
+    double whole = time("every result", () -> {
+      index.clearResultCache();
+      retainedResult = index.execute(query);
+    });
+    System.out.printf("  %-36s %10.1fx%n", "first screen sooner by", whole / first);
+  }
+
+  /**
+   * Compare looking up a newline-separated list of every name in an index, with each
+   * person's grade reported, on a single thread and in parallel on pools of increasing
+   * size. Lists too short to be split are looked up serially whatever the pool.
+   *
+   * @param indexFile
+   *        The index file to search
+   */
+  private static void benchmarkLookup(File indexFile) throws Exception {
+    IndexInterpreter index = new IndexInterpreter(FileOperator.mapIndex(indexFile),
+                                                  indexFile.getName());
+    PeopleDataList people = new PeopleDataList();
+    people.loadFileData(FileOperator.mapIndex(indexFile));
+    String[] names = people.getOrderedContents();
+    SearchFilter params = SearchFilter.everyone(SearchFilter.REPORT_GRADE);
+    RequestEvent query = new RequestEvent((byte)0, params, String.join("\n", names));
+    System.out.println(indexFile.getName() + " (" + names.length + " names):");
+
+    ForkJoinPool single = new ForkJoinPool(1);
+    double serial = time("serial lookup", () -> {
+      index.clearResultCache();
+      retainedResult = collect(index, query, single);
+    });
+    single.shutdown();
+
+    int processors = Runtime.getRuntime().availableProcessors();
+    for (int threads = 2; threads <= processors; threads = threads < processors
+                                                           ? Math.min(threads * 2, processors)
+                                                           : threads + 1) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      double parallel = time("parallel lookup, " + threads + " threads", () -> {
+        index.clearResultCache();
+        retainedResult = collect(index, query, pool);
+      });
+      System.out.printf("  %-36s %10.1fx%n", "speedup", serial / parallel);
+      pool.shutdown();
+    }
+    if (processors < 2) {
+      System.out.println("  parallel lookup skipped: only one processor");
+    }
+  }
+
+  /**
+   * Compare a query on a newline-separated list of every name in an index, with each
+   * person's grade reported, answered by looking up every name with the result cache
+   * cleared before each run, with the same query repeated and answered from the cache.
+   *
+   * @param indexFile
+   *        The index file to search
+   */
+  private static void benchmarkCache(File indexFile) throws Exception {
+    IndexInterpreter index = new IndexInterpreter(FileOperator.mapIndex(indexFile),
+                                                  indexFile.getName());
+    PeopleDataList people = new PeopleDataList();
+    people.loadFileData(FileOperator.mapIndex(indexFile));
+    String[] names = people.getOrderedContents();
+    SearchFilter params = SearchFilter.everyone(SearchFilter.REPORT_GRADE);
+    String list = String.join("\n", names);
+    System.out.println(indexFile.getName() + " (" + names.length + " names):");
+
+    double uncached = time("query answered from index", () -> {
+      index.clearResultCache();
+      retainedResult = collect(index, new RequestEvent((byte)0, params, list),
+                               ForkJoinPool.commonPool());
+    });
+    double cached = time("repeated query answered from cache", () -> {
+      retainedResult = collect(index, new RequestEvent((byte)0, params, list),
+                               ForkJoinPool.commonPool());
+    });
+    System.out.printf("  %-36s %10.1fx%n", "speedup", uncached / cached);
+    System.out.printf("  %-36s %10d / %d%n", "cache hits / misses", index.getCacheHits(),
+                      index.getCacheMisses());
+  }
+
+  /**
+   * Compare finding spelling suggestions for misspelled names in a
+   * <code>NameSuggester</code> with measuring the distance from each misspelled name to
+   * every name in an index. Each misspelled name is a name from the index with one or
+   * two characters replaced, deleted, or swapped. The time per misspelled name is
+   * reported in microseconds.
+   * <br>At most <code>SUGGEST_MISSES</code> names are misspelled, and fewer for larger
+   * indexes, so that the linear scan measures about <code>SUGGEST_DISTANCES</code>
+   * distances.
+   *
+   * @param indexFile
+   *        The index file whose names are misspelled
+   */
+  private static void benchmarkSuggest(File indexFile) throws Exception {
+    PeopleDataList people = new PeopleDataList();
+    people.loadFileData(FileOperator.mapIndex(indexFile));
+    String[] names = people.getOrderedContents();
+    System.out.println(indexFile.getName() + " (" + names.length + " names):");
+
+    int missCount = Math.max(1, Math.min(SUGGEST_MISSES, SUGGEST_DISTANCES / names.length));
+    String[] misses = misspell(names, missCount);
+
+    double built = time("build BK-tree", () -> {
+      retainedResult = new NameSuggester(names);
+    });
+    NameSuggester suggester = new NameSuggester(names);
+    double tree = time("BK-tree, " + misses.length + " misses", () -> {
+      int found = 0;
+      for (String miss : misses) {
+        found += suggester.suggest(miss, 2, 3).size();
+      }
+      retainedResult = found;
+    });
+    System.out.printf("  %-36s %10.1f us%n", "BK-tree per miss", tree / misses.length / 1e3);
+    System.out.printf("  %-36s %10.2f ms%n", "BK-tree build, once per index", built / 1e6);
+
+    String[] keys = new String[names.length];
+    for (int i = 0; i < names.length; i++) {
+      keys[i] = names[i].toLowerCase();
+    }
+    double scan = time("linear scan, " + misses.length + " misses", () -> {
+      int found = 0;
+      for (String miss : misses) {
+        String key = miss.toLowerCase();
+        for (String name : keys) {
+          if (NameSuggester.distance(key, name) <= 2) {
+            found++;
+          }
+        }
+      }
+      retainedResult = found;
+    });
+    System.out.printf("  %-36s %10.1f us%n", "linear scan per miss", scan / misses.length / 1e3);
+    System.out.printf("  %-36s %10.1fx%n", "speedup", scan / tree);
+  }
+
+  /**
+   * Compare finding spelling suggestions for misspelled names in a precomputed
+   * <code>CorrectionIndex</code> with finding them in a <code>NameSuggester</code>, and
+   * report the time and memory taken to build the index. The index is built with a
+   * budget of the whole heap, and then with half the memory it needs, to show that it
+   * is refused. The time per misspelled name is reported in microseconds.
+   * <br>Misspellings that delete or swap the space between a first and last name are
+   * not found by the index, so a few suggestions differ from the BK-tree's.
+   *
+   * @param indexFile
+   *        The index file whose names are misspelled
+   */
+  private static void benchmarkCorrections(File indexFile) throws Exception {
+    PeopleDataList people = new PeopleDataList();
+    people.loadFileData(FileOperator.mapIndex(indexFile));
+    String[] names = people.getOrderedContents();
+    System.out.println(indexFile.getName() + " (" + names.length + " names):");
+    String[] firstNames = new String[names.length];
+    String[] lastNames = new String[names.length];
+    for (int i = 0; i < names.length; i++) {
+      int person = people.lookup(names[i]);
+      firstNames[i] = people.firstNameOf(person);
+      lastNames[i] = people.lastNameOf(person);
+    }
+    String[] misses = misspell(names, CORRECTION_MISSES);
+
+    long budget = Runtime.getRuntime().maxMemory();
+    double built = time("build correction index", () -> {
+      retainedResult = new CorrectionIndex(firstNames, lastNames, names, budget);
+    });
+    CorrectionIndex corrections = new CorrectionIndex(firstNames, lastNames, names, budget);
+    System.out.println("  " + corrections.report());
+    System.out.println("  " + new CorrectionIndex(firstNames, lastNames, names,
+                                                  corrections.bytes() / 2).report());
+
+    NameSuggester suggester = new NameSuggester(names);
+    double tree = time("BK-tree, " + misses.length + " misses", () -> {
+      int found = 0;
+      for (String miss : misses) {
+        found += suggester.suggest(miss, 2, 3).size();
+      }
+      retainedResult = found;
+    });
+    double indexed = time("correction index, " + misses.length + " misses", () -> {
+      int found = 0;
+      for (String miss : misses) {
+        found += corrections.suggest(miss, 2, 3).size();
+      }
+      retainedResult = found;
+    });
+
+    int same = 0;
+    for (String miss : misses) {
+      if (suggester.suggest(miss, 2, 3).equals(corrections.suggest(miss, 2, 3))) {
+        same++;
+      }
+    }
+    System.out.printf("  %-36s %10.1f us%n", "BK-tree per miss", tree / misses.length / 1e3);
+    System.out.printf("  %-36s %10.1f us%n", "correction index per miss",
+                      indexed / misses.length / 1e3);
+    System.out.printf("  %-36s %10.1fx%n", "speedup", tree / indexed);
+    System.out.printf("  %-36s %10.2f ms%n", "index build, once per load", built / 1e6);
+    System.out.printf("  %-36s %6d / %d%n", "same suggestions as BK-tree", same, misses.length);
+  }
+
+  /**
+   * Compare searching for partial names in a <code>TrigramIndex</code> with checking
+   * whether every name in the index contains them, and report the time taken to build
+   * the index and its size. Half of the partial names are a run of three to six
+   * characters from a name, and half are two shorter runs from the first and last
+   * names, such as <code>bo smi</code>. The time per search is reported in
+   * microseconds.
+   *
+   * @param indexFile
+   *        The index file whose names are searched
+   */
+  private static void benchmarkPartial(File indexFile) throws Exception {
+    PeopleDataList people = new PeopleDataList();
+    people.loadFileData(FileOperator.mapIndex(indexFile));
+    String[] names = people.getOrderedContents();
+    System.out.println(indexFile.getName() + " (" + names.length + " names):");
+    PeopleColumns columns = columnsOf(people);
+    int[] roster = new int[columns.size()];
+    for (int i = 0; i < roster.length; i++) {
+      roster[i] = i;
+    }
+
+    Random random = new Random(42);
+    String[] queries = new String[PARTIAL_QUERIES];
+    for (int i = 0; i < queries.length; i++) {
+      String name = names[random.nextInt(names.length)];
+      int space = name.indexOf(' ');
+      if (i % 2 == 0 || space < 2 || name.length() - space < 4) {
+        int length = Math.min(name.length(), 3 + random.nextInt(4));
+        int start = random.nextInt(name.length() - length + 1);
+        queries[i] = name.substring(start, start + length) + "*";
+      } else {
+        queries[i] = name.substring(0, 2) + " " + name.substring(space + 1, space + 4);
+      }
+    }
+
+    double built = time("build trigram index", () -> {
+      retainedResult = new TrigramIndex(columns, roster);
+    });
+    TrigramIndex trigrams = new TrigramIndex(columns, roster);
+    System.out.printf("  %-36s %10d%n", "distinct trigrams", trigrams.trigramCount());
+    System.out.printf("  %-36s %10.2f MB%n", "posting lists",
+                      trigrams.postingCount() * 4 / (1024.0 * 1024.0));
+
+    int[] matches = new int[1];
+    double indexed = time("trigram index, " + queries.length + " searches", () -> {
+      int found = 0;
+      for (String query : queries) {
+        found += trigrams.search(query).length;
+      }
+      matches[0] = found;
+      retainedResult = found;
+    });
+
+    String[] keys = new String[names.length];
+    for (int i = 0; i < names.length; i++) {
+      keys[i] = names[i].toLowerCase();
+    }
+    int[] scanned = new int[1];
+    double scan = time("linear scan, " + queries.length + " searches", () -> {
+      int found = 0;
+      for (String query : queries) {
+        String[] parts = query.toLowerCase().split("[\\s*]+");
+        for (String key : keys) {
+          boolean all = true;
+          for (int p = 0; p < parts.length && all; p++) {
+            all = key.contains(parts[p]);
+          }
+          if (all) {
+            found++;
+          }
+        }
+      }
+      scanned[0] = found;
+      retainedResult = found;
+    });
+    System.out.printf("  %-36s %10.1f us%n", "trigram index per search",
+                      indexed / queries.length / 1e3);
+    System.out.printf("  %-36s %10.1f us%n", "linear scan per search",
+                      scan / queries.length / 1e3);
+    System.out.printf("  %-36s %10.1fx%n", "speedup", scan / indexed);
+    System.out.printf("  %-36s %10.2f ms%n", "index build, once per load", built / 1e6);
+    System.out.printf("  %-36s %10.1f%n", "matches per search",
+                      (double)matches[0] / queries.length);
+    if (matches[0] != scanned[0]) {
+      System.out.println("  MISMATCH: " + matches[0] + " found, " + scanned[0] + " scanned");
+    }
+  }
+
+  /**
+   * Compare completing partly typed names through a <code>PrefixIndex</code> with
+   * checking whether every name in the index starts with them, and report the time
+   * taken to build the index. Each partly typed name is the first two to six characters
+   * of a name, or of the last word of a name. A completion through an
+   * <code>IndexInterpreter</code>, with every grade and homeform selected, is timed as
+   * well, as it is made while typing. The time per completion is reported in
+   * microseconds.
+   *
+   * @param indexFile
+   *        The index file whose names are completed
+   */
+  private static void benchmarkComplete(File indexFile) throws Exception {
+    IndexInterpreter interpreter = new IndexInterpreter(FileOperator.mapIndex(indexFile),
+                                                        indexFile.getName());
+    PeopleDataList people = new PeopleDataList();
+    people.loadFileData(FileOperator.mapIndex(indexFile));
+    String[] names = people.getOrderedContents();
+    System.out.println(indexFile.getName() + " (" + names.length + " names):");
+
+    Random random = new Random(42);
+    String[] prefixes = new String[COMPLETION_QUERIES];
+    for (int i = 0; i < prefixes.length; i++) {
+      String name = names[random.nextInt(names.length)];
+      if (i % 2 == 1) {
+        name = name.substring(name.lastIndexOf(' ') + 1);
+      }
+      prefixes[i] = name.substring(0, Math.min(name.length(), 2 + random.nextInt(5)));
+    }
+    SearchFilter everyone = SearchFilter.everyone(SearchFilter.REPORT_INDEX
+                                                  | SearchFilter.REPORT_GRADE
+                                                  | SearchFilter.REPORT_HOMEFORM);
+
+    PeopleColumns columns = columnsOf(people);
+    double built = time("build prefix index", () -> {
+      retainedResult = new PrefixIndex(columns);
+    });
+    PrefixIndex prefixIndex = new PrefixIndex(columns);
+    double indexed = time("prefix index, " + prefixes.length + " completions", () -> {
+      int found = 0;
+      for (String prefix : prefixes) {
+        found += prefixIndex.complete(prefix, 8).length;
+      }
+      retainedResult = found;
+    });
+    double interpreted = time("interpreter, " + prefixes.length + " completions", () -> {
+      int found = 0;
+      for (String prefix : prefixes) {
+        found += interpreter.complete(new RequestEvent((byte)0, everyone, prefix))[0].length;
+      }
+      retainedResult = found;
+    });
+
+    String[] keys = new String[names.length];
+    for (int i = 0; i < names.length; i++) {
+      keys[i] = names[i].toLowerCase();
+    }
+    double scan = time("linear scan, " + prefixes.length + " completions", () -> {
+      int found = 0;
+      for (String prefix : prefixes) {
+        String key = prefix.toLowerCase();
+        for (String name : keys) {
+          int space = name.lastIndexOf(' ');
+          if (name.startsWith(key) || name.startsWith(key, space + 1)) {
+            found++;
+          }
+        }
+      }
+      retainedResult = found;
+    });
+    System.out.printf("  %-36s %10.2f us%n", "prefix index per completion",
+                      indexed / prefixes.length / 1e3);
+    System.out.printf("  %-36s %10.2f us%n", "interpreter per completion",
+                      interpreted / prefixes.length / 1e3);
+    System.out.printf("  %-36s %10.2f us%n", "linear scan per completion",
+                      scan / prefixes.length / 1e3);
+    System.out.printf("  %-36s %10.1fx%n", "speedup", scan / indexed);
+    System.out.printf("  %-36s %10.5f%n", "frames per completion",
+                      interpreted / prefixes.length / FRAME_NANOS);
+    System.out.printf("  %-36s %10.2f ms%n", "index build, once per load", built / 1e6);
+  }
+
+  /**
+   * Compare preparing the output for every person in an index with an
+   * <code>OutputFragments</code>, with building it by concatenation in the way
+   * <code>IndexInterpreter</code> originally did, once with index numbers reported and
+   * once without.
+   *
+   * @param indexFile
+   *        The index file whose people are described
+   */
+  private static void benchmarkRender(File indexFile) throws Exception {
+    PeopleDataList people = new PeopleDataList();
+    people.loadFileData(FileOperator.mapIndex(indexFile));
+    int size = people.size();
+    System.out.println(indexFile.getName() + " (" + size + " names):");
+
+    boolean[][] reports = {{true, true, true}, {false, true, true}};
+    for (boolean[] reportWhat : reports) {
+      String label = reportWhat[0] ? "with index numbers" : "without index numbers";
+      SearchFilter filter = SearchFilter.everyone(
+          (reportWhat[0] ? SearchFilter.REPORT_INDEX : 0) | SearchFilter.REPORT_GRADE
+          | SearchFilter.REPORT_HOMEFORM);
+      double legacy = time("concatenation, " + label, () -> {
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+          int person = people.personAt(i);
+          length += legacyOutputString(people.indexNumOf(person), people.gradeOf(person),
+                                       people.homeformOf(person), reportWhat).length();
+        }
+        retainedResult = length;
+      });
+      long legacyBytes = allocatedBytes();
+      retainedResult = legacyOutputString(0, "9", "101", reportWhat);
+      for (int i = 0; i < size; i++) {
+        int person = people.personAt(i);
+        retainedResult = legacyOutputString(people.indexNumOf(person), people.gradeOf(person),
+                                            people.homeformOf(person), reportWhat);
+      }
+      legacyBytes = allocatedBytes() - legacyBytes;
+
+      double fragments = time("fragments, " + label, () -> {
+        OutputFragments output = new OutputFragments(people, filter);
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+          length += output.describe(people.personAt(i)).length();
+        }
+        retainedResult = length;
+      });
+      long fragmentBytes = allocatedBytes();
+      OutputFragments output = new OutputFragments(people, filter);
+      for (int i = 0; i < size; i++) {
+        retainedResult = output.describe(people.personAt(i));
+      }
+      fragmentBytes = allocatedBytes() - fragmentBytes;
+
+      if (legacyBytes >= 0) {
+        System.out.printf("  %-36s %10.1f B, %.1f B%n", "allocated per person",
+                          legacyBytes / (double)size, fragmentBytes / (double)size);
+      }
+      System.out.printf("  %-36s %10.1fx%n", "speedup", legacy / fragments);
+    }
+  }
+
+  /**
+   * Returns names picked at random from a list, each with one or two characters
+   * replaced, deleted, or swapped with the next. The same names are returned for the
+   * same list every time.
+   *
+   * @param names
+   *        The names to misspell
+   * @param count
+   *        The number of misspelled names to return
+   * @return The misspelled names
+   */
+  private static String[] misspell(String[] names, int count) {
+    Random random = new Random(42);
+    String[] misses = new String[count];
+    for (int i = 0; i < misses.length; i++) {
+      StringBuilder name = new StringBuilder(names[random.nextInt(names.length)]);
+      for (int edits = 1 + random.nextInt(2); edits > 0 && name.length() > 1; edits--) {
+        int pos = random.nextInt(name.length() - 1);
+        switch (random.nextInt(3)) {
+          case 0:
+            name.setCharAt(pos, (char)('a' + random.nextInt(26)));
+            break;
+          case 1:
+            name.deleteCharAt(pos);
+            break;
+          default:
+            char swapped = name.charAt(pos);
+            name.setCharAt(pos, name.charAt(pos + 1));
+            name.setCharAt(pos + 1, swapped);
+        }
+      }
+      misses[i] = name.toString();
+    }
+    return misses;
+  }
+
+  /**
+   * Returns finished columns holding a copy of every person in a list, from which the
+   * secondary indices are built, as they are from the list's own columns.
+   *
+   * @param people
+   *        The people to copy
+   * @return The finished columns
+   */
+  private static PeopleColumns columnsOf(PeopleDataList people) {
+    PeopleColumns columns = new PeopleColumns(people.size());
+    for (int i = 0; i < people.size(); i++) {
+      int person = people.personAt(i);
+      columns.add(people.indexNumOf(person), people.gradeOf(person), people.lastNameOf(person),
+                  people.firstNameOf(person), people.homeformOf(person),
+                  people.photoFileOf(person), people.rollOf(person));
+    }
+    return columns.finish();
+  }
+
+  /**
+   * Carry out a query on the specified pool, and return the number of results.
+   *
+   * @param index
+   *        The index to search
+   * @param query
+   *        The query
+   * @param pool
+   *        The pool on which to look up names
+   * @return The number of results
+   */
+  private static int collect(IndexInterpreter index, RequestEvent query, ForkJoinPool pool) {
+    int[] count = new int[1];
+    index.execute(query, (name, result) -> count[0]++, pool);
+    return count[0];
+  }
+
+  /**
+   * Compare looking up names in a <code>PeopleDataList</code> with looking them up in a
+   * <code>HashMap</code> from the same names to their line numbers. Two spellcheck
+   * workloads are used: one in which nine of every ten names are in the index, and one
+   * in which nine of every ten names are misspelled. As when a query is parsed, each
+   * name looked up is a new <code>String</code>, whose hash code is not yet cached.
+   *
+   * @param indexFile
+   *        The index file to load
+   */
+  private static void benchmarkNames(File indexFile) throws Exception {
+    System.out.println(indexFile.getName() + " (" + indexFile.length() + " bytes):");
+    PeopleDataList people = new PeopleDataList();
+    people.loadFileData(FileOperator.mapIndex(indexFile));
+    String[] names = people.getOrderedContents();
+    HashMap<String, Integer> map = new HashMap<>();
+    for (String name : names) {
+      map.put(name, people.searchName(name));
+    }
+
+    // Shuffle the names with a fixed seed, so that lookups do not follow the layout.
+    Random random = new Random(names.length);
+    for (int i = names.length - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      String swap = names[i];
+      names[i] = names[j];
+      names[j] = swap;
+    }
+
+    for (int hitsInTen : new int[] {9, 1}) {
+      char[][] workload = new char[names.length][];
+      for (int i = 0; i < names.length; i++) {
+        workload[i] = names[i].toCharArray();
+        if (i % 10 >= hitsInTen) {
+          // A misspelling changes the last letter of the name.
+          workload[i][workload[i].length - 1] ^= 1;
+        }
+      }
+      String label = hitsInTen == 9 ? "hit-heavy" : "miss-heavy";
+
+      double mapTime = time("HashMap, " + label, () -> {
+        long sum = 0;
+        for (char[] name : workload) {
+          Integer line = map.get(new String(name));
+          sum += line == null ? 0 : line;
+        }
+        retainedResult = sum;
+      });
+      double tableTime = time("name table, " + label, () -> {
+        long sum = 0;
+        for (char[] name : workload) {
+          sum += people.searchName(new String(name));
+        }
+        retainedResult = sum;
+      });
+      System.out.printf("  %-36s %10.1fx%n", "speedup", mapTime / tableTime);
+    }
+  }
+
+  /**
+   * Load an index file both into a <code>PeopleDataList</code>, which holds people in
+   * columns, and into a map holding one object per person, as people were originally
+   * held, and print the memory retained per person by each. The time taken to look up
+   * the line number of every person by name is also compared.
+   *
+   * @param indexFile
+   *        The index file to load
+   */
+  private static void benchmarkMemory(File indexFile) throws Exception {
+    System.out.println(indexFile.getName() + " (" + indexFile.length() + " bytes):");
+    PeopleDataList columns = new PeopleDataList();
+    columns.loadFileData(FileOperator.mapIndex(indexFile));
+    String[] names = columns.getOrderedContents();
+    HashMap<String, ObjectPerson> objects = loadObjects(indexFile);
+
+    double objectBytes = retainedBytes(() -> loadObjects(indexFile)) / (double)names.length;
+    double columnBytes = retainedBytes(() -> {
+      PeopleDataList loaded = new PeopleDataList();
+      loaded.loadFileData(FileOperator.mapIndex(indexFile));
+      return loaded;
+    }) / (double)names.length;
+    System.out.printf("  %-36s %10.1f bytes%n", "one object per person, per person", objectBytes);
+    System.out.printf("  %-36s %10.1f bytes%n", "columns, per person", columnBytes);
+    System.out.printf("  %-36s %10.1fx%n", "reduction", objectBytes / columnBytes);
+
+    double objectTime = time("one object per person, look up all", () -> {
+      long sum = 0;
+      for (String name : names) {
+        sum += objects.get(name).indexNum;
+      }
+      retainedResult = sum;
+    });
+    double columnTime = time("columns, look up all", () -> {
+      long sum = 0;
+      for (String name : names) {
+        sum += columns.searchName(name);
+      }
+      retainedResult = sum;
+    });
+    System.out.printf("  %-36s %10.1fx%n", "lookup speedup", objectTime / columnTime);
+  }
+
+  /**
+   * Load an index file into a map from full names to one object per person, as people
+   * were held before they were stored in columns.
+   *
+   * @param indexFile
+   *        The index file to load
+   * @return The people in the file, mapped by full name
+   */
+  private static HashMap<String, ObjectPerson> loadObjects(File indexFile) throws IOException {
+    HashMap<String, ObjectPerson> people = new HashMap<>();
+    IndexFieldScanner scanner = new IndexFieldScanner(FileOperator.mapIndex(indexFile),
+                                                      Charset.defaultCharset(), 0);
+    while (scanner.nextLine()) {
+      ObjectPerson person = new ObjectPerson(scanner.lineNumber(), scanner.grade(),
+                                             scanner.lastName(), scanner.firstName(),
+                                             scanner.homeform(), scanner.photoFile(),
+                                             scanner.roll());
+      people.put(person.first + " " + person.last, person);
+    }
+    return people;
+  }
+
+  /**
+   * Retrieve every index in the specified list, so that each index's data is read.
+   *
+   * @param indices
+   *        The list of indices to read
+   * @return The same list
+   */
+  private static IndexPriorityList readAll(IndexPriorityList indices) {
+    for (IndexInterpreter index : indices) {
+      indices.get(index.getSource());
+    }
+    return indices;
+  }
+
+  /**
+   * Print the amount of heap memory retained by the result of the specified task, as
+   * measured by the change in used memory across garbage collections before and after
+   * the task.
+   *
+   * @param label
+   *        A description of the task
+   * @param task
+   *        The work whose result is measured
+   */
+  private static void printRetained(String label, Producer task) throws Exception {
+    System.out.printf("  %-36s %10.2f MB retained%n", label,
+                      retainedBytes(task) / (1024.0 * 1024.0));
+  }
+
+  /**
+   * Returns the amount of heap memory retained by the result of the specified task, as
+   * measured by the change in used memory across garbage collections before and after
+   * the task.
+   *
+   * @param task
+   *        The work whose result is measured
+   * @return The bytes retained by the task's result
+   */
+  private static long retainedBytes(Producer task) throws Exception {
+    long before = usedAfterCollection();
+    retainedResult = task.run();
+    long retained = usedAfterCollection() - before;
+    retainedResult = null;
+    return retained;
+  }
+
+  /**
+   * Returns the amount of heap memory in use once garbage has been collected. Several
+   * collections are requested, since a single one may not collect all garbage.
+   *
+   * @return The bytes of heap memory in use
+   */
+  private static long usedAfterCollection() throws InterruptedException {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      Thread.sleep(50);
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  /**
+   * Read an index file in the way <code>FileOperator.readIndex</code> originally did,
+   * appending each 4 KB piece of the file onto the contents read so far.
+   *
+   * @param indexFile
+   *        The file to read
+   * @return The contents of the file
+   */
+  private static String legacyReadIndex(File indexFile) throws IOException {
+    RandomAccessFile index = new RandomAccessFile(indexFile, "r");
+    byte[] bytes = new byte[4096];
+    String fileContents = "";
+
+    for (int i = index.read(bytes); i > 0; i = index.read(bytes)) {
+      String newData = new String(bytes);
+      fileContents += newData.substring(0, i);
+    }
+
+    index.close();
+    return fileContents;
+  }
+
+  /**
+   * Prepare the output for a person in the way <code>IndexInterpreter</code> originally
+   * did, concatenating each piece of requested data onto the output so far.
+   *
+   * @param foundIndex
+   *        The index number at which the person was found
+   * @param grade
+   *        The grade to which the person belongs
+   * @param homeform
+   *        The person's homeform room designation
+   * @param reportWhat
+   *        Flags for whether to report [0] index number, [1] grade, and [2] homeform
+   * @return The output for the person
+   */
+  private static String legacyOutputString(int foundIndex, String grade, String homeform,
+                                           boolean[] reportWhat) {
+    String output = "Found";
+    boolean elementWritten = false;
+    if (reportWhat[0]) {
+      output += " at index " + foundIndex;
+      elementWritten = true;
+    }
+    if (reportWhat[1]) {
+      output += elementWritten ? ", " : " ";
+      output += "in grade " + grade;
+      elementWritten = true;
+    }
+    if (reportWhat[2]) {
+      output += elementWritten ? ", " : " ";
+      output += "in homeform " + homeform;
+    }
+    return output;
+  }
+
+  /**
+   * Separate a list of names in the way <code>IndexInterpreter.filter</code> originally
+   * did, compiling the name expression and appending each name found onto the names
+   * found so far, then splitting them apart again.
+   *
+   * @param input
+   *        A list of names
+   * @return The names in the list
+   */
+  private static String[] legacyFilter(String input) {
+    String nameFilterRegex = "(?<=([ \\n]|\\A))([A-Za-z -]|\\.)+(?=([,\\n]|\\z))";
+    String separator = "" + (char)1;
+    String processed = "";
+    try {
+      Matcher nameMatcher = Pattern.compile(nameFilterRegex).matcher(input);
+      while (!nameMatcher.hitEnd()) {
+        nameMatcher.find();
+        processed += nameMatcher.group() + separator;
+      }
+      return processed.split(separator);
+    } catch (IllegalStateException err) {
+      return processed.split(separator);
+    }
+  }
+
+  /**
+   * Parse the contents of an index file in the way <code>PeopleDataList</code>
+   * originally did, splitting the contents into lines and each line into fields with
+   * regular expressions, and storing the used fields by full name.
+   *
+   * @param rawInput
+   *        The contents of an index file
+   * @return The used fields of each line, mapped by full name
+   */
+  private static HashMap<String, String[]> legacyParse(String rawInput) {
+    HashMap<String, String[]> people = new HashMap<>();
+    for (String line : rawInput.split("\\n")) {
+      String[] data = line.split("\\t+");
+      people.put(data[5] + " " + data[4], new String[] {data[3], data[4], data[5], data[6]});
+    }
+    return people;
+  }
+}
@@ -0,0 +1,315 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A finder of the names in an index that are spelled most like a name that is not in
+ * the index, so that a misspelled name can be reported along with the names that were
+ * most likely meant.
+ *
+ * <p>Names are compared by their Damerau-Levenshtein distance: the least number of
+ * characters that must be inserted, deleted, or substituted, or pairs of adjacent
+ * characters that must be swapped, to turn one name into the other. Names are compared
+ * without regard to case, so a name typed in the wrong case is at distance 0 from the
+ * name that was meant.
+ *
+ * <p>Names are held in a BK-tree. Each node of the tree holds a name, and the subtree
+ * of each of its children holds the names that are at a particular distance from it.
+ * Because the distance obeys the triangle inequality, a search for names within some
+ * distance of a query only needs to visit the children whose distance from a node is
+ * close to the query's distance from it, and most of the tree is never visited.
+ *
+ * <p>A <code>NameSuggester</code> is not modified after it is built, and may be searched
+ * by several threads at once.
+ */
+class NameSuggester {
+
+  /**
+   * The number of characters below which the last position of each character in a name
+   * is kept in a table while distances are measured. The positions of other characters
+   * are found by searching the name.
+   */
+  private static final int TABLE_CHARS = 256;
+
+  /**
+   * A node of the BK-tree, holding every name that is the same apart from case.
+   */
+  private static final class Node {
+
+    /**
+     * The names held by the node, in lower case.
+     */
+    private final char[] key;
+
+    /**
+     * The names held by the node, as they appear in the index.
+     */
+    private final List<String> names = new ArrayList<>(1);
+
+    /**
+     * The child of the node at each distance from it, or <code>null</code> where there
+     * is none. Grown as needed.
+     */
+    private Node[] children = new Node[0];
+
+    /**
+     * Initializes a new <code>Node</code> holding the specified name.
+     *
+     * @param key
+     *        The name in lower case
+     * @param name
+     *        The name as it appears in the index
+     */
+    private Node(char[] key, String name) {
+      this.key = key;
+      names.add(name);
+    }
+  }
+
+  /**
+   * A name found near a query, along with its distance from the query.
+   */
+  private static final class Match {
+    private final String name;
+    private final int distance;
+
+    private Match(String name, int distance) {
+      this.name = name;
+      this.distance = distance;
+    }
+  }
+
+  /**
+   * Working space for measuring distances, reused from one measurement to the next
+   * within a single search.
+   */
+  static final class Scratch {
+
+    /**
+     * The distance table, with two more rows and columns than the longest names
+     * measured so far.
+     */
+    private int[] table = new int[0];
+
+    /**
+     * For each character below <code>TABLE_CHARS</code>, the last row of the distance
+     * table in which it was seen in the first name, or 0 if it has not been seen.
+     */
+    private final int[] lastRows = new int[TABLE_CHARS];
+  }
+
+  /**
+   * The root of the BK-tree, or <code>null</code> if no names are held.
+   */
+  private Node root = null;
+
+  /**
+   * Initializes a new <code>NameSuggester</code> holding the specified names.
+   *
+   * @param names
+   *        The names to suggest
+   */
+  NameSuggester(String[] names) {
+    Scratch scratch = new Scratch();
+    for (String name : names) {
+      add(name, scratch);
+    }
+  }
+
+  /**
+   * Add a name to the tree.
+   *
+   * @param name
+   *        The name to add
+   * @param scratch
+   *        Working space for measuring distances
+   */
+  private void add(String name, Scratch scratch) {
+    char[] key = name.toLowerCase(Locale.ROOT).toCharArray();
+    if (root == null) {
+      root = new Node(key, name);
+      return;
+    }
+    Node node = root;
+    while (true) {
+      int distance = distance(key, node.key, scratch);
+      if (distance == 0) {
+        node.names.add(name);
+        return;
+      }
+      if (distance >= node.children.length) {
+        node.children = Arrays.copyOf(node.children, distance + 1);
+      }
+      if (node.children[distance] == null) {
+        node.children[distance] = new Node(key, name);
+        return;
+      }
+      node = node.children[distance];
+    }
+  }
+
+  /**
+   * Returns the names closest to the specified name, no further from it than
+   * <code>maxDistance</code>, closest first. Names at the same distance are listed in
+   * alphabetical order.
+   *
+   * @param name
+   *        The name to find suggestions for
+   * @param maxDistance
+   *        The greatest distance of a name suggested
+   * @param limit
+   *        The greatest number of names suggested
+   * @return Up to <code>limit</code> names within <code>maxDistance</code> of the name
+   */
+  List<String> suggest(String name, int maxDistance, int limit) {
+    List<String> suggestions = new ArrayList<>();
+    if (root == null || limit <= 0 || maxDistance < 0) {
+      return suggestions;
+    }
+    char[] key = name.toLowerCase(Locale.ROOT).toCharArray();
+    Scratch scratch = new Scratch();
+    List<Match> matches = new ArrayList<>();
+    List<Node> pending = new ArrayList<>();
+    pending.add(root);
+    while (!pending.isEmpty()) {
+      Node node = pending.remove(pending.size() - 1);
+      int distance = distance(key, node.key, scratch);
+      if (distance <= maxDistance) {
+        for (String match : node.names) {
+          matches.add(new Match(match, distance));
+        }
+      }
+      // By the triangle inequality, any name within maxDistance of the query is at a
+      // distance from this node within maxDistance of the query's own.
+      int last = Math.min(distance + maxDistance, node.children.length - 1);
+      for (int i = Math.max(distance - maxDistance, 1); i <= last; i++) {
+        if (node.children[i] != null) {
+          pending.add(node.children[i]);
+        }
+      }
+    }
+
+    matches.sort((a, b) -> a.distance != b.distance ? a.distance - b.distance
+                                                    : a.name.compareTo(b.name));
+    for (int i = 0; i < matches.size() && i < limit; i++) {
+      suggestions.add(matches.get(i).name);
+    }
+    return suggestions;
+  }
+
+  /**
+   * Returns the Damerau-Levenshtein distance between two names.
+   *
+   * @param a
+   *        The first name
+   * @param b
+   *        The second name
+   * @return The least number of insertions, deletions, substitutions, and swaps of
+   *         adjacent characters that turn one name into the other
+   */
+  static int distance(String a, String b) {
+    return distance(a.toCharArray(), b.toCharArray(), new Scratch());
+  }
+
+  /**
+   * Returns the Damerau-Levenshtein distance between two names, using the specified
+   * working space. Follows the algorithm of Lowrance and Wagner, in which a swap may be
+   * made between characters that are later separated by insertions and deletions.
+   *
+   * @param a
+   *        The first name
+   * @param b
+   *        The second name
+   * @param scratch
+   *        Working space for measuring distances
+   * @return The distance between the names
+   */
+  static int distance(char[] a, char[] b, Scratch scratch) {
+    int m = a.length;
+    int n = b.length;
+    int width = n + 2;
+    if ((m + 2) * width > scratch.table.length) {
+      scratch.table = new int[(m + 2) * width * 2];
+    }
+    int[] d = scratch.table;
+    int[] lastRows = scratch.lastRows;
+
+    // Row and column 0 hold a distance greater than any possible, so that no swap is
+    // ever made with a character before the start of a name.
+    int infinity = m + n;
+    d[0] = infinity;
+    for (int i = 0; i <= m; i++) {
+      d[(i + 1) * width] = infinity;
+      d[(i + 1) * width + 1] = i;
+    }
+    for (int j = 0; j <= n; j++) {
+      d[j + 1] = infinity;
+      d[width + j + 1] = j;
+    }
+
+    for (int i = 1; i <= m; i++) {
+      char ca = a[i - 1];
+      int above = i * width;
+      int row = above + width;
+      // The last column, up to this one, in which this row's character of a was seen in b.
+      int lastColumn = 0;
+      for (int j = 1; j <= n; j++) {
+        char cb = b[j - 1];
+        int best;
+        if (ca == cb) {
+          best = d[above + j];
+        } else {
+          best = Math.min(d[above + j], Math.min(d[row + j], d[above + j + 1])) + 1;
+        }
+        if (lastColumn > 0) {
+          // A swap is only possible once this row's character has been seen in b.
+          // Find the last row, before this one, in which this column's character of b
+          // was seen in a.
+          int lastRow = cb < TABLE_CHARS ? lastRows[cb] : lastIndexOf(a, cb, i - 1);
+          if (lastRow > 0) {
+            best = Math.min(best, d[lastRow * width + lastColumn]
+                                  + (i - lastRow - 1) + 1 + (j - lastColumn - 1));
+          }
+        }
+        if (ca == cb) {
+          lastColumn = j;
+        }
+        d[row + j + 1] = best;
+      }
+      if (ca < TABLE_CHARS) {
+        lastRows[ca] = i;
+      }
+    }
+    int result = d[(m + 1) * width + n + 1];
+
+    // Leave the table of last rows clear for the next measurement.
+    for (char ca : a) {
+      if (ca < TABLE_CHARS) {
+        lastRows[ca] = 0;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the position, counted from 1, of the last occurrence of a character among
+   * the first characters of a name, or 0 if it does not occur among them.
+   *
+   * @param name
+   *        The name
+   * @param c
+   *        The character
+   * @param count
+   *        The number of characters at the start of the name to search
+   * @return The position of the character, counted from 1, or 0
+   */
+  private static int lastIndexOf(char[] name, char c, int count) {
+    for (int i = count; i > 0; i--) {
+      if (name[i - 1] == c) {
+        return i;
+      }
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,103 @@
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class NameSuggesterTest {
+  private static final String[] NAMES = {
+    "Ayasha Abdalla-Wyse", "Amal Abdurhman", "L. Acharya", "Satvick Acharya",
+    "Amanda Acquah", "Tahmid Zia", "Bob Smith", "Rob Smith", "Bob Smyth", "BOB SMITH"
+  };
+
+  /**
+   * Returns the Damerau-Levenshtein distance between two strings, found by trying every
+   * edit from each string reachable so far, one edit at a time.
+   */
+  private static int searchedDistance(String a, String b) {
+    Set<Character> alphabet = new HashSet<>();
+    for (char c : (a + b).toCharArray()) {
+      alphabet.add(c);
+    }
+    Set<String> frontier = new HashSet<>(Collections.singletonList(a));
+    for (int distance = 0; ; distance++) {
+      if (frontier.contains(b)) {
+        return distance;
+      }
+      Set<String> next = new HashSet<>();
+      for (String s : frontier) {
+        for (int i = 0; i <= s.length(); i++) {
+          for (char c : alphabet) {
+            next.add(s.substring(0, i) + c + s.substring(i));
+            if (i < s.length()) {
+              next.add(s.substring(0, i) + c + s.substring(i + 1));
+            }
+          }
+          if (i < s.length()) {
+            next.add(s.substring(0, i) + s.substring(i + 1));
+          }
+          if (i + 1 < s.length()) {
+            next.add(s.substring(0, i) + s.charAt(i + 1) + s.charAt(i) + s.substring(i + 2));
+          }
+        }
+      }
+      frontier = next;
+    }
+  }
+
+  @Test
+  public void testDistance() {
+    assertEquals(0, NameSuggester.distance("", ""));
+    assertEquals(3, NameSuggester.distance("", "abc"));
+    assertEquals(1, NameSuggester.distance("Bob Smith", "Bob Smiht"));
+    assertEquals(1, NameSuggester.distance("Bob Smith", "Rob Smith"));
+    assertEquals(3, NameSuggester.distance("kitten", "sitting"));
+    // A swap followed by an insertion between the swapped characters.
+    assertEquals(2, NameSuggester.distance("ca", "abc"));
+    assertEquals(2, NameSuggester.distance("Zo\u00e9", "\u00e9oZ"));
+  }
+
+  @Test
+  public void testDistanceAgainstSearch() {
+    Random random = new Random(17);
+    for (int n = 0; n < 300; n++) {
+      String a = RandomNames.string(random, 3);
+      String b = RandomNames.string(random, 3);
+      assertEquals(a + " / " + b, searchedDistance(a, b), NameSuggester.distance(a, b));
+    }
+  }
+
+  @Test
+  public void testSuggestionsInOrder() {
+    NameSuggester suggester = new NameSuggester(NAMES);
+    assertEquals(Arrays.asList("BOB SMITH", "Bob Smith", "Bob Smyth"),
+                 suggester.suggest("bob smith", 1, 3));
+    assertEquals(Arrays.asList("Amal Abdurhman"), suggester.suggest("Amal Abdruhman", 2, 5));
+    assertEquals(Arrays.asList("BOB SMITH"), suggester.suggest("Bob Smiht", 1, 1));
+    assertTrue(suggester.suggest("Nobody Here", 2, 5).isEmpty());
+    assertTrue(new NameSuggester(new String[0]).suggest("Bob Smith", 2, 5).isEmpty());
+  }
+
+  @Test
+  public void testSuggestionsMatchLinearScan() {
+    Random random = new Random(23);
+    String[] names = new String[500];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = RandomNames.string(random, 8);
+    }
+    NameSuggester suggester = new NameSuggester(names);
+    for (int n = 0; n < 200; n++) {
+      String query = RandomNames.string(random, 8);
+      int maxDistance = random.nextInt(4);
+      List<String> expected = RandomNames.scan(names, i ->
+          NameSuggester.distance(query.toLowerCase(), names[i].toLowerCase()) <= maxDistance);
+      assertEquals(expected,
+                   RandomNames.sorted(suggester.suggest(query, maxDistance, names.length)));
+    }
+  }
+}
@@ -0,0 +1,334 @@
+import java.util.Arrays;
+
+/**
+ * A reader that picks out the names in a list of names of any format, such as a mugs
+ * list, a sports or clubs list, or a list typed in by hand. Commas or newlines can be
+ * used as separators between names.
+ *
+ * <p>Names are expected to match a certain format. Any series of characters consisting
+ * of a set of letters, periods, dashes, and spaces preceded by a space or newline (or
+ * the start of the list) and followed by a comma or newline (or the end of the list)
+ * is interpreted as a name. This is the same format as was matched by the expression
+ * <code>(?&lt;=([ \n]|\A))([A-Za-z -]|\.)+(?=([,\n]|\z))</code>.
+ * <br>Be aware that any name containing characters other than those specified is not
+ * recognized as a name and will not be found, unless the characters are given as extra
+ * name characters when the tokenizer is created.
+ *
+ * <p>Lists are read by a table-driven finite-state machine, in a single forward pass
+ * that never looks back over characters already read. Names are found as spans of the
+ * list, recorded as offsets into a buffer that is kept between lists, so that reading
+ * a list creates no objects beyond those needed to grow the buffer. A long list can
+ * also be read a few names at a time, so that the first names can be used before the
+ * rest of the list is read. A <code>NameTokenizer</code> must not be used by more than
+ * one thread at a time.
+ */
+class NameTokenizer {
+
+  /**
+   * The class of a character that may appear in a name, other than a space.
+   */
+  private static final int NAME_CHAR = 0;
+
+  /**
+   * The class of a space, which may appear in a name and may come before one.
+   */
+  private static final int SPACE = 1;
+
+  /**
+   * The class of a newline, which may come before or after a name.
+   */
+  private static final int NEWLINE = 2;
+
+  /**
+   * The class of a comma, which may come after a name.
+   */
+  private static final int COMMA = 3;
+
+  /**
+   * The class of any other character, which cannot appear in or next to a name.
+   */
+  private static final int OTHER = 4;
+
+  /**
+   * The number of character classes.
+   */
+  private static final int CLASSES = 5;
+
+  /**
+   * The state in which no name is being read, and a name may start at the next character.
+   */
+  private static final int MAY_START = 0;
+
+  /**
+   * The state in which no name is being read, and a name may not start at the next
+   * character.
+   */
+  private static final int NO_START = 1;
+
+  /**
+   * The state in which a name is being read.
+   */
+  private static final int IN_NAME = 2;
+
+  /**
+   * The action of continuing without recording anything.
+   */
+  private static final int CONTINUE = 0;
+
+  /**
+   * The action of starting a name at the current character.
+   */
+  private static final int START = 1 << 2;
+
+  /**
+   * The action of ending the name being read just before the current character.
+   */
+  private static final int END = 2 << 2;
+
+  /**
+   * The mask selecting the next state from an entry of <code>TRANSITIONS</code>.
+   */
+  private static final int STATE_MASK = 3;
+
+  /**
+   * The transition table of the scanner. The entry for a state and a character class,
+   * at position <code>state * CLASSES + class</code>, holds the state to move to,
+   * combined with the action to take.
+   */
+  private static final int[] TRANSITIONS = {
+    // MAY_START: a name starts at any name character or space.
+    IN_NAME | START, IN_NAME | START, MAY_START, NO_START, NO_START,
+    // NO_START: a space or newline allows a name to start after it.
+    NO_START, MAY_START, MAY_START, NO_START, NO_START,
+    // IN_NAME: a comma or newline ends the name; any other character spoils it.
+    IN_NAME, IN_NAME, MAY_START | END, NO_START | END, NO_START
+  };
+
+  /**
+   * The characters that may appear in a name by default, other than spaces.
+   */
+  private static final String DEFAULT_NAME_CHARS =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz-.";
+
+  /**
+   * The class of each character below 256.
+   */
+  private final byte[] latinClasses = new byte[256];
+
+  /**
+   * Any extra name characters of 256 or above, in ascending order.
+   */
+  private final char[] otherNameChars;
+
+  /**
+   * The start and end offsets of each name found in the list most recently read, with
+   * the start of the i'th name at position 2i and its end at position 2i + 1.
+   */
+  private int[] spans = new int[64];
+
+  /**
+   * The number of names found in the list most recently read.
+   */
+  private int count = 0;
+
+  /**
+   * The list most recently read.
+   */
+  private CharSequence input = "";
+
+  /**
+   * The offset in the list of the next character to read.
+   */
+  private int position = 0;
+
+  /**
+   * The state of the scanner before the next character is read.
+   */
+  private int state = MAY_START;
+
+  /**
+   * The offset at which the name being read starts, if the scanner is in a name.
+   */
+  private int nameStart = 0;
+
+  /**
+   * Initializes a new <code>NameTokenizer</code>, which recognizes names made only of
+   * letters, periods, dashes, and spaces.
+   */
+  NameTokenizer() {
+    this("");
+  }
+
+  /**
+   * Initializes a new <code>NameTokenizer</code>, which recognizes names made of letters,
+   * periods, dashes, spaces, and the specified extra characters, such as apostrophes or
+   * accented letters. Spaces, newlines, and commas cannot be made name characters.
+   *
+   * @param extraNameChars
+   *        The extra characters that may appear in names
+   */
+  NameTokenizer(String extraNameChars) {
+    Arrays.fill(latinClasses, (byte)OTHER);
+    latinClasses[' '] = SPACE;
+    latinClasses['\n'] = NEWLINE;
+    latinClasses[','] = COMMA;
+
+    StringBuilder others = new StringBuilder();
+    for (char c : (DEFAULT_NAME_CHARS + extraNameChars).toCharArray()) {
+      if (c < latinClasses.length) {
+        if (latinClasses[c] == OTHER) {
+          latinClasses[c] = NAME_CHAR;
+        }
+      } else {
+        others.append(c);
+      }
+    }
+    otherNameChars = others.toString().toCharArray();
+    Arrays.sort(otherNameChars);
+  }
+
+  /**
+   * Returns the class of a character.
+   *
+   * @param c
+   *        A character
+   * @return The character's class
+   */
+  private int classOf(char c) {
+    if (c < latinClasses.length) {
+      return latinClasses[c];
+    }
+    return Arrays.binarySearch(otherNameChars, c) >= 0 ? NAME_CHAR : OTHER;
+  }
+
+  /**
+   * Read a list of names, finding the span of each name in it. The spans of the list
+   * previously read are discarded.
+   *
+   * @param list
+   *        A list of names
+   * @return The number of names found
+   */
+  int tokenize(CharSequence list) {
+    reset(list);
+    return advance(Integer.MAX_VALUE);
+  }
+
+  /**
+   * Begin reading a list of names a few names at a time, with calls to
+   * <code>advance</code>. The spans of the list previously read are discarded.
+   *
+   * @param list
+   *        A list of names
+   */
+  void reset(CharSequence list) {
+    input = list;
+    count = 0;
+    position = 0;
+    state = MAY_START;
+  }
+
+  /**
+   * Continue reading the list given to <code>reset</code> until the specified number of
+   * names have been found, or until the end of the list. Only the spans of the names
+   * found by this call are kept, and they are numbered from 0. The names found by
+   * successive calls are the same as those found by <code>tokenize</code>, in order.
+   *
+   * @param maxNames
+   *        The largest number of names to find
+   * @return The number of names found, which is 0 once the whole list has been read
+   */
+  int advance(int maxNames) {
+    count = 0;
+    CharSequence list = input;
+    int length = list.length();
+    int i = position;
+    int current = state;
+    for (; i < length && count < maxNames; i++) {
+      int transition = TRANSITIONS[current * CLASSES + classOf(list.charAt(i))];
+      if ((transition & START) != 0) {
+        nameStart = i;
+      } else if ((transition & END) != 0) {
+        addSpan(nameStart, i);
+      }
+      current = transition & STATE_MASK;
+    }
+    if (i == length && current == IN_NAME && count < maxNames) {
+      // The end of the list ends the name being read.
+      addSpan(nameStart, length);
+      current = NO_START;
+    }
+    position = i;
+    state = current;
+    return count;
+  }
+
+  /**
+   * Returns the offset in the list given to <code>reset</code> up to which it has been
+   * read, which is the length of the list once it has been read in full.
+   *
+   * @return The number of characters of the list read
+   */
+  int position() {
+    return position;
+  }
+
+  /**
+   * Record the span of a name found.
+   *
+   * @param start
+   *        The offset of the name's first character
+   * @param end
+   *        The offset after the name's last character
+   */
+  private void addSpan(int start, int end) {
+    if (2 * count == spans.length) {
+      spans = Arrays.copyOf(spans, spans.length * 2);
+    }
+    spans[2 * count] = start;
+    spans[2 * count + 1] = end;
+    count++;
+  }
+
+  /**
+   * Returns the number of names found in the list most recently read.
+   *
+   * @return The number of names
+   */
+  int count() {
+    return count;
+  }
+
+  /**
+   * Returns the offset in the list at which a name starts.
+   *
+   * @param i
+   *        The position of the name among those found
+   * @return The offset of the name's first character
+   */
+  int start(int i) {
+    return spans[2 * i];
+  }
+
+  /**
+   * Returns the offset in the list just past the end of a name.
+   *
+   * @param i
+   *        The position of the name among those found
+   * @return The offset after the name's last character
+   */
+  int end(int i) {
+    return spans[2 * i + 1];
+  }
+
+  /**
+   * Returns a name found in the list most recently read.
+   *
+   * @param i
+   *        The position of the name among those found
+   * @return The name
+   */
+  String name(int i) {
+    return input.subSequence(start(i), end(i)).toString();
+  }
+}
@@ -0,0 +1,138 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class NameTokenizerTest {
+  private static final Pattern NAME_REGEX =
+      Pattern.compile("(?<=([ \\n]|\\A))([A-Za-z -]|\\.)+(?=([,\\n]|\\z))");
+
+  private static List<String> regexNames(Pattern pattern, String input) {
+    List<String> names = new ArrayList<>();
+    Matcher matcher = pattern.matcher(input);
+    while (matcher.find()) {
+      names.add(matcher.group());
+    }
+    return names;
+  }
+
+  private static List<String> scannedNames(NameTokenizer tokenizer, String input) {
+    List<String> names = new ArrayList<>();
+    int count = tokenizer.tokenize(input);
+    for (int i = 0; i < count; i++) {
+      names.add(tokenizer.name(i));
+      assertEquals(input.substring(tokenizer.start(i), tokenizer.end(i)), tokenizer.name(i));
+    }
+    return names;
+  }
+
+  private void assertSameAsRegex(String input) {
+    assertEquals(regexNames(NAME_REGEX, input), scannedNames(new NameTokenizer(), input));
+  }
+
+  @Test
+  public void testEmptyInput() {
+    assertSameAsRegex("");
+    assertEquals(0, new NameTokenizer().tokenize(""));
+  }
+
+  @Test
+  public void testCommaSeparated() {
+    assertSameAsRegex("Ayasha Abdalla-Wyse, Amal Abdurhman, L. Acharya");
+    assertSameAsRegex("Ayasha Abdalla-Wyse,Amal Abdurhman,  L. Acharya,");
+  }
+
+  @Test
+  public void testNewlineSeparated() {
+    assertSameAsRegex("Ayasha Abdalla-Wyse\nAmal Abdurhman\nL. Acharya\n");
+    assertSameAsRegex("\n\nAyasha Abdalla-Wyse\n\n  Amal Abdurhman  \n");
+  }
+
+  @Test
+  public void testWindowsLineEndings() {
+    assertSameAsRegex("Ayasha Abdalla-Wyse\r\nAmal Abdurhman\r\nL. Acharya");
+  }
+
+  @Test
+  public void testMugsPageFormat() {
+    assertSameAsRegex("Ayasha Abdalla-Wyse\nAmal Abdurhman\nSatvick Acharya\nAmanda Acquah\n"
+                      + "Not Pictured: Tahmid Zia, Bob Smith\n");
+  }
+
+  @Test
+  public void testClubsPageFormat() {
+    assertSameAsRegex("Front row (l-r): Ayasha Abdalla-Wyse, Amal Abdurhman, L. Acharya\n"
+                      + "Back row: Satvick Acharya, Amanda Acquah, Mr. T. Zia\n"
+                      + "Missing: Bob Smith");
+  }
+
+  @Test
+  public void testRejectedNames() {
+    assertSameAsRegex("Liam O'Brien, foo1 bar, Zoe \u00c9lan, Tahmid Zia\tx, Amal Abdurhman");
+  }
+
+  @Test
+  public void testRandomInputs() {
+    String alphabet = "aZ .-,\n\r1\t'";
+    Random random = new Random(12);
+    for (int n = 0; n < 20000; n++) {
+      StringBuilder input = new StringBuilder();
+      for (int i = random.nextInt(20); i > 0; i--) {
+        input.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      assertSameAsRegex(input.toString());
+    }
+  }
+
+  @Test
+  public void testExtraNameCharacters() {
+    NameTokenizer tokenizer = new NameTokenizer("'\u00c9\u0141");
+    Pattern extended =
+        Pattern.compile("(?<=([ \\n]|\\A))([A-Za-z '\u00c9\u0141-]|\\.)+(?=([,\\n]|\\z))");
+    String input = "Liam O'Brien, Zoe \u00c9lan, \u0141ukasz Nowak, Tahmid Zia\u00e9";
+    assertEquals(regexNames(extended, input), scannedNames(tokenizer, input));
+    assertEquals(3, tokenizer.count());
+    assertEquals("Liam O'Brien", tokenizer.name(0));
+  }
+
+  @Test
+  public void testReadInBatches() {
+    String alphabet = "aZ .-,\n\r1";
+    Random random = new Random(13);
+    NameTokenizer tokenizer = new NameTokenizer();
+    for (int n = 0; n < 5000; n++) {
+      StringBuilder input = new StringBuilder();
+      for (int i = random.nextInt(60); i > 0; i--) {
+        input.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      List<String> batched = new ArrayList<>();
+      int batch = 1 + random.nextInt(3);
+      tokenizer.reset(input);
+      for (int count; (count = tokenizer.advance(batch)) > 0; ) {
+        assertTrue(count <= batch);
+        for (int i = 0; i < count; i++) {
+          batched.add(tokenizer.name(i));
+        }
+      }
+      assertEquals(regexNames(NAME_REGEX, input.toString()), batched);
+      assertEquals(0, tokenizer.advance(batch));
+    }
+  }
+
+  @Test
+  public void testBufferIsReused() {
+    NameTokenizer tokenizer = new NameTokenizer();
+    StringBuilder input = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      input.append("Name Number, ");
+    }
+    assertEquals(1000, tokenizer.tokenize(input));
+    assertEquals(2, tokenizer.tokenize("Amal Abdurhman\nL. Acharya"));
+    assertEquals("L. Acharya", tokenizer.name(1));
+  }
+}
@@ -0,0 +1,157 @@
+/**
+ * The output for each person found by a single query, assembled from fragments that
+ * are prepared once per query rather than once per person.
+ *
+ * <p>The output for a person depends only on their index number, grade, and homeform,
+ * and on which of them the query reports. Everything after the index number is the same
+ * for every person in the same grade and homeform, so it is prepared the first time
+ * someone in that grade and homeform is found, and kept for the rest of the query.
+ * When index numbers are not reported, that text is the whole of the output, and the
+ * same <code>String</code> is returned for everyone in the grade and homeform.
+ * Otherwise each person's output is written once into a builder sized to hold it.
+ *
+ * <p>An <code>OutputFragments</code> may be used by several threads at once. A
+ * fragment prepared by two threads at the same time is prepared twice, with the same
+ * result.
+ */
+class OutputFragments {
+
+  /**
+   * The start of the output for every person found.
+   */
+  private static final String FOUND = "Found";
+
+  /**
+   * The text before a person's index number, when it is reported.
+   */
+  private static final String AT_INDEX = " at index ";
+
+  /**
+   * The greatest number of characters in an index number.
+   */
+  private static final int MAX_DIGITS = 11;
+
+  /**
+   * The largest number of pairs of grade and homeform for which fragments are kept.
+   * Indices with more pairs, which are not expected, have their fragments prepared for
+   * each person.
+   */
+  private static final int MAX_FRAGMENTS = 1 << 16;
+
+  /**
+   * The people whose output is assembled.
+   */
+  private final PeopleDataList index;
+
+  /**
+   * The settings of the query, giving which data are reported.
+   */
+  private final SearchFilter filter;
+
+  /**
+   * The output following the index number for each pair of grade and homeform, by the
+   * code of the pair, or <code>null</code> where it is not yet prepared. Holds the whole
+   * of the output if index numbers are not reported. <code>null</code> if fragments
+   * are not kept.
+   */
+  private final String[] fragments;
+
+  /**
+   * Initializes a new <code>OutputFragments</code> for a query on the specified people.
+   *
+   * @param index
+   *        The people whose output is assembled
+   * @param filter
+   *        The settings of the query, giving which data are reported
+   */
+  OutputFragments(PeopleDataList index, SearchFilter filter) {
+    this.index = index;
+    this.filter = filter;
+    int count = index.gradeAndHomeformCount();
+    fragments = count <= MAX_FRAGMENTS ? new String[count] : null;
+  }
+
+  /**
+   * Returns the output for a person found by the query.
+   *
+   * @param person
+   *        A handle to the person, as returned by <code>PeopleDataList.lookup</code>
+   * @return The requested data about the person, formatted for output
+   */
+  String describe(int person) {
+    String fragment;
+    if (fragments == null) {
+      fragment = fragment(index.gradeOf(person), index.homeformOf(person));
+    } else {
+      int code = index.gradeAndHomeformOf(person);
+      fragment = fragments[code];
+      if (fragment == null) {
+        fragment = fragment(index.gradeOf(person), index.homeformOf(person));
+        fragments[code] = fragment;
+      }
+    }
+    if (!filter.reports(SearchFilter.REPORT_INDEX)) {
+      return fragment;
+    }
+    return new StringBuilder(FOUND.length() + AT_INDEX.length() + MAX_DIGITS
+                             + fragment.length())
+        .append(FOUND).append(AT_INDEX).append(index.indexNumOf(person))
+        .append(fragment).toString();
+  }
+
+  /**
+   * Returns the output for a person with the specified index number, grade, and
+   * homeform, reporting the data requested by <code>filter</code>.
+   *
+   * @param foundIndex
+   *        The index number at which the person was found
+   * @param grade
+   *        The grade to which the person belongs
+   * @param homeform
+   *        The person's homeform room designation
+   * @param filter
+   *        The settings of the query, giving which data are reported
+   * @return A string with all requested data, formatted for output
+   */
+  static String describe(int foundIndex, String grade, String homeform, SearchFilter filter) {
+    StringBuilder output = new StringBuilder(FOUND);
+    // Track whether any data have been added, indicating whether a comma is needed
+    // before the next data point.
+    boolean elementWritten = false;
+
+    if (filter.reports(SearchFilter.REPORT_INDEX)) {
+      // Index number information is requested as output: this is always listed first.
+      output.append(AT_INDEX).append(foundIndex);
+      elementWritten = true;
+    }
+    if (filter.reports(SearchFilter.REPORT_GRADE)) {
+      // Grade information is requested in output: this takes second priority.
+      output.append(elementWritten ? ", " : " ").append("in grade ").append(grade);
+      elementWritten = true;
+    }
+    if (filter.reports(SearchFilter.REPORT_HOMEFORM)) {
+      // Homeform information is requested in output: this is always listed last.
+      output.append(elementWritten ? ", " : " ").append("in homeform ").append(homeform);
+    }
+    return output.toString();
+  }
+
+  /**
+   * Returns the output for a person in the specified grade and homeform that follows
+   * their index number, or the whole of it if index numbers are not reported.
+   *
+   * @param grade
+   *        A grade
+   * @param homeform
+   *        A homeform
+   * @return The output following the index number
+   */
+  private String fragment(String grade, String homeform) {
+    String output = describe(0, grade, homeform, filter);
+    if (!filter.reports(SearchFilter.REPORT_INDEX)) {
+      return output;
+    }
+    // Leave out the start of the output up to the end of the index number 0.
+    return output.substring(FOUND.length() + AT_INDEX.length() + 1);
+  }
+}
@@ -0,0 +1,1431 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntFunction;
+
+/**
+ * A storage engine for the people in an index, which keeps each attribute of every
+ * person in its own primitive array rather than keeping a separate object per person.
+ * A person is identified by an ordinal, their position in every column.
+ *
+ * <p>Columns are kept as follows:
+ * <br>Line numbers, as an <code>int</code> column.
+ * <br>Grades, homeforms, and rolls, which repeat across many people, as small integer
+ * ids into a dictionary of each attribute's distinct values. Grades are stored as
+ * <code>byte</code> codes, and homeforms and rolls as <code>short</code> ids.
+ * <br>Names and photo file names, as offsets and lengths into a single shared
+ * <code>char</code> arena. Each person's text is stored as the first name, a space,
+ * the last name, and the photo file name, so that the full name is a single range of
+ * the arena that can be compared without building a <code>String</code>.
+ * <br>A name index, an open-addressing hash table with linear probing. Each person's
+ * full name is hashed to 64 bits when the columns are finished: the low bits of the
+ * hash choose the person's slot, and the high 32 bits are stored in the slot alongside
+ * the person's ordinal. A probe compares a name against the arena only when the stored
+ * bits agree, so no <code>String</code> is built for a person's name to look them up,
+ * and most mismatched slots are passed over without reading any other column.
+ * <br>A roster, the ordinals of every person in display order, as an <code>int</code>
+ * column. See <code>compareForRoster</code>.
+ *
+ * <p>People are added one at a time with <code>add</code>, or a whole set of columns
+ * with <code>addAll</code>, after which <code>finish</code> must be called before the
+ * columns can be searched. Finishing places people in order of line number and, where
+ * two people share the same full name, keeps only the one from the later line, and
+ * the roster is sorted once. After finishing, the columns are not modified again.
+ */
+class PeopleColumns {
+
+  /**
+   * The largest number of distinct grades that can be stored.
+   */
+  private static final int MAX_GRADES = Byte.MAX_VALUE + 1;
+
+  /**
+   * The largest number of distinct homeforms or rolls that can be stored.
+   */
+  private static final int MAX_SHORT_IDS = Short.MAX_VALUE + 1;
+
+  /**
+   * The value stored in place of an id or length for an absent value, such as the roll
+   * of a person recovered from a saved index that did not record rolls.
+   */
+  private static final int ABSENT = -1;
+
+  /**
+   * The initial value of a name hash, from the 64-bit FNV-1a hash.
+   */
+  static final long HASH_BASIS = 0xcbf29ce484222325L;
+
+  /**
+   * The multiplier applied to a name hash for each character, from the 64-bit FNV-1a hash.
+   */
+  static final long HASH_PRIME = 0x100000001b3L;
+
+  /**
+   * The value held by an empty slot of the name table. No slot holding a person is
+   * equal to it, since ordinals are never -1.
+   */
+  private static final long EMPTY = -1L;
+
+  /**
+   * The mask selecting the ordinal from a slot of the name table.
+   */
+  private static final long ORDINAL_MASK = 0xffffffffL;
+
+  /**
+   * A list of the distinct values of one attribute, each identified by its position.
+   */
+  static class Dictionary {
+
+    /**
+     * The distinct values, in order of id.
+     */
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * The id of each distinct value.
+     */
+    private final HashMap<String, Integer> ids = new HashMap<>();
+
+    /**
+     * The largest number of values the dictionary can hold.
+     */
+    private final int capacity;
+
+    /**
+     * Initializes a new, empty <code>Dictionary</code>.
+     *
+     * @param capacity
+     *        The largest number of values the dictionary can hold
+     */
+    Dictionary(int capacity) {
+      this.capacity = capacity;
+    }
+
+    /**
+     * Returns the id of the specified value, adding it to the dictionary if it is not
+     * already present.
+     *
+     * @param value
+     *        The value whose id is returned, or <code>null</code>
+     * @return The value's id, or <code>ABSENT</code> if the value is <code>null</code>
+     * @throws IllegalArgumentException
+     *         If the dictionary is full
+     */
+    int idOf(String value) {
+      if (value == null) {
+        return ABSENT;
+      }
+      Integer id = ids.get(value);
+      if (id == null) {
+        if (values.size() == capacity) {
+          throw new IllegalArgumentException("An index can hold at most " + capacity
+                                             + " distinct values of one attribute");
+        }
+        id = values.size();
+        values.add(value);
+        ids.put(value, id);
+      }
+      return id;
+    }
+
+    /**
+     * Returns the id of the specified value, without adding it to the dictionary.
+     *
+     * @param value
+     *        The value whose id is returned
+     * @return The value's id, or <code>ABSENT</code> if the value is not present
+     */
+    int find(String value) {
+      Integer id = ids.get(value);
+      return id == null ? ABSENT : id;
+    }
+
+    /**
+     * Returns the value with the specified id.
+     *
+     * @param id
+     *        The id of the value, or <code>ABSENT</code>
+     * @return The value, or <code>null</code> if the id is <code>ABSENT</code>
+     */
+    String valueOf(int id) {
+      return id == ABSENT ? null : values.get(id);
+    }
+
+    /**
+     * Returns the number of distinct values in the dictionary.
+     *
+     * @return The dictionary's size
+     */
+    int size() {
+      return values.size();
+    }
+
+    /**
+     * Returns every value in the dictionary, in order of id.
+     *
+     * @return The dictionary's values
+     */
+    List<String> values() {
+      return values;
+    }
+  }
+
+  /**
+   * The number of people stored.
+   */
+  private int size = 0;
+
+  /**
+   * The line number of each person.
+   */
+  private int[] indexNums;
+
+  /**
+   * The grade code of each person.
+   */
+  private byte[] gradeCodes;
+
+  /**
+   * The homeform id of each person.
+   */
+  private short[] homeformIds;
+
+  /**
+   * The roll id of each person.
+   */
+  private short[] rollIds;
+
+  /**
+   * The offset in the arena of each person's text.
+   */
+  private int[] textStarts;
+
+  /**
+   * The length of each person's first name.
+   */
+  private short[] firstLengths;
+
+  /**
+   * The length of each person's last name.
+   */
+  private short[] lastLengths;
+
+  /**
+   * The length of each person's photo file name, or <code>ABSENT</code>.
+   */
+  private short[] photoLengths;
+
+  /**
+   * The text of every person, stored one after another.
+   */
+  private char[] arena;
+
+  /**
+   * The number of characters of the arena in use.
+   */
+  private int arenaLength = 0;
+
+  /**
+   * The distinct grades of the people stored.
+   */
+  private final Dictionary grades = new Dictionary(MAX_GRADES);
+
+  /**
+   * The distinct homeforms of the people stored.
+   */
+  private final Dictionary homeforms = new Dictionary(MAX_SHORT_IDS);
+
+  /**
+   * The distinct rolls of the people stored.
+   */
+  private final Dictionary rolls = new Dictionary(MAX_SHORT_IDS);
+
+  /**
+   * The name index: a hash table of people, placed by the hash of their full name,
+   * whose length is a power of two. Each slot holds the high 32 bits of a person's name
+   * hash above the person's ordinal, or <code>EMPTY</code>. <code>null</code> until the
+   * columns are finished.
+   */
+  private long[] nameTable = null;
+
+  /**
+   * The ordinal of every person, in display order as by <code>compareForRoster</code>.
+   * <code>null</code> until the columns are finished.
+   */
+  private int[] roster = null;
+
+  /**
+   * A finder of the names closest in spelling to a name, built from every person's
+   * name when first needed. <code>null</code> until then.
+   */
+  private volatile NameSuggester suggester = null;
+
+  /**
+   * A precomputed index of the names spelled like a name, built only when requested by
+   * <code>buildCorrections</code>. <code>null</code> until then.
+   */
+  private CorrectionIndex corrections = null;
+
+  /**
+   * A secondary index of people by how their names sound, built only when requested by
+   * <code>buildPhonetics</code>. <code>null</code> until then.
+   */
+  private PhoneticIndex phonetics = null;
+
+  /**
+   * An inverted index of people by the trigrams of their names, built only when
+   * requested by <code>buildTrigrams</code>. <code>null</code> until then.
+   */
+  private TrigramIndex trigrams = null;
+
+  /**
+   * An index of people by the beginnings of their names, built only when requested by
+   * <code>buildPrefixes</code>. <code>null</code> until then.
+   */
+  private PrefixIndex prefixes = null;
+
+  /**
+   * Initializes a new, empty <code>PeopleColumns</code>.
+   */
+  PeopleColumns() {
+    this(64);
+  }
+
+  /**
+   * Initializes a new, empty <code>PeopleColumns</code> with room for the specified
+   * number of people before its columns must grow.
+   *
+   * @param capacity
+   *        The number of people expected
+   */
+  PeopleColumns(int capacity) {
+    capacity = Math.max(capacity, 1);
+    indexNums = new int[capacity];
+    gradeCodes = new byte[capacity];
+    homeformIds = new short[capacity];
+    rollIds = new short[capacity];
+    textStarts = new int[capacity];
+    firstLengths = new short[capacity];
+    lastLengths = new short[capacity];
+    photoLengths = new short[capacity];
+    arena = new char[capacity * 32];
+  }
+
+  /**
+   * Add a person to the columns.
+   *
+   * @param indexNum
+   *        The line number at which the person's information was located
+   * @param grade
+   *        The person's grade, or Staff
+   * @param last
+   *        The person's last name
+   * @param first
+   *        The person's first name, or first initial for staff members
+   * @param homeform
+   *        The person's homeform room, or Staff
+   * @param photoFile
+   *        The name of the file containing the person's photo, or <code>null</code>
+   * @param roll
+   *        The roll on which the person's photo was taken, or <code>null</code>
+   * @throws IllegalArgumentException
+   *         If a name is too long to store, or there are too many distinct grades,
+   *         homeforms, or rolls
+   * @throws IllegalStateException
+   *         If the columns have been finished
+   */
+  void add(int indexNum, String grade, String last, String first, String homeform,
+           String photoFile, String roll) {
+    int photoLength = photoFile == null ? 0 : photoFile.length();
+    int pos = startRow(first.length() + 1 + last.length() + photoLength);
+    indexNums[size] = indexNum;
+    gradeCodes[size] = (byte)grades.idOf(grade);
+    homeformIds[size] = (short)homeforms.idOf(homeform);
+    rollIds[size] = (short)rolls.idOf(roll);
+    firstLengths[size] = checkedLength(first.length());
+    lastLengths[size] = checkedLength(last.length());
+    photoLengths[size] = photoFile == null ? ABSENT : checkedLength(photoLength);
+
+    first.getChars(0, first.length(), arena, pos);
+    pos += first.length();
+    arena[pos++] = ' ';
+    last.getChars(0, last.length(), arena, pos);
+    pos += last.length();
+    if (photoFile != null) {
+      photoFile.getChars(0, photoLength, arena, pos);
+    }
+    size++;
+  }
+
+  /**
+   * Add a copy of one person from another set of columns.
+   *
+   * @param source
+   *        The columns holding the person
+   * @param ordinal
+   *        The person's ordinal in <code>source</code>
+   * @throws IllegalStateException
+   *         If these columns have been finished
+   */
+  void add(PeopleColumns source, int ordinal) {
+    int textLength = source.textLength(ordinal);
+    int pos = startRow(textLength);
+    indexNums[size] = source.indexNums[ordinal];
+    gradeCodes[size] = (byte)grades.idOf(source.grade(ordinal));
+    homeformIds[size] = (short)homeforms.idOf(source.homeform(ordinal));
+    rollIds[size] = (short)rolls.idOf(source.roll(ordinal));
+    firstLengths[size] = source.firstLengths[ordinal];
+    lastLengths[size] = source.lastLengths[ordinal];
+    photoLengths[size] = source.photoLengths[ordinal];
+    System.arraycopy(source.arena, source.textStarts[ordinal], arena, pos, textLength);
+    size++;
+  }
+
+  /**
+   * Add a copy of every person from another set of columns, in order of ordinal. Every
+   * distinct grade, homeform, and roll of the other columns is added to these columns'
+   * dictionaries, in order, even if no person remaining in the other columns has it.
+   *
+   * @param source
+   *        The columns to copy
+   * @throws IllegalStateException
+   *         If these columns have been finished
+   */
+  void addAll(PeopleColumns source) {
+    for (String grade : source.grades.values()) {
+      grades.idOf(grade);
+    }
+    for (String homeform : source.homeforms.values()) {
+      homeforms.idOf(homeform);
+    }
+    for (String roll : source.rolls.values()) {
+      rolls.idOf(roll);
+    }
+    for (int i = 0; i < source.size; i++) {
+      add(source, i);
+    }
+  }
+
+  /**
+   * Make room for one more person whose text has the specified length, and set the
+   * start of the person's text.
+   *
+   * @param textLength
+   *        The length of the person's text
+   * @return The offset in the arena at which to write the person's text
+   * @throws IllegalStateException
+   *         If the columns have been finished
+   */
+  private int startRow(int textLength) {
+    if (nameTable != null) {
+      throw new IllegalStateException("People cannot be added once the columns are finished");
+    }
+    if (size == indexNums.length) {
+      int capacity = size * 2;
+      indexNums = Arrays.copyOf(indexNums, capacity);
+      gradeCodes = Arrays.copyOf(gradeCodes, capacity);
+      homeformIds = Arrays.copyOf(homeformIds, capacity);
+      rollIds = Arrays.copyOf(rollIds, capacity);
+      textStarts = Arrays.copyOf(textStarts, capacity);
+      firstLengths = Arrays.copyOf(firstLengths, capacity);
+      lastLengths = Arrays.copyOf(lastLengths, capacity);
+      photoLengths = Arrays.copyOf(photoLengths, capacity);
+    }
+    if (arenaLength + textLength > arena.length) {
+      arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaLength + textLength));
+    }
+    int start = arenaLength;
+    textStarts[size] = start;
+    arenaLength += textLength;
+    return start;
+  }
+
+  /**
+   * Returns the specified length of a name, checking that it can be stored.
+   *
+   * @param length
+   *        The length of a name
+   * @return The same length, as a <code>short</code>
+   * @throws IllegalArgumentException
+   *         If the length is too great to be stored
+   */
+  private static short checkedLength(int length) {
+    if (length > Short.MAX_VALUE) {
+      throw new IllegalArgumentException("Names in an index can be at most "
+                                         + Short.MAX_VALUE + " characters long");
+    }
+    return (short)length;
+  }
+
+  /**
+   * Finish adding people, so that the columns can be searched. People are placed in
+   * order of line number, and where two people share the same full name, only the one
+   * read from the later line is kept. Unused space in the columns is released.
+   *
+   * @return These columns
+   */
+  PeopleColumns finish() {
+    if (nameTable != null) {
+      return this;
+    }
+
+    long[] hashes = new long[size];
+    for (int i = 0; i < size; i++) {
+      hashes[i] = hashName(i);
+    }
+
+    // Place every person in a table by name, keeping the one from the latest line
+    // wherever two people share a name.
+    long[] latestByName = newNameTable(size);
+    int keptCount = 0;
+    for (int i = 0; i < size; i++) {
+      int slot = slotFor(latestByName, i, hashes[i]);
+      if (latestByName[slot] == EMPTY) {
+        latestByName[slot] = entry(hashes[i], i);
+        keptCount++;
+      } else if (indexNums[i] > indexNums[ordinalOf(latestByName[slot])]) {
+        latestByName[slot] = entry(hashes[i], i);
+      }
+    }
+
+    int[] byLine = new int[keptCount];
+    int pos = 0;
+    for (long entry : latestByName) {
+      if (entry != EMPTY) {
+        byLine[pos++] = ordinalOf(entry);
+      }
+    }
+    sort(byLine, (a, b) -> Integer.compare(indexNums[a], indexNums[b]));
+    rearrange(byLine);
+
+    long[] table = newNameTable(size);
+    for (int i = 0; i < size; i++) {
+      long hash = hashes[byLine[i]];
+      table[slotFor(table, i, hash)] = entry(hash, i);
+    }
+    nameTable = table;
+    roster = sortRoster();
+    return this;
+  }
+
+  /**
+   * Returns the ordinal of every person, sorted into display order as by
+   * <code>compareForRoster</code>. Grades are ranked once, so that people are compared
+   * by grade without comparing strings.
+   *
+   * @return The sorted ordinals
+   */
+  private int[] sortRoster() {
+    List<String> gradeValues = grades.values();
+    int[] gradeOrder = new int[gradeValues.size()];
+    for (int i = 0; i < gradeOrder.length; i++) {
+      gradeOrder[i] = i;
+    }
+    sort(gradeOrder, (a, b) -> gradeValues.get(a).compareTo(gradeValues.get(b)));
+    int[] gradeRanks = new int[gradeOrder.length];
+    for (int rank = 0; rank < gradeOrder.length; rank++) {
+      gradeRanks[gradeOrder[rank]] = rank;
+    }
+
+    int[] ordinals = new int[size];
+    for (int i = 0; i < size; i++) {
+      ordinals[i] = i;
+    }
+    sort(ordinals, (a, b) -> compareForRoster(gradeRanks, a, b));
+    return ordinals;
+  }
+
+  /**
+   * Compare two people for display.
+   * 
+   * <p>Comparisons are made in the following way: relative size is determined
+   * primarily by grade, next by last name should the two people have the same
+   * grade, next by first name should the people have the same grade and last
+   * name, and finally index number should the people share all of the above.
+   * <br>Grade, first name, and last name are all strings, and their relative
+   * sizes are determined by their lexicographic ordering. Index numbers are
+   * integers, and their ordering is determined by their magnitude. In all cases,
+   * if one person is found to have a larger value to the attribute being compared,
+   * they are considered to be the larger person.
+   * 
+   * <p>A person without a grade comes before every person with one.
+   *
+   * @param gradeRanks
+   *        The position of each grade code in the lexicographic ordering of grades
+   * @param a
+   *        The ordinal of the first person
+   * @param b
+   *        The ordinal of the second person
+   * @return A negative number, zero, or a positive number as the first person is
+   *         less than, equal to, or greater than the second
+   */
+  private int compareForRoster(int[] gradeRanks, int a, int b) {
+    int gradeCompare = gradeRank(gradeRanks, a) - gradeRank(gradeRanks, b);
+    if (gradeCompare != 0) {
+      // Grades are different, so grade is the determining factor.
+      return gradeCompare;
+    }
+    int lastNameCompare = compareLastNames(a, b);
+    if (lastNameCompare != 0) {
+      // Last names are the determining factor, since grades are the same.
+      return lastNameCompare;
+    }
+    int firstNameCompare = compareFirstNames(a, b);
+    if (firstNameCompare != 0) {
+      // First names are the determining factor, since grades and last names
+      // are the same.
+      return firstNameCompare;
+    }
+    // Grades, first and last names are the same, so index is used as
+    // determining factor.
+    return indexNums[a] - indexNums[b];
+  }
+
+  /**
+   * Returns the position of a person's grade in the lexicographic ordering of grades.
+   *
+   * @param gradeRanks
+   *        The position of each grade code in the lexicographic ordering of grades
+   * @param ordinal
+   *        The ordinal of the person
+   * @return The rank of the person's grade, or -1 if the person has no grade
+   */
+  private int gradeRank(int[] gradeRanks, int ordinal) {
+    int code = gradeCodes[ordinal];
+    return code == ABSENT ? -1 : gradeRanks[code];
+  }
+
+  /**
+   * Returns a new, empty name table with room for the specified number of people. The
+   * table is between one third and two thirds full once they are all placed.
+   *
+   * @param count
+   *        The number of people to be placed in the table
+   * @return An empty name table
+   */
+  private static long[] newNameTable(int count) {
+    long[] table = new long[Integer.highestOneBit(Math.max(count * 3 / 2, 1)) * 2];
+    Arrays.fill(table, EMPTY);
+    return table;
+  }
+
+  /**
+   * Returns the name table entry for a person.
+   *
+   * @param hash
+   *        The hash of the person's full name
+   * @param ordinal
+   *        The person's ordinal
+   * @return The high 32 bits of the hash above the ordinal
+   */
+  private static long entry(long hash, int ordinal) {
+    return (hash & ~ORDINAL_MASK) | ordinal;
+  }
+
+  /**
+   * Returns the ordinal of the person in a name table entry.
+   *
+   * @param entry
+   *        A non-empty name table entry
+   * @return The person's ordinal
+   */
+  private static int ordinalOf(long entry) {
+    return (int)(entry & ORDINAL_MASK);
+  }
+
+  /**
+   * Returns the slot of a name table at which a person belongs: either the slot holding
+   * a person with the same full name, or the empty slot at which the person would be
+   * placed.
+   *
+   * @param table
+   *        A name table
+   * @param ordinal
+   *        The person's ordinal
+   * @param hash
+   *        The hash of the person's full name
+   * @return The person's slot in the table
+   */
+  private int slotFor(long[] table, int ordinal, long hash) {
+    int mask = table.length - 1;
+    int slot = (int)hash & mask;
+    for (long held = table[slot]; held != EMPTY; held = table[slot]) {
+      if ((held & ~ORDINAL_MASK) == (hash & ~ORDINAL_MASK) && sameName(ordinalOf(held), ordinal)) {
+        break;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /**
+   * Rebuild every column to hold only the specified people, in the specified order,
+   * with no unused space.
+   *
+   * @param ordinals
+   *        The ordinals of the people to keep, in their new order
+   */
+  private void rearrange(int[] ordinals) {
+    int count = ordinals.length;
+    int[] newIndexNums = new int[count];
+    byte[] newGradeCodes = new byte[count];
+    short[] newHomeformIds = new short[count];
+    short[] newRollIds = new short[count];
+    int[] newTextStarts = new int[count];
+    short[] newFirstLengths = new short[count];
+    short[] newLastLengths = new short[count];
+    short[] newPhotoLengths = new short[count];
+    int newArenaLength = 0;
+    for (int ordinal : ordinals) {
+      newArenaLength += textLength(ordinal);
+    }
+    char[] newArena = new char[newArenaLength];
+
+    int textPos = 0;
+    for (int i = 0; i < count; i++) {
+      int old = ordinals[i];
+      newIndexNums[i] = indexNums[old];
+      newGradeCodes[i] = gradeCodes[old];
+      newHomeformIds[i] = homeformIds[old];
+      newRollIds[i] = rollIds[old];
+      newFirstLengths[i] = firstLengths[old];
+      newLastLengths[i] = lastLengths[old];
+      newPhotoLengths[i] = photoLengths[old];
+      newTextStarts[i] = textPos;
+      int length = textLength(old);
+      System.arraycopy(arena, textStarts[old], newArena, textPos, length);
+      textPos += length;
+    }
+
+    size = count;
+    indexNums = newIndexNums;
+    gradeCodes = newGradeCodes;
+    homeformIds = newHomeformIds;
+    rollIds = newRollIds;
+    textStarts = newTextStarts;
+    firstLengths = newFirstLengths;
+    lastLengths = newLastLengths;
+    photoLengths = newPhotoLengths;
+    arena = newArena;
+    arenaLength = newArenaLength;
+  }
+
+  /**
+   * Sort an array of ordinals with a stable merge sort, using the specified comparison.
+   *
+   * @param ordinals
+   *        The ordinals to sort
+   * @param compare
+   *        A comparison of two ordinals, returning a negative number, zero, or a positive
+   *        number as the first is less than, equal to, or greater than the second
+   */
+  static void sort(int[] ordinals, IntBinaryOperator compare) {
+    int[] buffer = new int[ordinals.length];
+    for (int width = 1; width < ordinals.length; width *= 2) {
+      for (int low = 0; low < ordinals.length - width; low += 2 * width) {
+        int middle = low + width;
+        int high = Math.min(low + 2 * width, ordinals.length);
+        if (compare.applyAsInt(ordinals[middle - 1], ordinals[middle]) <= 0) {
+          // The two runs are already in order.
+          continue;
+        }
+        System.arraycopy(ordinals, low, buffer, low, high - low);
+        int left = low;
+        int right = middle;
+        for (int i = low; i < high; i++) {
+          if (right >= high
+              || (left < middle && compare.applyAsInt(buffer[left], buffer[right]) <= 0)) {
+            ordinals[i] = buffer[left++];
+          } else {
+            ordinals[i] = buffer[right++];
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the number of characters of text stored for a person.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @return The length of the person's text
+   */
+  private int textLength(int ordinal) {
+    return nameLength(ordinal) + Math.max(photoLengths[ordinal], 0);
+  }
+
+  /**
+   * Returns the length of a person's full name.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @return The length of the person's full name
+   */
+  int nameLength(int ordinal) {
+    return firstLengths[ordinal] + 1 + lastLengths[ordinal];
+  }
+
+  /**
+   * Returns a character of a person's full name in lower case, read from the arena, so
+   * that the secondary indices can compare names without regard to case without
+   * holding a lower case copy of every name. The columns must be finished.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @param position
+   *        The position of the character in the person's full name
+   * @return The character, as by <code>Character.toLowerCase</code>
+   */
+  char lowerNameChar(int ordinal, int position) {
+    return toLower(arena[textStarts[ordinal] + position]);
+  }
+
+  /**
+   * Returns the position of the first match of some text in a person's full name, in
+   * lower case, at or after the specified position, as by <code>String.indexOf</code>.
+   * The columns must be finished.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @param text
+   *        The text to find, in lower case as by <code>lowerCase</code>
+   * @param from
+   *        The position in the name to search from
+   * @return The position of the match, or -1 if there is none
+   */
+  int lowerNameIndexOf(int ordinal, String text, int from) {
+    int start = textStarts[ordinal];
+    int length = text.length();
+    if (length == 0) {
+      return Math.min(Math.max(from, 0), nameLength(ordinal));
+    }
+    char first = text.charAt(0);
+    for (int i = start + Math.max(from, 0), last = start + nameLength(ordinal) - length;
+         i <= last; i++) {
+      if (toLower(arena[i]) != first) {
+        continue;
+      }
+      int c = 1;
+      while (c < length && toLower(arena[i + c]) == text.charAt(c)) {
+        c++;
+      }
+      if (c == length) {
+        return i - start;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns text in lower case one character at a time, as the characters of names are
+   * returned by <code>lowerNameChar</code>, to be compared with them.
+   *
+   * @param text
+   *        The text, such as a query
+   * @return The text in lower case, of the same length
+   */
+  static String lowerCase(String text) {
+    char[] chars = text.toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = toLower(chars[i]);
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Returns a character in lower case, as by <code>Character.toLowerCase</code>, without
+   * looking up the letters A to Z, which make up most names.
+   *
+   * @param c
+   *        The character
+   * @return The character in lower case
+   */
+  private static char toLower(char c) {
+    if (c < 0x80) {
+      return c >= 'A' && c <= 'Z' ? (char)(c + ('a' - 'A')) : c;
+    }
+    return Character.toLowerCase(c);
+  }
+
+  /**
+   * Returns <code>true</code> if two people have the same full name.
+   *
+   * @param a
+   *        The ordinal of the first person
+   * @param b
+   *        The ordinal of the second person
+   * @return <code>true</code> if the two names are equal
+   */
+  private boolean sameName(int a, int b) {
+    return compareText(arena, textStarts[a], nameLength(a), textStarts[b], nameLength(b)) == 0;
+  }
+
+  /**
+   * Compare two ranges of an array of characters lexicographically, as by
+   * <code>String.compareTo</code>.
+   *
+   * @param chars
+   *        The array holding both ranges
+   * @param startA
+   *        The start of the first range
+   * @param lengthA
+   *        The length of the first range
+   * @param startB
+   *        The start of the second range
+   * @param lengthB
+   *        The length of the second range
+   * @return A negative number, zero, or a positive number as the first range is less
+   *         than, equal to, or greater than the second
+   */
+  private static int compareText(char[] chars, int startA, int lengthA, int startB, int lengthB) {
+    int common = Math.min(lengthA, lengthB);
+    for (int i = 0; i < common; i++) {
+      char a = chars[startA + i];
+      char b = chars[startB + i];
+      if (a != b) {
+        return a - b;
+      }
+    }
+    return lengthA - lengthB;
+  }
+
+  /**
+   * Returns the 64-bit hash of a full name, as stored in the name table.
+   *
+   * @param name
+   *        The full name to hash
+   * @return The name's hash
+   */
+  private static long hashName(String name) {
+    long hash = HASH_BASIS;
+    for (int i = 0; i < name.length(); i++) {
+      hash = (hash ^ name.charAt(i)) * HASH_PRIME;
+    }
+    return mix(hash);
+  }
+
+  /**
+   * Returns the 64-bit hash of a person's full name, read from the arena. Equal to
+   * <code>hashName(name(ordinal))</code>.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @return The hash of the person's name
+   */
+  private long hashName(int ordinal) {
+    long hash = HASH_BASIS;
+    for (int i = textStarts[ordinal], end = i + nameLength(ordinal); i < end; i++) {
+      hash = (hash ^ arena[i]) * HASH_PRIME;
+    }
+    return mix(hash);
+  }
+
+  /**
+   * Spread the bits of a hash, so that its lowest bits depend on every character hashed
+   * and can be used directly to choose a slot.
+   *
+   * @param hash
+   *        An FNV-1a hash
+   * @return The mixed hash
+   */
+  static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    return hash ^ (hash >>> 33);
+  }
+
+  /**
+   * Returns <code>true</code> if a name is equal to the full name of a person.
+   *
+   * @param name
+   *        The name to compare
+   * @param ordinal
+   *        The person's ordinal
+   * @return <code>true</code> if the name is the person's full name
+   */
+  private boolean nameEquals(String name, int ordinal) {
+    int length = nameLength(ordinal);
+    if (name.length() != length) {
+      return false;
+    }
+    int start = textStarts[ordinal];
+    for (int i = 0; i < length; i++) {
+      if (name.charAt(i) != arena[start + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the ordinal of the person with the specified full name, or -1 if no
+   * person has that name. The columns must be finished.
+   *
+   * @param name
+   *        The full name of the person, as the first name, a space, and the last name
+   * @return The person's ordinal, or -1 if the name was not found
+   */
+  int find(String name) {
+    long hash = hashName(name);
+    long tag = hash & ~ORDINAL_MASK;
+    long[] table = nameTable;
+    int mask = table.length - 1;
+    int slot = (int)hash & mask;
+    for (long entry = table[slot]; entry != EMPTY; entry = table[slot]) {
+      if ((entry & ~ORDINAL_MASK) == tag && nameEquals(name, ordinalOf(entry))) {
+        return ordinalOf(entry);
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the number of people stored.
+   *
+   * @return The number of people
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the ordinal of the person at the specified position in display order. The
+   * columns must be finished.
+   *
+   * @param position
+   *        A position in display order, from 0 to <code>size() - 1</code>
+   * @return The ordinal of the person at that position
+   */
+  int rosterOrdinal(int position) {
+    return roster[position];
+  }
+
+  /**
+   * Returns a finder of the names of the people stored that are closest in spelling to
+   * a name, building it the first time it is needed. The columns must be finished.
+   *
+   * @return The finder of names
+   */
+  NameSuggester suggester() {
+    NameSuggester built = suggester;
+    if (built == null) {
+      synchronized (this) {
+        built = suggester;
+        if (built == null) {
+          String[] names = new String[size];
+          for (int i = 0; i < size; i++) {
+            names[i] = name(i);
+          }
+          built = new NameSuggester(names);
+          suggester = built;
+        }
+      }
+    }
+    return built;
+  }
+
+  /**
+   * Build a precomputed index of the names spelled like a name, under the specified
+   * memory budget, to be searched in place of the finder of names returned by
+   * <code>suggester</code> wherever it can. The columns must be finished.
+   *
+   * @param budget
+   *        The greatest number of bytes the index may use
+   * @return The index, which holds no names if it did not fit in the budget
+   */
+  CorrectionIndex buildCorrections(long budget) {
+    corrections = new CorrectionIndex(column(this::first), column(this::last),
+                                      column(this::name), budget);
+    return corrections;
+  }
+
+  /**
+   * Build a secondary index of people by how their first and last names sound, to be
+   * searched for names that sound like a misspelled name. The columns must be finished.
+   *
+   * @return The index
+   */
+  PhoneticIndex buildPhonetics() {
+    phonetics = new PhoneticIndex(this);
+    return phonetics;
+  }
+
+  /**
+   * Build an inverted index of people by the trigrams of their names, to be searched
+   * for the people whose names contain parts of a name. The columns must be finished.
+   *
+   * @return The index
+   */
+  TrigramIndex buildTrigrams() {
+    trigrams = new TrigramIndex(this, roster);
+    return trigrams;
+  }
+
+  /**
+   * Returns the ordinals of the people whose names contain every fragment of a query,
+   * best match first, as by <code>TrigramIndex.search</code>. The trigram index must
+   * have been built.
+   *
+   * @param query
+   *        The fragments of a name to search for
+   * @return The ordinals of every person matching the query
+   */
+  int[] searchPartial(String query) {
+    return trigrams.search(query);
+  }
+
+  /**
+   * Build an index of people by the beginnings of their names, to be searched for the
+   * names that complete a partly typed name. The columns must be finished.
+   *
+   * @return The index
+   */
+  PrefixIndex buildPrefixes() {
+    prefixes = new PrefixIndex(this);
+    return prefixes;
+  }
+
+  /**
+   * Returns the ordinals of the people whose names, or a later word of whose names,
+   * start with the specified text, as by <code>PrefixIndex.complete</code>. The prefix
+   * index must have been built.
+   *
+   * @param prefix
+   *        The start of a name
+   * @param limit
+   *        The greatest number of people returned
+   * @return The ordinals of up to <code>limit</code> people
+   */
+  int[] complete(String prefix, int limit) {
+    return prefixes.complete(prefix, limit);
+  }
+
+  /**
+   * Returns a value read for every person, by ordinal.
+   *
+   * @param value
+   *        The function reading the value for a person's ordinal
+   * @return The value for every person
+   */
+  private String[] column(IntFunction<String> value) {
+    String[] values = new String[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = value.apply(i);
+    }
+    return values;
+  }
+
+  /**
+   * Returns the precomputed index of the names spelled like a name, or
+   * <code>null</code> if none has been built.
+   *
+   * @return The index, or <code>null</code>
+   */
+  CorrectionIndex corrections() {
+    return corrections;
+  }
+
+  /**
+   * Returns the names of the people stored that are closest in spelling to a name, as
+   * by <code>NameSuggester.suggest</code>. The precomputed index is searched if it was
+   * built and covers the name and distance requested, and the finder of names
+   * otherwise. The columns must be finished.
+   *
+   * <p>If the phonetic index was built, the names that sound like the name are
+   * suggested first, however far they are from it in spelling, closest in spelling
+   * first, followed by the other names closest in spelling.
+   *
+   * @param name
+   *        The name to find suggestions for
+   * @param maxDistance
+   *        The greatest distance of a name suggested
+   * @param limit
+   *        The greatest number of names suggested
+   * @return Up to <code>limit</code> names within <code>maxDistance</code> of the name
+   */
+  List<String> suggest(String name, int maxDistance, int limit) {
+    CorrectionIndex index = corrections;
+    List<String> bySpelling = index != null && index.covers(name, maxDistance)
+                              ? index.suggest(name, maxDistance, limit)
+                              : suggester().suggest(name, maxDistance, limit);
+    PhoneticIndex sounds = phonetics;
+    if (sounds == null || limit <= 0) {
+      return bySpelling;
+    }
+    List<String> bySound = sounds.soundAlikes(name);
+    if (bySound.isEmpty()) {
+      return bySpelling;
+    }
+
+    String key = name.toLowerCase(Locale.ROOT);
+    Map<String, Integer> distances = new HashMap<>();
+    for (String alike : bySound) {
+      distances.put(alike, NameSuggester.distance(key, alike.toLowerCase(Locale.ROOT)));
+    }
+    bySound.sort((a, b) -> !distances.get(a).equals(distances.get(b))
+                           ? distances.get(a) - distances.get(b) : a.compareTo(b));
+    Set<String> suggestions = new LinkedHashSet<>();
+    for (List<String> names : Arrays.asList(bySound, bySpelling)) {
+      for (int i = 0; i < names.size() && suggestions.size() < limit; i++) {
+        suggestions.add(names.get(i));
+      }
+    }
+    return new ArrayList<>(suggestions);
+  }
+
+  /**
+   * Returns a person's line number.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @return The line number at which the person's information was located
+   */
+  int indexNum(int ordinal) {
+    return indexNums[ordinal];
+  }
+
+  /**
+   * Returns a person's grade.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @return The person's grade, or Staff
+   */
+  String grade(int ordinal) {
+    return grades.valueOf(gradeCodes[ordinal]);
+  }
+
+  /**
+   * Returns a person's homeform.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @return The person's homeform, or Staff
+   */
+  String homeform(int ordinal) {
+    return homeforms.valueOf(homeformIds[ordinal]);
+  }
+
+  /**
+   * Returns the dictionary id of a person's grade.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @return The id of the person's grade, as returned by <code>gradeCode(String)</code>
+   */
+  int gradeCode(int ordinal) {
+    return gradeCodes[ordinal];
+  }
+
+  /**
+   * Returns the dictionary id of a person's homeform.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @return The id of the person's homeform, as returned by <code>homeformCode(String)</code>
+   */
+  int homeformCode(int ordinal) {
+    return homeformIds[ordinal];
+  }
+
+  /**
+   * Returns a code shared by every person with the same grade and homeform, and by no
+   * one else.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @return The code of the person's grade and homeform, from 0 up to
+   *         <code>gradeAndHomeformCount()</code>
+   */
+  int gradeAndHomeform(int ordinal) {
+    return (gradeCodes[ordinal] + 1) * (homeforms.size() + 1) + homeformIds[ordinal] + 1;
+  }
+
+  /**
+   * Returns the number of codes returned by <code>gradeAndHomeform</code>, counting
+   * every pair of grade and homeform stored, whether or not anyone has that pair.
+   *
+   * @return The number of codes of grades and homeforms
+   */
+  int gradeAndHomeformCount() {
+    return (grades.size() + 1) * (homeforms.size() + 1);
+  }
+
+  /**
+   * Returns the dictionary id of the specified grade, or -1 if no person added to the
+   * columns is in that grade. Ids are small non-negative integers, less than 128.
+   *
+   * @param grade
+   *        A grade
+   * @return The grade's id
+   */
+  int gradeCode(String grade) {
+    return grades.find(grade);
+  }
+
+  /**
+   * Returns the dictionary id of the specified homeform, or -1 if no person added to the
+   * columns is in that homeform. Ids are small non-negative integers.
+   *
+   * @param homeform
+   *        A homeform
+   * @return The homeform's id
+   */
+  int homeformCode(String homeform) {
+    return homeforms.find(homeform);
+  }
+
+  /**
+   * Returns a person's roll.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @return The person's roll, or <code>null</code> if it was not recorded
+   */
+  String roll(int ordinal) {
+    return rolls.valueOf(rollIds[ordinal]);
+  }
+
+  /**
+   * Returns a person's full name.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @return The person's first name, a space, and the person's last name
+   */
+  String name(int ordinal) {
+    return new String(arena, textStarts[ordinal], nameLength(ordinal));
+  }
+
+  /**
+   * Returns a person's first name.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @return The person's first name
+   */
+  String first(int ordinal) {
+    return new String(arena, textStarts[ordinal], firstLengths[ordinal]);
+  }
+
+  /**
+   * Returns a person's last name.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @return The person's last name
+   */
+  String last(int ordinal) {
+    return new String(arena, textStarts[ordinal] + firstLengths[ordinal] + 1,
+                      lastLengths[ordinal]);
+  }
+
+  /**
+   * Returns the name of a person's photo file.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @return The person's photo file name, or <code>null</code> if it was not recorded
+   */
+  String photoFile(int ordinal) {
+    if (photoLengths[ordinal] == ABSENT) {
+      return null;
+    }
+    return new String(arena, textStarts[ordinal] + nameLength(ordinal), photoLengths[ordinal]);
+  }
+
+  /**
+   * Compare the last names of two people, as by <code>String.compareTo</code>.
+   *
+   * @param a
+   *        The ordinal of the first person
+   * @param b
+   *        The ordinal of the second person
+   * @return A negative number, zero, or a positive number as the first person's last
+   *         name is less than, equal to, or greater than the second's
+   */
+  int compareLastNames(int a, int b) {
+    return compareText(arena, textStarts[a] + firstLengths[a] + 1, lastLengths[a],
+                       textStarts[b] + firstLengths[b] + 1, lastLengths[b]);
+  }
+
+  /**
+   * Compare the first names of two people, as by <code>String.compareTo</code>.
+   *
+   * @param a
+   *        The ordinal of the first person
+   * @param b
+   *        The ordinal of the second person
+   * @return A negative number, zero, or a positive number as the first person's first
+   *         name is less than, equal to, or greater than the second's
+   */
+  int compareFirstNames(int a, int b) {
+    return compareText(arena, textStarts[a], firstLengths[a], textStarts[b], firstLengths[b]);
+  }
+
+  /**
+   * Returns <code>true</code> if a person in these columns has exactly the same grade,
+   * homeform, roll, names, and photo file as a person in other columns. Line numbers are
+   * not compared, so a person whose line only moved within the index file has the same
+   * data.
+   *
+   * @param ordinal
+   *        The ordinal of the person in these columns
+   * @param other
+   *        The columns holding the other person
+   * @param otherOrdinal
+   *        The ordinal of the other person
+   * @return <code>true</code> if the two people's data are identical
+   */
+  boolean sameData(int ordinal, PeopleColumns other, int otherOrdinal) {
+    if (firstLengths[ordinal] != other.firstLengths[otherOrdinal]
+        || lastLengths[ordinal] != other.lastLengths[otherOrdinal]
+        || photoLengths[ordinal] != other.photoLengths[otherOrdinal]
+        || !Objects.equals(grade(ordinal), other.grade(otherOrdinal))
+        || !Objects.equals(homeform(ordinal), other.homeform(otherOrdinal))
+        || !Objects.equals(roll(ordinal), other.roll(otherOrdinal))) {
+      return false;
+    }
+    int start = textStarts[ordinal];
+    int otherStart = other.textStarts[otherOrdinal];
+    for (int i = textLength(ordinal) - 1; i >= 0; i--) {
+      if (arena[start + i] != other.arena[otherStart + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the distinct homeforms of the people added to these columns, including
+   * those of people later dropped for sharing a name with a person on a later line.
+   *
+   * @return Every distinct homeform, in the order first added
+   */
+  List<String> homeformValues() {
+    return homeforms.values();
+  }
+
+  /**
+   * Returns an estimate of the number of bytes of memory used by the columns, not
+   * counting the dictionaries' shared values.
+   *
+   * @return The approximate size of the columns in bytes
+   */
+  long columnBytes() {
+    long perPerson = 4 + 1 + 2 + 2 + 4 + 2 + 2 + 2 + 4;
+    return perPerson * indexNums.length + 2L * arena.length
+           + (nameTable == null ? 0 : 8L * nameTable.length);
+  }
+}
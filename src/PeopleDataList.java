@@ -1,11 +1,22 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
 
 /**
  * A digital structure that stores the entire contents of an input file, interpreted
@@ -18,6 +29,9 @@ import java.util.TreeSet;
  * recognized in the index are interpreted as spelling errors. Note that names used in
  * mugs pages may disagree with names from the index file; what is interpreted as a
  * spelling error may be a difference in naming conventions on a person.
+ * 
+ * <p>People are held in a <code>PeopleColumns</code>, one primitive column per attribute,
+ * rather than as one object per person.
  */
 public class PeopleDataList implements Serializable {
 
@@ -26,6 +40,42 @@ public class PeopleDataList implements Serializable {
    */
   private static final long serialVersionUID = 3098066693138104289L;
 
+  /**
+   * The character set used to decode index files. Matches the decoding used when an
+   * index file is read into a <code>String</code> by <code>FileOperator</code>.
+   */
+  private static final Charset INDEX_CHARSET = Charset.defaultCharset();
+
+  /**
+   * The number of sections into which an input file is cut for each thread, when it is
+   * loaded in parallel. Using several sections per thread evens out the work when some
+   * sections take longer than others.
+   */
+  private static final int SECTIONS_PER_THREAD = 4;
+
+  /**
+   * The smallest section of an input file, in bytes, worth parsing as a separate task.
+   */
+  private static final int MIN_SECTION_SIZE = 256 * 1024;
+
+  /**
+   * The number of string columns written for each person in a snapshot: grade, last name,
+   * first name, homeform, photo file, and roll, in that order.
+   */
+  private static final int SNAPSHOT_COLUMNS = 6;
+
+  /**
+   * The smallest number of people in an index for which a precomputed index of
+   * misspellings is built when the index is loaded, and the greatest number of bytes
+   * it may use. See <code>CorrectionIndex</code>.
+   */
+  /* Modify these numbers to change which indices are given a precomputed index of
+     misspellings, which makes suggestions for misspelled names faster on very large
+     indices at the cost of memory and loading time. Set CORRECTION_BUDGET to 0 to
+     never build one. */
+  private static final int CORRECTION_MIN_PEOPLE = 5000;
+  private static final long CORRECTION_BUDGET = 128L * 1024 * 1024;
+
   /**
    * A representation of a student or staff member from a school. Information about a
    * <code>Person</code> is extracted from an input file, and <code>Person</code>
@@ -37,8 +87,12 @@ public class PeopleDataList implements Serializable {
    * and <code>homeform</code> attributes set to Staff, and their first name(s)
    * will be left as initials.
    * <br>Aside from these points, staff and students are not differentiated.
+   * 
+   * <p>People are no longer stored as <code>Person</code> objects. The class is kept
+   * only as the serialized form of a <code>PeopleDataList</code>, so that indices saved
+   * by serialization can still be read.
    */
-  private class Person implements Serializable {
+  private static class Person implements Serializable {
 
     /**
      * The identifier used to serialize instances of class <code>Person</code>.
@@ -75,141 +129,209 @@ public class PeopleDataList implements Serializable {
      * The last name of this <code>Person</code>.
      */
     private String last;
+
+    /**
+     * The name of the file containing this <code>Person</code>'s photo.
+     */
+    private String photoFile;
+
+    /**
+     * The roll of film or photo session on which this <code>Person</code>'s photo was
+     * taken.
+     */
+    private String roll;
     
     /**
-     * Initializes a new <code>Person</code> instance based on an index file input line.
+     * Initializes a new <code>Person</code> instance from the values of an index file
+     * input line.
      * 
-     * <p>Input data must contain at least 7 tab-separated values, where the 4th value is the
-     * person's grade, the 5th value is the person's last name, the 6th value is the
-     * person's first name, and the 7th value is the person's homeform room (or Staff).
-     * <br>Any other value in the line can be any length and content.
-     * <br>There can be leading or trailing tabs.
-     * 
-     * @param rawData
-     *        The input file line this <code>Person</code> is constructed from.
      * @param ind
-     *        The line number at which the above information was located.
+     *        The line number at which the person's information was located.
+     * @param grade
+     *        The person's grade, or Staff
+     * @param last
+     *        The person's last name
+     * @param first
+     *        The person's first name, or first initial for staff members
+     * @param homeform
+     *        The person's homeform room, or Staff
+     * @param photoFile
+     *        The name of the file containing the person's photo
+     * @param roll
+     *        The roll on which the person's photo was taken
      */
-    private Person(String rawData, int ind) {
+    private Person(int ind, String grade, String last, String first, String homeform,
+                   String photoFile, String roll) {
       indexNum = ind;
-      // Separate datapoints around tab separators.
-      String[] data = rawData.split("\\t+");
-      first = data[5];
-      last  = data[4];
-      grade = data[3];
-      homeform = data[6];
+      this.grade = grade;
+      this.last = last;
+      this.first = first;
+      this.homeform = homeform;
+      this.photoFile = photoFile;
+      this.roll = roll;
+    }
+  }
+
+  /**
+   * A task that performs some work for each of a range of sections of an input file,
+   * splitting the range in half until each task is responsible for a single section.
+   */
+  private static class SectionAction extends RecursiveAction {
+
+    /**
+     * The identifier used to serialize instances of class <code>SectionAction</code>.
+     */
+    private static final long serialVersionUID = -2970785427017153441L;
+
+    /**
+     * The first section this task is responsible for.
+     */
+    private final int from;
+
+    /**
+     * One past the last section this task is responsible for.
+     */
+    private final int to;
+
+    /**
+     * The work to perform for each section, given the section's position.
+     */
+    private final IntConsumer work;
+
+    /**
+     * Initializes a new <code>SectionAction</code> for the specified range of sections.
+     * 
+     * @param from
+     *        The first section in the range
+     * @param to
+     *        One past the last section in the range
+     * @param work
+     *        The work to perform for each section
+     */
+    private SectionAction(int from, int to, IntConsumer work) {
+      this.from = from;
+      this.to = to;
+      this.work = work;
     }
 
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        work.accept(from);
+      } else {
+        int middle = (from + to) >>> 1;
+        invokeAll(new SectionAction(from, middle, work), new SectionAction(middle, to, work));
+      }
+    }
+  }
+
+  /**
+   * The differences between the people held in two versions of an index, as found by
+   * <code>diff</code>. People are identified by full name, so a person whose name is
+   * corrected in the index file is both removed and added, and a person whose data are
+   * unchanged but whose line number differs, such as after a line is inserted above
+   * theirs, is moved rather than changed.
+   */
+  public static class Changes {
+
+    /**
+     * The full names of people present only in the newer version.
+     */
+    private final List<String> added = new ArrayList<>();
+
+    /**
+     * The full names of people present only in the older version.
+     */
+    private final List<String> removed = new ArrayList<>();
+
+    /**
+     * The full names of people present in both versions, whose data differ.
+     */
+    private final List<String> changed = new ArrayList<>();
+
+    /**
+     * The full names of people present in both versions with the same data, whose line
+     * numbers differ.
+     */
+    private final List<String> moved = new ArrayList<>();
+
     /**
-     * Returns the index location for the original input data this <code>Person</code>
-     * was generated from.
-     * <br>Can be interpreted as the line in the relevant input file where the person's
-     * full data is located.
+     * Returns the full names of people present only in the newer version.
      * 
-     * @return The initial line number of this <code>Person</code>.
+     * @return The names of people added
      */
-    private int getIndexNum() {
-      return indexNum;
+    public List<String> getAdded() {
+      return added;
     }
 
     /**
-     * Returns the <code>Person</code>'s grade/age group: the student's grade number if
-     * this <code>Person</code> represents a student, or "Staff" if this <code>Person</code>
-     * represent a staff member.
+     * Returns the full names of people present only in the older version.
      * 
-     * @return The person's grade.
+     * @return The names of people removed
      */
-    private String getGrade() {
-      return grade;
+    public List<String> getRemoved() {
+      return removed;
     }
 
     /**
-     * Returns the <code>Person</code>'s homeform room if this <code>Person</code>
-     * represents a student, or "Staff" if this <code>Person</code> represent a staff member.
+     * Returns the full names of people present in both versions, whose data differ.
      * 
-     * @return The person's homeform.
+     * @return The names of people changed
      */
-    private String getHomeform() {
-      return homeform;
+    public List<String> getChanged() {
+      return changed;
     }
 
     /**
-     * Returns the <code>Person</code>'s full name. if this <code>Person</code>
-     * represents a staff member, the first name will be initialized.
+     * Returns the full names of people present in both versions with the same data, whose
+     * line numbers differ.
      * 
-     * <p>Middle names are included in the appropriate order. First, middle, and
-     * last names are not distinguished.
+     * @return The names of people moved
+     */
+    public List<String> getMoved() {
+      return moved;
+    }
+
+    /**
+     * Returns <code>true</code> if the two versions hold exactly the same people.
      * 
-     * @return The person's full name.
+     * @return <code>true</code> if there are no differences
      */
-    private String getName() {
-      return first + " " + last;
-    }
-  }
-
-  /**
-   * A comparator unit for comparing two <code>Person</code> objects.
-   * 
-   * <p>Comparisons are made in the following way: relative size is determined
-   * primarily by grade, next by last name should the two people have the same
-   * grade, next by first name should the people have the same grade and last
-   * name, and finally index number should the people share all of the above.
-   * <br>Grade, first name, and last name are all strings, and their relative
-   * sizes are determined by their lexicographic ordering. Index numbers are
-   * integers, and their ordering is determined by their magnitude. In all cases,
-   * if one <code>Person</code> is found to have a larger value to the attribute
-   * being compared, it is considered to be the larger instance.
-   * 
-   * <p>Currently this comparator does not support any null values, and so
-   * both the <code>Person</code> instances and all their String members must be
-   * non-null.
-   */
-  private class PersonComparator implements Comparator<Person> {
-
-	@Override
-	public int compare(Person arg0, Person arg1) {
-      int firstNameCompare = arg0.first.compareTo(arg1.first);
-      int lastNameCompare  = arg0.last.compareTo(arg1.last);
-      int gradeCompare     = arg0.grade.compareTo(arg1.grade);
-      int indexCompare     = arg0.indexNum - arg1.indexNum;
-      
-      if (gradeCompare != 0) {
-        // Grades are different, so grade is the determining factor.
-        return gradeCompare;
-      } else if (lastNameCompare != 0) {
-        // Last names are the determining factor, since grades are the same.
-        return lastNameCompare;
-      } else if (firstNameCompare != 0) {
-        // First names are the determining factor, since grades and last names
-        // are the same.
-        return firstNameCompare;
-      } else {
-        // Grades, first and last names are the same, so index is used as
-        // determining factor. If the indices are equal, the instances are
-        // considered equal.
-        return indexCompare;
-      }
-	}
+    public boolean isEmpty() {
+      return added.isEmpty() && removed.isEmpty() && changed.isEmpty() && moved.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+      return added.size() + " added, " + removed.size() + " removed, "
+             + changed.size() + " changed, " + moved.size() + " moved";
+    }
   }
 
   /**
-   * A processed form of a index text file containing staff and student information.
-   * <code>String</code> keys in the map represent the full names of people in the
-   * input file, which map to further data about the person in question.
+   * A processed form of a index text file containing staff and student information,
+   * searchable by the full names of people in the input file.
+   */
+  private transient PeopleColumns people;
+
+  /**
+   * The serialized form of the index, mapping the full names of people in the input
+   * file to further data about the person in question. Only set while this
+   * <code>PeopleDataList</code> is being serialized or deserialized.
    */
-  private HashMap<String, Person> mugsIndex;
+  private Map<String, Person> mugsIndex;
 
   /**
    * Initializes a new <code>PeopleDataList</code> which starts out without any
    * index information.
    */
   public PeopleDataList() {
-    mugsIndex = new HashMap<String, Person>();
+    people = withIndices(new PeopleColumns().finish());
   }
 
   /**
-   * Initializes a new <code>PeopleDataList</code>, which starts out holding data as specified
-   * by the input string. The input string should not be edited from its form in the input file.
+   * Load the data specified by the input string into this <code>PeopleDataList</code>.
+   * The input string should not be edited from its form in the input file.
    * 
    * <p>Input data must contain at least 7 tab-separated values, where the 4th value is the
    * person's grade, the 5th value is the person's last name, the 6th value is the
@@ -219,69 +341,232 @@ public class PeopleDataList implements Serializable {
    * 
    * @param rawInput
    *        The contents of the input file this <code>PeopleDataList</code> will hold data from.
+   * @return The homeforms found in the input, sorted as by <code>sortHomeforms</code>
    */
-  @SuppressWarnings("unchecked")
   public List<String>[] loadFileData(String rawInput) {
-    // Set up data structures to store all homeforms received in file data.
-    // The first four each hold single-grade classes, which must be formatted
-    // as the grade number followed by a letter. Split classes, badly-formatted
-    // homeforms, and unknown homeforms are all added to the fifth set.
-    TreeSet<String> gr9Homeforms = new TreeSet<>();
-    TreeSet<String> gr10Homeforms = new TreeSet<>();
-    TreeSet<String> gr11Homeforms = new TreeSet<>();
-    TreeSet<String> gr12Homeforms = new TreeSet<>();
-    TreeSet<String> otherHomeforms = new TreeSet<>();
-    
-    // Separate file data into its lines, based on newline separators.
-    String[] lineDividedInput = rawInput.split("\\n");
-    for (int indexPos = 0; indexPos < lineDividedInput.length; indexPos++) {
-      String line = lineDividedInput[indexPos];
-      // Add the new line to the index, parsing it along the way. Retrieve the
-      // person's homeform to ensure it is tracked in the homeform sets.
-      String newHomeform = add(line, indexPos + 1);
-      
-      TreeSet<String> dest;
-      // Determine from the contents of the homeform which set it should belong to.
-
-      if (newHomeform.indexOf('/') == -1) {
-        // Homeform is not a split class.
-        if (newHomeform.charAt(0) == '9') {
-          // Homeform is a misformatted grade 9 class, but still a grade 9 class.
-          dest = gr9Homeforms;
-        } else {
-          // Find out the person's grade number from the first two characters in
-          // the homeform.
-          switch (newHomeform.substring(0, 2)) {
-            case "09":
-              dest = gr9Homeforms;
-              break;
-            case "10":
-              dest = gr10Homeforms;
-              break;
-            case "11":
-              dest = gr11Homeforms;
-              break;
-            case "12":
-              dest = gr12Homeforms;
-              break;
-            default:
-              // Class is likely a badly-formatted homeform, an unknown homeform,
-              // or "Staff". All are sorted into the non-numeric homeform designation.
-              dest = otherHomeforms;
-          }
-        }
+    // The input is parsed in the same way as a mapped index file, so that both paths
+    // produce identical data.
+    return loadFileData(ByteBuffer.wrap(rawInput.getBytes(INDEX_CHARSET)));
+  }
+
+  /**
+   * Load the data specified by a view of an input file's bytes into this
+   * <code>PeopleDataList</code>. The view is typically a mapped index file, as returned
+   * by <code>FileOperator.mapIndex</code>, and is parsed directly, line by line, without
+   * the whole file ever being built into a single <code>String</code>. The position and
+   * limit of the buffer are not changed, and only the bytes between them are read.
+   * 
+   * <p>Each newline-separated line must satisfy the same format as specified for
+   * <code>loadFileData(String)</code>. Blank lines are skipped, although they are still
+   * counted when line numbers are assigned. Any data previously held is replaced.
+   * 
+   * @param rawInput
+   *        A read-only view of the contents of the input file
+   * @return The homeforms found in the input, sorted as by <code>sortHomeforms</code>
+   */
+  public List<String>[] loadFileData(ByteBuffer rawInput) {
+    PeopleColumns loaded = withIndices(loadSection(rawInput, 0).finish());
+    people = loaded;
+    return sortHomeforms(loaded);
+  }
+
+  /**
+   * Load the data specified by a view of an input file's bytes into this
+   * <code>PeopleDataList</code>, parsing separate sections of the file in parallel on
+   * the common <code>ForkJoinPool</code>. See <code>loadFileData(ByteBuffer,
+   * ForkJoinPool)</code>.
+   * 
+   * @param rawInput
+   *        A read-only view of the contents of the input file
+   * @return The homeforms found in the input, sorted as by <code>sortHomeforms</code>
+   */
+  public List<String>[] loadFileDataParallel(ByteBuffer rawInput) {
+    return loadFileDataParallel(rawInput, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Load the data specified by a view of an input file's bytes into this
+   * <code>PeopleDataList</code>, parsing separate sections of the file in parallel on
+   * the specified pool. The data loaded, including every person's line number, is
+   * exactly the same as would be loaded by <code>loadFileData(ByteBuffer)</code>.
+   * 
+   * <p>The file is cut into sections at line boundaries, several for each thread in
+   * the pool. The lines in each section are first counted in parallel, so that each
+   * section knows the line number it starts at, and then the sections are parsed in
+   * parallel. Where two lines share the same name, the later line is kept, as it would
+   * be by a serial load. Files too small to benefit are loaded serially.
+   * 
+   * @param rawInput
+   *        A read-only view of the contents of the input file
+   * @param pool
+   *        The pool on which to parse the file
+   * @return The homeforms found in the input, sorted as by <code>sortHomeforms</code>
+   */
+  public List<String>[] loadFileDataParallel(ByteBuffer rawInput, ForkJoinPool pool) {
+    int start = rawInput.position();
+    int end = rawInput.limit();
+    int sectionCount = Math.min(pool.getParallelism() * SECTIONS_PER_THREAD,
+                                (end - start) / MIN_SECTION_SIZE);
+    if (sectionCount < 2) {
+      return loadFileData(rawInput);
+    }
+
+    // Place each section boundary just after the first newline at or beyond an
+    // even division of the file.
+    int[] bounds = new int[sectionCount + 1];
+    bounds[0] = start;
+    bounds[sectionCount] = end;
+    for (int i = 1; i < sectionCount; i++) {
+      int pos = Math.max(bounds[i - 1], start + (int)((long)(end - start) * i / sectionCount));
+      while (pos < end && rawInput.get(pos) != '\n') {
+        pos++;
+      }
+      bounds[i] = Math.min(pos + 1, end);
+    }
+
+    ByteBuffer[] sections = new ByteBuffer[sectionCount];
+    for (int i = 0; i < sectionCount; i++) {
+      sections[i] = rawInput.duplicate();
+      sections[i].limit(bounds[i + 1]);
+      sections[i].position(bounds[i]);
+    }
+
+    // Every section but the first starts just after a newline, so the number of lines
+    // before a section is the number of newlines in all sections before it.
+    int[] sectionLines = new int[sectionCount];
+    pool.invoke(new SectionAction(0, sectionCount, i -> sectionLines[i] = countLines(sections[i])));
+    int[] linesBefore = new int[sectionCount];
+    for (int i = 1; i < sectionCount; i++) {
+      linesBefore[i] = linesBefore[i - 1] + sectionLines[i - 1];
+    }
+
+    PeopleColumns[] sectionPeople = new PeopleColumns[sectionCount];
+    pool.invoke(new SectionAction(0, sectionCount,
+                                  i -> sectionPeople[i] = loadSection(sections[i], linesBefore[i])));
+
+    // Merge the columns of every section. Sections are merged in order of line number,
+    // so finishing keeps the later of two lines sharing a name.
+    PeopleColumns loaded = new PeopleColumns(end - start >> 5);
+    for (PeopleColumns section : sectionPeople) {
+      loaded.addAll(section);
+    }
+    withIndices(loaded.finish());
+    people = loaded;
+    return sortHomeforms(loaded);
+  }
+
+  /**
+   * Parse every line of a section of an input file into a new set of columns. The
+   * columns are not finished, so that sections may be merged before people sharing a
+   * name are resolved. May be called concurrently for separate sections.
+   * 
+   * @param section
+   *        A newline-aligned section of the input file
+   * @param linesBefore
+   *        The number of lines in the input file before the section
+   * @return The people found in the section
+   */
+  private static PeopleColumns loadSection(ByteBuffer section, int linesBefore) {
+    // Index lines are typically around 64 bytes long.
+    PeopleColumns sectionPeople = new PeopleColumns(section.remaining() >> 6);
+
+    // Separate file data into its lines, and each line into its fields, in one pass.
+    IndexFieldScanner scanner = new IndexFieldScanner(section, INDEX_CHARSET, linesBefore);
+    while (scanner.nextLine()) {
+      sectionPeople.add(scanner.lineNumber(), scanner.grade(), scanner.lastName(),
+                        scanner.firstName(), scanner.homeform(), scanner.photoFile(),
+                        scanner.roll());
+    }
+    return sectionPeople;
+  }
+
+  /**
+   * Returns a new array of the sets used to collect homeforms while loading. The first
+   * four each hold single-grade classes, which must be formatted as the grade number
+   * followed by a letter. Split classes, badly-formatted homeforms, and unknown
+   * homeforms are all added to the fifth set.
+   * 
+   * @return Five empty homeform sets
+   */
+  @SuppressWarnings("unchecked")
+  private static TreeSet<String>[] newHomeformSets() {
+    return new TreeSet[] {new TreeSet<String>(), new TreeSet<String>(), new TreeSet<String>(),
+                          new TreeSet<String>(), new TreeSet<String>()};
+  }
+
+  /**
+   * Returns the position of the set, among those from <code>newHomeformSets</code>,
+   * to which the specified homeform belongs.
+   * 
+   * @param homeform
+   *        The homeform being categorized
+   * @return 0 through 3 for grade 9 through 12 single-grade classes, or 4 for any
+   *         other homeform
+   */
+  private static int homeformCategory(String homeform) {
+    // Determine from the contents of the homeform which set it should belong to.
+    if (homeform.indexOf('/') == -1) {
+      // Homeform is not a split class.
+      if (homeform.charAt(0) == '9') {
+        // Homeform is a misformatted grade 9 class, but still a grade 9 class.
+        return 0;
       } else {
-        // Homeform is a split class, and is sorted into the appropriate grade later.
-        dest = otherHomeforms;
+        // Find out the person's grade number from the first two characters in
+        // the homeform.
+        switch (homeform.substring(0, 2)) {
+          case "09":
+            return 0;
+          case "10":
+            return 1;
+          case "11":
+            return 2;
+          case "12":
+            return 3;
+          default:
+            // Class is likely a badly-formatted homeform, an unknown homeform,
+            // or "Staff". All are sorted into the non-numeric homeform designation.
+            return 4;
+        }
       }
-      
-      if (!dest.contains(newHomeform)) {
-        // The homeform has not been already added to its set: Add it in now.
-        dest.add(newHomeform);
+    } else {
+      // Homeform is a split class, and is sorted into the appropriate grade later.
+      return 4;
+    }
+  }
+
+  /**
+   * Returns the number of newlines in a section of an input file.
+   * 
+   * @param section
+   *        The section whose newlines are counted
+   * @return The number of newlines between the section's position and limit
+   */
+  private static int countLines(ByteBuffer section) {
+    int lines = 0;
+    for (int i = section.position(); i < section.limit(); i++) {
+      if (section.get(i) == '\n') {
+        lines++;
       }
     }
+    return lines;
+  }
+
+  /**
+   * Returns every homeform read into the specified columns, including those of people
+   * later dropped for sharing a name with a person on a later line, sorted as by
+   * <code>sortHomeforms(SortedSet[], SortedSet)</code>.
+   * 
+   * @param loaded
+   *        The people read from an input file
+   * @return The homeforms found in the input
+   */
+  private List<String>[] sortHomeforms(PeopleColumns loaded) {
+    TreeSet<String>[] homeformSets = newHomeformSets();
+    for (String homeform : loaded.homeformValues()) {
+      homeformSets[homeformCategory(homeform)].add(homeform);
+    }
     // Sort the split class homeforms into the appropriate grade, and return.
-    return sortHomeforms(new SortedSet[] {gr9Homeforms, gr10Homeforms, gr11Homeforms, gr12Homeforms}, otherHomeforms);
+    return sortHomeforms(Arrays.copyOf(homeformSets, 4), homeformSets[4]);
   }
 
   /**
@@ -360,22 +645,302 @@ public class PeopleDataList implements Serializable {
   }
   
   /**
-   * Store away data on a single person, represented by a single unmodified line from
-   * the input file. The line's relevant data (name, grade, homeform) is preserved
-   * alongside the location of the line in the input file.
+   * Find the people who have been added, removed, changed, or moved in the specified
+   * newer version of this <code>PeopleDataList</code>, such as one loaded from a
+   * corrected copy of the same index file. Neither list is modified.
    * 
-   * @param data
-   *        A line of student/staff information from the input file
-   * @param ind
-   *        The line number of the line in the input file from which said information
-   *        was gathered
+   * @param updated
+   *        The newer version of the index
+   * @return The differences between this index and the newer version
    */
-  private String add(String data, int ind) {
-    // Person constructor parses the input line, so no parsing is done
-    // in the outer scope.
-    Person newPerson = new Person(data, ind);
-    mugsIndex.put(newPerson.getName(), newPerson);
-    return newPerson.getHomeform();
+  Changes diff(PeopleDataList updated) {
+    PeopleColumns current = people;
+    PeopleColumns newer = updated.people;
+    Changes changes = new Changes();
+    for (int i = 0; i < newer.size(); i++) {
+      String name = newer.name(i);
+      int match = current.find(name);
+      if (match == -1) {
+        changes.added.add(name);
+      } else if (!current.sameData(match, newer, i)) {
+        changes.changed.add(name);
+      } else if (current.indexNum(match) != newer.indexNum(i)) {
+        changes.moved.add(name);
+      }
+    }
+    for (int i = 0; i < current.size(); i++) {
+      String name = current.name(i);
+      if (newer.find(name) == -1) {
+        changes.removed.add(name);
+      }
+    }
+    return changes;
+  }
+
+  /**
+   * Write the people in this <code>PeopleDataList</code> to a snapshot, in the format
+   * read by <code>readSnapshot</code>.
+   * 
+   * <p>Every distinct string value is written once to a string table, and people are
+   * then written as columns of integers, one column for line numbers and one for each
+   * string attribute, where each string attribute is an index into the string table
+   * (or -1 for an absent value). People are written in order of line number.
+   * 
+   * @param out
+   *        The stream to write the snapshot to
+   * @throws IOException
+   *         If the snapshot could not be written
+   */
+  void writeSnapshot(DataOutputStream out) throws IOException {
+    // People are already held in order of line number.
+    PeopleColumns saved = people;
+    int count = saved.size();
+
+    // Most names are distinct, so the string table will hold about two values per person.
+    HashMap<String, Integer> stringIds = new HashMap<>(count * 4);
+    List<String> stringTable = new ArrayList<>();
+    int[][] columns = new int[SNAPSHOT_COLUMNS][count];
+    for (int i = 0; i < count; i++) {
+      String[] values = {saved.grade(i), saved.last(i), saved.first(i), saved.homeform(i),
+                         saved.photoFile(i), saved.roll(i)};
+      for (int column = 0; column < SNAPSHOT_COLUMNS; column++) {
+        String value = values[column];
+        if (value == null) {
+          columns[column][i] = -1;
+        } else {
+          Integer id = stringIds.get(value);
+          if (id == null) {
+            id = stringTable.size();
+            stringIds.put(value, id);
+            stringTable.add(value);
+          }
+          columns[column][i] = id;
+        }
+      }
+    }
+
+    out.writeInt(stringTable.size());
+    for (String value : stringTable) {
+      out.writeUTF(value);
+    }
+    out.writeInt(count);
+    for (int i = 0; i < count; i++) {
+      out.writeInt(saved.indexNum(i));
+    }
+    for (int[] column : columns) {
+      for (int id : column) {
+        out.writeInt(id);
+      }
+    }
+  }
+
+  /**
+   * Read a <code>PeopleDataList</code> from a snapshot written by
+   * <code>writeSnapshot</code>.
+   * 
+   * @param in
+   *        The stream to read the snapshot from
+   * @return The people stored in the snapshot
+   * @throws IOException
+   *         If the snapshot could not be read or is malformed
+   */
+  static PeopleDataList readSnapshot(DataInputStream in) throws IOException {
+    String[] stringTable = new String[in.readInt()];
+    for (int i = 0; i < stringTable.length; i++) {
+      stringTable[i] = in.readUTF();
+    }
+    int[] indexNums = new int[in.readInt()];
+    for (int i = 0; i < indexNums.length; i++) {
+      indexNums[i] = in.readInt();
+    }
+    String[][] columns = new String[SNAPSHOT_COLUMNS][indexNums.length];
+    for (String[] column : columns) {
+      for (int i = 0; i < column.length; i++) {
+        int id = in.readInt();
+        if (id < -1 || id >= stringTable.length) {
+          throw new IOException("Snapshot refers to string " + id + " of " + stringTable.length);
+        }
+        column[i] = id == -1 ? null : stringTable[id];
+      }
+    }
+
+    PeopleColumns saved = new PeopleColumns(indexNums.length);
+    for (int i = 0; i < indexNums.length; i++) {
+      if (columns[1][i] == null || columns[2][i] == null) {
+        throw new IOException("Snapshot holds a person without a name on line " + indexNums[i]);
+      }
+      try {
+        saved.add(indexNums[i], columns[0][i], columns[1][i], columns[2][i], columns[3][i],
+                  columns[4][i], columns[5][i]);
+      } catch (IllegalArgumentException err) {
+        throw new IOException(err.getMessage(), err);
+      }
+    }
+
+    PeopleDataList result = new PeopleDataList();
+    result.people = withIndices(saved.finish());
+    return result;
+  }
+
+  /**
+   * Write this <code>PeopleDataList</code> in its serialized form, as a map from full
+   * names to <code>Person</code> objects.
+   * 
+   * @param out
+   *        The stream to write to
+   * @throws IOException
+   *         If the list could not be written
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    PeopleColumns saved = people;
+    HashMap<String, Person> serialForm = new HashMap<>(saved.size() * 4 / 3 + 1);
+    for (int i = 0; i < saved.size(); i++) {
+      serialForm.put(saved.name(i), new Person(saved.indexNum(i), saved.grade(i), saved.last(i),
+                                               saved.first(i), saved.homeform(i),
+                                               saved.photoFile(i), saved.roll(i)));
+    }
+    mugsIndex = serialForm;
+    try {
+      out.defaultWriteObject();
+    } finally {
+      mugsIndex = null;
+    }
+  }
+
+  /**
+   * Read a <code>PeopleDataList</code> from its serialized form, as written by
+   * <code>writeObject</code> or by earlier versions of this class.
+   * 
+   * @param in
+   *        The stream to read from
+   * @throws IOException
+   *         If the list could not be read
+   * @throws ClassNotFoundException
+   *         If a class in the serialized form could not be found
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    PeopleColumns saved = new PeopleColumns(mugsIndex.size());
+    for (Person person : mugsIndex.values()) {
+      saved.add(person.indexNum, person.grade, person.last, person.first, person.homeform,
+                person.photoFile, person.roll);
+    }
+    mugsIndex = null;
+    people = withIndices(saved.finish());
+  }
+
+  /**
+   * Build the secondary indices of a finished set of columns: the index of people by
+   * how their names sound, the indices of people by the trigrams and by the beginnings
+   * of their names, and a precomputed index of misspellings if they hold at
+   * least <code>CORRECTION_MIN_PEOPLE</code> people.
+   * 
+   * @param loaded
+   *        The columns of a newly loaded index
+   * @return The same columns
+   */
+  private static PeopleColumns withIndices(PeopleColumns loaded) {
+    loaded.buildPhonetics();
+    loaded.buildTrigrams();
+    loaded.buildPrefixes();
+    if (loaded.size() >= CORRECTION_MIN_PEOPLE && CORRECTION_BUDGET > 0) {
+      loaded.buildCorrections(CORRECTION_BUDGET);
+    }
+    return loaded;
+  }
+
+  /**
+   * Look up a person's name in the stored index with a single probe, returning a handle
+   * to the person from which any of the person's data can be read. Handles are the
+   * person's position in this <code>PeopleDataList</code>, and remain valid until other
+   * data is loaded into it.
+   * 
+   * @param name
+   *        The name of the person being queried
+   * @return A handle to the person, or -1 if the person was not found in the index
+   */
+  public int lookup(String name) {
+    return people.find(name);
+  }
+
+  /**
+   * Returns the line number in the input file at which a person's data is located.
+   * 
+   * @param person
+   *        A handle to the person, as returned by <code>lookup</code>
+   * @return The person's line number, starting from line 1
+   */
+  public int indexNumOf(int person) {
+    return people.indexNum(person);
+  }
+
+  /**
+   * Returns a person's grade: the student's grade number if the person is a student,
+   * or "Staff" if the person is a staff member.
+   * 
+   * @param person
+   *        A handle to the person, as returned by <code>lookup</code>
+   * @return The person's grade
+   */
+  public String gradeOf(int person) {
+    return people.grade(person);
+  }
+
+  /**
+   * Returns a person's homeform room if the person is a student, or "Staff" if the
+   * person is a staff member.
+   * 
+   * @param person
+   *        A handle to the person, as returned by <code>lookup</code>
+   * @return The person's homeform
+   */
+  public String homeformOf(int person) {
+    return people.homeform(person);
+  }
+
+  /**
+   * Returns a code shared by every person in the same grade and homeform, and by no one
+   * else, so that anything derived from a person's grade and homeform alone can be
+   * derived once for all of the people sharing them.
+   * 
+   * @param person
+   *        A handle to the person, as returned by <code>lookup</code>
+   * @return The code of the person's grade and homeform, from 0 up to
+   *         <code>gradeAndHomeformCount()</code>
+   */
+  public int gradeAndHomeformOf(int person) {
+    return people.gradeAndHomeform(person);
+  }
+
+  /**
+   * Returns the number of codes returned by <code>gradeAndHomeformOf</code>.
+   * 
+   * @return The number of codes of grades and homeforms
+   */
+  public int gradeAndHomeformCount() {
+    return people.gradeAndHomeformCount();
+  }
+
+  /**
+   * Returns the name of the file containing a person's photo.
+   * 
+   * @param person
+   *        A handle to the person, as returned by <code>lookup</code>
+   * @return The person's photo file, or <code>null</code> if it was not recorded
+   */
+  public String photoFileOf(int person) {
+    return people.photoFile(person);
+  }
+
+  /**
+   * Returns the roll of film or photo session on which a person's photo was taken.
+   * 
+   * @param person
+   *        A handle to the person, as returned by <code>lookup</code>
+   * @return The person's roll, or <code>null</code> if it was not recorded
+   */
+  public String rollOf(int person) {
+    return people.roll(person);
   }
 
   /**
@@ -393,13 +958,9 @@ public class PeopleDataList implements Serializable {
    *         was not found in the index
    */
   public int searchName(String name) {
-    Person nameMatch = mugsIndex.get(name);
-    if (nameMatch == null) {
-      // Name was not found in the index.
-      return 0;
-    } else {
-      return nameMatch.getIndexNum();
-    }
+    int nameMatch = lookup(name);
+    // An unfound name is reported as line 0.
+    return nameMatch == -1 ? 0 : indexNumOf(nameMatch);
   }
 
   /**
@@ -416,13 +977,8 @@ public class PeopleDataList implements Serializable {
    *         is a staff member, or null if the person was not found in the index
    */
   public String searchGrade(String name) {
-    Person nameMatch = mugsIndex.get(name);
-    if (nameMatch == null) {
-      // Name was not found in the index: report null.
-      return null;
-    } else {
-      return nameMatch.getGrade();
-    }
+    int nameMatch = lookup(name);
+    return nameMatch == -1 ? null : gradeOf(nameMatch);
   }
 
   /**
@@ -439,27 +995,82 @@ public class PeopleDataList implements Serializable {
    *         is a staff member, or null if the person was not found in the index
    */
   public String searchHomeform(String name) {
-    Person nameMatch = mugsIndex.get(name);
-    if (nameMatch == null) {
-      // Name was not found in the index: report null.
-      return null;
-    } else {
-      return nameMatch.getHomeform();
-    }
+    int nameMatch = lookup(name);
+    return nameMatch == -1 ? null : homeformOf(nameMatch);
   }
   
+  /**
+   * Compile a set of grades into a set of the grade codes used by this index, for use
+   * with <code>isSelected</code>. Grades that no person in the index is in are ignored.
+   * 
+   * @param grades
+   *        The grades to select
+   * @return The codes of the selected grades
+   */
+  public BitSet gradeCodes(Iterable<String> grades) {
+    PeopleColumns searched = people;
+    BitSet codes = new BitSet();
+    for (String grade : grades) {
+      int code = searched.gradeCode(grade);
+      if (code >= 0) {
+        codes.set(code);
+      }
+    }
+    return codes;
+  }
+
+  /**
+   * Compile a set of homeforms into a set of the homeform codes used by this index, for
+   * use with <code>isSelected</code>. Homeforms that no person in the index is in are
+   * ignored.
+   * 
+   * @param homeforms
+   *        The homeforms to select
+   * @return The codes of the selected homeforms
+   */
+  public BitSet homeformCodes(Iterable<String> homeforms) {
+    PeopleColumns searched = people;
+    BitSet codes = new BitSet();
+    for (String homeform : homeforms) {
+      int code = searched.homeformCode(homeform);
+      if (code >= 0) {
+        codes.set(code);
+      }
+    }
+    return codes;
+  }
+
+  /**
+   * Returns whether a person is in one of the selected grades and one of the selected
+   * homeforms. Checking a person against the selection requires no string comparisons.
+   * 
+   * @param person
+   *        A handle to the person, as returned by <code>lookup</code>
+   * @param gradeCodes
+   *        The selected grades, as compiled by <code>gradeCodes</code> on this index
+   * @param homeformCodes
+   *        The selected homeforms, as compiled by <code>homeformCodes</code> on this index
+   * @return <code>true</code> if the person is in a selected grade and homeform
+   */
+  public boolean isSelected(int person, BitSet gradeCodes, BitSet homeformCodes) {
+    PeopleColumns searched = people;
+    int gradeCode = searched.gradeCode(person);
+    int homeformCode = searched.homeformCode(person);
+    return gradeCode >= 0 && gradeCodes.get(gradeCode)
+           && homeformCode >= 0 && homeformCodes.get(homeformCode);
+  }
+
   /**
    * Returns the names of all people in the index in an array, sorted according
-   * to the ordering specified by the local <code>PersonComparator</code> class.
+   * to the display ordering, which is computed once when the index is loaded.
    * <br>The ordering is defined as follows:
    * 
-   * <p>Two <code>Person</code> objects are compared based first on their grade,
-   * then on their last name, then on their first name, then on their index number.
-   * Each of the attributes listed above will be compared in that order until one is
-   * found for which the two instances have different values. Strings are compared
-   * lexicographically. Integers are compared by value. Whichever <code>Person</code>
-   * instance has a greater value in the attribute under comparison will be considered
-   * the 'larger' instance.
+   * <p>Two people are compared based first on their grade, then on their last name,
+   * then on their first name, then on their index number. Each of the attributes listed
+   * above will be compared in that order until one is found for which the two people
+   * have different values. Strings are compared lexicographically. Integers are
+   * compared by value. Whichever person has a greater value in the attribute under
+   * comparison will be considered the 'larger' person.
    * 
    * <p>Under the specified ordering, output will be structured such that all grade 9's
    * come before all grade 10's, who come before all grade 11's, etc. Staff come last.
@@ -469,21 +1080,152 @@ public class PeopleDataList implements Serializable {
    * @return An ordered array of all the names in this index.
    */
   public String[] getOrderedContents() {
-    // Retrieve all Person objects from the index, and reorder them based on the
-    // specifications of PersonComparator.
-    Person[] people = mugsIndex.values().toArray(new Person[0]);
-    PersonComparator orderer = new PersonComparator();
-    Arrays.sort(people, orderer);
-
-    // Transfer only the people's names, as opposed to whole Person objects, into
-    // a new array, maintaining the same ordering.
-    // The names alone are not enough to do the ordering, because grade and index
-    // number are required alongside first and last name.
-    String[] names = new String[people.length];
-    for (int i = 0; i < people.length; i++) {
-      names[i] = people[i].getName();
+    // The people's ordinals were sorted once, when the index was loaded. Transfer only
+    // the people's names into a new array, maintaining the same ordering.
+    PeopleColumns ordered = people;
+    String[] names = new String[ordered.size()];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = ordered.name(ordered.rosterOrdinal(i));
     }
 
     return names;
   }
-}
\ No newline at end of file
+
+  /**
+   * Returns the number of people in this index.
+   * 
+   * @return The number of people
+   */
+  public int size() {
+    return people.size();
+  }
+
+  /**
+   * Returns a handle to the person at the specified position in the ordering used by
+   * <code>getOrderedContents</code>. The ordering is computed once, when the index is
+   * loaded, so the whole index can be walked in order without sorting or looking up
+   * any names.
+   * 
+   * @param position
+   *        A position in the ordering, from 0 to <code>size() - 1</code>
+   * @return A handle to the person at that position, as returned by <code>lookup</code>
+   */
+  public int personAt(int position) {
+    return people.rosterOrdinal(position);
+  }
+
+  /**
+   * Returns the full name of a person, first name then last name, separated by a space.
+   * 
+   * @param person
+   *        A handle to the person, as returned by <code>lookup</code>
+   * @return The person's name
+   */
+  public String nameOf(int person) {
+    return people.name(person);
+  }
+
+  /**
+   * Returns the first name of a person.
+   * 
+   * @param person
+   *        A handle to the person, as returned by <code>lookup</code>
+   * @return The person's first name
+   */
+  public String firstNameOf(int person) {
+    return people.first(person);
+  }
+
+  /**
+   * Returns the last name of a person.
+   * 
+   * @param person
+   *        A handle to the person, as returned by <code>lookup</code>
+   * @return The person's last name
+   */
+  public String lastNameOf(int person) {
+    return people.last(person);
+  }
+
+  /**
+   * Returns the names in this index that are closest in spelling to a name, such as one
+   * that was not found, closest first. Names are compared without regard to case, by the
+   * number of characters that must be inserted, deleted, substituted, or swapped with
+   * their neighbours to turn one into the other. See <code>NameSuggester</code>.
+   * 
+   * <p>Names that sound like the name, as found by a probe of an index of people by the
+   * phonetic keys of their first and last names, are suggested before any others,
+   * however far they are from it in spelling. See <code>PhoneticIndex</code>.
+   * 
+   * <p>The names are searched through a structure built the first time suggestions are
+   * requested from this index, and kept until the index changes. Indices of at least
+   * <code>CORRECTION_MIN_PEOPLE</code> people are instead given a precomputed index of
+   * misspellings when they are loaded, if it fits in <code>CORRECTION_BUDGET</code>.
+   * 
+   * @param name
+   *        The name to find suggestions for
+   * @param maxDistance
+   *        The greatest number of changes between the name and a name suggested
+   * @param limit
+   *        The greatest number of names suggested
+   * @return Up to <code>limit</code> names within <code>maxDistance</code> changes of
+   *         the name
+   */
+  public List<String> suggestNames(String name, int maxDistance, int limit) {
+    return people.suggest(name, maxDistance, limit);
+  }
+
+  /**
+   * Returns handles to every person whose name contains each part of a partial name,
+   * without regard to case, best match first. The parts of a partial name are separated
+   * by whitespace or asterisks, so that <code>smi*</code> finds every name containing
+   * <code>smi</code>, and <code>bo smi</code> every name containing both
+   * <code>bo</code> and <code>smi</code>.
+   * 
+   * <p>Names in which more of the parts begin a word are listed first, then shorter
+   * names, then names in the ordering used by <code>getOrderedContents</code>. Names
+   * are found through an index of the runs of three characters in every name, built
+   * when the index is loaded. See <code>TrigramIndex</code>.
+   * 
+   * @param partialName
+   *        The parts of a name to search for
+   * @return Handles to every person whose name contains the parts, as returned by
+   *         <code>lookup</code>
+   */
+  public int[] searchPartial(String partialName) {
+    return people.searchPartial(partialName);
+  }
+
+  /**
+   * Returns handles to the people whose names start with the specified text, without
+   * regard to case, in alphabetical order, followed by the people with a later word of
+   * their names, such as a last name, starting with it. Each person is returned once.
+   * People are found by binary search of an index of the beginnings of every name, built
+   * when the index is loaded, so large indices are searched nearly as quickly as small
+   * ones. See
+   * <code>PrefixIndex</code>.
+   * 
+   * @param prefix
+   *        The start of a name, as typed so far
+   * @param limit
+   *        The greatest number of people returned
+   * @return Handles to up to <code>limit</code> people, as returned by
+   *         <code>lookup</code>
+   */
+  public int[] complete(String prefix, int limit) {
+    return people.complete(prefix, limit);
+  }
+
+  /**
+   * Returns a description of the precomputed index of misspellings built for this
+   * index: its size, whether it fit in its memory budget, and the time taken to build
+   * it. Returns <code>null</code> if none was built, as for an index of fewer than
+   * <code>CORRECTION_MIN_PEOPLE</code> people.
+   * 
+   * @return A report on the index of misspellings, or <code>null</code>
+   */
+  public String getCorrectionReport() {
+    CorrectionIndex corrections = people.corrections();
+    return corrections == null ? null : corrections.report();
+  }
+}
@@ -0,0 +1,282 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A secondary index of people by how their names sound, so that a name typed by ear,
+ * such as Aisegul for Aysegul, can be matched to the names it sounds like with a single
+ * hash probe, however differently they are spelled.
+ *
+ * <p>Each first and last name is reduced to a phonetic key after the manner of the
+ * Metaphone family of algorithms, as used for the primary code of Double Metaphone:
+ * letters are mapped to the consonant sounds they make, silent letters are dropped, and
+ * vowels are dropped except at the start of a name, where any vowel is written as
+ * <code>A</code>. Y is treated as a vowel. Only the common English spellings of each
+ * sound are recognized; the many special cases of Double Metaphone for names from
+ * other languages are not.
+ *
+ * <p>People are held in a multimap from the keys of their first and last names,
+ * separated by a space, to the ordinals of every person with those keys. A name that
+ * was not found is split at each of its spaces into a first and last name, and looked
+ * up once for each split. The index holds no names of its own: the names of the people
+ * found are read from the columns of the people indexed, by ordinal.
+ *
+ * <p>A <code>PhoneticIndex</code> is not modified after it is built, and may be searched
+ * by several threads at once.
+ */
+class PhoneticIndex {
+
+  /**
+   * The people indexed, from whose columns the names of people found are read.
+   */
+  private final PeopleColumns people;
+
+  /**
+   * The id of each distinct pair of first and last name keys, separated by a space.
+   */
+  private final Map<String, Integer> keyIds;
+
+  /**
+   * The ordinals of every person, grouped by the id of the keys of their names, and in
+   * order within each group. The people with keys <code>i</code> are held from
+   * <code>keyStarts[i]</code> up to <code>keyStarts[i + 1]</code>.
+   */
+  private final int[] byKey;
+
+  /**
+   * The position in <code>byKey</code> of the first person with each pair of keys.
+   */
+  private final int[] keyStarts;
+
+  /**
+   * Initializes a new <code>PhoneticIndex</code> of the specified people.
+   *
+   * @param people
+   *        The finished columns of the people to index
+   */
+  PhoneticIndex(PeopleColumns people) {
+    this.people = people;
+    int size = people.size();
+
+    // Many people share a first or last name, so each is only encoded once.
+    Map<String, String> partKeys = new HashMap<>();
+    keyIds = new HashMap<>();
+    int[] idOf = new int[size];
+    for (int i = 0; i < size; i++) {
+      String key = partKeys.computeIfAbsent(people.first(i), PhoneticIndex::key) + " "
+                   + partKeys.computeIfAbsent(people.last(i), PhoneticIndex::key);
+      Integer id = keyIds.get(key);
+      if (id == null) {
+        id = keyIds.size();
+        keyIds.put(key, id);
+      }
+      idOf[i] = id;
+    }
+
+    // Group people by their keys, counting the people with each pair first.
+    keyStarts = new int[keyIds.size() + 1];
+    for (int id : idOf) {
+      keyStarts[id + 1]++;
+    }
+    for (int i = 0; i < keyIds.size(); i++) {
+      keyStarts[i + 1] += keyStarts[i];
+    }
+    byKey = new int[size];
+    int[] next = Arrays.copyOf(keyStarts, keyIds.size());
+    for (int i = 0; i < size; i++) {
+      byKey[next[idOf[i]]++] = i;
+    }
+  }
+
+  /**
+   * Returns the number of distinct pairs of first and last name keys.
+   *
+   * @return The number of keys held
+   */
+  int keyCount() {
+    return keyIds.size();
+  }
+
+  /**
+   * Returns the full names of every person whose first and last names sound like a
+   * name, where it is split at any of its spaces, in order of ordinal.
+   *
+   * @param name
+   *        The name to find sound-alikes for
+   * @return The names of every person whose name sounds like it
+   */
+  List<String> soundAlikes(String name) {
+    Set<String> found = new LinkedHashSet<>();
+    for (int space = name.indexOf(' '); space >= 0; space = name.indexOf(' ', space + 1)) {
+      Integer id = keyIds.get(key(name.substring(0, space)) + " " + key(name.substring(space + 1)));
+      if (id != null) {
+        for (int i = keyStarts[id]; i < keyStarts[id + 1]; i++) {
+          found.add(people.name(byKey[i]));
+        }
+      }
+    }
+    return new ArrayList<>(found);
+  }
+
+  /**
+   * Returns the phonetic key of a name. Characters other than the letters A to Z, in
+   * either case, are ignored.
+   *
+   * @param name
+   *        A first or last name
+   * @return The name's phonetic key, made of the letters <code>AFHJKLMNPRSTWX</code>
+   *         and the digit <code>0</code> for the sound of TH
+   */
+  static String key(String name) {
+    StringBuilder letters = new StringBuilder(name.length());
+    for (char c : name.toUpperCase(Locale.ROOT).toCharArray()) {
+      if (c >= 'A' && c <= 'Z') {
+        letters.append(c);
+      }
+    }
+    String word = letters.toString();
+    int length = word.length();
+    StringBuilder key = new StringBuilder(length);
+
+    int i = 0;
+    // Letters that are silent at the start of a name.
+    if (word.startsWith("AE") || word.startsWith("GN") || word.startsWith("KN")
+        || word.startsWith("PN") || word.startsWith("WR")) {
+      i = 1;
+    } else if (word.startsWith("X")) {
+      key.append('S');
+      i = 1;
+    } else if (word.startsWith("WH")) {
+      key.append('W');
+      i = 2;
+    }
+    if (i < length && isVowel(word.charAt(i)) && key.length() == 0) {
+      key.append('A');
+      i++;
+    }
+
+    for (; i < length; i++) {
+      char c = word.charAt(i);
+      char next = i + 1 < length ? word.charAt(i + 1) : 0;
+      char previous = i > 0 ? word.charAt(i - 1) : 0;
+      // A doubled letter makes one sound, except for C as in ACCEPT.
+      if (c == previous && c != 'C') {
+        continue;
+      }
+      switch (c) {
+        case 'A': case 'E': case 'I': case 'O': case 'U': case 'Y':
+          break;
+        case 'B':
+          if (!(previous == 'M' && i == length - 1)) {
+            key.append('B');
+          }
+          break;
+        case 'C':
+          if (next == 'H' || word.startsWith("IA", i + 1)) {
+            key.append(previous == 'S' && next == 'H' ? 'K' : 'X');
+          } else if (next == 'I' || next == 'E' || next == 'Y') {
+            if (previous != 'S') {
+              key.append('S');
+            }
+          } else {
+            key.append('K');
+          }
+          break;
+        case 'D':
+          if (next == 'G' && i + 2 < length && "EIY".indexOf(word.charAt(i + 2)) >= 0) {
+            key.append('J');
+          } else {
+            key.append('T');
+          }
+          break;
+        case 'G':
+          if (next == 'H' && !(i + 2 < length && isVowel(word.charAt(i + 2)))) {
+            // Silent, as in LEIGH or WRIGHT.
+            i++;
+          } else if (next == 'N' && (i + 2 == length || word.startsWith("ED", i + 2))) {
+            // Silent, as in SIGN or SIGNED.
+          } else if ((next == 'I' || next == 'E' || next == 'Y') && previous != 'G') {
+            key.append('J');
+          } else {
+            key.append('K');
+          }
+          break;
+        case 'H':
+          // Sounded only before a vowel, and not as part of CH, GH, PH, SH, or TH.
+          if (isVowel(next) && "CGPST".indexOf(previous) < 0) {
+            key.append('H');
+          }
+          break;
+        case 'K':
+          if (previous != 'C') {
+            key.append('K');
+          }
+          break;
+        case 'P':
+          key.append(next == 'H' ? 'F' : 'P');
+          break;
+        case 'Q':
+          key.append('K');
+          break;
+        case 'S':
+          if (next == 'H' || word.startsWith("IO", i + 1) || word.startsWith("IA", i + 1)) {
+            key.append('X');
+          } else {
+            key.append('S');
+          }
+          break;
+        case 'T':
+          if (word.startsWith("IO", i + 1) || word.startsWith("IA", i + 1)) {
+            key.append('X');
+          } else if (next == 'H') {
+            key.append('0');
+          } else if (!word.startsWith("CH", i + 1)) {
+            key.append('T');
+          }
+          break;
+        case 'V':
+          key.append('F');
+          break;
+        case 'W':
+          if (isVowel(next)) {
+            key.append('W');
+          }
+          break;
+        case 'X':
+          key.append("KS");
+          break;
+        case 'Z':
+          key.append('S');
+          break;
+        default:
+          // F, J, L, M, N, and R sound as they are written.
+          key.append(c);
+      }
+    }
+
+    // Neighbouring letters making the same sound, as in DT or CKS, make it once.
+    StringBuilder sounds = new StringBuilder(key.length());
+    for (int j = 0; j < key.length(); j++) {
+      if (j == 0 || key.charAt(j) != key.charAt(j - 1)) {
+        sounds.append(key.charAt(j));
+      }
+    }
+    return sounds.toString();
+  }
+
+  /**
+   * Returns <code>true</code> if a letter is a vowel, counting Y as a vowel.
+   *
+   * @param c
+   *        An upper case letter, or 0
+   * @return <code>true</code> if the letter is A, E, I, O, U, or Y
+   */
+  private static boolean isVowel(char c) {
+    return c != 0 && "AEIOUY".indexOf(c) >= 0;
+  }
+}
@@ -0,0 +1,53 @@
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class PhoneticIndexTest {
+  private static final String[] FIRST_NAMES = {
+    "Aysegul", "Catherine", "Stephen", "Ashleigh", "Bob", "Malika", "Kathryn"
+  };
+  private static final String[] LAST_NAMES = {
+    "Demir", "Wright", "Phillips", "Knight", "Smith", "Said Khasan", "Right"
+  };
+
+  private static PhoneticIndex index() {
+    String[] names = new String[FIRST_NAMES.length];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = FIRST_NAMES[i] + " " + LAST_NAMES[i];
+    }
+    return new PhoneticIndex(RandomNames.columns(names));
+  }
+
+  @Test
+  public void testKeys() {
+    assertEquals(PhoneticIndex.key("Aysegul"), PhoneticIndex.key("Aisegul"));
+    assertEquals(PhoneticIndex.key("Catherine"), PhoneticIndex.key("Kathryn"));
+    assertEquals(PhoneticIndex.key("Stephen"), PhoneticIndex.key("Steven"));
+    assertEquals(PhoneticIndex.key("Ashleigh"), PhoneticIndex.key("Ashley"));
+    assertEquals(PhoneticIndex.key("Philip"), PhoneticIndex.key("Filip"));
+    assertEquals(PhoneticIndex.key("Wright"), PhoneticIndex.key("Rite"));
+    assertEquals(PhoneticIndex.key("Knight"), PhoneticIndex.key("Nite"));
+    assertEquals("ASKL", PhoneticIndex.key("Aysegul"));
+    assertEquals("K0RN", PhoneticIndex.key("Catherine"));
+    assertEquals("SKMT", PhoneticIndex.key("Schmidt"));
+    assertEquals("AKSPT", PhoneticIndex.key("Accept"));
+    assertEquals("JHN", PhoneticIndex.key("Johanna"));
+    assertEquals("AMT", PhoneticIndex.key("Ahmed"));
+    assertEquals("", PhoneticIndex.key("-."));
+    assertFalse(PhoneticIndex.key("Bob").equals(PhoneticIndex.key("Rob")));
+  }
+
+  @Test
+  public void testSoundAlikes() {
+    PhoneticIndex index = index();
+    assertEquals(Arrays.asList("Aysegul Demir"), index.soundAlikes("Aisegul Demir"));
+    assertEquals(Arrays.asList("Stephen Phillips"), index.soundAlikes("Steven Filips"));
+    assertEquals(Arrays.asList("Catherine Wright", "Kathryn Right"),
+                 index.soundAlikes("Kathrin Rite"));
+    assertEquals(Arrays.asList("Malika Said Khasan"), index.soundAlikes("Malica Sayid Khassan"));
+    assertTrue(index.soundAlikes("Aisegul").isEmpty());
+    assertTrue(index.soundAlikes("Rob Smith").isEmpty());
+  }
+}
@@ -0,0 +1,297 @@
+import java.util.Arrays;
+
+/**
+ * An index of people by the beginnings of their names, so that the names starting with
+ * whatever has been typed so far can be offered as it is typed, in a time that depends
+ * on the number of names offered rather than on the size of the index.
+ *
+ * <p>People are held twice over in sorted arrays, by their names in lower case: once in
+ * order of their full names, and once more for each later word of their names, after a
+ * space or dash, in order of the rest of the name from that word on. The people whose
+ * names start with some text are then a single run of the first array, found by a
+ * binary search, and the people with a later word starting with it are a single run of
+ * the second. The index holds no names of its own, only an <code>int</code> for each
+ * person and two for each later word: names are read from the columns of the people
+ * indexed, by ordinal, and their case is folded as they are compared.
+ *
+ * <p>A <code>PrefixIndex</code> is not modified after it is built, and may be searched
+ * by several threads at once.
+ */
+class PrefixIndex {
+
+  /**
+   * The people indexed, whose names are read from their columns.
+   */
+  private final PeopleColumns people;
+
+  /**
+   * The ordinal of every person, in order of their names.
+   */
+  private final int[] byName;
+
+  /**
+   * The ordinal of the person holding each later word of a name, in order of the rest of
+   * the name from that word on.
+   */
+  private final int[] byWord;
+
+  /**
+   * The position in its name of each word in <code>byWord</code>.
+   */
+  private final int[] wordStarts;
+
+  /**
+   * Initializes a new <code>PrefixIndex</code> of the specified people.
+   *
+   * @param people
+   *        The finished columns of the people to index
+   */
+  PrefixIndex(PeopleColumns people) {
+    this.people = people;
+    int size = people.size();
+    int wordCount = 0;
+    for (int i = 0; i < size; i++) {
+      wordCount += laterWords(i, null, 0);
+    }
+
+    byName = new int[size];
+    for (int i = 0; i < byName.length; i++) {
+      byName[i] = i;
+    }
+    PeopleColumns.sort(byName, (a, b) -> compareFrom(a, 0, b, 0));
+
+    // Sort the later words through their positions in a list of every word, then lay
+    // the ordinals and starts out in that order.
+    int[] ordinals = new int[wordCount];
+    int[] starts = new int[wordCount];
+    for (int i = 0, w = 0; i < size; i++) {
+      int count = laterWords(i, starts, w);
+      Arrays.fill(ordinals, w, w + count, i);
+      w += count;
+    }
+    int[] order = new int[wordCount];
+    for (int w = 0; w < wordCount; w++) {
+      order[w] = w;
+    }
+    PeopleColumns.sort(order, (a, b) -> compareFrom(ordinals[a], starts[a],
+                                                    ordinals[b], starts[b]));
+    byWord = new int[wordCount];
+    wordStarts = new int[wordCount];
+    for (int w = 0; w < wordCount; w++) {
+      byWord[w] = ordinals[order[w]];
+      wordStarts[w] = starts[order[w]];
+    }
+  }
+
+  /**
+   * Returns the number of later words held, beyond the first word of each name.
+   *
+   * @return The number of later words
+   */
+  int wordCount() {
+    return byWord.length;
+  }
+
+  /**
+   * Returns the ordinals of the people whose names start with the specified text,
+   * without regard to case, in order of their names, followed by the people with a
+   * later word of their names starting with it, in order of the rest of their names.
+   * Each person is listed once.
+   *
+   * @param prefix
+   *        The start of a name
+   * @param limit
+   *        The greatest number of people listed
+   * @return The ordinals of up to <code>limit</code> people whose names start with the
+   *         text, or have a word starting with it
+   */
+  int[] complete(String prefix, int limit) {
+    String key = PeopleColumns.lowerCase(prefix);
+    int[] found = new int[Math.max(Math.min(limit, byName.length), 0)];
+    int count = 0;
+    for (int i = firstFrom(byName, null, key);
+         i < byName.length && count < found.length && startsWith(byName[i], 0, key);
+         i++) {
+      found[count++] = byName[i];
+    }
+    for (int w = firstFrom(byWord, wordStarts, key);
+         w < byWord.length && count < found.length && startsWith(byWord[w], wordStarts[w], key);
+         w++) {
+      if (isFirstMatch(byWord[w], wordStarts[w], key)) {
+        found[count++] = byWord[w];
+      }
+    }
+    return Arrays.copyOf(found, count);
+  }
+
+  /**
+   * Returns the first position in a sorted array of people at which the name, from the
+   * start of the word held, is not before the specified text.
+   *
+   * @param ordinals
+   *        The ordinals of people, in order of their names from the start of each word
+   * @param starts
+   *        The start of the word held at each position, or <code>null</code> if each
+   *        holds the first word of a name
+   * @param key
+   *        The text to search for, in lower case
+   * @return The position of the first name starting with the text, if any does
+   */
+  private int firstFrom(int[] ordinals, int[] starts, String key) {
+    int low = 0;
+    int high = ordinals.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      int start = starts == null ? 0 : starts[middle];
+      if (compareFrom(ordinals[middle], start, key) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Compare the names of two people in lower case, each from the specified position
+   * on, in the order of <code>String.compareTo</code>.
+   *
+   * @param a
+   *        The ordinal of the first person
+   * @param startA
+   *        The position in the first name to compare from
+   * @param b
+   *        The ordinal of the second person
+   * @param startB
+   *        The position in the second name to compare from
+   * @return A negative number, zero, or a positive number as the first name is before,
+   *         the same as, or after the second
+   */
+  private int compareFrom(int a, int startA, int b, int startB) {
+    int lengthA = people.nameLength(a) - startA;
+    int lengthB = people.nameLength(b) - startB;
+    for (int i = 0; i < lengthA && i < lengthB; i++) {
+      char ca = people.lowerNameChar(a, startA + i);
+      char cb = people.lowerNameChar(b, startB + i);
+      if (ca != cb) {
+        return ca - cb;
+      }
+    }
+    return lengthA - lengthB;
+  }
+
+  /**
+   * Compare a person's name in lower case, from the specified position on, with some
+   * text, in the order of <code>String.compareTo</code>.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @param start
+   *        The position in the name to compare from
+   * @param key
+   *        The text, in lower case
+   * @return A negative number, zero, or a positive number as the name is before, the
+   *         same as, or after the text
+   */
+  private int compareFrom(int ordinal, int start, String key) {
+    int length = people.nameLength(ordinal) - start;
+    for (int i = 0; i < length && i < key.length(); i++) {
+      char c = people.lowerNameChar(ordinal, start + i);
+      if (c != key.charAt(i)) {
+        return c - key.charAt(i);
+      }
+    }
+    return length - key.length();
+  }
+
+  /**
+   * Returns <code>true</code> if a person's name in lower case, from the specified
+   * position on, starts with some text.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @param start
+   *        The position in the name to compare from
+   * @param key
+   *        The text, in lower case
+   * @return <code>true</code> if the name starts with the text at that position
+   */
+  private boolean startsWith(int ordinal, int start, String key) {
+    if (people.nameLength(ordinal) - start < key.length()) {
+      return false;
+    }
+    for (int i = 0; i < key.length(); i++) {
+      if (people.lowerNameChar(ordinal, start + i) != key.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns <code>true</code> if the character of a person's name before the specified
+   * position ends a word, so that a later word may start at that position.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @param position
+   *        A position in the name after the first
+   * @return <code>true</code> if the character before the position is a space or dash
+   */
+  private boolean followsBreak(int ordinal, int position) {
+    char before = people.lowerNameChar(ordinal, position - 1);
+    return before == ' ' || before == '-';
+  }
+
+  /**
+   * Count the later words of a person's name, the words after a space or dash, and
+   * record where each one starts.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @param starts
+   *        The array in which to record the start of each word, or <code>null</code> if
+   *        the words are only counted
+   * @param from
+   *        The position in <code>starts</code> of the name's first later word
+   * @return The number of later words in the name
+   */
+  private int laterWords(int ordinal, int[] starts, int from) {
+    int count = 0;
+    for (int i = 1, length = people.nameLength(ordinal); i < length; i++) {
+      char c = people.lowerNameChar(ordinal, i);
+      if (followsBreak(ordinal, i) && c != ' ' && c != '-') {
+        if (starts != null) {
+          starts[from + count] = i;
+        }
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns <code>true</code> if a word of a person's name starting with some text is
+   * the first word of the name to start with it, so that a person is only listed once
+   * however many words of their name start with the text.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @param start
+   *        The start of a later word of the name, which starts with the text
+   * @param key
+   *        The text, in lower case
+   * @return <code>true</code> if no earlier word of the name starts with the text
+   */
+  private boolean isFirstMatch(int ordinal, int start, String key) {
+    if (startsWith(ordinal, 0, key)) {
+      return false;
+    }
+    for (int i = 1; i < start; i++) {
+      if (followsBreak(ordinal, i) && startsWith(ordinal, i, key)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
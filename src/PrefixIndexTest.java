@@ -0,0 +1,57 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PrefixIndexTest {
+  private static final String[] NAMES = {
+    "Ayasha Abdalla-Wyse", "Amal Abdurhman", "Satvick Acharya", "Bob Smith", "Rob Smithers",
+    "Asmita Bose", "BOB SMITH JR", "Smitha Zia", "Wyse Wyse-Wyatt"
+  };
+
+  @Test
+  public void testFullNamesBeforeLaterWords() {
+    PrefixIndex index = new PrefixIndex(RandomNames.columns(NAMES));
+    assertArrayEquals(new int[] {3, 6}, index.complete("bob", 10));
+    assertArrayEquals(new int[] {7, 3, 6, 4}, index.complete("Smi", 10));
+    assertArrayEquals(new int[] {7, 3}, index.complete("smi", 2));
+    assertArrayEquals(new int[] {1, 5}, index.complete("a", 2));
+    // Each person is listed once, however many words of their name match.
+    assertArrayEquals(new int[] {8, 0}, index.complete("wys", 10));
+    assertArrayEquals(new int[] {8}, index.complete("wya", 10));
+    assertArrayEquals(new int[] {3, 6}, index.complete("bob s", 10));
+    assertArrayEquals(new int[0], index.complete("xyz", 10));
+    assertArrayEquals(new int[0], index.complete("smi", 0));
+  }
+
+  @Test
+  public void testCompletionsMatchScan() {
+    Random random = new Random(53);
+    String letters = "abAB-";
+    PeopleColumns people = RandomNames.columns(RandomNames.names(random, 500, 4, 6, letters));
+    PrefixIndex index = new PrefixIndex(people);
+    for (int n = 0; n < 300; n++) {
+      String prefix = RandomNames.string(random, 3, letters);
+      if (prefix.isEmpty()) {
+        continue;
+      }
+      // Every name starting with the prefix, or with a word after a space or dash
+      // starting with it.
+      String key = prefix.toLowerCase();
+      int[] expected = RandomNames.scan(people.size(), i -> {
+        String name = people.name(i).toLowerCase();
+        boolean found = name.startsWith(key);
+        for (int c = 1; c < name.length() && !found; c++) {
+          char before = name.charAt(c - 1);
+          char first = name.charAt(c);
+          found = (before == ' ' || before == '-') && first != ' ' && first != '-'
+                  && name.startsWith(key, c);
+        }
+        return found;
+      });
+      assertArrayEquals(prefix, expected,
+                        RandomNames.sorted(index.complete(prefix, people.size())));
+    }
+  }
+}
@@ -0,0 +1,167 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+/**
+ * Random names for the tests that check a search of an index's names against a scan of
+ * every name, shared by the tests of each kind of search.
+ *
+ * <p>Names are made of only a few letters, in both cases, so that random names are
+ * often close to one another in spelling and share parts, while differing in case.
+ */
+final class RandomNames {
+
+  /**
+   * The letters of which names are made, unless others are given.
+   */
+  static final String LETTERS = "abcAB";
+
+  /**
+   * This class only provides static methods, and is not to be instantiated.
+   */
+  private RandomNames() {
+  }
+
+  /**
+   * Returns a random string of the default letters.
+   *
+   * @param random
+   *        The source of randomness
+   * @param maxLength
+   *        The greatest length of the string
+   * @return A string of up to <code>maxLength</code> characters
+   */
+  static String string(Random random, int maxLength) {
+    return string(random, maxLength, LETTERS);
+  }
+
+  /**
+   * Returns a random string of the specified letters.
+   *
+   * @param random
+   *        The source of randomness
+   * @param maxLength
+   *        The greatest length of the string
+   * @param letters
+   *        The characters of which the string is made
+   * @return A string of up to <code>maxLength</code> characters
+   */
+  static String string(Random random, int maxLength, String letters) {
+    StringBuilder s = new StringBuilder();
+    for (int i = random.nextInt(maxLength + 1); i > 0; i--) {
+      s.append(letters.charAt(random.nextInt(letters.length())));
+    }
+    return s.toString();
+  }
+
+  /**
+   * Returns random full names, each a random first and last name separated by a space.
+   *
+   * @param random
+   *        The source of randomness
+   * @param count
+   *        The number of names
+   * @param maxFirst
+   *        The greatest length of a first name
+   * @param maxLast
+   *        The greatest length of a last name
+   * @param letters
+   *        The characters of which the names are made
+   * @return The names
+   */
+  static String[] names(Random random, int count, int maxFirst, int maxLast,
+                        String letters) {
+    String[] names = new String[count];
+    for (int i = 0; i < count; i++) {
+      names[i] = string(random, maxFirst, letters) + " " + string(random, maxLast, letters);
+    }
+    return names;
+  }
+
+  /**
+   * Returns finished columns of people with the specified full names, one to a line in
+   * order. Each name is split into a first and last name at its first space, and
+   * people sharing a full name are kept only once, as by <code>finish</code>, so a
+   * person's ordinal need not be the position of their name.
+   *
+   * @param names
+   *        The full names of the people
+   * @return The finished columns
+   */
+  static PeopleColumns columns(String... names) {
+    PeopleColumns people = new PeopleColumns(names.length);
+    for (int i = 0; i < names.length; i++) {
+      int space = names[i].indexOf(' ');
+      people.add(i + 1, "09", names[i].substring(space + 1), names[i].substring(0, space),
+                 "09A", null, null);
+    }
+    return people.finish();
+  }
+
+  /**
+   * Returns the ordinals matched by a scan of every name, in order.
+   *
+   * @param count
+   *        The number of names scanned
+   * @param matches
+   *        Whether the name with an ordinal matches
+   * @return The ordinals of every name matched
+   */
+  static int[] scan(int count, IntPredicate matches) {
+    int[] matched = new int[count];
+    int found = 0;
+    for (int i = 0; i < count; i++) {
+      if (matches.test(i)) {
+        matched[found++] = i;
+      }
+    }
+    return Arrays.copyOf(matched, found);
+  }
+
+  /**
+   * Returns the names matched by a scan of every name, sorted.
+   *
+   * @param names
+   *        The names scanned
+   * @param matches
+   *        Whether the name with an ordinal matches
+   * @return The names matched, in sorted order
+   */
+  static List<String> scan(String[] names, IntPredicate matches) {
+    List<String> matched = new ArrayList<>();
+    for (int i : scan(names.length, matches)) {
+      matched.add(names[i]);
+    }
+    Collections.sort(matched);
+    return matched;
+  }
+
+  /**
+   * Returns the ordinals found by a search in order, to be compared with a scan.
+   *
+   * @param ordinals
+   *        The ordinals found, in the order of the search
+   * @return A sorted copy of the ordinals
+   */
+  static int[] sorted(int[] ordinals) {
+    int[] sorted = ordinals.clone();
+    Arrays.sort(sorted);
+    return sorted;
+  }
+
+  /**
+   * Returns the names found by a search in order, to be compared with a scan.
+   *
+   * @param names
+   *        The names found, in the order of the search
+   * @return A sorted copy of the names
+   */
+  static List<String> sorted(List<String> names) {
+    List<String> sorted = new ArrayList<>(names);
+    Collections.sort(sorted);
+    return sorted;
+  }
+}
@@ -18,15 +18,12 @@ public class RequestEvent {
   private byte requestType;
 
   /**
-   * A set of additional parameter flags, the purpose of which depends on the operation.
-   * An operation may choose to not use the flags, in which case it should set them to
-   * null or an array of length zero.
-   * 
-   * <p>Search operations use these flags to communicate which pieces of output are
-   * retained and which are lost. File manipulation operations currently do not use
-   * any additional parameters, although that may change.
+   * The settings of a search, for operations that search an index. Search operations
+   * use the filter to communicate which pieces of output are reported, and which people
+   * are reported at all. File manipulation operations do not use a filter, and set it
+   * to null.
    */
-  private boolean[] requestParams;
+  private SearchFilter requestFilter;
   
   /**
    * The object of this event, be it the name of a file or a number of people's names.
@@ -36,18 +33,18 @@ public class RequestEvent {
   /**
    * Initialize a new <code>RequestEvent</code>, representing an event of a type specified
    * by <code>type</code> that is to be applied to the object specified by <code>data</code>,
-   * with additional event parameters according to <code>parameters</code>.
+   * with the search settings specified by <code>filter</code>.
    * 
    * @param type
    *        A signifier of the type of event in progress
-   * @param parameters
-   *        A series of boolean flags that are used as additional settings in a request
+   * @param filter
+   *        The settings of a search, or null if the request is not a search
    * @param data
    *        The object of the event
    */
-  public RequestEvent(byte type, boolean[] parameters, String data) {
+  public RequestEvent(byte type, SearchFilter filter, String data) {
     requestType = type;
-    requestParams = parameters;
+    requestFilter = filter;
     requestData = data;
     
   }
@@ -56,8 +53,8 @@ public class RequestEvent {
     return requestType;
   }
   
-  public boolean[] getParams() {
-    return requestParams;
+  public SearchFilter getFilter() {
+    return requestFilter;
   }
 
   /**
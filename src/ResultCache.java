@@ -0,0 +1,234 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of the results of recent queries on a single index, so that a query
+ * repeated without changes, as when the same list is checked again and again while a
+ * page is being worked on, is answered without reading or looking up any names.
+ *
+ * <p>Queries are identified by their input text together with their search filter,
+ * and by whether they search for a partial name or a list of names. The input text is
+ * kept as it was given, since even a change in spacing or line endings can change
+ * which names are recognized in it. When the cache holds more than
+ * <code>MAX_ENTRIES</code> queries, or more than <code>CHAR_BUDGET</code> characters of
+ * input and results, the least recently used queries are discarded. Queries whose
+ * results alone would exceed the budget are never cached.
+ *
+ * <p>The cache does not know which index its results came from: it must be cleared
+ * whenever the index changes. A <code>ResultCache</code> is not synchronized, and must
+ * be guarded by its owner.
+ */
+class ResultCache {
+
+  /**
+   * The largest number of queries held.
+   */
+  static final int MAX_ENTRIES = 32;
+
+  /**
+   * The largest number of characters of input text, names, and results held across
+   * every query, about 16 MB of text.
+   */
+  static final long CHAR_BUDGET = 8L * 1024 * 1024;
+
+  /**
+   * A query, identified by its kind, input text, and search filter.
+   */
+  static final class Key {
+
+    /**
+     * Whether the query is a search for a partial name, rather than a list of names.
+     */
+    private final boolean partial;
+
+    /**
+     * The input text of the query.
+     */
+    private final String input;
+
+    /**
+     * The search filter of the query.
+     */
+    private final SearchFilter filter;
+
+    /**
+     * The hash code of the key, combining the hashes of the input, filter, and kind.
+     */
+    private final int hash;
+
+    /**
+     * Initializes a new <code>Key</code> identifying the query with the specified kind,
+     * input, and search filter.
+     *
+     * @param partial
+     *        Whether the query is a search for a partial name
+     * @param input
+     *        The input text of the query
+     * @param filter
+     *        The search filter of the query
+     */
+    Key(boolean partial, String input, SearchFilter filter) {
+      this.partial = partial;
+      this.input = input;
+      this.filter = filter;
+      hash = (input.hashCode() * 31 + filter.hashCode()) * 31 + (partial ? 1 : 0);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key key = (Key)other;
+      return hash == key.hash && partial == key.partial && filter.equals(key.filter)
+             && input.equals(key.input);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * The results of a query: the names that produced output, and the output for each.
+   */
+  static final class Entry {
+
+    /**
+     * The names that produced output, in order.
+     */
+    final String[] names;
+
+    /**
+     * The output for each name, at the same position as the name.
+     */
+    final String[] results;
+
+    /**
+     * The number of characters held by the entry and its key.
+     */
+    private final long chars;
+
+    /**
+     * Initializes a new <code>Entry</code> holding the specified results of the query
+     * identified by <code>key</code>.
+     *
+     * @param key
+     *        The query
+     * @param names
+     *        The names that produced output
+     * @param results
+     *        The output for each name
+     * @param chars
+     *        The number of characters of names and output
+     */
+    Entry(Key key, String[] names, String[] results, long chars) {
+      this.names = names;
+      this.results = results;
+      this.chars = key.input.length() + chars;
+    }
+  }
+
+  /**
+   * The queries held, from least to most recently used.
+   */
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * The number of characters held by every entry.
+   */
+  private long chars = 0;
+
+  /**
+   * The number of queries found in the cache.
+   */
+  private long hits = 0;
+
+  /**
+   * The number of queries not found in the cache.
+   */
+  private long misses = 0;
+
+  /**
+   * Returns the results of a query, and marks the query as the most recently used, or
+   * returns <code>null</code> if the query's results are not held. Counts a hit or a
+   * miss accordingly.
+   *
+   * @param key
+   *        The query
+   * @return The results of the query, or <code>null</code>
+   */
+  Entry get(Key key) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return entry;
+  }
+
+  /**
+   * Store the results of a query, discarding the least recently used queries as
+   * necessary to stay within the cache's bounds. Results too large to fit in the cache
+   * are not stored.
+   *
+   * @param key
+   *        The query
+   * @param entry
+   *        The results of the query
+   */
+  void put(Key key, Entry entry) {
+    if (entry.chars > CHAR_BUDGET) {
+      return;
+    }
+    Entry replaced = entries.put(key, entry);
+    if (replaced != null) {
+      chars -= replaced.chars;
+    }
+    chars += entry.chars;
+
+    Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+    while (entries.size() > MAX_ENTRIES || chars > CHAR_BUDGET) {
+      chars -= eldest.next().getValue().chars;
+      eldest.remove();
+    }
+  }
+
+  /**
+   * Discard the results of every query. The hit and miss counts are kept.
+   */
+  void clear() {
+    entries.clear();
+    chars = 0;
+  }
+
+  /**
+   * Returns the number of queries held.
+   *
+   * @return The number of queries
+   */
+  int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the number of queries that have been found in the cache.
+   *
+   * @return The number of hits
+   */
+  long hits() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of queries that have not been found in the cache.
+   *
+   * @return The number of misses
+   */
+  long misses() {
+    return misses;
+  }
+}
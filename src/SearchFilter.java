@@ -0,0 +1,231 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * The settings of a search: which pieces of data are reported about each person found,
+ * and which grades and homeforms people must be in to be reported at all.
+ *
+ * <p>Grades are selected by a mask over <code>GRADES</code>, and homeforms by a set of
+ * positions in an index's list of properly formatted homeforms, as returned by
+ * <code>IndexInterpreter.getHomeforms()</code> and laid out row by row in the search
+ * parameters frame, along with a single flag for every poorly formatted homeform. A
+ * filter made by <code>everyone</code> selects every homeform without regard to the
+ * list, so it is the same size for any index.
+ *
+ * <p>A filter is not modified after it is made, and is meant to be made once, when
+ * the search parameters are set, and used for every search until they change. The
+ * first time it is used on an index it is compiled into a predicate over the index's
+ * people, which is kept for every later search of the same index, so that the cost of
+ * setting up a search does not depend on how many homeforms the index has.
+ */
+public final class SearchFilter {
+
+  /**
+   * Flags for the data reported about each person: their index number, their grade,
+   * and their homeform.
+   */
+  public static final int REPORT_INDEX = 1;
+  public static final int REPORT_GRADE = 2;
+  public static final int REPORT_HOMEFORM = 4;
+
+  /**
+   * The grades that can be selected, in the order of their bits in a grade mask.
+   */
+  public static final String[] GRADES = {"09", "10", "11", "12", "Staff"};
+
+  /**
+   * A grade mask selecting every grade.
+   */
+  public static final int ALL_GRADES = (1 << GRADES.length) - 1;
+
+  /**
+   * Grade 9 as written in badly formatted index files, selected along with grade 09.
+   */
+  private static final String GRADE_9_UNPADDED = "9";
+
+  /**
+   * The data reported about each person, as a combination of the report flags.
+   */
+  private final int reports;
+
+  /**
+   * The selected grades, with bit i set if <code>GRADES[i]</code> is selected.
+   */
+  private final int grades;
+
+  /**
+   * The positions of the selected homeforms in the list of properly formatted homeforms,
+   * or <code>null</code> if every homeform is selected.
+   */
+  private final BitSet homeforms;
+
+  /**
+   * Whether poorly formatted homeforms are selected.
+   */
+  private final boolean otherHomeforms;
+
+  /**
+   * The hash code of the filter.
+   */
+  private final int hash;
+
+  /**
+   * The predicate compiled for the index last searched, or <code>null</code> if the
+   * filter has not been used.
+   */
+  private volatile Compiled compiled;
+
+  /**
+   * A predicate selecting people in a single index, along with the data it was compiled
+   * from.
+   */
+  private static final class Compiled {
+    final PeopleDataList index;
+    final List<String>[] homeformList;
+    final IntPredicate selected;
+
+    Compiled(PeopleDataList index, List<String>[] homeformList, IntPredicate selected) {
+      this.index = index;
+      this.homeformList = homeformList;
+      this.selected = selected;
+    }
+  }
+
+  /**
+   * Initializes a new <code>SearchFilter</code> with the specified settings.
+   *
+   * @param reports
+   *        The data reported about each person, as a combination of
+   *        <code>REPORT_INDEX</code>, <code>REPORT_GRADE</code>, and
+   *        <code>REPORT_HOMEFORM</code>
+   * @param grades
+   *        The selected grades, with bit i set if <code>GRADES[i]</code> is selected
+   * @param homeforms
+   *        The positions of the selected homeforms in the list of properly formatted
+   *        homeforms, or <code>null</code> to select every homeform
+   * @param otherHomeforms
+   *        Whether poorly formatted homeforms are selected
+   */
+  public SearchFilter(int reports, int grades, BitSet homeforms, boolean otherHomeforms) {
+    this.reports = reports & (REPORT_INDEX | REPORT_GRADE | REPORT_HOMEFORM);
+    this.grades = grades & ALL_GRADES;
+    this.homeforms = homeforms == null ? null : (BitSet)homeforms.clone();
+    this.otherHomeforms = otherHomeforms || homeforms == null;
+    hash = ((this.reports * 31 + this.grades) * 31
+            + (this.homeforms == null ? -1 : this.homeforms.hashCode())) * 2
+           + (this.otherHomeforms ? 1 : 0);
+  }
+
+  /**
+   * Returns a filter selecting every grade and homeform, in any index.
+   *
+   * @param reports
+   *        The data reported about each person, as a combination of the report flags
+   * @return A filter selecting everyone
+   */
+  public static SearchFilter everyone(int reports) {
+    return new SearchFilter(reports, ALL_GRADES, null, true);
+  }
+
+  /**
+   * Returns a filter with the same selection as this one, reporting the specified data.
+   *
+   * @param reports
+   *        The data reported about each person, as a combination of the report flags
+   * @return A filter reporting the data
+   */
+  public SearchFilter withReports(int reports) {
+    if (reports == this.reports) {
+      return this;
+    }
+    return new SearchFilter(reports, grades, homeforms, otherHomeforms);
+  }
+
+  /**
+   * Returns <code>true</code> if the specified piece of data is reported about each
+   * person.
+   *
+   * @param report
+   *        One of <code>REPORT_INDEX</code>, <code>REPORT_GRADE</code>, or
+   *        <code>REPORT_HOMEFORM</code>
+   * @return <code>true</code> if the data is reported
+   */
+  public boolean reports(int report) {
+    return (reports & report) != 0;
+  }
+
+  /**
+   * Returns a predicate selecting the people in the specified index who are in a
+   * selected grade and homeform. The predicate is compiled the first time the filter
+   * is used on the index, and the same predicate is returned for it afterward. May be
+   * called concurrently.
+   *
+   * @param index
+   *        The people to select from
+   * @param homeformList
+   *        The lists of homeforms in the index, as returned by
+   *        <code>IndexInterpreter.getHomeforms()</code>
+   * @return A predicate on handles to people, as returned by
+   *         <code>PeopleDataList.lookup</code>
+   */
+  IntPredicate selector(PeopleDataList index, List<String>[] homeformList) {
+    Compiled last = compiled;
+    if (last != null && last.index == index && last.homeformList == homeformList) {
+      return last.selected;
+    }
+
+    List<String> selectedGrades = new ArrayList<>();
+    for (int i = 0; i < GRADES.length; i++) {
+      if ((grades & (1 << i)) != 0) {
+        selectedGrades.add(GRADES[i]);
+      }
+    }
+    // Add grade 9 (as opposed to grade 09) to the allowed grades if grade 09 is
+    // selected, to account for badly formatted index files.
+    if ((grades & 1) != 0) {
+      selectedGrades.add(GRADE_9_UNPADDED);
+    }
+
+    // The last list holds every poorly formatted homeform, which are selected together.
+    List<String> selectedHomeforms = new ArrayList<>();
+    int position = 0;
+    for (int i = 0; i < homeformList.length - 1; i++) {
+      for (String homeform : homeformList[i]) {
+        if (homeforms == null || homeforms.get(position)) {
+          selectedHomeforms.add(homeform);
+        }
+        position++;
+      }
+    }
+    if (otherHomeforms && homeformList.length > 0) {
+      selectedHomeforms.addAll(homeformList[homeformList.length - 1]);
+    }
+
+    // Compile the selections into the index's grade and homeform codes once, so that
+    // each person is checked against them without comparing strings.
+    BitSet gradeCodes = index.gradeCodes(selectedGrades);
+    BitSet homeformCodes = index.homeformCodes(selectedHomeforms);
+    IntPredicate selected = person -> index.isSelected(person, gradeCodes, homeformCodes);
+    compiled = new Compiled(index, homeformList, selected);
+    return selected;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof SearchFilter)) {
+      return false;
+    }
+    SearchFilter filter = (SearchFilter)other;
+    return hash == filter.hash && reports == filter.reports && grades == filter.grades
+           && otherHomeforms == filter.otherHomeforms
+           && (homeforms == null ? filter.homeforms == null
+                                 : homeforms.equals(filter.homeforms));
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+}
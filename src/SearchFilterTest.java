@@ -0,0 +1,87 @@
+import static org.junit.Assert.*;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+import org.junit.Test;
+
+public class SearchFilterTest {
+  private static final String INDEX =
+      "H161\t01\t0001.jpg\t09\tAbdalla-Wyse\tAyasha\t09A\n"
+      + "H161\t01\t0002.jpg\t9\tAbdurhman\tAmal\t09B\n"
+      + "H161\t01\t0003.jpg\t10\tAcharya\tSatvick\t10A\n"
+      + "H161\t01\t0004.jpg\t12\tAcquah\tAmanda\t12C\n"
+      + "H161\t01\t0005.jpg\tStaff\tZia\tTahmid\t###\n";
+
+  private static boolean[] selected(SearchFilter filter, PeopleDataList index,
+                                    List<String>[] homeformList, String... names) {
+    IntPredicate selector = filter.selector(index, homeformList);
+    boolean[] found = new boolean[names.length];
+    for (int i = 0; i < names.length; i++) {
+      found[i] = selector.test(index.lookup(names[i]));
+    }
+    return found;
+  }
+
+  @Test
+  public void testSelection() {
+    PeopleDataList index = new PeopleDataList();
+    List<String>[] homeformList = index.loadFileData(INDEX);
+    String[] names = {"Ayasha Abdalla-Wyse", "Amal Abdurhman", "Satvick Acharya",
+                      "Amanda Acquah", "Tahmid Zia"};
+
+    SearchFilter everyone = SearchFilter.everyone(SearchFilter.REPORT_INDEX);
+    assertArrayEquals(new boolean[] {true, true, true, true, true},
+                      selected(everyone, index, homeformList, names));
+
+    // Grade 09 also selects the badly formatted grade 9.
+    SearchFilter grade9 = new SearchFilter(SearchFilter.REPORT_INDEX, 1, null, true);
+    assertArrayEquals(new boolean[] {true, true, false, false, false},
+                      selected(grade9, index, homeformList, names));
+
+    // Every grade, with only the second properly formatted homeform and the others.
+    BitSet second = new BitSet();
+    second.set(1);
+    SearchFilter homeforms = new SearchFilter(SearchFilter.REPORT_INDEX,
+                                              SearchFilter.ALL_GRADES, second, true);
+    assertArrayEquals(new boolean[] {false, true, false, false, true},
+                      selected(homeforms, index, homeformList, names));
+  }
+
+  @Test
+  public void testCompiledOncePerIndex() {
+    PeopleDataList index = new PeopleDataList();
+    List<String>[] homeformList = index.loadFileData(INDEX);
+    SearchFilter filter = SearchFilter.everyone(SearchFilter.REPORT_GRADE);
+    IntPredicate selector = filter.selector(index, homeformList);
+    assertSame(selector, filter.selector(index, homeformList));
+
+    PeopleDataList other = new PeopleDataList();
+    List<String>[] otherList = other.loadFileData(INDEX);
+    assertNotSame(selector, filter.selector(other, otherList));
+  }
+
+  @Test
+  public void testEquality() {
+    BitSet homeforms = new BitSet();
+    homeforms.set(3);
+    SearchFilter filter = new SearchFilter(SearchFilter.REPORT_GRADE, 5, homeforms, false);
+    SearchFilter same = new SearchFilter(SearchFilter.REPORT_GRADE, 5, homeforms, false);
+    // The filter keeps its own copy of the homeforms selected.
+    homeforms.set(4);
+    assertEquals(filter, same);
+    assertNotEquals(filter, new SearchFilter(SearchFilter.REPORT_GRADE, 5, homeforms, false));
+    assertEquals(filter.hashCode(), same.hashCode());
+    assertNotEquals(filter, filter.withReports(SearchFilter.REPORT_HOMEFORM));
+    assertSame(filter, filter.withReports(SearchFilter.REPORT_GRADE));
+    assertTrue(filter.withReports(SearchFilter.REPORT_HOMEFORM)
+                     .reports(SearchFilter.REPORT_HOMEFORM));
+    assertFalse(filter.reports(SearchFilter.REPORT_INDEX));
+    assertEquals(SearchFilter.everyone(SearchFilter.REPORT_INDEX),
+                 SearchFilter.everyone(SearchFilter.REPORT_INDEX));
+    assertNotEquals(SearchFilter.everyone(SearchFilter.REPORT_INDEX),
+                    new SearchFilter(SearchFilter.REPORT_INDEX, SearchFilter.ALL_GRADES,
+                                     new BitSet(), true));
+  }
+}
@@ -4,7 +4,7 @@ import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Observable;
 
@@ -150,6 +150,14 @@ public class SearchParametersFrame extends Observable implements ActionListener
    * set to match the grade button in the same row (excluding Staff and ### buttons).
    */
   private JButton fillHomeforms;
+
+  /**
+   * The filter made from the current settings, or <code>null</code> if a setting has
+   * changed since it was last made. A filter is only made again when a setting changes,
+   * so that the same filter, and the predicates compiled from it, are used for every
+   * search until then.
+   */
+  private SearchFilter filter;
   
   /**
    * Set up a new <code>SearchParameters</code> frame, without providing any homeforms
@@ -174,6 +182,10 @@ public class SearchParametersFrame extends Observable implements ActionListener
     select11 = new JRadioButton("Gr. 11");
     select12 = new JRadioButton("Gr. 12");
     selectStaff = new JRadioButton("Staff");
+    JRadioButton[] gradeButtons = {select9, select10, select11, select12, selectStaff};
+    for (JRadioButton grade : gradeButtons) {
+      grade.addActionListener(this);
+    }
     
     // Extra utilities for selecting groups of buttons can be used normally.
     clearAll = new JButton("Clear");
@@ -254,6 +266,7 @@ public class SearchParametersFrame extends Observable implements ActionListener
     for (int i = 0; i < homeforms9.length; i++) {
       homeforms9[i] = new JRadioButton((String)homeforms[0].get(i));
       homeforms9[i].setEnabled(false);
+      homeforms9[i].addActionListener(this);
       homeformButtons.add(homeforms9[i]);
       homeformLayout.putConstraint(SpringLayout.NORTH, homeforms9[i], 3, SpringLayout.NORTH, homeformButtons);
       if (i > 0) {
@@ -269,6 +282,7 @@ public class SearchParametersFrame extends Observable implements ActionListener
     for (int i = 0; i < homeforms10.length; i++) {
       homeforms10[i] = new JRadioButton((String)homeforms[1].get(i));
       homeforms10[i].setEnabled(false);
+      homeforms10[i].addActionListener(this);
       homeformButtons.add(homeforms10[i]);
       homeformLayout.putConstraint(SpringLayout.NORTH, homeforms10[i], 0, SpringLayout.SOUTH, homeforms9[0]);
       if (i > 0) {
@@ -284,6 +298,7 @@ public class SearchParametersFrame extends Observable implements ActionListener
     for (int i = 0; i < homeforms11.length; i++) {
       homeforms11[i] = new JRadioButton((String)homeforms[2].get(i));
       homeforms11[i].setEnabled(false);
+      homeforms11[i].addActionListener(this);
       homeformButtons.add(homeforms11[i]);
       homeformLayout.putConstraint(SpringLayout.NORTH, homeforms11[i], 0, SpringLayout.SOUTH, homeforms10[0]);
       if (i > 0) {
@@ -315,6 +330,7 @@ public class SearchParametersFrame extends Observable implements ActionListener
     if (!homeforms[3].isEmpty()) {
       otherHomeforms = new JRadioButton("###");
       otherHomeforms.setEnabled(false);
+      otherHomeforms.addActionListener(this);
       homeformButtons.add(otherHomeforms);
       homeformLayout.putConstraint(SpringLayout.WEST, otherHomeforms, 3, SpringLayout.WEST, homeformButtons);
       homeformLayout.putConstraint(SpringLayout.NORTH, otherHomeforms, 0, SpringLayout.SOUTH, homeforms12[0]);
@@ -407,6 +423,7 @@ public class SearchParametersFrame extends Observable implements ActionListener
 	
 	// Create a new parameters frame using the new homeform list.
     inUse = createParametersFrame(homeforms);
+    filter = null;
     inUse.pack();
     inUse.setResizable(false);
     // Sets the frame to not discard the state of its buttons when closed.
@@ -442,87 +459,60 @@ public class SearchParametersFrame extends Observable implements ActionListener
   }
   
   /**
-   * Fills an array with boolean flags representing which grade/homeform
-   * search parameter buttons are currently selected. Some extra spaces at the
-   * beginning of the array are left as default values, the number of which is
-   * specified by <code>offset</code>. These spaces are reserved for additional
-   * parameters to be added in from the outside scope.
+   * Returns the search filter made from the current settings of the search parameter
+   * buttons, reporting the specified data about each person. The filter is made again
+   * only if a setting has changed since the last call, so repeated searches with the
+   * same settings share one filter.
    * 
-   * <p>The output is formatted with grades appearing first after the reserved
-   * spaces, in order of age (i.e. grade 9 first, Staff last). Next, the statuses
-   * of homeform buttons are added in the order in which they were arranged in
-   * the homeform list through method <code>loadHomeformList</code>. The final
-   * flag is for all non-standard homeforms, including Staff and unknown homeform.
+   * <p>The filter returned will account for search parameters being disabled, i.e.
+   * the Enable Parameters button being deselected, by selecting all grades and
+   * homeforms in any index.
    * 
-   * <p>The array returned does not account for the state of the Enable Parameters
-   * button, and only returns the state of other buttons. Therefore it is not
-   * completely representative of which options to use for a subsequent search.
+   * <p>Homeforms are selected in the order in which they were arranged in the homeform
+   * list through method <code>loadHomeformList</code>, row by row. The final button
+   * selects all non-standard homeforms, including Staff and unknown homeform.
    * 
-   * @param offset
-   *        The number of spaces reserved at the beginning of the array
-   * @return An array of boolean flags indicating the
+   * @param reports
+   *        The data reported about each person, as a combination of the report flags
+   *        of <code>SearchFilter</code>
+   * @return A filter representing which search parameters are selected
    */
-  private boolean[] getSelectedButtonsMask(int offset) {
-    JRadioButton[][] allButtons = getParameterButtons();
-
-    // Count the total number of search parameter buttons to create an array
-    // of the right length.
-    int fullSize = 0;
-    for (JRadioButton[] buttonsSet : allButtons) {
-      fullSize += buttonsSet.length;
-    }
-    boolean bitFlags[] = new boolean[fullSize + offset];
-
-    // Variable to track current position in the output array, as opposed to
-    // any indices in the buttons arrays.
-    int absoluteIndex = 0;
-    // As its name suggests, allButtons contains all relevant search parameter
-    // buttons, including grades and 'other' (###), and already in proper order.
-    for (JRadioButton[] buttonsSet : allButtons) {
-      for (JRadioButton button : buttonsSet) {
-        // Set the value of each button's flag to refer to whether it is selected.
-        bitFlags[offset + absoluteIndex++] = button.isSelected();
+  public SearchFilter getSearchFilter(int reports) {
+    if (filter == null) {
+      if (parametrize == null || !parametrize.isSelected()) {
+        // Search parameters are disabled: select everyone.
+        filter = SearchFilter.everyone(reports);
+      } else {
+        // Search parameters are enabled: construct the filter based on selected
+        // buttons.
+        JRadioButton[][] allButtons = getParameterButtons();
+        int grades = 0;
+        for (int i = 0; i < allButtons[0].length; i++) {
+          if (allButtons[0][i].isSelected()) {
+            grades |= 1 << i;
+          }
+        }
+        BitSet homeforms = new BitSet();
+        int position = 0;
+        for (int row = 1; row < allButtons.length - 1; row++) {
+          for (JRadioButton button : allButtons[row]) {
+            homeforms.set(position++, button.isSelected());
+          }
+        }
+        boolean other = otherHomeforms != null && otherHomeforms.isSelected();
+        filter = new SearchFilter(reports, grades, homeforms, other);
       }
     }
-    
-    return bitFlags;
-  }
-  
-  /**
-   * Returns an array of flags indicating which search parameters are set to use
-   * for a search. This array has several unchanged indices at the beginning, the
-   * number of which is given by <code>offset</code>. This allows the outside scope
-   * to reserve some number of spaces to add its own parameters.
-   * 
-   * <p>The array returned will account for search parameters being disabled, i.e.
-   * the Enable Parameters button being deselected, by considering all grades
-   * and homeforms to be selected. That is, it will fill the output array with
-   * <code>true</code> values, excluding the reserved spaces at the beginning.
-   * 
-   * @param offset
-   *        The number of reserved spaces at the beginning of the array
-   * @return An array representing which search parameters are selected
-   */
-  public boolean[] getSearchParameters(int offset) {
-    if (!parametrize.isSelected()) {
-      // Search parameters are disabled: return an array of True values
-      int numButtons = offset + 5 + homeforms9.length + homeforms10.length
-    		                  + homeforms11.length + homeforms12.length + 1;
-      boolean[] allTrue = new boolean[numButtons];
-      Arrays.fill(allTrue, offset, numButtons, true);
-      return allTrue;
-    } else {
-      // Search parameters are enabled: construct the array based on selected
-      // buttons and return.
-      return getSelectedButtonsMask(3);
-    }
+    filter = filter.withReports(reports);
+    return filter;
   }
   
   @Override
   public void actionPerformed(ActionEvent arg0) {
-    // Some event has been triggered that requires response. This could be any
-    // press of a button besides any grade/homeform search parameter button.
-    // The toggling of those buttons does not evoke or require any response.
+    // Some event has been triggered that requires response. Every button changes
+    // the settings, so the filter is made again for the next search. Toggling a
+    // grade/homeform search parameter button requires no other response.
+    filter = null;
 
     if (arg0.getSource() == clearAll) {
       // Clear button has been pressed: deselect all search settings.
@@ -1,4 +1,20 @@
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.DefaultListModel;
+import javax.swing.JList;
+import javax.swing.JPopupMenu;
 import javax.swing.JTextField;
+import javax.swing.Timer;
+import javax.swing.text.JTextComponent;
 
 /**
  * A lookup pane purposed for searches on a single person at a time. Provides one
@@ -9,6 +25,16 @@ import javax.swing.JTextField;
  * to give more room to the input pane. On the other side of the divider is the
  * output text field, which is non-editable and is used to display requested information
  * about the name in the input text field.
+ * 
+ * <p>A partial name marked with an asterisk, such as <code>Smi*</code>, is searched for
+ * every person whose name contains it, and the best matches are displayed in turn.
+ * 
+ * <p>While a name is being typed, the names that complete it are offered in a list
+ * below the input text field, each with the person's grade and homeform. Once typing
+ * pauses for <code>COMPLETION_DELAY</code> milliseconds, the text typed is sent to each
+ * completion listener, which is expected to look up the names completing it in the
+ * background and pass them back to <code>showCompletions</code>. A name is chosen from
+ * the list by clicking on it, or with the arrow keys and Enter; Escape closes the list.
  */
 public class SingleLookupPane extends IndexLookupPane {
 
@@ -17,10 +43,118 @@ public class SingleLookupPane extends IndexLookupPane {
    */
   private static final long serialVersionUID = -5057418291455801026L;
 
+  /**
+   * The pause in typing, in milliseconds, after which the names completing the text
+   * typed are requested, and the least number of characters for which they are.
+   */
+  /* Modify these numbers to be offered names sooner or later while typing. */
+  private static final int COMPLETION_DELAY = 150;
+  private static final int COMPLETION_MIN_CHARS = 2;
+
+  /**
+   * The character marking the input text as a partial name.
+   */
+  private static final char PARTIAL_MARK = '*';
+
+  /**
+   * The timer that requests the names completing the text typed once typing pauses.
+   * Restarted by every change to the input text field.
+   */
+  private final Timer completionTimer;
+
+  /**
+   * The listeners sent the text typed when the names completing it are needed.
+   */
+  private final List<ActionListener> completionListeners = new ArrayList<>();
+
+  /**
+   * The popup holding the list of names offered.
+   */
+  private final JPopupMenu completionPopup;
+
+  /**
+   * The names offered, each with the person's grade and homeform.
+   */
+  private final JList<String> completionList;
+
+  /**
+   * The names offered, without grade and homeform, in the order listed.
+   */
+  private String[] completionNames = new String[0];
+
+  /**
+   * <code>true</code> while a name chosen from the list replaces the text typed, so
+   * that the change does not request names of its own.
+   */
+  private boolean choosing = false;
+
+  /**
+   * Initialize a new <code>SingleLookupPane</code> with empty input and output text
+   * fields, which offers names as they are typed.
+   */
+  public SingleLookupPane() {
+    completionTimer = new Timer(COMPLETION_DELAY, evt -> requestCompletions());
+    completionTimer.setRepeats(false);
+
+    completionList = new JList<>(new DefaultListModel<>());
+    completionList.setFont(textDisplayFont);
+    completionList.setFocusable(false);
+    completionList.addMouseListener(new MouseAdapter() {
+      @Override
+      public void mouseClicked(MouseEvent evt) {
+        choose(completionList.locationToIndex(evt.getPoint()));
+      }
+    });
+    completionPopup = new JPopupMenu();
+    completionPopup.setFocusable(false);
+    completionPopup.add(completionList);
+
+    JTextComponent input = getInputField();
+    input.addKeyListener(new KeyAdapter() {
+      @Override
+      public void keyPressed(KeyEvent evt) {
+        if (!completionPopup.isVisible()) {
+          return;
+        }
+        int selected = completionList.getSelectedIndex();
+        int count = completionNames.length;
+        switch (evt.getKeyCode()) {
+          case KeyEvent.VK_DOWN:
+            completionList.setSelectedIndex((selected + 1) % count);
+            evt.consume();
+            break;
+          case KeyEvent.VK_UP:
+            completionList.setSelectedIndex(selected <= 0 ? count - 1 : selected - 1);
+            evt.consume();
+            break;
+          case KeyEvent.VK_ENTER:
+            if (selected >= 0) {
+              choose(selected);
+              evt.consume();
+            }
+            break;
+          case KeyEvent.VK_ESCAPE:
+            hideCompletions();
+            evt.consume();
+            break;
+          default:
+        }
+      }
+    });
+    input.addFocusListener(new FocusAdapter() {
+      @Override
+      public void focusLost(FocusEvent evt) {
+        hideCompletions();
+      }
+    });
+  }
+
   @Override
   protected JTextField getTextComponent() {
     JTextField inputField = new JTextField();
     inputField.setFont(textDisplayFont);
+    inputField.setToolTipText("Type a full name, or part of a name followed by * "
+                              + "to find the names containing it");
     return inputField;
   }
   
@@ -33,4 +167,122 @@ public class SingleLookupPane extends IndexLookupPane {
       return realText;
     }
   }
+
+  /**
+   * Returns <code>true</code> if the input text is a partial name, marked with an
+   * asterisk, to be searched for every person whose name contains its parts rather than
+   * looked up as a full name.
+   *
+   * @return <code>true</code> if the input text holds <code>PARTIAL_MARK</code>
+   */
+  public boolean isPartialName() {
+    String text = getInputText();
+    return text != null && text.indexOf(PARTIAL_MARK) >= 0;
+  }
+
+  @Override
+  public void display(String[][] results) {
+    hideCompletions();
+    super.display(results);
+  }
+
+  @Override
+  public void startDisplay() {
+    hideCompletions();
+    super.startDisplay();
+  }
+
+  /**
+   * Adds the specified listener to be sent the text typed into the input text field
+   * whenever the names completing it are needed, as the command of an
+   * <code>ActionEvent</code> whose source is this pane.
+   * 
+   * @param listener
+   *        The listener to add
+   */
+  public void addCompletionListener(ActionListener listener) {
+    completionListeners.add(listener);
+  }
+
+  /**
+   * Offer the names completing the specified text, in a list below the input text
+   * field. If the input text field no longer holds the text, or no longer has focus,
+   * the names are out of date and are not shown. If no names complete the text, the
+   * list is closed.
+   * 
+   * @param prefix
+   *        The text the names complete
+   * @param completions
+   *        The names offered, at index 0, and the grade and homeform of each person, at
+   *        the same position of index 1
+   */
+  public void showCompletions(String prefix, String[][] completions) {
+    JTextComponent input = getInputField();
+    if (!prefix.equals(input.getText())) {
+      // The text has changed since, and the names completing it will follow.
+      return;
+    }
+    if (!input.isFocusOwner() || completions[0].length == 0) {
+      completionPopup.setVisible(false);
+      return;
+    }
+    DefaultListModel<String> model = (DefaultListModel<String>)completionList.getModel();
+    model.clear();
+    for (int i = 0; i < completions[0].length; i++) {
+      model.addElement(completions[0][i] + "    " + completions[1][i]);
+    }
+    completionNames = completions[0];
+    completionList.clearSelection();
+    completionList.setVisibleRowCount(completionNames.length);
+    completionPopup.pack();
+    completionPopup.show(input, 0, input.getHeight());
+  }
+
+  /**
+   * Close the list of names offered, if it is open, and cancel any request for names
+   * that is waiting for typing to pause.
+   */
+  private void hideCompletions() {
+    completionTimer.stop();
+    completionPopup.setVisible(false);
+  }
+
+  /**
+   * Replace the text typed with a name from the list of names offered.
+   * 
+   * @param position
+   *        The position of the name in the list, or -1 if none was chosen
+   */
+  private void choose(int position) {
+    if (position < 0 || position >= completionNames.length) {
+      return;
+    }
+    hideCompletions();
+    choosing = true;
+    getInputField().setText(completionNames[position]);
+    choosing = false;
+  }
+
+  @Override
+  protected void inputEdited(String text) {
+    if (choosing) {
+      return;
+    }
+    if (text.trim().length() >= COMPLETION_MIN_CHARS && text.indexOf(PARTIAL_MARK) < 0) {
+      completionTimer.restart();
+    } else {
+      hideCompletions();
+    }
+  }
+
+  /**
+   * Send the text typed to every completion listener, to find the names completing it.
+   */
+  private void requestCompletions() {
+    ActionEvent evt = new ActionEvent(this, ActionEvent.ACTION_PERFORMED,
+                                      getInputField().getText());
+    for (ActionListener listener : completionListeners) {
+      listener.actionPerformed(evt);
+    }
+  }
 }
@@ -816,6 +816,59 @@ public class StackingPriorityList<E extends Serializable> implements Collection<
     }
   }
   
+  /**
+   * Inserts the specified element into the list with the specified count, without the
+   * count being increased. Equivalent to calling <code>load</code> with a node holding
+   * the element and count, and subject to the same restrictions.
+   * 
+   * <p>This method is meant to restore a list from a record of its elements and their
+   * counts. Since elements loaded with the same count as an element already in the list
+   * are placed in front of that element, the elements of such a record must be loaded
+   * from the back of the list to the front for their order to be restored.
+   * 
+   * @param elem
+   *        The element being loaded
+   * @param count
+   *        The number of times the element has been added to the list
+   * @param inManual
+   *        Whether or not the element is to be loaded into manual priority
+   * @throws IllegalArgumentException
+   *         If the element is already contained in the list, or its count is not positive
+   * @throws NullPointerException
+   *         If the specified element is null
+   */
+  public void load(E elem, int count, boolean inManual) {
+    if (elem == null) {
+      throw new NullPointerException("StackingPriorityList does not permit null elements");
+    } else if (count < 1) {
+      throw new IllegalArgumentException("An element's count must be positive");
+    } else {
+      StorageNode<E> node = new StorageNode<>(elem);
+      node.count = count;
+      load(node, inManual);
+    }
+  }
+
+  /**
+   * Returns the number of times the specified element has been added to the list, or 0
+   * if the list does not contain the element.
+   * 
+   * @param elem
+   *        The element whose count is to be returned
+   * @return The element's count
+   * @throws NullPointerException
+   *         If the specified element is null
+   */
+  public int countOf(Object elem) {
+    if (this.containsInManual(elem)) {
+      return manualPrioritySeat.count;
+    } else if (this.containsInAutomatic(elem)) {
+      return prioritizedList.get(indexInAutomaticList(elem)).count;
+    } else {
+      return 0;
+    }
+  }
+  
   @Override
   public ListIterator<E> iterator() {
     return new StackPriorityIterator();
@@ -608,6 +608,83 @@ public class StackingPriorityListTest {
     assertEquals(4, fpQueue.size());
   }
   
+  @Test
+  public void testCountedLoading() {
+    fpQueue = new StackingPriorityList<>();
+    fpQueue.load(1, 1, false);
+    fpQueue.load(2, 3, false);
+    fpQueue.load(3, 2, false);
+    fpQueue.load(4, 1, true);
+    assertEquals(4, fpQueue.size());
+    assertTrue(fpQueue.containsInManual(4));
+    Iterator<Integer> iter = fpQueue.iterator();
+    assertEquals(4, (int)iter.next());
+    assertEquals(2, (int)iter.next());
+    assertEquals(3, (int)iter.next());
+    assertEquals(1, (int)iter.next());
+    assertFalse(iter.hasNext());
+    // Loading another element into manual priority sends the first back by its count.
+    fpQueue.load(5, 2, true);
+    assertTrue(fpQueue.containsInManual(5));
+    assertTrue(fpQueue.containsInAutomatic(4));
+    assertEquals(4, (int)fpQueue.get(3));
+    assertEquals(1, (int)fpQueue.get(4));
+  }
+
+  @Test
+  public void testCountedLoadingRestoresOrder() {
+    // Elements with equal counts are loaded from the back of the list to the front.
+    fpQueue = new StackingPriorityList<>();
+    fpQueue.load(3, 2, false);
+    fpQueue.load(2, 2, false);
+    fpQueue.load(1, 2, false);
+    Iterator<Integer> iter = fpQueue.iterator();
+    assertEquals(1, (int)iter.next());
+    assertEquals(2, (int)iter.next());
+    assertEquals(3, (int)iter.next());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCountedLoadRejectsNonPositiveCount() {
+    fpQueue = new StackingPriorityList<>();
+    fpQueue.load(1, 0, false);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCountedLoadRejectsPresentElement() {
+    setupAuto();
+    fpQueue.load(2, 5, false);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testCountedLoadRejectsNull() {
+    fpQueue = new StackingPriorityList<>();
+    fpQueue.load(null, 1, false);
+  }
+
+  @Test
+  public void testCountOf() {
+    setupManual();
+    assertEquals(1, fpQueue.countOf(5));
+    assertEquals(1, fpQueue.countOf(3));
+    assertEquals(0, fpQueue.countOf(9));
+    fpQueue.addToAutomatic(2);
+    fpQueue.addToAutomatic(2);
+    assertEquals(3, fpQueue.countOf(2));
+    fpQueue.addToManual(5);
+    assertEquals(2, fpQueue.countOf(5));
+    fpQueue.remove(2);
+    assertEquals(0, fpQueue.countOf(2));
+    fpQueue.load(7, 4, false);
+    assertEquals(4, fpQueue.countOf(7));
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testCountOfRejectsNull() {
+    setupManual();
+    fpQueue.countOf(null);
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testRetrieveRejectsInvalidArg() {
     fpQueue = new StackingPriorityList<>();
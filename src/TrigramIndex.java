@@ -0,0 +1,407 @@
+import java.util.Arrays;
+
+/**
+ * An inverted index of people by the trigrams of their names, the runs of three
+ * consecutive characters in them, so that the people whose names contain some part of a
+ * name can be found without comparing every name in the index against it.
+ *
+ * <p>Every distinct trigram of the names, in lower case, is held in a hash table along
+ * with a posting list: the ordinals, in order, of every person whose name contains it.
+ * The posting lists are held end to end in a single <code>int</code> array. A fragment
+ * of a name is searched for by intersecting the posting lists of its trigrams, shortest
+ * first, and checking that each person left really does contain the fragment, since
+ * the trigrams of a name may appear in it in some other order. Fragments shorter than
+ * three characters have no trigrams, and a query made only of such fragments is
+ * answered by checking every name. The index holds no names of its own: names are read
+ * from the columns of the people indexed, by ordinal, and their case is folded as they
+ * are compared.
+ *
+ * <p>A <code>TrigramIndex</code> is not modified after it is built, and may be searched
+ * by several threads at once.
+ */
+class TrigramIndex {
+
+  /**
+   * The slot of the hash table holding no trigram.
+   */
+  private static final long EMPTY = -1L;
+
+  /**
+   * The greatest score and name length told apart when ranking matches, and the
+   * positions of each in the key by which a match is ranked. The lowest bits of the key
+   * hold the person's position in display order.
+   */
+  private static final int MAX_SCORE = 0xff;
+  private static final int MAX_LENGTH = 0xffff;
+  private static final int SCORE_SHIFT = 47;
+  private static final int LENGTH_SHIFT = 31;
+  private static final long RANK_MASK = (1L << LENGTH_SHIFT) - 1;
+
+  /**
+   * The people indexed, whose names are read from their columns.
+   */
+  private final PeopleColumns people;
+
+  /**
+   * The position of every person in display order, by ordinal, used to order people
+   * found whose names match equally well.
+   */
+  private final int[] ranks;
+
+  /**
+   * The ordinal of every person, in display order.
+   */
+  private final int[] roster;
+
+  /**
+   * The hash table of trigrams, each packed into a <code>long</code> of three 16-bit
+   * characters, with <code>EMPTY</code> in each slot holding none.
+   */
+  private long[] trigrams = new long[1024];
+
+  /**
+   * The id of the posting list of the trigram in each slot of the hash table.
+   */
+  private int[] listIds = new int[1024];
+
+  /**
+   * The number of distinct trigrams held.
+   */
+  private int trigramCount = 0;
+
+  /**
+   * The ordinals of every person, grouped by the id of each trigram in their names, and
+   * in order within each group. The posting list of trigram <code>i</code> is held
+   * from <code>listStarts[i]</code> up to <code>listStarts[i + 1]</code>.
+   */
+  private final int[] postings;
+
+  /**
+   * The position in <code>postings</code> of the first person in each posting list.
+   */
+  private final int[] listStarts;
+
+  /**
+   * Initializes a new <code>TrigramIndex</code> of the specified people.
+   *
+   * @param people
+   *        The finished columns of the people to index
+   * @param roster
+   *        The ordinal of every person, in display order
+   */
+  TrigramIndex(PeopleColumns people, int[] roster) {
+    this.people = people;
+    this.roster = roster;
+    int size = people.size();
+    ranks = new int[size];
+    Arrays.fill(trigrams, EMPTY);
+    for (int i = 0; i < size; i++) {
+      ranks[roster[i]] = i;
+    }
+
+    // Count the people with each trigram first, counting each person once per trigram
+    // however many times it appears in their name.
+    int[] counts = new int[64];
+    int[] lastSeen = new int[64];
+    for (int i = 0; i < size; i++) {
+      for (int c = 0, length = people.nameLength(i); c + 3 <= length; c++) {
+        int id = idOf(trigram(i, c), true);
+        if (id == counts.length) {
+          counts = Arrays.copyOf(counts, id * 2);
+          lastSeen = Arrays.copyOf(lastSeen, id * 2);
+        }
+        if (counts[id] == 0 || lastSeen[id] != i) {
+          counts[id]++;
+          lastSeen[id] = i;
+        }
+      }
+    }
+
+    listStarts = new int[trigramCount + 1];
+    for (int id = 0; id < trigramCount; id++) {
+      listStarts[id + 1] = listStarts[id] + counts[id];
+    }
+    postings = new int[listStarts[trigramCount]];
+    int[] next = Arrays.copyOf(listStarts, trigramCount);
+    for (int i = 0; i < size; i++) {
+      for (int c = 0, length = people.nameLength(i); c + 3 <= length; c++) {
+        int id = idOf(trigram(i, c), false);
+        if (next[id] == listStarts[id] || postings[next[id] - 1] != i) {
+          postings[next[id]++] = i;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the number of distinct trigrams held.
+   *
+   * @return The number of trigrams
+   */
+  int trigramCount() {
+    return trigramCount;
+  }
+
+  /**
+   * Returns the total length of every posting list, the number of distinct pairs of
+   * trigram and person.
+   *
+   * @return The number of postings held
+   */
+  int postingCount() {
+    return postings.length;
+  }
+
+  /**
+   * Returns the ordinals of every person whose name contains every fragment of a query,
+   * without regard to case, best match first. The fragments of a query are the parts of
+   * it separated by whitespace or by asterisks, so <code>smi*</code>,
+   * <code>*smi</code>, and <code>smi</code> are searched alike, and <code>bob
+   * sm</code> finds every name containing both <code>bob</code> and <code>sm</code>.
+   *
+   * <p>Names in which more of the fragments begin a word, at the start of the name or
+   * after a space or dash, are listed first. Names that match equally well are listed
+   * shortest first, and then in display order.
+   *
+   * @param query
+   *        The fragments of a name to search for
+   * @return The ordinals of every person matching the query, or an empty array if the
+   *         query has no fragments
+   */
+  int[] search(String query) {
+    String[] fragments = fragments(PeopleColumns.lowerCase(query));
+    if (fragments.length == 0) {
+      return new int[0];
+    }
+
+    // Narrow the search to the people with every trigram of the longer fragments.
+    int[] candidates = null;
+    int[] lists = new int[0];
+    for (String fragment : fragments) {
+      for (int c = 0; c + 3 <= fragment.length(); c++) {
+        int id = idOf(trigram(fragment, c), false);
+        if (id < 0) {
+          return new int[0];
+        }
+        lists = Arrays.copyOf(lists, lists.length + 1);
+        lists[lists.length - 1] = id;
+      }
+    }
+    if (lists.length > 0) {
+      Arrays.sort(lists);
+      sortByLength(lists);
+      candidates = Arrays.copyOfRange(postings, listStarts[lists[0]], listStarts[lists[0] + 1]);
+      for (int l = 1; l < lists.length && candidates.length > 0; l++) {
+        if (lists[l] != lists[l - 1]) {
+          candidates = intersect(candidates, lists[l]);
+        }
+      }
+    }
+
+    // Check every candidate, packing the rank of each match into a single key, so that
+    // matches are ranked by sorting the keys rather than comparing people.
+    int count = candidates == null ? people.size() : candidates.length;
+    long[] keys = new long[count];
+    int found = 0;
+    for (int i = 0; i < count; i++) {
+      int ordinal = candidates == null ? i : candidates[i];
+      int score = score(ordinal, fragments);
+      if (score >= 0) {
+        keys[found++] = (long)(MAX_SCORE - Math.min(score, MAX_SCORE)) << SCORE_SHIFT
+                        | (long)Math.min(people.nameLength(ordinal), MAX_LENGTH) << LENGTH_SHIFT
+                        | ranks[ordinal];
+      }
+    }
+    Arrays.sort(keys, 0, found);
+    int[] ranked = new int[found];
+    for (int i = 0; i < found; i++) {
+      ranked[i] = roster[(int)(keys[i] & RANK_MASK)];
+    }
+    return ranked;
+  }
+
+  /**
+   * Returns the number of fragments of a query that begin a word of a person's name,
+   * or -1 if the name does not contain every fragment.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @param fragments
+   *        The fragments of a query, in lower case
+   * @return The score of the person's name
+   */
+  private int score(int ordinal, String[] fragments) {
+    int score = 0;
+    for (String fragment : fragments) {
+      int at = people.lowerNameIndexOf(ordinal, fragment, 0);
+      if (at < 0) {
+        return -1;
+      }
+      // Prefer a match at the start of a word to the first match in the name.
+      for (; at >= 0; at = people.lowerNameIndexOf(ordinal, fragment, at + 1)) {
+        char before = at == 0 ? ' ' : people.lowerNameChar(ordinal, at - 1);
+        if (before == ' ' || before == '-') {
+          score++;
+          break;
+        }
+      }
+    }
+    return score;
+  }
+
+  /**
+   * Returns the people in a sorted array of ordinals who are also in a posting list.
+   *
+   * @param candidates
+   *        The ordinals of people, in order
+   * @param id
+   *        The id of a posting list
+   * @return The ordinals of people in both, in order
+   */
+  private int[] intersect(int[] candidates, int id) {
+    int[] kept = new int[candidates.length];
+    int count = 0;
+    int from = listStarts[id];
+    int to = listStarts[id + 1];
+    for (int ordinal : candidates) {
+      from = Arrays.binarySearch(postings, from, to, ordinal);
+      if (from >= 0) {
+        kept[count++] = ordinal;
+        from++;
+      } else {
+        from = -from - 1;
+      }
+    }
+    return Arrays.copyOf(kept, count);
+  }
+
+  /**
+   * Sort the ids of posting lists, shortest list first, so that intersecting them
+   * starts from the fewest people.
+   *
+   * @param lists
+   *        The ids of posting lists
+   */
+  private void sortByLength(int[] lists) {
+    for (int i = 1; i < lists.length; i++) {
+      int id = lists[i];
+      int length = listStarts[id + 1] - listStarts[id];
+      int j = i;
+      for (; j > 0 && listStarts[lists[j - 1] + 1] - listStarts[lists[j - 1]] > length; j--) {
+        lists[j] = lists[j - 1];
+      }
+      lists[j] = id;
+    }
+  }
+
+  /**
+   * Returns the fragments of a query, the parts of it separated by whitespace or
+   * asterisks, leaving out any that are empty.
+   *
+   * @param query
+   *        The query
+   * @return The fragments of the query
+   */
+  private static String[] fragments(String query) {
+    return Arrays.stream(query.split("[\\s*]+"))
+                 .filter(fragment -> !fragment.isEmpty())
+                 .toArray(String[]::new);
+  }
+
+  /**
+   * Returns the trigram of a fragment of a query starting at the specified character.
+   *
+   * @param fragment
+   *        The fragment, in lower case
+   * @param start
+   *        The position of the first character of the trigram
+   * @return The three characters of the trigram, packed into a <code>long</code>
+   */
+  private static long trigram(String fragment, int start) {
+    return trigram(fragment.charAt(start), fragment.charAt(start + 1),
+                   fragment.charAt(start + 2));
+  }
+
+  /**
+   * Returns the trigram of a person's name, in lower case, starting at the specified
+   * character.
+   *
+   * @param ordinal
+   *        The person's ordinal
+   * @param start
+   *        The position of the first character of the trigram
+   * @return The three characters of the trigram, packed into a <code>long</code>
+   */
+  private long trigram(int ordinal, int start) {
+    return trigram(people.lowerNameChar(ordinal, start), people.lowerNameChar(ordinal, start + 1),
+                   people.lowerNameChar(ordinal, start + 2));
+  }
+
+  /**
+   * Returns three characters packed into a trigram.
+   *
+   * @param a
+   *        The first character
+   * @param b
+   *        The second character
+   * @param c
+   *        The third character
+   * @return The three characters, packed into a <code>long</code>
+   */
+  private static long trigram(char a, char b, char c) {
+    return (long)a << 32 | (long)b << 16 | c;
+  }
+
+  /**
+   * Returns the id of the posting list of a trigram, adding the trigram to the hash
+   * table if requested.
+   *
+   * @param trigram
+   *        The trigram
+   * @param add
+   *        Whether to add the trigram if it is not held
+   * @return The id of the trigram's posting list, or -1 if it is not held and was not
+   *         added
+   */
+  private int idOf(long trigram, boolean add) {
+    int mask = trigrams.length - 1;
+    int slot = (int)PeopleColumns.mix(trigram) & mask;
+    while (trigrams[slot] != EMPTY) {
+      if (trigrams[slot] == trigram) {
+        return listIds[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    if (!add) {
+      return -1;
+    }
+    trigrams[slot] = trigram;
+    listIds[slot] = trigramCount;
+    if (++trigramCount * 3 > trigrams.length * 2) {
+      grow();
+    }
+    return trigramCount - 1;
+  }
+
+  /**
+   * Double the size of the hash table.
+   */
+  private void grow() {
+    long[] oldTrigrams = trigrams;
+    int[] oldIds = listIds;
+    trigrams = new long[oldTrigrams.length * 2];
+    listIds = new int[oldTrigrams.length * 2];
+    Arrays.fill(trigrams, EMPTY);
+    int mask = trigrams.length - 1;
+    for (int i = 0; i < oldTrigrams.length; i++) {
+      if (oldTrigrams[i] != EMPTY) {
+        int slot = (int)PeopleColumns.mix(oldTrigrams[i]) & mask;
+        while (trigrams[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        trigrams[slot] = oldTrigrams[i];
+        listIds[slot] = oldIds[i];
+      }
+    }
+  }
+}
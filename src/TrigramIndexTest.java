@@ -0,0 +1,61 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TrigramIndexTest {
+  private static final String[] NAMES = {
+    "Ayasha Abdalla-Wyse", "Amal Abdurhman", "Satvick Acharya", "Bob Smith", "Rob Smithers",
+    "Asmita Bose", "BOB SMITH JR", "Tahmid Zia"
+  };
+
+  private static int[] inOrder(int count) {
+    int[] roster = new int[count];
+    for (int i = 0; i < count; i++) {
+      roster[i] = i;
+    }
+    return roster;
+  }
+
+  @Test
+  public void testRankedMatches() {
+    TrigramIndex index = new TrigramIndex(RandomNames.columns(NAMES), inOrder(NAMES.length));
+    // Matches at the start of a word first, then shorter names.
+    assertArrayEquals(new int[] {3, 4, 6, 5}, index.search("smi*"));
+    assertArrayEquals(new int[] {3, 4, 6, 5}, index.search("*SMI"));
+    assertArrayEquals(new int[] {3, 6}, index.search("bob sm"));
+    assertArrayEquals(new int[] {1, 0}, index.search("abd"));
+    assertArrayEquals(new int[] {0}, index.search("la-w"));
+    assertArrayEquals(new int[0], index.search("xyz*"));
+    assertArrayEquals(new int[0], index.search("*  *"));
+  }
+
+  @Test
+  public void testDisplayOrderBreaksTies() {
+    PeopleColumns people = RandomNames.columns("Bob Smith", "Rob Smith", "Ann Smith");
+    TrigramIndex index = new TrigramIndex(people, new int[] {2, 0, 1});
+    assertArrayEquals(new int[] {2, 0, 1}, index.search("smith"));
+  }
+
+  @Test
+  public void testSearchMatchesScan() {
+    Random random = new Random(41);
+    String letters = "abcAB-";
+    PeopleColumns people = RandomNames.columns(RandomNames.names(random, 500, 6, 8, letters));
+    TrigramIndex index = new TrigramIndex(people, inOrder(people.size()));
+    for (int n = 0; n < 300; n++) {
+      String query = RandomNames.string(random, 4, letters) + (random.nextBoolean() ? "*" : " ")
+                     + RandomNames.string(random, 3, letters);
+      String[] parts = query.toLowerCase().split("[ *]+");
+      int[] expected = RandomNames.scan(people.size(), i -> {
+        boolean all = !String.join("", parts).isEmpty();
+        for (String part : parts) {
+          all &= people.name(i).toLowerCase().contains(part);
+        }
+        return all;
+      });
+      assertArrayEquals(query, expected, RandomNames.sorted(index.search(query)));
+    }
+  }
+}